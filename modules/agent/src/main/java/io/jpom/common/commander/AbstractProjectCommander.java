@@ -53,12 +53,14 @@ import io.jpom.system.AgentExtConfigBean;
 import io.jpom.system.JpomRuntimeException;
 import io.jpom.util.CommandUtil;
 import io.jpom.util.FileUtils;
+import io.jpom.util.JvmProcessRegistry;
 import io.jpom.util.JvmUtil;
 import io.jpom.util.ProjectCommanderUtil;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -467,7 +469,8 @@ public abstract class AbstractProjectCommander {
      */
     protected String status(String tag) {
         String jpsStatus = this.getJpsStatus(tag);
-        if (StrUtil.equals(AbstractProjectCommander.STOP_TAG, jpsStatus) && SystemUtil.getOsInfo().isLinux()) {
+        // 进程注册表已经包含所有进程的命令行，不需要再使用 ps 查询
+        if (StrUtil.equals(AbstractProjectCommander.STOP_TAG, jpsStatus) && SystemUtil.getOsInfo().isLinux() && !JvmProcessRegistry.isSupport()) {
             return getLinuxPsStatus(tag);
         }
         return jpsStatus;
@@ -521,9 +524,39 @@ public abstract class AbstractProjectCommander {
             return cachePort;
         }
         List<NetstatModel> list = listNetstat(pid, true);
-        if (list == null) {
+        String allPort = this.parseMainPort(list);
+        if (allPort == null) {
             return StrUtil.DASHED;
         }
+        // 缓存
+        PID_PORT.put(pid, allPort);
+        return allPort;
+    }
+
+    /**
+     * 批量获取进程占用的主要端口
+     *
+     * @param pids 进程id
+     * @return 进程id 对应的端口
+     */
+    public Map<Integer, String> getMainPort(Collection<Integer> pids) {
+        Map<Integer, String> map = new HashMap<>(pids.size());
+        for (Integer pid : pids) {
+            map.put(pid, this.getMainPort(pid));
+        }
+        return map;
+    }
+
+    /**
+     * 解析监听的端口
+     *
+     * @param list 网络信息
+     * @return 多个端口使用逗号分隔，没有端口返回 null
+     */
+    protected String parseMainPort(List<NetstatModel> list) {
+        if (list == null) {
+            return null;
+        }
         List<Integer> ports = new ArrayList<>();
         for (NetstatModel model : list) {
             String local = model.getLocal();
@@ -539,12 +572,9 @@ public abstract class AbstractProjectCommander {
             ports.add(minPort);
         }
         if (CollUtil.isEmpty(ports)) {
-            return StrUtil.DASHED;
+            return null;
         }
-        String allPort = CollUtil.join(ports, StrUtil.COMMA);
-        // 缓存
-        PID_PORT.put(pid, allPort);
-        return allPort;
+        return CollUtil.join(ports, StrUtil.COMMA);
     }
 
     /**
@@ -660,6 +690,8 @@ public abstract class AbstractProjectCommander {
         int loopCount = (int) (TimeUnit.SECONDS.toMillis(stopWaitTime) / 500);
         int count = 0;
         do {
+            // 启动、停止过程中需要读取最新的进程信息
+            JvmProcessRegistry.expire();
             if (this.isRun(nodeProjectInfoModel, javaCopyItem) == status) {
                 return status;
             }
@@ -0,0 +1,391 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Code Technology Studio
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jpom.common.commander.impl;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import com.alibaba.fastjson.JSONObject;
+import io.jpom.model.system.ProcessModel;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.function.BiPredicate;
+import java.util.function.Supplier;
+
+/**
+ * 读取 /proc 获取系统和进程的监控信息，代替执行 top 命令后解析输出内容
+ * <p>
+ * cpu 占用根据和上一次采样的差值计算，读取文件共用同一个缓冲区
+ *
+ * @author bwcx_jzy
+ * @since 2022/5/24
+ */
+class LinuxProcMetrics {
+
+	private static final File PROC = FileUtil.file("/proc");
+	/**
+	 * 每秒的时钟滴答数，linux 中基本都为 100
+	 */
+	private static final int CLK_TCK = 100;
+	/**
+	 * 进程采样记录的最大数量
+	 */
+	private static final int MAX_SAMPLE_SIZE = 4096;
+
+	private final byte[] buffer = new byte[16 * 1024];
+	private final long pageSize;
+	/**
+	 * 上一次系统 cpu 采样 [总时间, 空闲时间]
+	 */
+	private long[] lastCpu;
+	private final Map<Integer, ProcessSample> processSampleMap = new HashMap<>();
+
+	LinuxProcMetrics() {
+		this.pageSize = this.readPageSize();
+	}
+
+	/**
+	 * 当前系统是否支持
+	 *
+	 * @return true 支持
+	 */
+	static boolean isSupport() {
+		return FileUtil.isFile("/proc/stat") && FileUtil.isFile("/proc/meminfo");
+	}
+
+	/**
+	 * 系统 cpu、内存占用
+	 *
+	 * @return json
+	 */
+	synchronized JSONObject getAllMonitor() {
+		JSONObject jsonObject = new JSONObject();
+		String stat = this.read("/proc/stat");
+		if (stat != null) {
+			// cpu  user nice system idle iowait irq softirq steal
+			String line = StrUtil.subBefore(stat, StrUtil.LF, false);
+			List<String> list = StrUtil.splitTrim(line, StrUtil.SPACE);
+			long total = 0;
+			for (int i = 1; i < list.size() && i <= 8; i++) {
+				total += Long.parseLong(list.get(i));
+			}
+			long idle = Long.parseLong(list.get(4)) + Long.parseLong(list.get(5));
+			long[] lastCpu = this.lastCpu;
+			this.lastCpu = new long[]{total, idle};
+			if (lastCpu != null && total > lastCpu[0]) {
+				total -= lastCpu[0];
+				idle -= lastCpu[1];
+			}
+			if (total > 0) {
+				jsonObject.put("cpu", String.format("%.2f", (total - idle) * 100D / total));
+			}
+		}
+		Map<String, Long> memInfo = this.readMemInfo();
+		long memTotal = memInfo.getOrDefault("MemTotal", 0L);
+		if (memTotal > 0) {
+			long memFree = memInfo.getOrDefault("MemFree", 0L);
+			Long memAvailable = memInfo.get("MemAvailable");
+			if (memAvailable == null) {
+				// 低版本内核没有 MemAvailable
+				memAvailable = memFree + memInfo.getOrDefault("Buffers", 0L) + memInfo.getOrDefault("Cached", 0L);
+			}
+			jsonObject.put("memory", String.format("%.2f", (memTotal - memFree) * 100D / memTotal));
+			jsonObject.put("memoryUsed", String.format("%.2f", (memTotal - memAvailable) * 100D / memTotal));
+		}
+		return jsonObject;
+	}
+
+	/**
+	 * 查询进程名包含指定名称的进程
+	 *
+	 * @param processName 进程名
+	 * @return list
+	 */
+	List<ProcessModel> listProcess(String processName) {
+		String[] names = PROC.list();
+		if (names == null) {
+			return null;
+		}
+		long memTotal = this.getMemTotal();
+		Set<Integer> pidSet = new HashSet<>();
+		List<ProcessModel> list = new ArrayList<>();
+		for (String name : names) {
+			if (!StrUtil.isNumeric(name)) {
+				continue;
+			}
+			int pid = Integer.parseInt(name);
+			pidSet.add(pid);
+			ProcessModel processModel = this.readProcess(pid, memTotal, (command, user) -> StrUtil.contains(command, processName) || StrUtil.equals(user.get(), processName));
+			if (processModel != null) {
+				list.add(processModel);
+			}
+		}
+		synchronized (this) {
+			// 清理已经结束的进程
+			processSampleMap.keySet().retainAll(pidSet);
+		}
+		return list;
+	}
+
+	/**
+	 * 查询指定进程
+	 *
+	 * @param pid 进程号
+	 * @return 进程信息
+	 */
+	ProcessModel getProcess(int pid) {
+		return this.readProcess(pid, this.getMemTotal(), (command, user) -> true);
+	}
+
+	private synchronized long getMemTotal() {
+		return this.readMemInfo().getOrDefault("MemTotal", 0L);
+	}
+
+	/**
+	 * 读取进程信息
+	 *
+	 * @param pid      进程号
+	 * @param memTotal 总内存
+	 * @param filter   过滤条件（进程名，进程用户），在读取 stat 后立即判断，不满足的进程不再读取其他信息
+	 * @return 进程不存在或者不满足条件返回 null
+	 */
+	private ProcessModel readProcess(int pid, long memTotal, BiPredicate<String, Supplier<String>> filter) {
+		ProcessModel processModel;
+		synchronized (this) {
+			processModel = this.fillProcess(pid, memTotal, filter);
+		}
+		if (processModel == null) {
+			return null;
+		}
+		// 设置进程号会查询端口、项目名称，不在锁内执行
+		processModel.setPid(pid);
+		return processModel;
+	}
+
+	private ProcessModel fillProcess(int pid, long memTotal, BiPredicate<String, Supplier<String>> filter) {
+		String stat = this.read(StrUtil.format("/proc/{}/stat", pid));
+		if (stat == null) {
+			processSampleMap.remove(pid);
+			return null;
+		}
+		// pid (comm) state ppid ...  进程名中可能有空格、括号
+		int commStart = stat.indexOf('(');
+		int commEnd = stat.lastIndexOf(')');
+		if (commStart < 0 || commEnd < commStart) {
+			processSampleMap.remove(pid);
+			return null;
+		}
+		String[] fields = StrUtil.splitToArray(stat.substring(commEnd + 1).trim(), ' ');
+		if (fields.length < 22) {
+			processSampleMap.remove(pid);
+			return null;
+		}
+		// 字段下标 = proc(5) 中的字段序号 - 3
+		long cpuTime = Long.parseLong(fields[11]) + Long.parseLong(fields[12]);
+		long startTime = Long.parseLong(fields[19]);
+		ProcessSample sample = processSampleMap.get(pid);
+		if (sample != null && sample.startTime != startTime) {
+			// 进程号被复用
+			sample = null;
+		}
+		// 进程用户需要查询文件所有者，只在进程名不匹配时按需读取
+		String command = stat.substring(commStart + 1, commEnd);
+		String[] user = {sample == null ? null : sample.user};
+		Supplier<String> userSupplier = () -> {
+			if (user[0] == null) {
+				user[0] = this.readUser(pid);
+			}
+			return user[0];
+		};
+		if (!filter.test(command, userSupplier)) {
+			return null;
+		}
+		long now = System.nanoTime();
+		double cpu;
+		if (sample != null && now > sample.nanoTime) {
+			cpu = (cpuTime - sample.cpuTime) * 100D / ((now - sample.nanoTime) / 1_000_000_000D * CLK_TCK);
+		} else {
+			// 第一次采样计算进程启动以来的平均值
+			sample = new ProcessSample(startTime, userSupplier.get());
+			double uptime = this.readUptime();
+			double runTime = uptime * CLK_TCK - startTime;
+			cpu = runTime > 0 ? cpuTime * 100D / runTime : 0;
+			if (processSampleMap.size() >= MAX_SAMPLE_SIZE) {
+				processSampleMap.clear();
+			}
+			processSampleMap.put(pid, sample);
+		}
+		sample.cpuTime = cpuTime;
+		sample.nanoTime = now;
+		//
+		long rss = Long.parseLong(fields[21]) * pageSize;
+		ProcessModel processModel = new ProcessModel();
+		processModel.setCommand(command);
+		processModel.setUser(sample.user);
+		processModel.setStatus(LinuxSystemCommander.formStatus(fields[0]));
+		processModel.setPr(fields[15]);
+		processModel.setNi(fields[16]);
+		processModel.setThreadCount(fields[17]);
+		processModel.setVirt(formatSize(Long.parseLong(fields[20])));
+		processModel.setRes(formatSize(rss));
+		processModel.setCpu(String.format("%.1f%%", cpu));
+		if (memTotal > 0) {
+			processModel.setMem(String.format("%.1f%%", rss * 100D / (memTotal * 1024)));
+		}
+		processModel.setTime(formatTime(cpuTime));
+		// statm: size resident shared ...
+		String statm = this.read(StrUtil.format("/proc/{}/statm", pid));
+		if (statm != null) {
+			String[] split = StrUtil.splitToArray(statm.trim(), ' ');
+			if (split.length > 2) {
+				processModel.setShr(formatSize(Long.parseLong(split[2]) * pageSize));
+			}
+		}
+		// 其他用户的进程可能没有权限读取
+		String io = this.read(StrUtil.format("/proc/{}/io", pid));
+		if (io != null) {
+			for (String line : StrUtil.splitTrim(io, StrUtil.LF)) {
+				if (line.startsWith("read_bytes:")) {
+					processModel.setIoRead(FileUtil.readableFileSize(Long.parseLong(StrUtil.subAfter(line, ':', false).trim())));
+				} else if (line.startsWith("write_bytes:")) {
+					processModel.setIoWrite(FileUtil.readableFileSize(Long.parseLong(StrUtil.subAfter(line, ':', false).trim())));
+				}
+			}
+		}
+		String[] fds = FileUtil.file(PROC, pid + "", "fd").list();
+		if (fds != null) {
+			processModel.setFdCount(String.valueOf(fds.length));
+		}
+		return processModel;
+	}
+
+	private Map<String, Long> readMemInfo() {
+		Map<String, Long> map = new HashMap<>(16);
+		String memInfo = this.read("/proc/meminfo");
+		if (memInfo == null) {
+			return map;
+		}
+		// MemTotal:       16318092 kB
+		for (String line : StrUtil.splitTrim(memInfo, StrUtil.LF)) {
+			int index = line.indexOf(':');
+			if (index <= 0) {
+				continue;
+			}
+			String value = StrUtil.removeSuffix(line.substring(index + 1).trim(), " kB");
+			if (StrUtil.isNumeric(value)) {
+				map.put(line.substring(0, index), Long.parseLong(value));
+			}
+		}
+		return map;
+	}
+
+	private double readUptime() {
+		String uptime = this.read("/proc/uptime");
+		if (uptime == null) {
+			return 0;
+		}
+		return Double.parseDouble(StrUtil.subBefore(uptime.trim(), StrUtil.SPACE, false));
+	}
+
+	private String readUser(int pid) {
+		try {
+			return Files.getOwner(FileUtil.file(PROC, pid + "").toPath()).getName();
+		} catch (Exception e) {
+			return StrUtil.DASHED;
+		}
+	}
+
+	/**
+	 * 内存页大小，读取 smaps 中的 KernelPageSize，读取失败默认 4 kB
+	 *
+	 * @return 字节
+	 */
+	private long readPageSize() {
+		try {
+			for (String line : FileUtil.readUtf8Lines(FileUtil.file(PROC, "self", "smaps"))) {
+				if (line.startsWith("KernelPageSize:")) {
+					String value = StrUtil.removeSuffix(StrUtil.subAfter(line, ':', false).trim(), " kB");
+					return Long.parseLong(value) * 1024;
+				}
+			}
+		} catch (Exception ignored) {
+		}
+		return 4096;
+	}
+
+	/**
+	 * 读取文件内容，内容超过缓冲区大小时只返回前面的部分
+	 *
+	 * @param path 路径
+	 * @return 读取失败返回 null
+	 */
+	private String read(String path) {
+		try (FileInputStream inputStream = new FileInputStream(path)) {
+			int length = 0;
+			int read;
+			while (length < buffer.length && (read = inputStream.read(buffer, length, buffer.length - length)) != -1) {
+				length += read;
+			}
+			return new String(buffer, 0, length, StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	private static String formatSize(long bytes) {
+		return bytes / 1024 / 1024 + " MB";
+	}
+
+	/**
+	 * 格式化为和 top 中 TIME+ 一致的格式 分:秒.百分秒
+	 *
+	 * @param cpuTime 时钟滴答数
+	 * @return str
+	 */
+	private static String formatTime(long cpuTime) {
+		long hundredths = cpuTime * 100 / CLK_TCK;
+		return String.format("%d:%02d.%02d", hundredths / 6000, hundredths / 100 % 60, hundredths % 100);
+	}
+
+	/**
+	 * 进程上一次的采样
+	 */
+	private static class ProcessSample {
+		/**
+		 * 进程启动时间，用于判断进程号是否被复用
+		 */
+		private final long startTime;
+		private final String user;
+		private long cpuTime;
+		private long nanoTime;
+
+		private ProcessSample(long startTime, String user) {
+			this.startTime = startTime;
+			this.user = user;
+		}
+	}
+}
@@ -29,7 +29,10 @@ import io.jpom.common.commander.BaseUnixProjectCommander;
 import io.jpom.model.system.NetstatModel;
 import io.jpom.util.CommandUtil;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
@@ -40,8 +43,34 @@ import java.util.stream.Collectors;
  */
 public class LinuxProjectCommander extends BaseUnixProjectCommander {
 
+	private final LinuxSocketIndex socketIndex = LinuxSocketIndex.isSupport() ? new LinuxSocketIndex() : null;
+
+	@Override
+	public String getMainPort(int pid) {
+		if (socketIndex == null) {
+			return super.getMainPort(pid);
+		}
+		// 查询端口的开销很小，不再缓存结果
+		String port = this.parseMainPort(socketIndex.list(pid, true));
+		return StrUtil.emptyToDefault(port, StrUtil.DASHED);
+	}
+
+	@Override
+	public Map<Integer, String> getMainPort(Collection<Integer> pids) {
+		if (socketIndex == null) {
+			return super.getMainPort(pids);
+		}
+		Map<Integer, List<NetstatModel>> listMap = socketIndex.listListening(pids);
+		Map<Integer, String> map = new HashMap<>(listMap.size());
+		listMap.forEach((pid, list) -> map.put(pid, StrUtil.emptyToDefault(this.parseMainPort(list), StrUtil.DASHED)));
+		return map;
+	}
+
 	@Override
 	public List<NetstatModel> listNetstat(int pId, boolean listening) {
+		if (socketIndex != null) {
+			return socketIndex.list(pId, listening);
+		}
 		String cmd;
 		if (listening) {
 			cmd = "netstat -antup | grep " + pId + " |grep \"LISTEN\" | head -20";
@@ -0,0 +1,293 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Code Technology Studio
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jpom.common.commander.impl;
+
+import cn.hutool.core.date.SystemClock;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.HexUtil;
+import cn.hutool.core.util.StrUtil;
+import io.jpom.model.system.NetstatModel;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 读取 /proc/net/tcp、udp 建立 socket inode 索引，再通过 /proc/[pid]/fd 找到进程的 socket，代替 netstat 命令
+ * <p>
+ * 索引缓存一个很短的时间，同一批查询只读取一次网络信息
+ *
+ * @author bwcx_jzy
+ * @since 2022/5/24
+ */
+class LinuxSocketIndex {
+
+	private static final File PROC = FileUtil.file("/proc");
+	private static final String[] NET_FILES = {"tcp", "tcp6", "udp", "udp6"};
+	/**
+	 * 下标为 /proc/net/tcp 中的状态值
+	 */
+	private static final String[] TCP_STATES = {StrUtil.EMPTY, "ESTABLISHED", "SYN_SENT", "SYN_RECV", "FIN_WAIT1", "FIN_WAIT2",
+			"TIME_WAIT", "CLOSE", "CLOSE_WAIT", "LAST_ACK", "LISTEN", "CLOSING"};
+	private static final String LISTEN = "LISTEN";
+	/**
+	 * 和之前 netstat 命令一致，最多返回 20 条
+	 */
+	private static final int MAX_SIZE = 20;
+	private static final long TTL = TimeUnit.SECONDS.toMillis(2);
+
+	private volatile Snapshot snapshot;
+
+	/**
+	 * 当前系统是否支持
+	 *
+	 * @return true 支持
+	 */
+	static boolean isSupport() {
+		return FileUtil.isFile("/proc/net/tcp");
+	}
+
+	/**
+	 * 查询进程的网络连接
+	 *
+	 * @param pid       进程号
+	 * @param listening 是否只查询监听的端口
+	 * @return list
+	 */
+	List<NetstatModel> list(int pid, boolean listening) {
+		return this.list(this.getSocketMap(), pid, listening);
+	}
+
+	/**
+	 * 批量查询进程监听的端口，只读取一次网络信息
+	 *
+	 * @param pids 进程号
+	 * @return 进程号对应的网络连接
+	 */
+	Map<Integer, List<NetstatModel>> listListening(Collection<Integer> pids) {
+		Map<Long, SocketItem> socketMap = this.getSocketMap();
+		Map<Integer, List<NetstatModel>> map = new HashMap<>(pids.size());
+		for (Integer pid : pids) {
+			map.put(pid, this.list(socketMap, pid, true));
+		}
+		return map;
+	}
+
+	private List<NetstatModel> list(Map<Long, SocketItem> socketMap, int pid, boolean listening) {
+		String comm = StrUtil.trim(this.read(FileUtil.file(PROC, pid + "", "comm")));
+		String name = StrUtil.isEmpty(comm) ? String.valueOf(pid) : pid + StrUtil.SLASH + comm;
+		List<NetstatModel> list = new ArrayList<>();
+		for (Long inode : this.listSocketInode(pid)) {
+			SocketItem socketItem = socketMap.get(inode);
+			if (socketItem == null) {
+				continue;
+			}
+			if (listening ? !StrUtil.equals(socketItem.status, LISTEN) : StrUtil.equals(socketItem.status, "CLOSE_WAIT")) {
+				continue;
+			}
+			NetstatModel netstatModel = new NetstatModel();
+			netstatModel.setProtocol(socketItem.protocol);
+			netstatModel.setReceive(socketItem.receive);
+			netstatModel.setSend(socketItem.send);
+			netstatModel.setLocal(socketItem.local);
+			netstatModel.setForeign(socketItem.foreign);
+			netstatModel.setStatus(socketItem.status);
+			netstatModel.setName(name);
+			list.add(netstatModel);
+			if (list.size() >= MAX_SIZE) {
+				break;
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * 进程打开的 socket inode
+	 *
+	 * @param pid 进程号
+	 * @return 没有权限读取时返回空
+	 */
+	private Set<Long> listSocketInode(int pid) {
+		File fdDir = FileUtil.file(PROC, pid + "", "fd");
+		File[] files = fdDir.listFiles();
+		if (files == null) {
+			return Collections.emptySet();
+		}
+		Set<Long> set = new LinkedHashSet<>();
+		for (File file : files) {
+			try {
+				// socket:[12345]
+				String link = Files.readSymbolicLink(file.toPath()).toString();
+				if (link.startsWith("socket:[")) {
+					set.add(Long.parseLong(link.substring(8, link.length() - 1)));
+				}
+			} catch (Exception ignored) {
+				// 文件句柄已经关闭
+			}
+		}
+		return set;
+	}
+
+	private Map<Long, SocketItem> getSocketMap() {
+		Snapshot snapshot = this.snapshot;
+		if (snapshot != null && SystemClock.now() - snapshot.time < TTL) {
+			return snapshot.socketMap;
+		}
+		synchronized (this) {
+			snapshot = this.snapshot;
+			if (snapshot != null && SystemClock.now() - snapshot.time < TTL) {
+				return snapshot.socketMap;
+			}
+			Map<Long, SocketItem> socketMap = new HashMap<>(64);
+			for (String netFile : NET_FILES) {
+				this.readNetFile(netFile, socketMap);
+			}
+			snapshot = new Snapshot(SystemClock.now(), socketMap);
+			this.snapshot = snapshot;
+			return socketMap;
+		}
+	}
+
+	/**
+	 * 读取网络连接信息
+	 * <pre>
+	 * sl  local_address rem_address   st tx_queue:rx_queue tr:tm->when retrnsmt   uid  timeout inode
+	 * 0: 00000000:1F90 00000000:0000 0A 00000000:00000000 00:00000000 00000000  1000        0 23456 ...
+	 * </pre>
+	 *
+	 * @param protocol  协议（文件名）
+	 * @param socketMap 结果
+	 */
+	private void readNetFile(String protocol, Map<Long, SocketItem> socketMap) {
+		Path path = FileUtil.file(PROC, "net", protocol).toPath();
+		if (!Files.isReadable(path)) {
+			return;
+		}
+		boolean tcp = protocol.startsWith("tcp");
+		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.US_ASCII)) {
+			// 第一行为表头
+			String line = reader.readLine();
+			while ((line = reader.readLine()) != null) {
+				List<String> list = StrUtil.splitTrim(line, StrUtil.SPACE);
+				if (list.size() < 10) {
+					continue;
+				}
+				long inode = Long.parseLong(list.get(9));
+				if (inode == 0) {
+					continue;
+				}
+				SocketItem socketItem = new SocketItem();
+				socketItem.protocol = protocol;
+				socketItem.local = parseAddress(list.get(1));
+				socketItem.foreign = parseAddress(list.get(2));
+				if (tcp) {
+					int state = Integer.parseInt(list.get(3), 16);
+					socketItem.status = state < TCP_STATES.length ? TCP_STATES[state] : list.get(3);
+				} else {
+					socketItem.status = StrUtil.DASHED;
+				}
+				String[] queue = StrUtil.splitToArray(list.get(4), StrUtil.COLON);
+				if (queue.length == 2) {
+					socketItem.send = String.valueOf(Long.parseLong(queue[0], 16));
+					socketItem.receive = String.valueOf(Long.parseLong(queue[1], 16));
+				}
+				socketMap.put(inode, socketItem);
+			}
+		} catch (IOException | RuntimeException ignored) {
+			// 读取过程中连接变化，忽略本次剩余内容
+		}
+	}
+
+	/**
+	 * 解析地址，ip 为主机字节序（每 4 个字节倒序）的十六进制，端口为十六进制
+	 *
+	 * @param value 0100007F:1F90
+	 * @return 127.0.0.1:8080，ipv6 的任意地址和 netstat 一致返回 :::8080
+	 */
+	private static String parseAddress(String value) {
+		String ipHex = StrUtil.subBefore(value, StrUtil.COLON, false);
+		int port = Integer.parseInt(StrUtil.subAfter(value, StrUtil.COLON, false), 16);
+		byte[] bytes = HexUtil.decodeHex(ipHex);
+		for (int i = 0; i + 3 < bytes.length; i += 4) {
+			byte b = bytes[i];
+			bytes[i] = bytes[i + 3];
+			bytes[i + 3] = b;
+			b = bytes[i + 1];
+			bytes[i + 1] = bytes[i + 2];
+			bytes[i + 2] = b;
+		}
+		String ip;
+		if (bytes.length == 16 && isZero(bytes)) {
+			ip = "::";
+		} else {
+			try {
+				ip = InetAddress.getByAddress(bytes).getHostAddress();
+			} catch (IOException e) {
+				ip = ipHex;
+			}
+		}
+		return ip + StrUtil.COLON + port;
+	}
+
+	private static boolean isZero(byte[] bytes) {
+		for (byte b : bytes) {
+			if (b != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private String read(File file) {
+		try {
+			return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	private static class Snapshot {
+		private final long time;
+		private final Map<Long, SocketItem> socketMap;
+
+		private Snapshot(long time, Map<Long, SocketItem> socketMap) {
+			this.time = time;
+			this.socketMap = socketMap;
+		}
+	}
+
+	private static class SocketItem {
+		private String protocol;
+		private String local;
+		private String foreign;
+		private String status;
+		private String receive = StrUtil.DASHED;
+		private String send = StrUtil.DASHED;
+	}
+}
@@ -41,13 +41,22 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
+ * linux 系统中优先读取 /proc 获取监控信息，不支持时使用 top 命令
+ *
  * @author jiangzeyin
  * @since 2019/4/16
  */
 public class LinuxSystemCommander extends AbstractSystemCommander {
 
+	private final LinuxProcMetrics procMetrics = LinuxProcMetrics.isSupport() ? new LinuxProcMetrics() : null;
+
 	@Override
 	public JSONObject getAllMonitor() {
+		if (procMetrics != null) {
+			JSONObject jsonObject = procMetrics.getAllMonitor();
+			jsonObject.put("disk", getHardDisk());
+			return jsonObject;
+		}
 		String result = CommandUtil.execSystemCommand("top -i -b -n 1");
 		if (StrUtil.isEmpty(result)) {
 			return null;
@@ -75,6 +84,9 @@ public class LinuxSystemCommander extends AbstractSystemCommander {
 
 	@Override
 	public List<ProcessModel> getProcessList(String processName) {
+		if (procMetrics != null) {
+			return procMetrics.listProcess(processName);
+		}
 		String s = CommandUtil.execSystemCommand("top -b -n 1 | grep " + processName);
 		return formatLinuxTop(s, false);
 	}
@@ -82,6 +94,9 @@ public class LinuxSystemCommander extends AbstractSystemCommander {
 
 	@Override
 	public ProcessModel getPidInfo(int pid) {
+		if (procMetrics != null) {
+			return procMetrics.getProcess(pid);
+		}
 		String command = "top -b -n 1 -p " + pid;
 		String internal = CommandUtil.execSystemCommand(command);
 		List<ProcessModel> processModels = formatLinuxTop(internal, true);
@@ -135,7 +150,7 @@ public class LinuxSystemCommander extends AbstractSystemCommander {
 	}
 
 
-	private static String formStatus(String val) {
+	static String formStatus(String val) {
 		String value = "未知";
 		if ("S".equalsIgnoreCase(val)) {
 			value = "睡眠";
@@ -25,11 +25,17 @@ package io.jpom.controller.manage;
 import cn.hutool.core.collection.CollStreamUtil;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.convert.Convert;
+import cn.hutool.core.date.SystemClock;
 import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.lang.func.VoidFunc1;
 import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.core.util.ArrayUtil;
 import cn.hutool.core.util.BooleanUtil;
+import cn.hutool.core.util.CharsetUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.ReUtil;
 import cn.hutool.core.util.StrUtil;
+import cn.hutool.core.util.ZipUtil;
 import cn.hutool.crypto.SecureUtil;
 import cn.hutool.extra.servlet.ServletUtil;
 import cn.hutool.http.HttpUtil;
@@ -51,6 +57,7 @@ import io.jpom.service.WhitelistDirectoryService;
 import io.jpom.service.manage.ConsoleService;
 import io.jpom.socket.ConsoleCommandOp;
 import io.jpom.system.AgentConfigBean;
+import io.jpom.system.ConfigBean;
 import io.jpom.util.*;
 import org.springframework.http.MediaType;
 import org.springframework.util.Assert;
@@ -58,6 +65,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.io.File;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -124,15 +132,8 @@ public class ProjectFileControl extends BaseAgentController {
         Assert.notEmpty(data, "没有要对比的数据");
         // 扫描项目目录下面的所有文件
         String path = projectInfoModel.allLib();
-        List<File> files = FileUtil.loopFiles(path);
         // 将所有的文件信息组装并签名
-        List<JSONObject> collect = files.stream().map(file -> {
-            //
-            JSONObject item = new JSONObject();
-            item.put("name", StringUtil.delStartPath(file, path, true));
-            item.put("sha1", SecureUtil.sha1(file));
-            return item;
-        }).collect(Collectors.toList());
+        List<JSONObject> collect = FileSha1Manifest.create(FileUtil.file(path), path);
         // 得到 当前下面文件夹下面所有的文件信息 map
         Map<String, String> nowMap = CollStreamUtil.toMap(collect,
             jsonObject12 -> jsonObject12.getString("name"),
@@ -187,17 +188,7 @@ public class ProjectFileControl extends BaseAgentController {
             .setUseOriginalFilename(true);
         // 压缩文件
         String type = getParameter("type");
-        // 是否清空
-        String clearType = getParameter("clearType");
-        String levelName = getParameter("levelName");
-        File lib = StrUtil.isEmpty(levelName) ? new File(pim.allLib()) : FileUtil.file(pim.allLib(), levelName);
-        // 备份文件
-        String backupId = ProjectFileBackupUtil.backup(pim.getId(), pim.allLib());
-        try {
-            // 判断是否需要清空
-            if ("clear".equalsIgnoreCase(clearType)) {
-                CommandUtil.systemFastDel(lib);
-            }
+        return this.saveProjectFile(pim, lib -> {
             if ("unzip".equals(type)) {
                 multipartFileBuilder.setFileExt(StringUtil.PACKAGE_EXT);
                 multipartFileBuilder.setSavePath(AgentConfigBean.getInstance().getTempPathName());
@@ -216,6 +207,180 @@ public class ProjectFileControl extends BaseAgentController {
                 // 保存
                 multipartFileBuilder.save();
             }
+        });
+    }
+
+    /**
+     * 分片上传，检查节点还缺少的分片（分片按照 sha1 存储，已经存在的分片不需要重复上传）
+     *
+     * @param sliceShas 所有分片的 sha1，逗号分隔
+     * @return json 缺少的分片
+     */
+    @PostMapping(value = "slice_check", produces = MediaType.APPLICATION_JSON_VALUE)
+    public String sliceCheck(String sliceShas) {
+        List<String> list = this.checkSliceShas(sliceShas);
+        File sliceDir = this.getSliceDir();
+        long now = SystemClock.now();
+        List<String> missing = list.stream()
+            .distinct()
+            .filter(sha1 -> {
+                File sliceFile = FileUtil.file(sliceDir, sha1);
+                // 更新使用时间，避免即将合并的分片被定时清理
+                return !FileUtil.isFile(sliceFile) || !sliceFile.setLastModified(now);
+            })
+            .collect(Collectors.toList());
+        return JsonMessage.getString(200, "", missing);
+    }
+
+    /**
+     * 上传单个分片
+     *
+     * @param sliceSha1 分片 sha1
+     * @return json
+     */
+    @PostMapping(value = "slice_upload", produces = MediaType.APPLICATION_JSON_VALUE)
+    public String sliceUpload(String sliceSha1) throws Exception {
+        this.checkSliceShas(sliceSha1);
+        File sliceDir = this.getSliceDir();
+        File sliceFile = FileUtil.file(sliceDir, sliceSha1);
+        if (FileUtil.exist(sliceFile)) {
+            return JsonMessage.getString(200, "分片已经存在");
+        }
+        File tempDir = FileUtil.file(sliceDir, "temp", IdUtil.fastSimpleUUID());
+        try {
+            MultipartFileBuilder multipartFileBuilder = createMultipart().addFieldName("file");
+            multipartFileBuilder.setSavePath(FileUtil.getAbsolutePath(tempDir));
+            String path = multipartFileBuilder.save();
+            File file = new File(path);
+            Assert.state(StrUtil.equals(SecureUtil.sha1(file), sliceSha1), "分片校验失败");
+            FileUtil.move(file, sliceFile, true);
+        } finally {
+            FileUtil.del(tempDir);
+        }
+        return JsonMessage.getString(200, "上传成功");
+    }
+
+    /**
+     * 合并分片，合并后处理逻辑和直接上传一致
+     *
+     * @param sliceShas 所有分片的 sha1（按照顺序），逗号分隔
+     * @param fileSha1  完整文件的 sha1
+     * @param fileName  文件名
+     * @return json
+     */
+    @PostMapping(value = "slice_merge", produces = MediaType.APPLICATION_JSON_VALUE)
+    public String sliceMerge(String sliceShas, String fileSha1, @ValidatorItem String fileName) throws Exception {
+        NodeProjectInfoModel pim = getProjectInfoModel();
+        List<String> list = this.checkSliceShas(sliceShas);
+        File sliceDir = this.getSliceDir();
+        File tempDir = FileUtil.file(sliceDir, "merge", IdUtil.fastSimpleUUID());
+        File mergeFile = FileUtil.file(tempDir, FileUtil.getName(fileName));
+        try {
+            // 分片可能被其他文件共用，合并后不删除，由定时任务清理长时间未使用的分片
+            String mergeSha1 = FileSliceUtil.merge(sliceDir, list, mergeFile);
+            Assert.state(StrUtil.equals(mergeSha1, fileSha1), "合并文件校验失败,请重新上传");
+            String type = getParameter("type");
+            return this.saveProjectFile(pim, lib -> {
+                if ("unzip".equals(type)) {
+                    CompressionFileUtil.unCompress(mergeFile, lib);
+                } else {
+                    FileUtil.move(mergeFile, FileUtil.file(lib, mergeFile.getName()), true);
+                }
+            });
+        } finally {
+            FileUtil.del(tempDir);
+        }
+    }
+
+    /**
+     * 批量同步文件（差异发布），上传的压缩包中只包含需要更新的文件，同时删除指定的文件
+     * <p>
+     * 先解压到临时目录，再逐个替换项目文件，替换过程中出现异常会还原已经替换和删除的文件
+     *
+     * @param delFiles 需要删除的文件（相对路径） json 数组
+     * @return json
+     */
+    @PostMapping(value = "batch_sync", produces = MediaType.APPLICATION_JSON_VALUE)
+    public String batchSync(String delFiles) throws Exception {
+        NodeProjectInfoModel pim = getProjectInfoModel();
+        List<String> delList = StrUtil.isEmpty(delFiles) ? Collections.emptyList() : JSONArray.parseArray(delFiles, String.class);
+        File tempDir = FileUtil.file(ConfigBean.getInstance().getTempPath(), "batch_sync", IdUtil.fastSimpleUUID());
+        try {
+            MultipartFileBuilder multipartFileBuilder = createMultipart().addFieldName("file");
+            multipartFileBuilder.setSavePath(FileUtil.getAbsolutePath(tempDir));
+            File zipFile = new File(multipartFileBuilder.save());
+            File stageDir = FileUtil.file(tempDir, "stage");
+            ZipUtil.unzip(zipFile, stageDir, CharsetUtil.CHARSET_UTF_8);
+            List<String> syncList = FileUtil.loopFiles(stageDir).stream()
+                .map(file -> StringUtil.delStartPath(file, FileUtil.getAbsolutePath(stageDir), true))
+                .collect(Collectors.toList());
+            return this.saveProjectFile(pim, lib -> this.batchSync(lib, stageDir, syncList, delList, FileUtil.file(tempDir, "rollback")));
+        } finally {
+            FileUtil.del(tempDir);
+        }
+    }
+
+    private void batchSync(File lib, File stageDir, List<String> syncList, List<String> delList, File rollbackDir) {
+        // 被替换或者删除的文件先移动到还原目录
+        List<String> moved = new ArrayList<>();
+        List<String> created = new ArrayList<>();
+        try {
+            for (String name : syncList) {
+                File target = FileUtil.file(lib, name);
+                if (FileUtil.isFile(target)) {
+                    FileUtil.move(target, FileUtil.file(rollbackDir, name), true);
+                    moved.add(name);
+                }
+                created.add(name);
+                FileUtil.move(FileUtil.file(stageDir, name), target, true);
+            }
+            for (String name : delList) {
+                File target = FileUtil.file(lib, name);
+                if (FileUtil.isFile(target)) {
+                    FileUtil.move(target, FileUtil.file(rollbackDir, name), true);
+                    moved.add(name);
+                }
+            }
+        } catch (RuntimeException e) {
+            created.forEach(name -> FileUtil.del(FileUtil.file(lib, name)));
+            moved.forEach(name -> FileUtil.move(FileUtil.file(rollbackDir, name), FileUtil.file(lib, name), true));
+            throw e;
+        }
+    }
+
+    private File getSliceDir() {
+        return AgentConfigBean.getInstance().getSlicePath();
+    }
+
+    private List<String> checkSliceShas(String sliceShas) {
+        List<String> list = StrUtil.splitTrim(sliceShas, StrUtil.COMMA);
+        Assert.notEmpty(list, "没有分片信息");
+        for (String sha1 : list) {
+            Assert.state(ReUtil.isMatch("[a-f0-9]{40}", sha1), "分片信息不正确");
+        }
+        return list;
+    }
+
+    /**
+     * 保存项目文件，并处理清空、备份、重启等操作
+     *
+     * @param pim   项目
+     * @param saver 保存文件到项目目录
+     * @return json
+     */
+    private String saveProjectFile(NodeProjectInfoModel pim, VoidFunc1<File> saver) throws Exception {
+        // 是否清空
+        String clearType = getParameter("clearType");
+        String levelName = getParameter("levelName");
+        File lib = StrUtil.isEmpty(levelName) ? new File(pim.allLib()) : FileUtil.file(pim.allLib(), levelName);
+        // 备份文件
+        String backupId = ProjectFileBackupUtil.backup(pim.getId(), pim.allLib());
+        try {
+            // 判断是否需要清空
+            if ("clear".equalsIgnoreCase(clearType)) {
+                CommandUtil.systemFastDel(lib);
+            }
+            saver.call(lib);
             // 修改使用状态
             projectInfoService.updateItem(pim);
             //
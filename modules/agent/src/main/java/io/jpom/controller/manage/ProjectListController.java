@@ -87,8 +87,12 @@ public class ProjectListController extends BaseAgentController {
 	 * @return json
 	 */
 	@RequestMapping(value = "getProjectInfo", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
-	public String getProjectInfo() {
+	public String getProjectInfo(String epoch, Long revision) {
 		try {
+			if (revision != null) {
+				// 增量查询
+				return JsonMessage.getString(200, "查询成功！", projectInfoService.listChange(epoch, revision));
+			}
 			// 查询数据
 			List<NodeProjectInfoModel> nodeProjectInfoModels = projectInfoService.list();
 			return JsonMessage.getString(200, "查询成功！", nodeProjectInfoModels);
@@ -42,7 +42,9 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 项目文件管理
@@ -114,8 +116,7 @@ public class ProjectStatusController extends BaseAgentController {
     public String getProjectPort(String ids) {
         Assert.hasText(ids, "没有要获取的信息");
         JSONArray jsonArray = JSONArray.parseArray(ids);
-        JSONObject jsonObject = new JSONObject();
-        JSONObject itemObj;
+        Map<String, Integer> pidMap = new LinkedHashMap<>();
         try {
             CommandUtil.openCache();
             for (Object object : jsonArray) {
@@ -132,16 +133,12 @@ public class ProjectStatusController extends BaseAgentController {
                     Assert.state(JvmUtil.jpsNormal, "当前服务器 jps 命令异常,请检查 jdk 是否完整,以及 java 环境变量是否配置正确");
                     continue;
                 }
-                itemObj = new JSONObject();
-                String port = AbstractProjectCommander.getInstance().getMainPort(pid);
-                itemObj.put("port", port);
-                itemObj.put("pid", pid);
-                jsonObject.put(item, itemObj);
+                pidMap.put(item, pid);
             }
+            return JsonMessage.getString(200, "", this.buildPortInfo(pidMap));
         } finally {
             CommandUtil.closeCache();
         }
-        return JsonMessage.getString(200, "", jsonObject);
     }
 
 
@@ -160,8 +157,7 @@ public class ProjectStatusController extends BaseAgentController {
         NodeProjectInfoModel nodeProjectInfoModel = getProjectInfoModel();
 
         JSONArray jsonArray = JSONArray.parseArray(copyIds);
-        JSONObject jsonObject = new JSONObject();
-        JSONObject itemObj;
+        Map<String, Integer> pidMap = new LinkedHashMap<>();
         try {
             CommandUtil.openCache();
             for (Object object : jsonArray) {
@@ -178,16 +174,30 @@ public class ProjectStatusController extends BaseAgentController {
                     DefaultSystemLog.getLog().error("获取端口错误", e);
                     continue;
                 }
-                itemObj = new JSONObject();
-                String port = AbstractProjectCommander.getInstance().getMainPort(pid);
-                itemObj.put("port", port);
-                itemObj.put("pid", pid);
-                jsonObject.put(item, itemObj);
+                pidMap.put(item, pid);
             }
+            return JsonMessage.getString(200, "", this.buildPortInfo(pidMap));
         } finally {
             CommandUtil.closeCache();
         }
-        return JsonMessage.getString(200, "", jsonObject);
+    }
+
+    /**
+     * 批量查询端口
+     *
+     * @param pidMap key 对应的进程id
+     * @return key 对应的端口和进程id
+     */
+    private JSONObject buildPortInfo(Map<String, Integer> pidMap) {
+        Map<Integer, String> portMap = AbstractProjectCommander.getInstance().getMainPort(pidMap.values());
+        JSONObject jsonObject = new JSONObject();
+        pidMap.forEach((key, pid) -> {
+            JSONObject itemObj = new JSONObject();
+            itemObj.put("port", portMap.get(pid));
+            itemObj.put("pid", pid);
+            jsonObject.put(key, itemObj);
+        });
+        return jsonObject;
     }
 
     @RequestMapping(value = "restart", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
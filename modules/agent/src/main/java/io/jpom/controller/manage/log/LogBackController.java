@@ -23,6 +23,7 @@
 package io.jpom.controller.manage.log;
 
 import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.ObjectUtil;
 import cn.hutool.extra.servlet.ServletUtil;
 import cn.jiangzeyin.common.DefaultSystemLog;
 import cn.jiangzeyin.common.JsonMessage;
@@ -30,7 +31,10 @@ import com.alibaba.fastjson.JSONObject;
 import io.jpom.common.BaseAgentController;
 import io.jpom.common.commander.AbstractProjectCommander;
 import io.jpom.model.data.NodeProjectInfoModel;
+import io.jpom.system.ExtConfigBean;
+import io.jpom.util.FileTailWatcherRun;
 import io.jpom.util.FileUtils;
+import io.jpom.util.ReverseLineReader;
 import org.springframework.http.MediaType;
 import org.springframework.util.Assert;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -40,6 +44,10 @@ import org.springframework.web.bind.annotation.RestController;
 
 import javax.servlet.http.HttpServletResponse;
 import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 
 /**
@@ -139,6 +147,39 @@ public class LogBackController extends BaseAgentController {
         return JsonMessage.getString(200, "", jsonObject);
     }
 
+    /**
+     * 向前读取控制台日志（分页查看历史日志）
+     *
+     * @param copyId 副本id
+     * @param offset 结束位置，第一次读取不传（跳过实时日志已经显示的行）
+     * @param line   读取的行数
+     * @return json lines 日志内容、offset 下一次读取的结束位置
+     * @throws IOException io
+     */
+    @RequestMapping(value = "read_before", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
+    public String readBefore(String copyId, Long offset, Integer line) throws IOException {
+        NodeProjectInfoModel pim = getProjectInfoModel();
+        NodeProjectInfoModel.JavaCopyItem copyItem = pim.findCopyItem(copyId);
+        File file = copyItem == null ? new File(pim.getLog()) : pim.getLog(copyItem);
+        Assert.state(FileUtil.isFile(file), "没有日志文件");
+        int readLine = Math.min(ObjectUtil.defaultIfNull(line, 100), 1000);
+        Charset charset = FileTailWatcherRun.detectCharset(file);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long end;
+            if (offset == null) {
+                // 跳过实时日志初始读取的行
+                end = ReverseLineReader.read(channel, channel.size(), ExtConfigBean.getInstance().getLogInitReadLine(), charset).getOffset();
+            } else {
+                end = offset;
+            }
+            ReverseLineReader.Result result = ReverseLineReader.read(channel, end, readLine, charset);
+            JSONObject jsonObject = new JSONObject();
+            jsonObject.put("lines", result.getLines());
+            jsonObject.put("offset", result.getOffset());
+            return JsonMessage.getString(200, "", jsonObject);
+        }
+    }
+
     @RequestMapping(value = "export.html", method = RequestMethod.GET)
     @ResponseBody
     public String export(String copyId) {
@@ -77,7 +77,11 @@ public class ScriptController extends BaseAgentController {
 	}
 
 	@RequestMapping(value = "list.json", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
-	public String list() {
+	public String list(String epoch, Long revision) {
+		if (revision != null) {
+			// 增量查询
+			return JsonMessage.getString(200, "", nodeScriptServer.listChange(epoch, revision));
+		}
 		return JsonMessage.getString(200, "", nodeScriptServer.list());
 	}
 
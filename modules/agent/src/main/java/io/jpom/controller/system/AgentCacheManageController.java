@@ -37,6 +37,8 @@ import io.jpom.service.system.AgentWorkspaceEnvVarService;
 import io.jpom.socket.AgentFileTailWatcher;
 import io.jpom.system.ConfigBean;
 import io.jpom.util.CommandUtil;
+import io.jpom.util.JvmProcessRegistry;
+import io.jpom.util.SocketSessionUtil;
 import org.springframework.http.MediaType;
 import org.springframework.util.Assert;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -82,11 +84,13 @@ public class AgentCacheManageController extends BaseAgentController {
         //
         jsonObject.put("pidName", AbstractProjectCommander.PID_JPOM_NAME.size());
         jsonObject.put("pidPort", AbstractProjectCommander.PID_PORT.size());
+        jsonObject.put("processRegistrySize", JvmProcessRegistry.size());
 
         int oneLineCount = AgentFileTailWatcher.getOneLineCount();
         jsonObject.put("readFileOnLineCount", oneLineCount);
         jsonObject.put("taskList", CronUtils.list());
         jsonObject.put("pluginSize", PluginFactory.size());
+        jsonObject.put("socketSession", SocketSessionUtil.stat());
         //
         WorkspaceEnvVarModel item = agentWorkspaceEnvVarService.getItem(getWorkspaceId());
         if (item != null) {
@@ -92,6 +92,22 @@ public class ProcessModel extends BaseJsonModel {
      * Jpom 项目名称
      */
     private String jpomName = StrUtil.DASHED;
+    /**
+     * 线程数
+     */
+    private String threadCount = StrUtil.DASHED;
+    /**
+     * 打开的文件句柄数
+     */
+    private String fdCount = StrUtil.DASHED;
+    /**
+     * 磁盘读取量
+     */
+    private String ioRead = StrUtil.DASHED;
+    /**
+     * 磁盘写入量
+     */
+    private String ioWrite = StrUtil.DASHED;
 
     public String getPort() {
         return port;
@@ -215,4 +231,36 @@ public class ProcessModel extends BaseJsonModel {
     public void setCpu(String cpu) {
         this.cpu = cpu;
     }
+
+    public String getThreadCount() {
+        return threadCount;
+    }
+
+    public void setThreadCount(String threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    public String getFdCount() {
+        return fdCount;
+    }
+
+    public void setFdCount(String fdCount) {
+        this.fdCount = fdCount;
+    }
+
+    public String getIoRead() {
+        return ioRead;
+    }
+
+    public void setIoRead(String ioRead) {
+        this.ioRead = ioRead;
+    }
+
+    public String getIoWrite() {
+        return ioWrite;
+    }
+
+    public void setIoWrite(String ioWrite) {
+        this.ioWrite = ioWrite;
+    }
 }
@@ -28,9 +28,6 @@ import com.alibaba.fastjson.JSONObject;
 import io.jpom.model.BaseModel;
 import io.jpom.system.ConfigBean;
 import io.jpom.system.JpomRuntimeException;
-import io.jpom.util.JsonFileUtil;
-
-import java.io.FileNotFoundException;
 
 /**
  * 公共文件操作Service
@@ -58,22 +55,15 @@ public abstract class BaseDataService {
 	 */
 	protected void saveJson(String filename, BaseModel json) {
 		String key = json.getId();
-		// 读取文件，如果存在记录，则抛出异常
-		JSONObject allData;
-		JSONObject data = null;
-		allData = getJSONObject(filename);
-		if (allData != null) {
-			data = allData.getJSONObject(key);
-		} else {
-			allData = new JSONObject();
-		}
-		// 判断是否存在数据
-		if (null != data && 0 < data.keySet().size()) {
-			throw new JpomRuntimeException("数据Id已经存在啦：" + filename + " :" + key);
-		} else {
+		this.getCachedJsonFile(filename).write(allData -> {
+			// 读取文件，如果存在记录，则抛出异常
+			JSONObject data = allData.getJSONObject(key);
+			// 判断是否存在数据
+			if (null != data && 0 < data.keySet().size()) {
+				throw new JpomRuntimeException("数据Id已经存在啦：" + filename + " :" + key);
+			}
 			allData.put(key, json.toJson());
-			JsonFileUtil.saveJson(getDataFilePath(filename), allData);
-		}
+		});
 	}
 
 	/**
@@ -84,17 +74,15 @@ public abstract class BaseDataService {
 	 */
 	protected void updateJson(String filename, BaseModel json) {
 		String key = json.getId();
-		// 读取文件，如果不存在记录，则抛出异常
-		JSONObject allData = getJSONObject(filename);
-		JSONObject data = allData.getJSONObject(key);
-
-		// 判断是否存在数据
-		if (null == data || 0 == data.keySet().size()) {
-			throw new JpomRuntimeException("数据不存在:" + key);
-		} else {
+		this.getCachedJsonFile(filename).write(allData -> {
+			// 读取文件，如果不存在记录，则抛出异常
+			JSONObject data = allData.getJSONObject(key);
+			// 判断是否存在数据
+			if (null == data || 0 == data.keySet().size()) {
+				throw new JpomRuntimeException("数据不存在:" + key);
+			}
 			allData.put(key, json.toJson());
-			JsonFileUtil.saveJson(getDataFilePath(filename), allData);
-		}
+		});
 	}
 
 	/**
@@ -104,16 +92,11 @@ public abstract class BaseDataService {
 	 * @param key      key
 	 */
 	protected void deleteJson(String filename, String key) {
-		// 读取文件，如果存在记录，则抛出异常
-		JSONObject allData = getJSONObject(filename);
-		if (allData == null) {
+		CachedJsonFile cachedJsonFile = this.getCachedJsonFile(filename);
+		if (cachedJsonFile.read() == null) {
 			return;
 		}
-		//Assert.notNull(allData, "没有任何数据");
-		//JSONObject data = allData.getJSONObject(key);
-		allData.remove(key);
-		JsonFileUtil.saveJson(getDataFilePath(filename), allData);
-
+		cachedJsonFile.write(allData -> allData.remove(key));
 	}
 
 	/**
@@ -123,18 +106,24 @@ public abstract class BaseDataService {
 	 * @return json
 	 */
 	protected JSONObject getJSONObject(String filename) {
-		try {
-			return (JSONObject) JsonFileUtil.readJson(getDataFilePath(filename));
-		} catch (FileNotFoundException e) {
-			return null;
-		}
+		return this.getCachedJsonFile(filename).readCopy();
+	}
+
+	/**
+	 * 读取缓存的 json 数据，返回的对象不能修改
+	 *
+	 * @param filename 文件名
+	 * @return json
+	 */
+	JSONObject getCacheJSONObject(String filename) {
+		return this.getCachedJsonFile(filename).read();
 	}
 
 	protected <T> T getJsonObjectById(String file, String id, Class<T> cls) {
 		if (StrUtil.isEmpty(id)) {
 			return null;
 		}
-		JSONObject jsonObject = getJSONObject(file);
+		JSONObject jsonObject = this.getCacheJSONObject(file);
 		if (jsonObject == null) {
 			return null;
 		}
@@ -144,4 +133,20 @@ public abstract class BaseDataService {
 		}
 		return jsonObject.toJavaObject(cls);
 	}
+
+	/**
+	 * 查询数据文件指定版本之后的变动
+	 *
+	 * @param filename 文件名
+	 * @param epoch    上次同步的 epoch
+	 * @param revision 上次同步的版本号
+	 * @return 变动信息
+	 */
+	CachedJsonFile.Changes getChanges(String filename, String epoch, long revision) {
+		return this.getCachedJsonFile(filename).changes(epoch, revision);
+	}
+
+	private CachedJsonFile getCachedJsonFile(String filename) {
+		return CachedJsonFile.of(this.getDataFilePath(filename));
+	}
 }
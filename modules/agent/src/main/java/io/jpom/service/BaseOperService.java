@@ -58,7 +58,8 @@ public abstract class BaseOperService<T extends BaseModel> extends BaseDataServi
 	}
 
 	public <E> List<E> list(Class<E> cls) {
-		JSONObject jsonObject = getJSONObject();
+		Objects.requireNonNull(fileName, "没有配置fileName");
+		JSONObject jsonObject = getCacheJSONObject(fileName);
 		if (jsonObject == null) {
 			return new ArrayList<>();
 		}
@@ -66,6 +67,48 @@ public abstract class BaseOperService<T extends BaseModel> extends BaseDataServi
 		return jsonArray.toJavaList(cls);
 	}
 
+	/**
+	 * 查询指定版本之后变动的数据，用于服务端增量同步
+	 *
+	 * @param epoch    上次同步的 epoch
+	 * @param revision 上次同步的版本号
+	 * @return json，full 为 true 时 items 为全部数据
+	 */
+	public JSONObject listChange(String epoch, long revision) {
+		Objects.requireNonNull(fileName, "没有配置fileName");
+		CachedJsonFile.Changes changes = getChanges(fileName, epoch, revision);
+		JSONArray jsonArray;
+		if (changes.full) {
+			jsonArray = JsonFileUtil.formatToArray(changes.data);
+		} else {
+			jsonArray = new JSONArray();
+			for (String id : changes.changed) {
+				JSONObject item = changes.data == null ? null : changes.data.getJSONObject(id);
+				if (item != null) {
+					jsonArray.add(item);
+				}
+			}
+		}
+		List<T> items = (List<T>) jsonArray.toJavaList(typeArgument);
+		items.forEach(this::fillChangeItem);
+		//
+		JSONObject jsonObject = new JSONObject();
+		jsonObject.put("epoch", changes.epoch);
+		jsonObject.put("revision", changes.revision);
+		jsonObject.put("full", changes.full);
+		jsonObject.put("items", items);
+		jsonObject.put("deleted", changes.deleted);
+		return jsonObject;
+	}
+
+	/**
+	 * 增量查询的数据填充，和 list 方法中的处理保持一致
+	 *
+	 * @param item 数据
+	 */
+	protected void fillChangeItem(T item) {
+	}
+
 	public JSONObject getJSONObject() {
 		Objects.requireNonNull(fileName, "没有配置fileName");
 		return getJSONObject(fileName);
@@ -26,6 +26,7 @@ import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.util.StrUtil;
 import io.jpom.common.BaseAgentController;
 import io.jpom.model.data.BaseWorkspaceModel;
+import io.jpom.system.init.AgentEventPusher;
 
 /**
  * @author bwcx_jzy
@@ -37,6 +38,35 @@ public abstract class BaseWorkspaceOptService<T extends BaseWorkspaceModel> exte
 		super(fileName);
 	}
 
+	/**
+	 * 数据变动时推送到服务端的事件类型
+	 *
+	 * @return 为空不推送
+	 * @see AgentEventPusher
+	 */
+	protected String pushEventType() {
+		return null;
+	}
+
+	private void pushEvent(String id) {
+		String type = this.pushEventType();
+		if (type != null) {
+			AgentEventPusher.push(type, id);
+		}
+	}
+
+	@Override
+	public void addItem(T t) {
+		super.addItem(t);
+		this.pushEvent(t.getId());
+	}
+
+	@Override
+	public void deleteItem(String id) {
+		super.deleteItem(id);
+		this.pushEvent(id);
+	}
+
 	/**
 	 * 修改信息
 	 *
@@ -50,5 +80,6 @@ public abstract class BaseWorkspaceOptService<T extends BaseWorkspaceModel> exte
 			data.setModifyUser(userName);
 		}
 		super.updateItem(data);
+		this.pushEvent(data.getId());
 	}
 }
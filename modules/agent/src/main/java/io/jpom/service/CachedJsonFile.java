@@ -0,0 +1,348 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Code Technology Studio
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jpom.service;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import io.jpom.util.JsonFileUtil;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * 缓存的 json 数据文件
+ * <p>
+ * 数据解析后缓存在内存中（按数据 id 索引），文件的修改时间、大小、inode 变化后才重新读取。
+ * 修改时按文件加锁，复制一份数据修改后整体替换（读取方拿到的数据不会被修改），文件格式和之前保持一致
+ * <p>
+ * 通过本对象修改数据时会记录每条数据的修改版本号，用于增量同步。版本号只保存在内存中，
+ * 重新从文件读取数据（首次读取、文件被外部修改）时会生成新的 epoch，调用方需要重新全量同步
+ *
+ * @author bwcx_jzy
+ * @since 2022/5/25
+ */
+class CachedJsonFile {
+
+	private static final Map<String, CachedJsonFile> CACHE = new ConcurrentHashMap<>();
+	/**
+	 * 最多保留的删除记录数，超出后更早的版本只能全量同步
+	 */
+	private static final int MAX_DELETED = 1000;
+
+	private final File file;
+	private final ReentrantLock lock = new ReentrantLock();
+	private volatile Snapshot snapshot;
+	/**
+	 * 以下字段在 lock 中修改
+	 */
+	private String epoch = IdUtil.fastSimpleUUID();
+	private long revision;
+	private long minRevision;
+	private final Map<String, Long> itemRevisions = new HashMap<>();
+	private final LinkedHashMap<String, Long> deletedRevisions = new LinkedHashMap<>();
+
+	private CachedJsonFile(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * 获取数据文件
+	 *
+	 * @param path 文件路径
+	 * @return CachedJsonFile
+	 */
+	static CachedJsonFile of(String path) {
+		return CACHE.computeIfAbsent(path, s -> new CachedJsonFile(new File(s)));
+	}
+
+	/**
+	 * 读取数据，返回的对象为缓存对象不能修改
+	 *
+	 * @return 文件不存在返回 null
+	 */
+	JSONObject read() {
+		Snapshot snapshot = this.snapshot;
+		Version version = this.version();
+		if (version == null) {
+			if (snapshot == null) {
+				return null;
+			}
+			// 文件被删除，需要在锁中清理缓存
+		} else if (snapshot != null && snapshot.version.equals(version)) {
+			return snapshot.data;
+		}
+		lock.lock();
+		try {
+			snapshot = this.snapshot;
+			version = this.version();
+			if (version == null) {
+				this.reset(null);
+				return null;
+			}
+			if (snapshot != null && snapshot.version.equals(version)) {
+				return snapshot.data;
+			}
+			JSONObject data;
+			try {
+				data = (JSONObject) JsonFileUtil.readJson(file.getAbsolutePath());
+			} catch (FileNotFoundException e) {
+				this.reset(null);
+				return null;
+			}
+			this.reset(new Snapshot(version, data));
+			return data;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 读取数据的副本，可以修改
+	 *
+	 * @return 文件不存在返回 null
+	 */
+	JSONObject readCopy() {
+		JSONObject data = this.read();
+		return data == null ? null : (JSONObject) copy(data);
+	}
+
+	/**
+	 * 修改数据，consumer 中修改的是数据的副本，抛出异常时不会保存
+	 *
+	 * @param consumer 修改数据
+	 */
+	void write(Consumer<JSONObject> consumer) {
+		lock.lock();
+		try {
+			JSONObject data = this.read();
+			// 只复制第一层，每条数据修改时都是整体替换
+			JSONObject newData = new JSONObject(data == null ? new HashMap<>(16) : new HashMap<>(data));
+			consumer.accept(newData);
+			JsonFileUtil.saveJson(file.getAbsolutePath(), newData);
+			Version version = this.version();
+			this.snapshot = version == null ? null : new Snapshot(version, newData);
+			this.updateRevision(data, newData);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 查询指定版本之后的变动
+	 *
+	 * @param epoch    调用方上次同步的 epoch
+	 * @param revision 调用方上次同步的版本号
+	 * @return 变动信息，epoch 不一致或者版本号过旧时为全量数据
+	 */
+	Changes changes(String epoch, long revision) {
+		lock.lock();
+		try {
+			JSONObject data = this.read();
+			boolean full = !StrUtil.equals(epoch, this.epoch) || revision < this.minRevision || revision > this.revision;
+			Changes changes = new Changes(this.epoch, this.revision, full, data);
+			if (!full) {
+				itemRevisions.forEach((id, itemRevision) -> {
+					if (itemRevision > revision) {
+						changes.changed.add(id);
+					}
+				});
+				deletedRevisions.forEach((id, itemRevision) -> {
+					if (itemRevision > revision) {
+						changes.deleted.add(id);
+					}
+				});
+			}
+			return changes;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 数据不是通过本对象修改的，之前记录的版本号失效
+	 *
+	 * @param snapshot 新的数据
+	 */
+	private void reset(Snapshot snapshot) {
+		if (this.snapshot == null && snapshot == null) {
+			return;
+		}
+		this.snapshot = snapshot;
+		this.epoch = IdUtil.fastSimpleUUID();
+		this.revision = 0;
+		this.minRevision = 0;
+		this.itemRevisions.clear();
+		this.deletedRevisions.clear();
+	}
+
+	/**
+	 * 对比修改前后的数据，记录变动数据的版本号
+	 *
+	 * @param data    修改前
+	 * @param newData 修改后
+	 */
+	private void updateRevision(JSONObject data, JSONObject newData) {
+		Set<String> changed = new HashSet<>();
+		newData.forEach((key, value) -> {
+			if (data == null || !Objects.equals(data.get(key), value)) {
+				changed.add(key);
+			}
+		});
+		List<String> deleted = new ArrayList<>();
+		if (data != null) {
+			for (String key : data.keySet()) {
+				if (!newData.containsKey(key)) {
+					deleted.add(key);
+				}
+			}
+		}
+		if (changed.isEmpty() && deleted.isEmpty()) {
+			return;
+		}
+		long newRevision = ++this.revision;
+		for (String key : changed) {
+			itemRevisions.put(key, newRevision);
+			deletedRevisions.remove(key);
+		}
+		for (String key : deleted) {
+			itemRevisions.remove(key);
+			deletedRevisions.remove(key);
+			deletedRevisions.put(key, newRevision);
+		}
+		Iterator<Map.Entry<String, Long>> iterator = deletedRevisions.entrySet().iterator();
+		while (deletedRevisions.size() > MAX_DELETED && iterator.hasNext()) {
+			Map.Entry<String, Long> next = iterator.next();
+			// 更早的删除记录已经丢弃
+			this.minRevision = Math.max(this.minRevision, next.getValue());
+			iterator.remove();
+		}
+	}
+
+	/**
+	 * 文件版本，保存文件时会替换文件，inode 会变化
+	 *
+	 * @return 文件不存在返回 null
+	 */
+	private Version version() {
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+			return new Version(attributes.fileKey(), attributes.lastModifiedTime().toMillis(), attributes.size());
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	private static Object copy(Object value) {
+		if (value instanceof JSONObject) {
+			JSONObject jsonObject = (JSONObject) value;
+			JSONObject newObject = new JSONObject(jsonObject.size());
+			jsonObject.forEach((key, item) -> newObject.put(key, copy(item)));
+			return newObject;
+		}
+		if (value instanceof JSONArray) {
+			JSONArray jsonArray = (JSONArray) value;
+			JSONArray newArray = new JSONArray(jsonArray.size());
+			jsonArray.forEach(item -> newArray.add(copy(item)));
+			return newArray;
+		}
+		return value;
+	}
+
+	/**
+	 * 数据变动信息
+	 */
+	static class Changes {
+		final String epoch;
+		final long revision;
+		final boolean full;
+		/**
+		 * 当前全部数据，不能修改
+		 */
+		final JSONObject data;
+		final Set<String> changed = new HashSet<>();
+		final List<String> deleted = new ArrayList<>();
+
+		private Changes(String epoch, long revision, boolean full, JSONObject data) {
+			this.epoch = epoch;
+			this.revision = revision;
+			this.full = full;
+			this.data = data;
+		}
+	}
+
+	private static class Snapshot {
+		private final Version version;
+		private final JSONObject data;
+
+		private Snapshot(Version version, JSONObject data) {
+			this.version = version;
+			this.data = data;
+		}
+	}
+
+	private static class Version {
+		private final Object fileKey;
+		private final long lastModified;
+		private final long size;
+
+		private Version(Object fileKey, long lastModified, long size) {
+			this.fileKey = fileKey;
+			this.lastModified = lastModified;
+			this.size = size;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+			Version version = (Version) o;
+			return lastModified == version.lastModified && size == version.size && Objects.equals(fileKey, version.fileKey);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(fileKey, lastModified, size);
+		}
+	}
+}
@@ -29,6 +29,7 @@ import io.jpom.model.data.NodeProjectInfoModel;
 import io.jpom.model.data.ProjectRecoverModel;
 import io.jpom.service.BaseWorkspaceOptService;
 import io.jpom.system.AgentConfigBean;
+import io.jpom.system.init.AgentEventPusher;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
@@ -79,6 +80,11 @@ public class ProjectInfoService extends BaseWorkspaceOptService<NodeProjectInfoM
 	}
 
 
+	@Override
+	protected String pushEventType() {
+		return AgentEventPusher.TYPE_PROJECT;
+	}
+
 	@Override
 	public void addItem(NodeProjectInfoModel nodeProjectInfoModel) {
 		nodeProjectInfoModel.setCreateTime(DateUtil.now());
@@ -35,6 +35,7 @@ import io.jpom.model.data.NodeScriptModel;
 import io.jpom.script.ScriptProcessBuilder;
 import io.jpom.service.BaseWorkspaceOptService;
 import io.jpom.system.AgentConfigBean;
+import io.jpom.system.init.AgentEventPusher;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -63,6 +64,11 @@ public class NodeScriptServer extends BaseWorkspaceOptService<NodeScriptModel> i
 		return nodeScriptModels;
 	}
 
+	@Override
+	protected void fillChangeItem(NodeScriptModel item) {
+		item.readFileTime();
+	}
+
 	@Override
 	public NodeScriptModel getItem(String id) {
 		NodeScriptModel nodeScriptModel = super.getItem(id);
@@ -72,6 +78,11 @@ public class NodeScriptServer extends BaseWorkspaceOptService<NodeScriptModel> i
 		return nodeScriptModel;
 	}
 
+	@Override
+	protected String pushEventType() {
+		return AgentEventPusher.TYPE_SCRIPT;
+	}
+
 	@Override
 	public void addItem(NodeScriptModel nodeScriptModel) {
 		super.addItem(nodeScriptModel);
@@ -137,6 +148,7 @@ public class NodeScriptServer extends BaseWorkspaceOptService<NodeScriptModel> i
 			nodeScriptExecLogModel.setScriptName(scriptServerItem.getName());
 			nodeScriptExecLogModel.setWorkspaceId(scriptServerItem.getWorkspaceId());
 			execLogServer.addItem(nodeScriptExecLogModel);
+			AgentEventPusher.push(AgentEventPusher.TYPE_SCRIPT_EXEC_LOG, nodeScriptExecLogModel);
 			// 执行
 			ScriptProcessBuilder.create(scriptServerItem, nodeScriptExecLogModel.getId(), scriptServerItem.getDefArgs());
 		}
@@ -78,7 +78,7 @@ public class AgentWebSocketConsoleHandle extends BaseAgentWebSocketHandle {
 			DefaultSystemLog.getLog().error("socket 错误", e);
 			try {
 				SocketSessionUtil.send(session, JsonMessage.getString(500, "系统错误!"));
-				session.close();
+				SocketSessionUtil.close(session);
 			} catch (IOException e1) {
 				DefaultSystemLog.getLog().error(e1.getMessage(), e1);
 			}
@@ -107,7 +107,7 @@ public class AgentWebSocketConsoleHandle extends BaseAgentWebSocketHandle {
 		NodeProjectInfoModel nodeProjectInfoModel = projectInfoService.getItem(projectId);
 		if (nodeProjectInfoModel == null) {
 			SocketSessionUtil.send(session, "没有对应项目：" + projectId);
-			session.close();
+			SocketSessionUtil.close(session);
 			return null;
 		}
 		// 判断副本集
@@ -115,7 +115,7 @@ public class AgentWebSocketConsoleHandle extends BaseAgentWebSocketHandle {
 			NodeProjectInfoModel.JavaCopyItem copyItem = nodeProjectInfoModel.findCopyItem(copyId);
 			if (copyItem == null) {
 				SocketSessionUtil.send(session, "获取项目信息错误,没有对应副本：" + copyId);
-				session.close();
+				SocketSessionUtil.close(session);
 				return null;
 			}
 		}
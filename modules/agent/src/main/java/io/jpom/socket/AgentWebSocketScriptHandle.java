@@ -73,7 +73,7 @@ public class AgentWebSocketScriptHandle extends BaseAgentWebSocketHandle {
 			DefaultSystemLog.getLog().error("socket 错误", e);
 			try {
 				SocketSessionUtil.send(session, JsonMessage.getString(500, "系统错误!"));
-				session.close();
+				SocketSessionUtil.close(session);
 			} catch (IOException e1) {
 				DefaultSystemLog.getLog().error(e1.getMessage(), e1);
 			}
@@ -87,7 +87,7 @@ public class AgentWebSocketScriptHandle extends BaseAgentWebSocketHandle {
 		NodeScriptModel nodeScriptModel = nodeScriptServer.getItem(scriptId);
 		if (nodeScriptModel == null) {
 			SocketSessionUtil.send(session, "没有对应脚本模板:" + scriptId);
-			session.close();
+			SocketSessionUtil.close(session);
 			return;
 		}
 		String op = json.getString("op");
@@ -98,7 +98,7 @@ public class AgentWebSocketScriptHandle extends BaseAgentWebSocketHandle {
 				String executeId = json.getString("executeId");
 				if (StrUtil.isEmpty(executeId)) {
 					SocketSessionUtil.send(session, "没有执行ID");
-					session.close();
+					SocketSessionUtil.close(session);
 					return;
 				}
 				ScriptProcessBuilder.addWatcher(nodeScriptModel, executeId, args, session);
@@ -108,7 +108,7 @@ public class AgentWebSocketScriptHandle extends BaseAgentWebSocketHandle {
 				String executeId = json.getString("executeId");
 				if (StrUtil.isEmpty(executeId)) {
 					SocketSessionUtil.send(session, "没有执行ID");
-					session.close();
+					SocketSessionUtil.close(session);
 					return;
 				}
 				ScriptProcessBuilder.stopRun( executeId);
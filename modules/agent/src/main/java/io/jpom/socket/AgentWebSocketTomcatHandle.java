@@ -69,7 +69,7 @@ public class AgentWebSocketTomcatHandle extends BaseAgentWebSocketHandle {
 			TomcatInfoModel tomcatInfoModel = tomcatEditService.getItem(tomcatId);
 			if (tomcatInfoModel == null && !JpomApplication.SYSTEM_ID.equalsIgnoreCase(tomcatId)) {
 				SocketSessionUtil.send(session, "获取tomcat信息错误");
-				session.close();
+				SocketSessionUtil.close(session);
 				return;
 			}
 			SocketSessionUtil.send(session, "连接成功：" + (tomcatInfoModel == null ? "" : tomcatInfoModel.getName()));
@@ -77,7 +77,7 @@ public class AgentWebSocketTomcatHandle extends BaseAgentWebSocketHandle {
 			DefaultSystemLog.getLog().error("socket 错误", e);
 			try {
 				SocketSessionUtil.send(session, JsonMessage.getString(500, "系统错误!"));
-				session.close();
+				SocketSessionUtil.close(session);
 			} catch (IOException e1) {
 				DefaultSystemLog.getLog().error(e1.getMessage(), e1);
 			}
@@ -99,7 +99,7 @@ public class AgentWebSocketTomcatHandle extends BaseAgentWebSocketHandle {
 			TomcatInfoModel tomcatInfoModel = tomcatEditService.getItem(tomcatId);
 			if (tomcatInfoModel == null) {
 				SocketSessionUtil.send(session, "没有对应tomcat");
-				session.close();
+				SocketSessionUtil.close(session);
 				return;
 			}
 			runMsg(session, tomcatInfoModel, json);
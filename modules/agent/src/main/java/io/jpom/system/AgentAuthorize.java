@@ -87,6 +87,10 @@ public class AgentAuthorize {
 		return agentPwd;
 	}
 
+	public String getAuthorize() {
+		return authorize;
+	}
+
 	/**
 	 * 判断授权是否正确
 	 *
@@ -125,4 +125,13 @@ public class AgentConfigBean {
 		FileUtil.mkdir(file);
 		return file;
 	}
+
+	/**
+	 * 获取分片上传的分片存储路径，分片按照 sha1 命名，多个文件共用
+	 *
+	 * @return file
+	 */
+	public File getSlicePath() {
+		return FileUtil.file(ConfigBean.getInstance().getTempPath(), "slice");
+	}
 }
@@ -0,0 +1,266 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Code Technology Studio
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jpom.system.init;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.date.SystemClock;
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.http.ContentType;
+import cn.hutool.http.HttpRequest;
+import cn.hutool.http.HttpStatus;
+import cn.jiangzeyin.common.DefaultSystemLog;
+import cn.jiangzeyin.common.JsonMessage;
+import cn.jiangzeyin.common.PreLoadClass;
+import cn.jiangzeyin.common.PreLoadMethod;
+import cn.jiangzeyin.common.spring.SpringUtil;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import io.jpom.common.ServerOpenApi;
+import io.jpom.model.data.NodeScriptExecLogModel;
+import io.jpom.service.script.NodeScriptExecLogServer;
+import io.jpom.system.AgentAuthorize;
+import io.jpom.system.AgentExtConfigBean;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 插件端主动推送事件到服务端
+ * <p>
+ * 脚本模版执行记录、项目和脚本模版的变动按顺序编号后放入队列，批量推送到服务端，
+ * 服务端确认（返回已经处理的最大编号）后才从队列中移除，推送失败下次重试。
+ * 执行记录只在服务端确认已经保存后才从本地删除，没有保存的（节点未启用、工作空间不匹配）保留在本地，下次启动时重新推送。
+ * 没有事件时定时发送心跳，服务端据此判断节点的推送是否可用（可用时不再定时拉取执行记录）。
+ * <p>
+ * 需要配置 jpom.server.url 和 jpom.server.token
+ *
+ * @author bwcx_jzy
+ * @since 2022/5/27
+ */
+@PreLoadClass
+public class AgentEventPusher {
+
+	/**
+	 * 脚本模版执行记录
+	 */
+	public static final String TYPE_SCRIPT_EXEC_LOG = "scriptExecLog";
+	/**
+	 * 项目变动
+	 */
+	public static final String TYPE_PROJECT = "project";
+	/**
+	 * 脚本模版变动
+	 */
+	public static final String TYPE_SCRIPT = "script";
+	/**
+	 * 需要服务端重新同步全部数据（队列满丢弃过事件）
+	 */
+	public static final String TYPE_RESYNC = "resync";
+
+	private static final int MAX_QUEUE_SIZE = 10000;
+	private static final int BATCH_SIZE = 100;
+	/**
+	 * 心跳间隔
+	 */
+	private static final long HEARTBEAT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+	/**
+	 * 推送失败的最长重试间隔
+	 */
+	private static final int MAX_RETRY_SECONDS = 60;
+
+	/**
+	 * 本次启动的id，服务端按 id + 编号去重
+	 */
+	private static final String BOOT_ID = IdUtil.fastSimpleUUID();
+	private static final AtomicLong SEQUENCE = new AtomicLong();
+	private static final LinkedList<JSONObject> QUEUE = new LinkedList<>();
+
+	private static volatile boolean enabled;
+	/**
+	 * 队列满时丢弃过事件
+	 */
+	private static boolean overflow;
+
+	@PreLoadMethod
+	private static void start() {
+		AgentExtConfigBean instance = AgentExtConfigBean.getInstance();
+		if (StrUtil.hasEmpty(instance.getServerUrl(), instance.getServerToken())) {
+			// 没有配置服务端，由服务端定时拉取
+			return;
+		}
+		enabled = true;
+		// 推送之前未被拉取的执行记录
+		pushLocalExecLog();
+		Thread thread = ThreadUtil.newThread(AgentEventPusher::loop, "Jpom Agent Event Push", true);
+		thread.start();
+	}
+
+	/**
+	 * 添加事件
+	 *
+	 * @param type 事件类型
+	 * @param data 事件数据
+	 */
+	public static void push(String type, Object data) {
+		if (!enabled) {
+			return;
+		}
+		synchronized (QUEUE) {
+			if (QUEUE.size() >= MAX_QUEUE_SIZE) {
+				overflow = true;
+				return;
+			}
+			JSONObject event = new JSONObject();
+			event.put("seq", SEQUENCE.incrementAndGet());
+			event.put("type", type);
+			event.put("data", data);
+			QUEUE.add(event);
+			QUEUE.notifyAll();
+		}
+	}
+
+	/**
+	 * 推送本地还存在的执行记录（推送确认后会删除）
+	 */
+	private static void pushLocalExecLog() {
+		NodeScriptExecLogServer execLogServer = SpringUtil.getBean(NodeScriptExecLogServer.class);
+		List<NodeScriptExecLogModel> list = execLogServer.list();
+		if (list != null) {
+			list.forEach(execLogModel -> push(TYPE_SCRIPT_EXEC_LOG, execLogModel));
+		}
+	}
+
+	private static void loop() {
+		long lastSendTime = 0;
+		int retrySeconds = 1;
+		while (true) {
+			try {
+				List<JSONObject> batch = waitBatch(lastSendTime);
+				if (batch == null) {
+					continue;
+				}
+				JSONObject result = send(batch);
+				lastSendTime = SystemClock.now();
+				retrySeconds = 1;
+				acknowledge(batch, result);
+			} catch (Exception e) {
+				DefaultSystemLog.getLog().warn("推送事件到服务端失败 {}", e.getMessage());
+				// 逐步延长重试间隔
+				ThreadUtil.sleep(retrySeconds, TimeUnit.SECONDS);
+				retrySeconds = Math.min(retrySeconds * 2, MAX_RETRY_SECONDS);
+			}
+		}
+	}
+
+	/**
+	 * 等待需要推送的事件
+	 *
+	 * @param lastSendTime 上次推送时间
+	 * @return 没有事件并且还不需要心跳时返回 null
+	 */
+	private static List<JSONObject> waitBatch(long lastSendTime) throws InterruptedException {
+		synchronized (QUEUE) {
+			if (QUEUE.isEmpty()) {
+				if (overflow) {
+					// 丢弃过事件，通知服务端全部重新同步，并重新推送本地的执行记录
+					overflow = false;
+					push(TYPE_RESYNC, null);
+					ThreadUtil.execute(AgentEventPusher::pushLocalExecLog);
+					return null;
+				}
+				long wait = lastSendTime + HEARTBEAT_MILLIS - SystemClock.now();
+				if (wait > 0) {
+					QUEUE.wait(wait);
+					if (QUEUE.isEmpty()) {
+						return null;
+					}
+				}
+			}
+		}
+		// 稍作等待，合并短时间内的多个事件
+		ThreadUtil.sleep(500);
+		synchronized (QUEUE) {
+			return new ArrayList<>(CollUtil.sub(QUEUE, 0, BATCH_SIZE));
+		}
+	}
+
+	/**
+	 * 推送事件
+	 *
+	 * @param batch 事件，为空时为心跳
+	 * @return 服务端确认的最大编号 ack 和已经保存的执行记录id execLogIds
+	 */
+	private static JSONObject send(List<JSONObject> batch) {
+		JSONObject body = new JSONObject();
+		body.put("bootId", BOOT_ID);
+		body.put("events", batch);
+		HttpRequest httpRequest = AgentExtConfigBean.getInstance().createServerRequest(ServerOpenApi.PUSH_EVENT);
+		httpRequest.header(ServerOpenApi.AGENT_AUTHORIZE_HEAD, AgentAuthorize.getInstance().getAuthorize());
+		httpRequest.body(body.toString(), ContentType.JSON.getValue());
+		httpRequest.timeout(10 * 1000);
+		String result = httpRequest.execute().body();
+		JsonMessage<?> jsonMessage = JSON.parseObject(result, JsonMessage.class);
+		if (jsonMessage == null || jsonMessage.getCode() != HttpStatus.HTTP_OK) {
+			throw new IllegalStateException(StrUtil.format("服务端响应异常：{}", result));
+		}
+		return JSON.parseObject(jsonMessage.dataToString());
+	}
+
+	/**
+	 * 移除已经确认的事件，服务端已经保存的执行记录从本地删除
+	 *
+	 * @param batch  推送的事件
+	 * @param result 服务端确认的结果
+	 */
+	private static void acknowledge(List<JSONObject> batch, JSONObject result) {
+		long ack = result.getLongValue("ack");
+		synchronized (QUEUE) {
+			QUEUE.removeIf(event -> event.getLongValue("seq") <= ack);
+		}
+		List<String> execLogIds = Optional.ofNullable(result.getJSONArray("execLogIds"))
+				.map(jsonArray -> jsonArray.toJavaList(String.class))
+				.orElse(Collections.emptyList());
+		if (execLogIds.isEmpty()) {
+			return;
+		}
+		NodeScriptExecLogServer execLogServer = SpringUtil.getBean(NodeScriptExecLogServer.class);
+		for (JSONObject event : batch) {
+			if (event.getLongValue("seq") > ack || !StrUtil.equals(event.getString("type"), TYPE_SCRIPT_EXEC_LOG)) {
+				continue;
+			}
+			Object data = event.get("data");
+			JSONObject jsonObject = (JSONObject) JSON.toJSON(data);
+			String id = jsonObject.getString("id");
+			if (execLogIds.contains(id)) {
+				execLogServer.deleteItem(id);
+			}
+		}
+	}
+}
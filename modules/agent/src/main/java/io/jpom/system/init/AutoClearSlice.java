@@ -0,0 +1,60 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Code Technology Studio
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jpom.system.init;
+
+import cn.jiangzeyin.common.DefaultSystemLog;
+import cn.jiangzeyin.common.PreLoadClass;
+import cn.jiangzeyin.common.PreLoadMethod;
+import io.jpom.cron.CronUtils;
+import io.jpom.system.AgentConfigBean;
+import io.jpom.util.FileSliceUtil;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 定时清理长时间（超过一天）没有使用的上传分片
+ * <p>
+ * 分片按照内容命名，可能被多个文件共用，合并后不会立即删除
+ *
+ * @author bwcx_jzy
+ * @since 2022/5/27
+ */
+@PreLoadClass
+public class AutoClearSlice {
+
+	private static final String ID = "auto_clear_slice";
+
+	@PreLoadMethod
+	private static void startAutoClearSlice() {
+		CronUtils.upsert(ID, "0 0 0/1 * * ?", () -> {
+			try {
+				int count = FileSliceUtil.purgeExpired(AgentConfigBean.getInstance().getSlicePath(), TimeUnit.DAYS.toMillis(1));
+				if (count > 0) {
+					DefaultSystemLog.getLog().info("清理过期的上传分片 {} 个", count);
+				}
+			} catch (Exception e) {
+				DefaultSystemLog.getLog().error("清理过期的上传分片失败", e);
+			}
+		});
+	}
+}
@@ -0,0 +1,206 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Code Technology Studio
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jpom.service;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.RandomUtil;
+import com.alibaba.fastjson.JSONObject;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Collections;
+
+/**
+ * @author bwcx_jzy
+ * @since 2022/5/27
+ */
+public class CachedJsonFileTest {
+
+    private File file;
+    private CachedJsonFile cachedJsonFile;
+
+    @Before
+    public void before() {
+        file = FileUtil.file(FileUtil.getTmpDir(), "jpom-json-test", RandomUtil.randomString(8), "data.json");
+        cachedJsonFile = CachedJsonFile.of(file.getAbsolutePath());
+    }
+
+    @After
+    public void after() {
+        FileUtil.del(file.getParentFile());
+    }
+
+    private static JSONObject item(String id, String name) {
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("id", id);
+        jsonObject.put("name", name);
+        return jsonObject;
+    }
+
+    @Test
+    public void testReadWrite() {
+        Assert.assertNull(cachedJsonFile.read());
+        cachedJsonFile.write(data -> data.put("a", item("a", "a1")));
+        JSONObject data = cachedJsonFile.read();
+        Assert.assertEquals("a1", data.getJSONObject("a").getString("name"));
+        // 文件没有变化时返回缓存对象
+        Assert.assertSame(data, cachedJsonFile.read());
+        Assert.assertSame(cachedJsonFile, CachedJsonFile.of(file.getAbsolutePath()));
+        // 保存时先写临时文件再替换
+        Assert.assertFalse(FileUtil.exist(FileUtil.file(file.getParentFile(), file.getName() + ".temp")));
+    }
+
+    @Test
+    public void testReadCopy() {
+        cachedJsonFile.write(data -> data.put("a", item("a", "a1")));
+        JSONObject copy = cachedJsonFile.readCopy();
+        copy.getJSONObject("a").put("name", "changed");
+        copy.put("b", item("b", "b1"));
+        JSONObject data = cachedJsonFile.read();
+        Assert.assertEquals("a1", data.getJSONObject("a").getString("name"));
+        Assert.assertFalse(data.containsKey("b"));
+    }
+
+    @Test
+    public void testWriteFailed() {
+        cachedJsonFile.write(data -> data.put("a", item("a", "a1")));
+        JSONObject before = cachedJsonFile.read();
+        try {
+            cachedJsonFile.write(data -> {
+                data.put("b", item("b", "b1"));
+                throw new IllegalStateException("test");
+            });
+            Assert.fail();
+        } catch (IllegalStateException ignored) {
+        }
+        Assert.assertSame(before, cachedJsonFile.read());
+        Assert.assertFalse(FileUtil.readUtf8String(file).contains("b1"));
+    }
+
+    @Test
+    public void testExternalModify() {
+        cachedJsonFile.write(data -> data.put("a", item("a", "a1")));
+        JSONObject data = cachedJsonFile.read();
+        JSONObject external = new JSONObject();
+        external.put("c", item("c", "external"));
+        FileUtil.writeUtf8String(external.toJSONString(), file);
+        JSONObject reload = cachedJsonFile.read();
+        Assert.assertNotSame(data, reload);
+        Assert.assertEquals("external", reload.getJSONObject("c").getString("name"));
+        Assert.assertFalse(reload.containsKey("a"));
+        // 文件被删除
+        FileUtil.del(file);
+        Assert.assertNull(cachedJsonFile.read());
+    }
+
+    @Test
+    public void testChanges() {
+        cachedJsonFile.write(data -> data.put("a", item("a", "a1")));
+        CachedJsonFile.Changes changes = cachedJsonFile.changes(null, 0);
+        // 第一次同步为全量
+        Assert.assertTrue(changes.full);
+        Assert.assertEquals(1, changes.revision);
+        String epoch = changes.epoch;
+        changes = cachedJsonFile.changes(epoch, 0);
+        Assert.assertFalse(changes.full);
+        Assert.assertEquals(Collections.singleton("a"), changes.changed);
+        // 修改
+        cachedJsonFile.write(data -> data.put("b", item("b", "b1")));
+        changes = cachedJsonFile.changes(epoch, 1);
+        Assert.assertFalse(changes.full);
+        Assert.assertEquals(2, changes.revision);
+        Assert.assertEquals(Collections.singleton("b"), changes.changed);
+        Assert.assertTrue(changes.deleted.isEmpty());
+        // 删除记录
+        cachedJsonFile.write(data -> data.remove("a"));
+        changes = cachedJsonFile.changes(epoch, 2);
+        Assert.assertTrue(changes.changed.isEmpty());
+        Assert.assertEquals(Collections.singletonList("a"), changes.deleted);
+        changes = cachedJsonFile.changes(epoch, 0);
+        Assert.assertEquals(Collections.singleton("b"), changes.changed);
+        Assert.assertEquals(Collections.singletonList("a"), changes.deleted);
+        // 重新添加后不再是删除
+        cachedJsonFile.write(data -> data.put("a", item("a", "a2")));
+        changes = cachedJsonFile.changes(epoch, 2);
+        Assert.assertEquals(Collections.singleton("a"), changes.changed);
+        Assert.assertTrue(changes.deleted.isEmpty());
+        // 数据没有变化时版本号不变
+        cachedJsonFile.write(data -> data.put("a", item("a", "a2")));
+        changes = cachedJsonFile.changes(epoch, 4);
+        Assert.assertEquals(4, changes.revision);
+        Assert.assertTrue(changes.changed.isEmpty());
+        Assert.assertTrue(changes.deleted.isEmpty());
+        // 版本号超过当前版本（服务端记录的是其他 epoch 的版本号）
+        Assert.assertTrue(cachedJsonFile.changes(epoch, 5).full);
+    }
+
+    @Test
+    public void testEpochReset() {
+        cachedJsonFile.write(data -> data.put("a", item("a", "a1")));
+        CachedJsonFile.Changes changes = cachedJsonFile.changes(null, 0);
+        String epoch = changes.epoch;
+        // 文件被外部修改后版本号失效
+        JSONObject external = new JSONObject();
+        external.put("c", item("c", "external"));
+        FileUtil.writeUtf8String(external.toJSONString(), file);
+        changes = cachedJsonFile.changes(epoch, 1);
+        Assert.assertTrue(changes.full);
+        Assert.assertNotEquals(epoch, changes.epoch);
+        Assert.assertEquals(0, changes.revision);
+        Assert.assertTrue(changes.data.containsKey("c"));
+        // 使用新的 epoch 增量同步
+        String newEpoch = changes.epoch;
+        cachedJsonFile.write(data -> data.put("d", item("d", "d1")));
+        changes = cachedJsonFile.changes(newEpoch, 0);
+        Assert.assertFalse(changes.full);
+        Assert.assertEquals(Collections.singleton("d"), changes.changed);
+        // 旧的 epoch 只能全量
+        Assert.assertTrue(cachedJsonFile.changes(epoch, 1).full);
+    }
+
+    @Test
+    public void testMinRevision() {
+        int count = 1001;
+        cachedJsonFile.write(data -> {
+            for (int i = 0; i < count; i++) {
+                data.put("item" + i, item("item" + i, "name"));
+            }
+        });
+        String epoch = cachedJsonFile.changes(null, 0).epoch;
+        cachedJsonFile.write(JSONObject::clear);
+        // 删除记录超出保留数量，更早的版本只能全量同步
+        CachedJsonFile.Changes changes = cachedJsonFile.changes(epoch, 1);
+        Assert.assertTrue(changes.full);
+        Assert.assertEquals(2, changes.revision);
+        Assert.assertTrue(changes.data.isEmpty());
+        // 之后的版本可以继续增量同步
+        cachedJsonFile.write(data -> data.put("a", item("a", "a1")));
+        changes = cachedJsonFile.changes(epoch, 2);
+        Assert.assertFalse(changes.full);
+        Assert.assertEquals(Collections.singleton("a"), changes.changed);
+        Assert.assertTrue(changes.deleted.isEmpty());
+    }
+}
@@ -52,6 +52,16 @@ public class ServerOpenApi {
 
     public static final String PUSH_NODE_KEY = "--auto-push-to-server";
 
+    /**
+     * 插件端推送事件（执行记录、数据变动）
+     */
+    public static final String PUSH_EVENT = API + "node/push_event";
+
+    /**
+     * 插件端推送事件时携带的插件端授权信息
+     */
+    public static final String AGENT_AUTHORIZE_HEAD = "JPOM-AGENT-AUTHORIZE";
+
     /**
      * 安装id
      */
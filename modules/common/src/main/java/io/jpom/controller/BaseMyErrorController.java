@@ -46,6 +46,8 @@ public abstract class BaseMyErrorController extends AbstractErrorController {
 
     public static final String FILE_MAX_SIZE_MSG = "上传文件太大了,请重新选择一个较小的文件上传吧";
 
+    public static final String NOT_FOUND_MSG = "没有找到对应的资源";
+
     public BaseMyErrorController(ErrorAttributes errorAttributes) {
         super(errorAttributes);
     }
@@ -68,7 +70,7 @@ public abstract class BaseMyErrorController extends AbstractErrorController {
             // 上传文件大小异常
             msg = FILE_MAX_SIZE_MSG;
         } else if (status == HttpStatus.NOT_FOUND) {
-            msg = "没有找到对应的资源";
+            msg = NOT_FOUND_MSG;
             body.put(JsonMessage.DATA, requestUri);
         }
         body.put(JsonMessage.MSG, msg);
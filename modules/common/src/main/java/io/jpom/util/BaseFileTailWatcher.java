@@ -30,9 +30,9 @@ import org.springframework.web.socket.WebSocketSession;
 import javax.websocket.Session;
 import java.io.File;
 import java.io.IOException;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 文件跟随器工具
@@ -48,7 +48,7 @@ public abstract class BaseFileTailWatcher<T> {
     /**
      * 所有会话
      */
-    protected final Set<T> socketSessions = new HashSet<>();
+    protected final Set<T> socketSessions = ConcurrentHashMap.newKeySet();
 
     public BaseFileTailWatcher(File logFile) throws IOException {
         this.logFile = logFile;
@@ -0,0 +1,113 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Code Technology Studio
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jpom.util;
+
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.SecureUtil;
+import com.alibaba.fastjson.JSONObject;
+import io.jpom.system.JpomRuntimeException;
+import lombok.AllArgsConstructor;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.stream.Collectors;
+
+/**
+ * 文件签名清单（用于对比文件差异）
+ * <p>
+ * 文件签名在独立的 ForkJoin 线程池中并行计算，计算结果按照 路径 + 文件大小 + 修改时间 缓存，文件未变化时不会重复计算
+ *
+ * @author bwcx_jzy
+ * @since 2022/5/20
+ */
+public class FileSha1Manifest {
+
+    /**
+     * key 文件绝对路径
+     */
+    private static final LRUCache<String, Sha1Item> SHA1_CACHE = new LRUCache<>(100_000);
+
+    private static final ForkJoinPool FORK_JOIN_POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("Jpom File Sha1-" + thread.getPoolIndex());
+        thread.setDaemon(true);
+        return thread;
+    }, null, false);
+
+    @AllArgsConstructor
+    private static class Sha1Item {
+        private final long size;
+        private final long lastModified;
+        private final String sha1;
+    }
+
+    /**
+     * 扫描目录下的所有文件并计算签名
+     *
+     * @param file      文件或者文件夹
+     * @param startPath 相对路径的开始路径
+     * @return list name 相对路径，sha1 签名
+     */
+    public static List<JSONObject> create(File file, String startPath) {
+        List<File> files = FileUtil.loopFiles(file);
+        try {
+            return FORK_JOIN_POOL.submit(() -> files.parallelStream().map(item -> {
+                JSONObject jsonObject = new JSONObject();
+                jsonObject.put("name", StringUtil.delStartPath(item, startPath, true));
+                jsonObject.put("sha1", sha1(item));
+                return jsonObject;
+            }).collect(Collectors.toList())).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JpomRuntimeException("计算文件签名被中断", e);
+        } catch (ExecutionException e) {
+            throw new JpomRuntimeException("计算文件签名异常：" + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * 计算文件签名，文件大小和修改时间没有变化时使用缓存
+     *
+     * @param file 文件
+     * @return sha1
+     */
+    public static String sha1(File file) {
+        String key = FileUtil.getAbsolutePath(file);
+        long size = file.length();
+        long lastModified = file.lastModified();
+        Sha1Item sha1Item = SHA1_CACHE.get(key, false);
+        if (sha1Item != null && sha1Item.size == size && sha1Item.lastModified == lastModified) {
+            return sha1Item.sha1;
+        }
+        String sha1 = SecureUtil.sha1(file);
+        if (StrUtil.isNotEmpty(sha1)) {
+            SHA1_CACHE.put(key, new Sha1Item(size, lastModified, sha1));
+        }
+        return sha1;
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Code Technology Studio
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jpom.util;
+
+import cn.hutool.core.date.SystemClock;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IoUtil;
+import cn.hutool.core.util.HexUtil;
+import lombok.Data;
+import org.springframework.util.Assert;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 文件分片，分片使用 sha1 命名
+ * <p>
+ * 计算分片信息、读取和合并分片都只使用固定大小的缓冲区，不会把整个分片读取到内存中
+ *
+ * @author bwcx_jzy
+ * @since 2022/5/27
+ */
+public class FileSliceUtil {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 文件分片信息
+     */
+    @Data
+    public static class SliceManifest {
+        /**
+         * 完整文件的 sha1
+         */
+        private String fileSha1;
+        /**
+         * 分片大小（字节）
+         */
+        private int sliceSize;
+        /**
+         * 按照顺序的分片 sha1
+         */
+        private List<String> sliceShas;
+    }
+
+    /**
+     * 计算文件的分片信息
+     *
+     * @param file      文件
+     * @param sliceSize 分片大小
+     * @return 分片信息，空文件没有分片
+     * @throws IOException io
+     */
+    public static SliceManifest createManifest(File file, int sliceSize) throws IOException {
+        Assert.state(sliceSize > 0, "分片大小不正确");
+        MessageDigest fileDigest = sha1Digest();
+        MessageDigest sliceDigest = sha1Digest();
+        List<String> sliceShas = new ArrayList<>();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long sliceRemaining = sliceSize;
+        try (InputStream inputStream = FileUtil.getInputStream(file)) {
+            int len;
+            while ((len = inputStream.read(buffer, 0, (int) Math.min(buffer.length, sliceRemaining))) != -1) {
+                fileDigest.update(buffer, 0, len);
+                sliceDigest.update(buffer, 0, len);
+                sliceRemaining -= len;
+                if (sliceRemaining == 0) {
+                    sliceShas.add(HexUtil.encodeHexStr(sliceDigest.digest()));
+                    sliceRemaining = sliceSize;
+                }
+            }
+        }
+        if (sliceRemaining < sliceSize) {
+            // 最后一个不完整的分片
+            sliceShas.add(HexUtil.encodeHexStr(sliceDigest.digest()));
+        }
+        SliceManifest sliceManifest = new SliceManifest();
+        sliceManifest.setFileSha1(HexUtil.encodeHexStr(fileDigest.digest()));
+        sliceManifest.setSliceSize(sliceSize);
+        sliceManifest.setSliceShas(sliceShas);
+        return sliceManifest;
+    }
+
+    /**
+     * 读取文件中的一个分片，返回的流只能读取到分片的结束位置
+     *
+     * @param file   文件
+     * @param offset 分片开始位置
+     * @param length 分片长度
+     * @return 流，需要调用方关闭
+     * @throws IOException io
+     */
+    public static InputStream openSlice(File file, long offset, long length) throws IOException {
+        FileInputStream inputStream = new FileInputStream(file);
+        try {
+            inputStream.getChannel().position(offset);
+        } catch (IOException e) {
+            IoUtil.close(inputStream);
+            throw e;
+        }
+        return new RangeInputStream(new BufferedInputStream(inputStream, BUFFER_SIZE), length);
+    }
+
+    /**
+     * 按照顺序合并分片
+     *
+     * @param sliceDir  分片目录
+     * @param sliceShas 分片 sha1
+     * @param target    合并后的文件
+     * @return 合并后文件的 sha1
+     * @throws IOException io
+     */
+    public static String merge(File sliceDir, List<String> sliceShas, File target) throws IOException {
+        MessageDigest fileDigest = sha1Digest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (BufferedOutputStream outputStream = FileUtil.getOutputStream(target)) {
+            for (String sha1 : sliceShas) {
+                File sliceFile = FileUtil.file(sliceDir, sha1);
+                Assert.state(FileUtil.isFile(sliceFile), "分片不存在,请重新上传：" + sha1);
+                try (InputStream inputStream = FileUtil.getInputStream(sliceFile)) {
+                    int len;
+                    while ((len = inputStream.read(buffer)) != -1) {
+                        fileDigest.update(buffer, 0, len);
+                        outputStream.write(buffer, 0, len);
+                    }
+                }
+            }
+        }
+        return HexUtil.encodeHexStr(fileDigest.digest());
+    }
+
+    /**
+     * 清理长时间没有使用的分片（包含上传、合并中断后遗留的临时文件）
+     * <p>
+     * 分片可能被多个文件共用，只能按照最后使用时间清理
+     *
+     * @param sliceDir 分片目录
+     * @param expire   过期时间（毫秒）
+     * @return 删除的数量
+     */
+    public static int purgeExpired(File sliceDir, long expire) {
+        File[] files = sliceDir.listFiles();
+        if (files == null) {
+            return 0;
+        }
+        long expireTime = SystemClock.now() - expire;
+        int count = 0;
+        for (File file : files) {
+            if (file.isDirectory()) {
+                // 临时目录
+                count += purgeExpired(file, expire);
+                File[] children = file.listFiles();
+                if (children != null && children.length == 0 && file.lastModified() < expireTime) {
+                    FileUtil.del(file);
+                }
+                continue;
+            }
+            if (file.lastModified() < expireTime && FileUtil.del(file)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static MessageDigest sha1Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 限制读取长度的流
+     */
+    private static class RangeInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        private RangeInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read();
+            if (read != -1) {
+                remaining--;
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skip = super.skip(Math.min(n, remaining));
+            remaining -= skip;
+            return skip;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Code Technology Studio
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jpom.util;
+
+import cn.hutool.core.date.SystemClock;
+import cn.hutool.core.io.IORuntimeException;
+import cn.jiangzeyin.common.DefaultSystemLog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.*;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文件跟随调度（所有跟随的文件共用一个线程）
+ * <p>
+ * 使用 WatchService（linux 下为 inotify）监听文件所在目录的变动，收到变动后读取文件新增的内容。
+ * 部分文件系统（网络文件系统、容器挂载目录等）不会产生事件，所以还会定时检查一次所有文件
+ *
+ * @author bwcx_jzy
+ * @since 2022/5/21
+ */
+public class FileTailWatcherDispatcher implements Runnable {
+
+    /**
+     * 定时检查所有文件的间隔 毫秒
+     */
+    private static final long CHECK_INTERVAL = 1000;
+
+    private static volatile FileTailWatcherDispatcher instance;
+
+    private final WatchService watchService;
+    /**
+     * key 文件路径
+     */
+    private final Map<Path, Set<FileTailWatcherRun>> watchers = new ConcurrentHashMap<>();
+    /**
+     * key 目录路径
+     */
+    private final Map<Path, WatchKey> watchKeys = new ConcurrentHashMap<>();
+    /**
+     * 读取文件的缓冲区，只在调度线程中使用
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+
+    private FileTailWatcherDispatcher() throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+    }
+
+    private static FileTailWatcherDispatcher getInstance() {
+        if (instance == null) {
+            synchronized (FileTailWatcherDispatcher.class) {
+                if (instance == null) {
+                    try {
+                        FileTailWatcherDispatcher dispatcher = new FileTailWatcherDispatcher();
+                        Thread thread = new Thread(dispatcher, "Jpom File Tail Watcher");
+                        thread.setDaemon(true);
+                        thread.start();
+                        instance = dispatcher;
+                    } catch (IOException e) {
+                        throw new IORuntimeException(e);
+                    }
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 添加跟随的文件
+     *
+     * @param watcherRun 文件跟随
+     */
+    static void register(FileTailWatcherRun watcherRun) {
+        getInstance().add(watcherRun);
+    }
+
+    /**
+     * 取消跟随的文件
+     *
+     * @param watcherRun 文件跟随
+     */
+    static void unregister(FileTailWatcherRun watcherRun) {
+        if (instance != null) {
+            instance.remove(watcherRun);
+        }
+    }
+
+    /**
+     * 当前跟随的文件数
+     *
+     * @return 文件数
+     */
+    public static int size() {
+        return instance == null ? 0 : instance.watchers.size();
+    }
+
+    private synchronized void add(FileTailWatcherRun watcherRun) {
+        Path path = watcherRun.getPath();
+        Path dir = path.getParent();
+        if (!watchKeys.containsKey(dir)) {
+            try {
+                WatchKey watchKey = dir.register(watchService, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+                watchKeys.put(dir, watchKey);
+            } catch (IOException e) {
+                // 不能监听目录时只依靠定时检查
+                DefaultSystemLog.getLog().warn("监听目录失败：{} {}", dir, e.getMessage());
+            }
+        }
+        watchers.computeIfAbsent(path, p -> new CopyOnWriteArraySet<>()).add(watcherRun);
+    }
+
+    private synchronized void remove(FileTailWatcherRun watcherRun) {
+        Path path = watcherRun.getPath();
+        Set<FileTailWatcherRun> runs = watchers.get(path);
+        if (runs == null) {
+            return;
+        }
+        runs.remove(watcherRun);
+        if (!runs.isEmpty()) {
+            return;
+        }
+        watchers.remove(path);
+        Path dir = path.getParent();
+        boolean dirInUse = watchers.keySet().stream().anyMatch(item -> dir.equals(item.getParent()));
+        if (!dirInUse) {
+            WatchKey watchKey = watchKeys.remove(dir);
+            if (watchKey != null) {
+                watchKey.cancel();
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        long lastCheck = SystemClock.now();
+        while (true) {
+            try {
+                WatchKey watchKey = watchService.poll(CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+                if (watchKey != null) {
+                    this.handleEvents(watchKey);
+                }
+                long now = SystemClock.now();
+                if (now - lastCheck >= CHECK_INTERVAL) {
+                    lastCheck = now;
+                    watchers.values().forEach(runs -> runs.forEach(this::read));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ClosedWatchServiceException e) {
+                return;
+            } catch (Exception e) {
+                DefaultSystemLog.getLog().error("文件跟随调度异常", e);
+            }
+        }
+    }
+
+    private void handleEvents(WatchKey watchKey) {
+        Path dir = (Path) watchKey.watchable();
+        for (WatchEvent<?> watchEvent : watchKey.pollEvents()) {
+            WatchEvent.Kind<?> kind = watchEvent.kind();
+            if (kind == StandardWatchEventKinds.OVERFLOW) {
+                // 事件丢失，检查目录下所有的文件
+                watchers.forEach((path, runs) -> {
+                    if (dir.equals(path.getParent())) {
+                        runs.forEach(this::read);
+                    }
+                });
+                continue;
+            }
+            Path path = dir.resolve((Path) watchEvent.context());
+            Set<FileTailWatcherRun> runs = watchers.get(path);
+            if (runs == null) {
+                continue;
+            }
+            for (FileTailWatcherRun run : runs) {
+                if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
+                    // 文件被删除后重新创建（日志切割）
+                    run.reopen();
+                }
+                this.read(run);
+            }
+        }
+        watchKey.reset();
+    }
+
+    private void read(FileTailWatcherRun run) {
+        buffer.clear();
+        run.read(buffer);
+    }
+}
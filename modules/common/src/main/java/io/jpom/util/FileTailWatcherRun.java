@@ -25,7 +25,6 @@ package io.jpom.util;
 import cn.hutool.core.io.IoUtil;
 import cn.hutool.core.io.LineHandler;
 import cn.hutool.core.io.file.FileMode;
-import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.core.util.CharUtil;
 import cn.hutool.core.util.CharsetUtil;
 import cn.hutool.core.util.StrUtil;
@@ -33,26 +32,47 @@ import cn.jiangzeyin.common.DefaultSystemLog;
 import io.jpom.plugin.PluginFactory;
 import io.jpom.system.ExtConfigBean;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 
 /**
+ * 文件跟随，文件变动由 {@link FileTailWatcherDispatcher} 统一调度读取
+ *
  * @author bwcx_jzy
  * @since 2019/7/21
  */
-public class FileTailWatcherRun implements Runnable {
+public class FileTailWatcherRun {
+    /**
+     * 单行最大长度，超过后直接输出
+     */
+    private static final int MAX_LINE_SIZE = 64 * 1024;
     /**
      * 缓存近10条
      */
     private final LimitQueue<String> limitQueue = new LimitQueue<>(ExtConfigBean.getInstance().getLogInitReadLine());
-    private final RandomAccessFile randomFile;
+    private final File file;
+    private final Path path;
+    private RandomAccessFile randomFile;
+    private FileChannel channel;
+    /**
+     * 已经读取到的位置
+     */
+    private long position;
+    /**
+     * 还没有换行的内容
+     */
+    private final ByteArrayOutputStream lineBuffer = new ByteArrayOutputStream(256);
     /**
      * 是否已经开始执行
      */
-    private boolean start = false;
+    private volatile boolean start = false;
     private final Charset charset;
     private final LineHandler lineHandler;
 
@@ -62,7 +82,26 @@ public class FileTailWatcherRun implements Runnable {
 
     FileTailWatcherRun(File file, LineHandler lineHandler) throws IOException {
         this.lineHandler = lineHandler;
+        this.file = file;
+        this.path = file.toPath().toAbsolutePath().normalize();
         this.randomFile = new RandomAccessFile(file, FileMode.r.name());
+        this.channel = randomFile.getChannel();
+        this.charset = detectCharset(file);
+        long size = channel.size();
+        if (size > 0) {
+            // 开始读取
+            this.startRead(size);
+        }
+        this.position = size;
+    }
+
+    /**
+     * 获取日志文件编码，没有配置时自动识别
+     *
+     * @param file 文件
+     * @return 编码
+     */
+    public static Charset detectCharset(File file) {
         Charset detSet = ExtConfigBean.getInstance().getLogFileCharset();
         if (detSet == null) {
             try {
@@ -74,81 +113,99 @@ public class FileTailWatcherRun implements Runnable {
             }
             detSet = (detSet == StandardCharsets.US_ASCII) ? CharsetUtil.CHARSET_UTF_8 : detSet;
         }
-        this.charset = detSet;
-        if (file.length() > 0) {
-            // 开始读取
-            this.startRead();
-        }
+        return detSet;
+    }
+
+    Path getPath() {
+        return path;
     }
 
-    private void startRead() throws IOException {
-        if (ExtConfigBean.getInstance().getLogInitReadLine() == 0) {
+    private void startRead(long size) throws IOException {
+        int initReadLine = ExtConfigBean.getInstance().getLogInitReadLine();
+        if (initReadLine == 0) {
             // 不初始读取
             return;
         }
-        long len = randomFile.length();
-        long start = randomFile.getFilePointer();
-        long nextEnd = start + len - 1;
-        randomFile.seek(nextEnd);
-        int c;
-        while (nextEnd > start) {
-            // 满
-            if (limitQueue.full()) {
-                break;
-            }
-            c = randomFile.read();
-            if (c == CharUtil.LF || c == CharUtil.CR) {
-                this.readLine();
-                nextEnd--;
+        ReverseLineReader.Result result = ReverseLineReader.read(channel, size, initReadLine, charset);
+        result.getLines().forEach(limitQueue::offer);
+    }
+
+    /**
+     * 读取文件新增的内容
+     *
+     * @param buffer 缓冲区（调度线程共用）
+     */
+    synchronized void read(ByteBuffer buffer) {
+        if (!this.start) {
+            return;
+        }
+        try {
+            long size = channel.size();
+            if (size < position) {
+                // 如果内容变短，说明文件做了删改，回到内容末尾
+                position = size;
+                lineBuffer.reset();
+                return;
             }
-            nextEnd--;
-            randomFile.seek(nextEnd);
-            if (nextEnd == 0) {
-                // 当文件指针退至文件开始处，输出第一行
-                this.readLine();
-                break;
+            while (position < size) {
+                buffer.clear();
+                int len = channel.read(buffer, position);
+                if (len <= 0) {
+                    break;
+                }
+                position += len;
+                byte[] array = buffer.array();
+                int lineStart = 0;
+                for (int i = 0; i < len; i++) {
+                    if (array[i] == CharUtil.LF) {
+                        lineBuffer.write(array, lineStart, i - lineStart);
+                        this.handleLine();
+                        lineStart = i + 1;
+                    }
+                }
+                lineBuffer.write(array, lineStart, len - lineStart);
+                if (lineBuffer.size() >= MAX_LINE_SIZE) {
+                    this.handleLine();
+                }
             }
+        } catch (IOException e) {
+            DefaultSystemLog.getLog().error("读取文件发送异常", e);
+            lineHandler.handle("读取文件发生异常：" + e.getMessage());
+            this.close();
         }
-        // 移动到尾部
-        randomFile.seek(len);
     }
 
-    private void readLine() throws IOException {
-        String line = randomFile.readLine();
-        if (line != null) {
-            line = CharsetUtil.convert(line, CharsetUtil.CHARSET_ISO_8859_1, charset);
-            limitQueue.offerFirst(line);
+    private void handleLine() {
+        byte[] bytes = lineBuffer.toByteArray();
+        lineBuffer.reset();
+        int len = bytes.length;
+        if (len > 0 && bytes[len - 1] == CharUtil.CR) {
+            len--;
         }
+        String line = new String(bytes, 0, len, charset);
+        limitQueue.offer(line);
+        lineHandler.handle(line);
     }
 
-
     /**
-     * 读取文件内容
-     *
-     * @throws IOException IO
+     * 文件被重新创建，从头开始读取新的文件
      */
-    private void read() throws IOException {
-        final long currentLength = randomFile.length();
-        final long position = randomFile.getFilePointer();
-        if (0 == currentLength || currentLength == position) {
-            // 内容长度不变时忽略此次
-            return;
-        } else if (currentLength < position) {
-            // 如果内容变短，说明文件做了删改，回到内容末尾
-            randomFile.seek(currentLength);
+    synchronized void reopen() {
+        if (!this.start) {
             return;
         }
-        String tmp;
-        while ((tmp = randomFile.readLine()) != null) {
-            tmp = CharsetUtil.convert(tmp, CharsetUtil.CHARSET_ISO_8859_1, charset);
-            limitQueue.offer(tmp);
-            lineHandler.handle(tmp);
+        try {
+            RandomAccessFile newFile = new RandomAccessFile(file, FileMode.r.name());
+            IoUtil.close(this.randomFile);
+            this.randomFile = newFile;
+            this.channel = newFile.getChannel();
+            this.position = 0;
+            this.lineBuffer.reset();
+        } catch (IOException e) {
+            DefaultSystemLog.getLog().warn("重新打开文件失败：{} {}", file, e.getMessage());
         }
-        // 记录当前读到的位置
-        this.randomFile.seek(currentLength);
     }
 
-
     /**
      * 开始监听
      */
@@ -157,27 +214,12 @@ public class FileTailWatcherRun implements Runnable {
             return;
         }
         this.start = true;
-        ThreadUtil.execute(this);
-
-    }
-
-    @Override
-    public void run() {
-        while (this.start) {
-            try {
-                this.read();
-            } catch (IOException e) {
-                DefaultSystemLog.getLog().error("读取文件发送异常", e);
-                lineHandler.handle("读取文件发生异常：" + e.getMessage());
-                break;
-            }
-            ThreadUtil.sleep(500);
-        }
-        this.close();
+        FileTailWatcherDispatcher.register(this);
     }
 
-    public void close() {
+    public synchronized void close() {
         this.start = false;
+        FileTailWatcherDispatcher.unregister(this);
         IoUtil.close(this.randomFile);
     }
 }
@@ -32,8 +32,10 @@ import io.jpom.system.JpomRuntimeException;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Set;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * json 文件读写工具
@@ -42,12 +44,15 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * @since 2017/5/15
  */
 public class JsonFileUtil {
-	private static final ReentrantReadWriteLock FILE_LOCK = new ReentrantReadWriteLock();
-	private final static ReentrantReadWriteLock.ReadLock READ_LOCK = FILE_LOCK.readLock();
-	private final static ReentrantReadWriteLock.WriteLock WRITE_LOCK = FILE_LOCK.writeLock();
+	/**
+	 * 按文件加锁，不同文件之间互不影响
+	 */
+	private static final KeyLock<String> FILE_LOCK = new KeyLock<>();
 
 	/**
-	 * 读取json 文件，同步
+	 * 读取json 文件
+	 * <p>
+	 * 保存时先写入临时文件再替换，读取时不需要加锁
 	 *
 	 * @param path 路径
 	 * @return JSON
@@ -58,37 +63,43 @@ public class JsonFileUtil {
 		if (!file.exists()) {
 			throw new FileNotFoundException("没有找到对应配置文件：" + path);
 		}
-		READ_LOCK.lock();
-		// 防止多线程操作文件异常
+		String json = FileUtil.readString(file, CharsetUtil.CHARSET_UTF_8);
+		if (StrUtil.isEmpty(json)) {
+			return new JSONObject();
+		}
 		try {
-			String json = FileUtil.readString(file, CharsetUtil.CHARSET_UTF_8);
-			if (StrUtil.isEmpty(json)) {
-				return new JSONObject();
-			}
-			try {
-				return (JSON) JSON.parse(json);
-			} catch (Exception e) {
-				throw new JpomRuntimeException("数据文件内容错误，请检查文件是否被非法修改：" + path, e);
-			}
-		} finally {
-			READ_LOCK.unlock();
+			return (JSON) JSON.parse(json);
+		} catch (Exception e) {
+			throw new JpomRuntimeException("数据文件内容错误，请检查文件是否被非法修改：" + path, e);
 		}
 	}
 
 	/**
 	 * 保存json 文件,同步
+	 * <p>
+	 * 先写入同目录下的临时文件，再替换原文件，避免写入中断或者读取到不完整的内容
 	 *
 	 * @param path 路径
 	 * @param json 新的json内容
 	 */
 	public static void saveJson(String path, JSON json) {
-		WRITE_LOCK.lock();
+		File file = new File(path).getAbsoluteFile();
+		String key = file.getPath();
+		FILE_LOCK.lock(key);
 		try {
 			// 输出格式化后的json 字符串
 			String newsJson = JSON.toJSONString(json, true);
-			FileUtil.writeString(newsJson, path, CharsetUtil.UTF_8);
+			File tempFile = FileUtil.file(file.getParentFile(), file.getName() + ".temp");
+			FileUtil.writeString(newsJson, tempFile, CharsetUtil.CHARSET_UTF_8);
+			try {
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (IOException e) {
+				// 不支持原子替换（如 windows 中文件被占用）
+				FileUtil.writeString(newsJson, file, CharsetUtil.CHARSET_UTF_8);
+				FileUtil.del(tempFile);
+			}
 		} finally {
-			WRITE_LOCK.unlock();
+			FILE_LOCK.unlock(key);
 		}
 	}
 
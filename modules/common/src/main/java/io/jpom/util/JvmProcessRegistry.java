@@ -0,0 +1,293 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Code Technology Studio
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jpom.util;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.date.SystemClock;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.CharsetUtil;
+import cn.hutool.core.util.StrUtil;
+import lombok.Getter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 本机进程注册表
+ * <p>
+ * 读取 /proc/[pid]/cmdline 获取所有进程的命令行，并按 Jpom 进程标识建立索引，
+ * 查询状态、进程名时不再每次执行 jps 命令。结果缓存一个很短的时间，刷新时只读取新出现的进程
+ * <p>
+ * 只在存在 /proc 的系统（linux）中可用
+ *
+ * @author bwcx_jzy
+ * @since 2022/5/24
+ */
+public class JvmProcessRegistry {
+
+	private static final File PROC = FileUtil.file("/proc");
+	/**
+	 * 是否支持
+	 */
+	private static final boolean SUPPORT = FileUtil.isFile("/proc/self/cmdline");
+	/**
+	 * 缓存时间
+	 */
+	private static final long TTL = TimeUnit.SECONDS.toMillis(2);
+	/**
+	 * 上一次刷新超过此时间后重新读取全部进程，避免进程号被复用
+	 */
+	private static final long FULL_SCAN_INTERVAL = TimeUnit.SECONDS.toMillis(30);
+
+	private static volatile Snapshot snapshot;
+	private static volatile boolean expired;
+
+	/**
+	 * 当前系统是否支持
+	 *
+	 * @return true 支持
+	 */
+	public static boolean isSupport() {
+		return SUPPORT;
+	}
+
+	/**
+	 * 标记缓存过期，下次查询时重新读取。在启动、停止进程后调用
+	 */
+	public static void expire() {
+		expired = true;
+	}
+
+	/**
+	 * 根据 Jpom 进程标识获取进程号，存在多个进程时优先返回 java 进程
+	 *
+	 * @param tag 标识
+	 * @return 进程号
+	 */
+	public static Integer getPidByTag(String tag) {
+		if (StrUtil.isEmpty(tag)) {
+			return null;
+		}
+		ProcessItem processItem = get().tagMap.get(tag.toLowerCase());
+		return processItem == null ? null : processItem.getPid();
+	}
+
+	/**
+	 * 获取进程信息
+	 *
+	 * @param pid 进程号
+	 * @return 进程信息
+	 */
+	public static ProcessItem get(int pid) {
+		return get().processMap.get(pid);
+	}
+
+	/**
+	 * 当前运行中的 java 进程
+	 *
+	 * @return list
+	 */
+	public static List<ProcessItem> listJava() {
+		return get().javaList;
+	}
+
+	/**
+	 * 缓存的进程数
+	 *
+	 * @return 进程数
+	 */
+	public static int size() {
+		Snapshot snapshot = JvmProcessRegistry.snapshot;
+		return snapshot == null ? 0 : snapshot.processMap.size();
+	}
+
+	private static Snapshot get() {
+		Snapshot snapshot = JvmProcessRegistry.snapshot;
+		if (isValid(snapshot)) {
+			return snapshot;
+		}
+		synchronized (JvmProcessRegistry.class) {
+			snapshot = JvmProcessRegistry.snapshot;
+			if (isValid(snapshot)) {
+				return snapshot;
+			}
+			// 先清除标记，读取过程中再次标记过期会在下次查询时重新读取
+			expired = false;
+			snapshot = scan(snapshot);
+			JvmProcessRegistry.snapshot = snapshot;
+			return snapshot;
+		}
+	}
+
+	private static boolean isValid(Snapshot snapshot) {
+		return snapshot != null && !expired && SystemClock.now() - snapshot.time < TTL;
+	}
+
+	private static Snapshot scan(Snapshot previous) {
+		long now = SystemClock.now();
+		Map<Integer, ProcessItem> oldMap = Collections.emptyMap();
+		if (previous != null && now - previous.time < FULL_SCAN_INTERVAL) {
+			oldMap = previous.processMap;
+		}
+		String[] names = PROC.list();
+		Map<Integer, ProcessItem> processMap = new HashMap<>(oldMap.size() + 16);
+		Map<String, ProcessItem> tagMap = new HashMap<>(16);
+		if (names != null) {
+			for (String name : names) {
+				if (!StrUtil.isNumeric(name)) {
+					continue;
+				}
+				int pid;
+				try {
+					pid = Integer.parseInt(name);
+				} catch (NumberFormatException e) {
+					continue;
+				}
+				ProcessItem processItem = oldMap.get(pid);
+				if (processItem == null) {
+					processItem = readProcess(pid);
+					if (processItem == null) {
+						continue;
+					}
+				}
+				processMap.put(pid, processItem);
+				String tag = processItem.getTag();
+				if (tag != null) {
+					tagMap.merge(tag.toLowerCase(), processItem, (item1, item2) -> item1.isJava() || !item2.isJava() ? item1 : item2);
+				}
+			}
+		}
+		List<ProcessItem> javaList = processMap.values().stream().filter(ProcessItem::isJava).collect(Collectors.toList());
+		return new Snapshot(now, processMap, tagMap, javaList);
+	}
+
+	private static ProcessItem readProcess(int pid) {
+		byte[] bytes;
+		try {
+			bytes = Files.readAllBytes(FileUtil.file(PROC, pid + "", "cmdline").toPath());
+		} catch (IOException e) {
+			// 进程已经结束或者没有权限
+			return null;
+		}
+		Charset charset = CharsetUtil.defaultCharset();
+		List<String> args = new ArrayList<>();
+		int start = 0;
+		for (int i = 0; i <= bytes.length; i++) {
+			if (i == bytes.length || bytes[i] == 0) {
+				if (i > start) {
+					args.add(new String(bytes, start, i - start, charset));
+				}
+				start = i + 1;
+			}
+		}
+		return new ProcessItem(pid, args);
+	}
+
+	private static class Snapshot {
+		private final long time;
+		private final Map<Integer, ProcessItem> processMap;
+		private final Map<String, ProcessItem> tagMap;
+		private final List<ProcessItem> javaList;
+
+		private Snapshot(long time, Map<Integer, ProcessItem> processMap, Map<String, ProcessItem> tagMap, List<ProcessItem> javaList) {
+			this.time = time;
+			this.processMap = processMap;
+			this.tagMap = tagMap;
+			this.javaList = javaList;
+		}
+	}
+
+	/**
+	 * 进程信息
+	 */
+	@Getter
+	public static class ProcessItem {
+		private final int pid;
+		/**
+		 * 命令行，参数使用空格分隔
+		 */
+		private final String commandLine;
+		/**
+		 * 是否为 java 进程
+		 */
+		private final boolean java;
+		/**
+		 * Jpom 进程标识
+		 */
+		private final String tag;
+		/**
+		 * 主类或者 jar 路径，和 jps -l 一致
+		 */
+		private final String mainName;
+
+		private ProcessItem(int pid, List<String> args) {
+			this.pid = pid;
+			this.commandLine = CollUtil.join(args, StrUtil.SPACE);
+			String first = CollUtil.getFirst(args);
+			this.java = first != null && StrUtil.equalsAny(FileUtil.getName(first), "java", "javaw");
+			this.tag = JvmUtil.parseCommandJpomTag(commandLine);
+			this.mainName = this.java ? parseMainName(args) : null;
+		}
+
+		/**
+		 * 获取进程工作目录下的文件
+		 *
+		 * @param path 路径
+		 * @return file
+		 */
+		public File resolve(String path) {
+			if (FileUtil.isAbsolutePath(path)) {
+				return FileUtil.file(path);
+			}
+			return FileUtil.file(PROC, pid + "", "cwd", path);
+		}
+
+		private static String parseMainName(List<String> args) {
+			for (int i = 1; i < args.size(); i++) {
+				String arg = args.get(i);
+				if (StrUtil.equals(arg, "-jar")) {
+					return CollUtil.get(args, i + 1);
+				}
+				if (StrUtil.equalsAny(arg, "-m", "--module")) {
+					String module = CollUtil.get(args, i + 1);
+					return StrUtil.contains(module, StrUtil.SLASH) ? StrUtil.subAfter(module, StrUtil.SLASH, false) : module;
+				}
+				if (StrUtil.equalsAny(arg, "-cp", "-classpath", "--class-path", "-p", "--module-path", "--upgrade-module-path", "--add-modules", "--limit-modules")) {
+					// 跳过参数值
+					i++;
+					continue;
+				}
+				if (StrUtil.startWith(arg, StrUtil.DASHED)) {
+					continue;
+				}
+				return arg;
+			}
+			return null;
+		}
+	}
+}
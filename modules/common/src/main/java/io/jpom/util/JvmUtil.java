@@ -38,6 +38,8 @@ import java.util.jar.Manifest;
 
 /**
  * jvm jmx 工具
+ * <p>
+ * 支持 /proc 的系统使用 {@link JvmProcessRegistry} 查询进程，其他系统执行 jps 命令
  *
  * @author jiangzeyin
  * @since 2019/4/13
@@ -83,6 +85,9 @@ public class JvmUtil {
 	 * @return 如果发生异常则返回0
 	 */
 	public static int getJavaVirtualCount() {
+		if (JvmProcessRegistry.isSupport()) {
+			return JvmProcessRegistry.listJava().size();
+		}
 		String execSystemCommand = CommandUtil.execSystemCommand("jps -l");
 		List<String> list = StrSplitter.splitTrim(execSystemCommand, StrUtil.LF, true);
 		return Math.max(CollUtil.size(list) - 1, 0);
@@ -94,6 +99,10 @@ public class JvmUtil {
 	 * @return true 存在
 	 */
 	public static boolean exist(long pid) {
+		if (JvmProcessRegistry.isSupport()) {
+			JvmProcessRegistry.ProcessItem processItem = JvmProcessRegistry.get((int) pid);
+			return processItem != null && processItem.isJava();
+		}
 		String execSystemCommand = CommandUtil.execSystemCommand("jps -l");
 		List<String> list = StrSplitter.splitTrim(execSystemCommand, StrUtil.LF, true);
 		String pidCommandInfo = list.stream().filter(s -> {
@@ -110,6 +119,10 @@ public class JvmUtil {
 	 * @return command line info
 	 */
 	public static String getPidJpsInfoInfo(int pid) {
+		if (JvmProcessRegistry.isSupport()) {
+			JvmProcessRegistry.ProcessItem processItem = JvmProcessRegistry.get(pid);
+			return processItem == null ? null : pid + StrUtil.SPACE + processItem.getCommandLine();
+		}
 		String execSystemCommand = CommandUtil.execSystemCommand("jps -mv");
 		List<String> list = StrSplitter.splitTrim(execSystemCommand, StrUtil.LF, true);
 		Optional<String> any = list.stream().filter(s -> {
@@ -126,6 +139,9 @@ public class JvmUtil {
 	 * @return 进程ID
 	 */
 	public static Integer getPidByTag(String tag) {
+		if (JvmProcessRegistry.isSupport()) {
+			return JvmProcessRegistry.getPidByTag(tag);
+		}
 		String execSystemCommand = CommandUtil.execSystemCommand("jps -mv");
 		List<String> list = StrSplitter.splitTrim(execSystemCommand, StrUtil.LF, true);
 		Optional<String> any = list.stream().filter(s -> checkCommandLineIsJpom(s, tag)).map(s -> {
@@ -188,6 +204,15 @@ public class JvmUtil {
 	 * @return pid
 	 */
 	public static Integer findMainClassPid(String mainClass) {
+		if (JvmProcessRegistry.isSupport()) {
+			return JvmProcessRegistry.listJava().stream().filter(processItem -> {
+				String mainName = processItem.getMainName();
+				if (StrUtil.isEmpty(mainName)) {
+					return false;
+				}
+				return StrUtil.equals(mainClass, mainName) || checkFile(processItem.resolve(mainName), mainClass);
+			}).findAny().map(JvmProcessRegistry.ProcessItem::getPid).orElse(null);
+		}
 		String execSystemCommand = CommandUtil.execSystemCommand("jps -l");
 		List<String> list = StrSplitter.splitTrim(execSystemCommand, StrUtil.LF, true);
 		Optional<Tuple> any = list.stream().map(s -> {
@@ -195,14 +220,13 @@ public class JvmUtil {
 			return new Tuple(CollUtil.getFirst(split), CollUtil.getLast(split));
 		}).filter(tuple -> {
 			String fileName = tuple.get(1);
-			return StrUtil.equals(mainClass, fileName) || checkFile(fileName, mainClass);
+			return StrUtil.equals(mainClass, fileName) || checkFile(FileUtil.file(fileName), mainClass);
 		}).findAny();
 		return any.map(tuple -> Convert.toInt(tuple.get(0))).orElse(null);
 	}
 
-	private static boolean checkFile(String fileName, String mainClass) {
+	private static boolean checkFile(File file, String mainClass) {
 		try {
-			File file = FileUtil.file(fileName);
 			if (!file.exists() || file.isDirectory()) {
 				return false;
 			}
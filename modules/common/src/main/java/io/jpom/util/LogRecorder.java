@@ -22,36 +22,73 @@
  */
 package io.jpom.util;
 
-import cn.hutool.core.collection.CollectionUtil;
+import cn.hutool.core.date.SystemClock;
 import cn.hutool.core.exceptions.ExceptionUtil;
 import cn.hutool.core.io.FileUtil;
-import cn.hutool.core.io.file.FileWriter;
+import cn.hutool.core.io.IORuntimeException;
+import cn.hutool.core.io.IoUtil;
+import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.core.util.CharsetUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.jiangzeyin.common.DefaultSystemLog;
 import lombok.Builder;
 
-import java.io.File;
-import java.io.PrintWriter;
+import java.io.*;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 日志记录
+ * <p>
+ * 日志先写入缓冲区，由后台线程定时批量刷新到文件（最多延迟 {@link #FLUSH_INTERVAL} 毫秒），
+ * 文件只打开一次，使用结束需要调用 {@link #close()}。长时间没有写入的日志文件会自动关闭，再次写入时重新打开
  *
  * @author bwcx_jzy
  * @since 2022/1/26
  */
-@Builder
 public class LogRecorder implements AutoCloseable {
+
+	/**
+	 * 定时刷新间隔 毫秒
+	 */
+	public static final long FLUSH_INTERVAL = 500;
+	/**
+	 * 没有写入自动关闭文件的时间 毫秒
+	 */
+	private static final long IDLE_CLOSE = TimeUnit.MINUTES.toMillis(1);
+	private static final Set<LogRecorder> OPEN_RECORDERS = ConcurrentHashMap.newKeySet();
+	private static final ScheduledExecutorService FLUSH_EXECUTOR;
+
+	static {
+		FLUSH_EXECUTOR = Executors.newSingleThreadScheduledExecutor(ThreadUtil.newNamedThreadFactory("Jpom LogRecorder-", true));
+		FLUSH_EXECUTOR.scheduleWithFixedDelay(LogRecorder::flushAll, FLUSH_INTERVAL, FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+	}
+
 	/**
 	 * 文件
 	 */
 	private File file;
-	private String filePath;
+	private final String filePath;
 	/**
 	 * 文件编码
 	 */
-	private Charset charset;
+	private final Charset charset;
+
+	private Writer writer;
+	private volatile long lastWriteTime;
+
+	@Builder
+	private LogRecorder(File file, String filePath, Charset charset) {
+		this.file = file;
+		this.filePath = filePath;
+		this.charset = charset;
+	}
 
 	public Charset getCharset() {
 		if (charset == null) {
@@ -78,9 +115,8 @@ public class LogRecorder implements AutoCloseable {
 	 */
 	public void error(String title, Throwable throwable) {
 		DefaultSystemLog.getLog().error(title, throwable);
-		FileUtil.appendLines(CollectionUtil.toList(title), this.getFile(), this.getCharset());
 		String s = ExceptionUtil.stacktraceToString(throwable);
-		FileUtil.appendLines(CollectionUtil.toList(s), this.getFile(), this.getCharset());
+		this.write(title + FileUtil.getLineSeparator() + s + FileUtil.getLineSeparator());
 	}
 
 	/**
@@ -90,7 +126,7 @@ public class LogRecorder implements AutoCloseable {
 	 */
 	public void info(String info, Object... vals) {
 		String format = StrUtil.format(info, vals);
-		FileUtil.appendLines(CollectionUtil.toList(format), this.getFile(), this.getCharset());
+		this.write(format + FileUtil.getLineSeparator());
 	}
 
 	/**
@@ -100,20 +136,85 @@ public class LogRecorder implements AutoCloseable {
 	 */
 	public void append(String info, Object... vals) {
 		String format = StrUtil.format(info, vals);
-		FileUtil.appendString(format, this.getFile(), this.getCharset());
+		this.write(format);
 	}
 
 	/**
-	 * 获取 文件输出流
+	 * 获取 文件输出流，写入的内容和其他日志一样先进入缓冲区
 	 *
 	 * @return Writer
 	 */
 	public PrintWriter getPrintWriter() {
-		return FileWriter.create(this.getFile(), this.getCharset()).getPrintWriter(true);
+		return new PrintWriter(new Writer() {
+			@Override
+			public void write(char[] cbuf, int off, int len) {
+				LogRecorder.this.write(new String(cbuf, off, len));
+			}
+
+			@Override
+			public void flush() {
+				// 由定时任务刷新
+			}
+
+			@Override
+			public void close() {
+				// 由日志记录器统一关闭
+			}
+		});
 	}
 
-	@Override
-	public void close() throws Exception {
+	private synchronized void write(String str) {
+		try {
+			if (this.writer == null) {
+				File logFile = this.getFile();
+				FileUtil.mkParentDirs(logFile);
+				OutputStream outputStream = Files.newOutputStream(logFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+				this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, this.getCharset()), 64 * 1024);
+				OPEN_RECORDERS.add(this);
+			}
+			this.writer.write(str);
+			this.lastWriteTime = SystemClock.now();
+		} catch (IOException e) {
+			throw new IORuntimeException(e);
+		}
+	}
+
+	/**
+	 * 将缓冲区的日志写入文件
+	 */
+	public synchronized void flush() {
+		if (this.writer == null) {
+			return;
+		}
+		try {
+			this.writer.flush();
+		} catch (IOException e) {
+			DefaultSystemLog.getLog().error("刷新日志文件异常：{}", this.getFile(), e);
+		}
+	}
 
+	private static void flushAll() {
+		long now = SystemClock.now();
+		for (LogRecorder logRecorder : OPEN_RECORDERS) {
+			if (now - logRecorder.lastWriteTime > IDLE_CLOSE) {
+				logRecorder.close();
+			} else {
+				logRecorder.flush();
+			}
+		}
+	}
+
+	/**
+	 * 刷新缓冲区并关闭文件，关闭后再写入会重新打开文件
+	 */
+	@Override
+	public synchronized void close() {
+		OPEN_RECORDERS.remove(this);
+		if (this.writer == null) {
+			return;
+		}
+		this.flush();
+		IoUtil.close(this.writer);
+		this.writer = null;
 	}
 }
@@ -0,0 +1,175 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Code Technology Studio
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jpom.util;
+
+import cn.hutool.core.util.CharUtil;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 从文件的指定位置向前读取行
+ * <p>
+ * 每次向前读取 64KB 的块查找换行，读取量只和需要的行数有关，和文件大小无关。
+ * 单行最多读取 {@link #MAX_LINE_LENGTH} 字节，超出部分截断；向前查找的总字节数也有上限，超出后第一行从查找的开始位置截取
+ *
+ * @author bwcx_jzy
+ * @since 2022/5/21
+ */
+public class ReverseLineReader {
+
+    private static final int BLOCK_SIZE = 64 * 1024;
+    /**
+     * 单行最大读取长度（字节）
+     */
+    public static final int MAX_LINE_LENGTH = 64 * 1024;
+
+    /**
+     * 读取结果
+     */
+    @Getter
+    public static class Result {
+        /**
+         * 读取到的行（按照文件中的顺序）
+         */
+        private final List<String> lines;
+        /**
+         * 第一行在文件中的位置，可以作为下一次向前读取的结束位置
+         */
+        private final long offset;
+
+        private Result(List<String> lines, long offset) {
+            this.lines = lines;
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * 读取指定位置之前的行
+     *
+     * @param channel  文件
+     * @param end      结束位置（不包含），会调整到文件大小以内
+     * @param maxLines 最多读取的行数
+     * @param charset  编码
+     * @return 结果
+     * @throws IOException io
+     */
+    public static Result read(FileChannel channel, long end, int maxLines, Charset charset) throws IOException {
+        end = Math.max(Math.min(end, channel.size()), 0);
+        if (end == 0 || maxLines <= 0) {
+            return new Result(Collections.emptyList(), end);
+        }
+        // 结束位置是换行时，属于最后一行的结尾
+        long scanEnd = end;
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(BLOCK_SIZE, end));
+        if (readByte(channel, buffer, end - 1) == CharUtil.LF) {
+            scanEnd--;
+        }
+        // 最多向前查找的位置
+        long minStart = Math.max(0, scanEnd - (long) maxLines * MAX_LINE_LENGTH);
+        long start = minStart;
+        int count = 0;
+        // 行之间的换行位置（从后向前）
+        List<Long> lineBreaks = new ArrayList<>();
+        long blockEnd = scanEnd;
+        search:
+        while (blockEnd > minStart) {
+            long blockStart = Math.max(minStart, blockEnd - buffer.capacity());
+            int len = (int) (blockEnd - blockStart);
+            buffer.clear();
+            buffer.limit(len);
+            readFully(channel, buffer, blockStart);
+            byte[] array = buffer.array();
+            for (int i = len - 1; i >= 0; i--) {
+                if (array[i] != CharUtil.LF) {
+                    continue;
+                }
+                long position = blockStart + i;
+                if (++count >= maxLines) {
+                    start = position + 1;
+                    break search;
+                }
+                lineBreaks.add(position);
+            }
+            blockEnd = blockStart;
+        }
+        // 逐行读取需要的内容
+        List<String> lines = new ArrayList<>(lineBreaks.size() + 1);
+        long lineStart = start;
+        for (int i = lineBreaks.size() - 1; i >= 0; i--) {
+            long lineBreak = lineBreaks.get(i);
+            lines.add(readLine(channel, lineStart, lineBreak, charset));
+            lineStart = lineBreak + 1;
+        }
+        lines.add(readLine(channel, lineStart, scanEnd, charset));
+        return new Result(lines, start);
+    }
+
+    /**
+     * 读取一行，超过最大长度时截断
+     *
+     * @param channel 文件
+     * @param start   开始位置
+     * @param end     结束位置（不包含换行）
+     * @param charset 编码
+     * @return 行内容
+     * @throws IOException io
+     */
+    private static String readLine(FileChannel channel, long start, long end, Charset charset) throws IOException {
+        long size = end - start;
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size, MAX_LINE_LENGTH));
+        readFully(channel, buffer, start);
+        byte[] bytes = buffer.array();
+        int length = buffer.position();
+        if (length < size) {
+            return new String(bytes, 0, length, charset) + "...";
+        }
+        if (length > 0 && bytes[length - 1] == CharUtil.CR) {
+            length--;
+        }
+        return new String(bytes, 0, length, charset);
+    }
+
+    private static int readByte(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.clear();
+        buffer.limit(1);
+        readFully(channel, buffer, position);
+        return buffer.get(0);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            position += read;
+        }
+    }
+}
@@ -22,30 +22,72 @@
  */
 package io.jpom.util;
 
+import cn.hutool.core.date.SystemClock;
+import cn.hutool.core.io.IoUtil;
+import cn.hutool.core.lang.func.VoidFunc1;
 import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.jiangzeyin.common.DefaultSystemLog;
+import com.alibaba.fastjson.JSONObject;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 
 import javax.websocket.Session;
+import java.io.Closeable;
 import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
 
 /**
  * socket 会话对象
+ * <p>
+ * 每个会话有一个有界的发送队列，消息由发送线程异步依次发送，一个会话发送慢不会影响其他会话。
+ * 队列满时会合并或者丢弃最早的普通文本（日志）消息，json 等控制消息不会被合并或者丢弃，持续发送不出去的会话会被关闭
  *
  * @author jiangzeyin
  * @since 2018/9/29
  */
 public class SocketSessionUtil {
 	/**
-	 * 锁
+	 * 单个会话队列中最多的消息数
 	 */
-	private static final KeyLock<String> LOCK = new KeyLock<>();
+	private static final int MAX_QUEUE_SIZE = 1000;
+	/**
+	 * 合并消息后的最大长度
+	 */
+	private static final int MAX_MERGE_LENGTH = 64 * 1024;
+	/**
+	 * 单条消息发送超过此时间（毫秒）认为会话不可用
+	 */
+	private static final long SLOW_TIMEOUT = TimeUnit.SECONDS.toMillis(60);
 	/**
 	 * 错误尝试次数
 	 */
-	private static final int ERROR_TRY_COUNT = 10;
+	private static final int ERROR_TRY_COUNT = 3;
+
+	private static final Map<String, SessionQueue> SESSION_QUEUE_MAP = new ConcurrentHashMap<>();
+
+	private static final ThreadPoolExecutor SEND_EXECUTOR;
+
+	private static final LongAdder SENT_COUNT = new LongAdder();
+	private static final LongAdder MERGED_COUNT = new LongAdder();
+	private static final LongAdder DROPPED_COUNT = new LongAdder();
+	private static final LongAdder EVICTED_COUNT = new LongAdder();
+
+	static {
+		SEND_EXECUTOR = new ThreadPoolExecutor(64, 64, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(),
+				ThreadUtil.newNamedThreadFactory("Jpom Socket Send-", true));
+		SEND_EXECUTOR.allowCoreThreadTimeOut(true);
+	}
 
 	/**
 	 * 发送消息
@@ -61,31 +103,20 @@ public class SocketSessionUtil {
 		if (!session.isOpen()) {
 			throw new RuntimeException("session close ");
 		}
-		try {
-			LOCK.lock(session.getId());
-			IOException exception = null;
-			int tryCount = 0;
-			do {
-				tryCount++;
-				if (exception != null) {
-					// 上一次有异常、休眠 500
-					ThreadUtil.sleep(500);
-				}
-				try {
-					session.getBasicRemote().sendText(msg);
-					exception = null;
-					break;
-				} catch (IOException e) {
-					DefaultSystemLog.getLog().error("发送消息失败:" + tryCount, e);
-					exception = e;
-				}
-			} while (tryCount <= ERROR_TRY_COUNT);
-			if (exception != null) {
-				throw exception;
-			}
-		} finally {
-			LOCK.unlock(session.getId());
-		}
+		SessionQueue sessionQueue;
+		do {
+			sessionQueue = SESSION_QUEUE_MAP.computeIfAbsent(session.getId(),
+					id -> new SessionQueue(id, session, session::isOpen, text -> session.getBasicRemote().sendText(text)));
+		} while (!sessionQueue.offer(msg));
+	}
+
+	/**
+	 * 等待已经提交的消息发送完成后关闭会话
+	 *
+	 * @param session 会话对象
+	 */
+	public static void close(Session session) {
+		close(session.getId(), session);
 	}
 
 	public static void send(WebSocketSession session, String msg) throws IOException {
@@ -95,30 +126,252 @@ public class SocketSessionUtil {
 		if (!session.isOpen()) {
 			throw new RuntimeException("session close ");
 		}
-		try {
-			LOCK.lock(session.getId());
-			IOException exception = null;
+		SessionQueue sessionQueue;
+		do {
+			sessionQueue = SESSION_QUEUE_MAP.computeIfAbsent(session.getId(),
+					id -> new SessionQueue(id, session, session::isOpen, text -> session.sendMessage(new TextMessage(text))));
+		} while (!sessionQueue.offer(msg));
+	}
+
+	/**
+	 * 等待已经提交的消息发送完成后关闭会话
+	 *
+	 * @param session 会话对象
+	 */
+	public static void close(WebSocketSession session) {
+		close(session.getId(), session);
+	}
+
+	private static void close(String id, Closeable session) {
+		SessionQueue sessionQueue = SESSION_QUEUE_MAP.get(id);
+		if (sessionQueue == null || !sessionQueue.closeAfterDrain()) {
+			IoUtil.close(session);
+		}
+	}
+
+	/**
+	 * 发送队列统计
+	 *
+	 * @return json
+	 */
+	public static JSONObject stat() {
+		JSONObject jsonObject = new JSONObject();
+		int queueSize = 0;
+		int maxQueueSize = 0;
+		for (SessionQueue sessionQueue : SESSION_QUEUE_MAP.values()) {
+			int size = sessionQueue.size();
+			queueSize += size;
+			maxQueueSize = Math.max(maxQueueSize, size);
+		}
+		jsonObject.put("sessionCount", SESSION_QUEUE_MAP.size());
+		jsonObject.put("queueSize", queueSize);
+		jsonObject.put("maxQueueSize", maxQueueSize);
+		jsonObject.put("sentCount", SENT_COUNT.sum());
+		jsonObject.put("mergedCount", MERGED_COUNT.sum());
+		jsonObject.put("droppedCount", DROPPED_COUNT.sum());
+		jsonObject.put("evictedCount", EVICTED_COUNT.sum());
+		return jsonObject;
+	}
+
+	/**
+	 * 是否为普通文本（日志）消息，json 格式的消息为控制、状态消息，需要完整发送
+	 *
+	 * @param msg 消息
+	 * @return true 可以合并或者丢弃
+	 */
+	private static boolean isTextMessage(String msg) {
+		String trim = StrUtil.trim(msg);
+		return !StrUtil.startWithAny(trim, "{", "[");
+	}
+
+	/**
+	 * 单个会话的发送队列
+	 */
+	private static class SessionQueue implements Runnable {
+		private final String id;
+		private final Closeable session;
+		private final BooleanSupplier open;
+		private final VoidFunc1<String> sender;
+		private final LinkedList<String> queue = new LinkedList<>();
+		/**
+		 * 是否已经提交发送任务
+		 */
+		private boolean scheduled;
+		/**
+		 * 消息发送完成后关闭会话
+		 */
+		private boolean closeAfterDrain;
+		/**
+		 * 已经从缓存中移除，不能再添加消息
+		 */
+		private boolean removed;
+		/**
+		 * 当前消息开始发送的时间，0 表示没有在发送
+		 */
+		private volatile long sendingTime;
+		private volatile boolean evicted;
+
+		private SessionQueue(String id, Closeable session, BooleanSupplier open, VoidFunc1<String> sender) {
+			this.id = id;
+			this.session = session;
+			this.open = open;
+			this.sender = sender;
+		}
+
+		private synchronized int size() {
+			return queue.size();
+		}
+
+		/**
+		 * 标记发送完成后关闭会话
+		 *
+		 * @return false 发送任务已经结束，需要调用方直接关闭
+		 */
+		private synchronized boolean closeAfterDrain() {
+			if (!scheduled) {
+				return false;
+			}
+			closeAfterDrain = true;
+			return true;
+		}
+
+		/**
+		 * 添加消息到发送队列
+		 *
+		 * @param msg 消息
+		 * @return false 队列已经移除，需要重新获取
+		 * @throws IOException 会话已经被关闭
+		 */
+		private boolean offer(String msg) throws IOException {
+			long sendingTime = this.sendingTime;
+			if (sendingTime > 0 && SystemClock.now() - sendingTime > SLOW_TIMEOUT) {
+				this.evict("发送消息超时");
+			}
+			if (this.evicted) {
+				throw new IOException("会话发送消息太慢已经被关闭：" + id);
+			}
+			synchronized (this) {
+				if (removed) {
+					return false;
+				}
+				if (queue.size() >= MAX_QUEUE_SIZE) {
+					this.shrink();
+				}
+				queue.offerLast(msg);
+				if (scheduled) {
+					return true;
+				}
+				scheduled = true;
+			}
+			SEND_EXECUTOR.execute(this);
+			return true;
+		}
+
+		/**
+		 * 队列已满，合并最早的两条相邻的文本消息，不能合并时丢弃最早的文本消息。
+		 * 队列中全部是控制消息时不处理（队列会超过上限，由发送超时检查关闭会话）
+		 */
+		private void shrink() {
+			ListIterator<String> iterator = queue.listIterator();
+			String previous = null;
+			while (iterator.hasNext()) {
+				String current = iterator.next();
+				if (!isTextMessage(current)) {
+					previous = null;
+					continue;
+				}
+				if (previous != null && previous.length() + current.length() < MAX_MERGE_LENGTH) {
+					iterator.remove();
+					iterator.previous();
+					iterator.set(previous + StrUtil.LF + current);
+					MERGED_COUNT.increment();
+					return;
+				}
+				previous = current;
+			}
+			Iterator<String> dropIterator = queue.iterator();
+			while (dropIterator.hasNext()) {
+				if (isTextMessage(dropIterator.next())) {
+					dropIterator.remove();
+					DROPPED_COUNT.increment();
+					return;
+				}
+			}
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				String msg;
+				boolean close;
+				synchronized (this) {
+					if (!open.getAsBoolean()) {
+						// 会话已经关闭，剩余的消息不再发送
+						queue.clear();
+					}
+					msg = queue.pollFirst();
+					close = msg == null && closeAfterDrain;
+					if (msg == null || evicted) {
+						scheduled = false;
+						removed = true;
+						SESSION_QUEUE_MAP.remove(id, this);
+					}
+				}
+				if (msg == null || evicted) {
+					if (close) {
+						IoUtil.close(session);
+					}
+					return;
+				}
+				this.sendingTime = SystemClock.now();
+				try {
+					this.sendRetry(msg);
+					SENT_COUNT.increment();
+				} catch (Exception e) {
+					if (open.getAsBoolean()) {
+						DefaultSystemLog.getLog().error("发送消息失败:{}", id, e);
+						this.evict("发送消息失败");
+					}
+				} finally {
+					this.sendingTime = 0;
+				}
+			}
+		}
+
+		private void sendRetry(String msg) throws Exception {
 			int tryCount = 0;
-			do {
-				tryCount++;
-				if (exception != null) {
+			while (true) {
+				try {
+					sender.call(msg);
+					return;
+				} catch (IOException e) {
+					if (++tryCount >= ERROR_TRY_COUNT || evicted) {
+						throw e;
+					}
 					// 上一次有异常、休眠 500
 					ThreadUtil.sleep(500);
 				}
-				try {
-					session.sendMessage(new TextMessage(msg));
-					exception = null;
-					break;
-				} catch (IOException e) {
-					DefaultSystemLog.getLog().error("发送消息失败:" + tryCount, e);
-					exception = e;
+			}
+		}
+
+		/**
+		 * 移除发送过慢或者异常的会话
+		 *
+		 * @param reason 原因
+		 */
+		private void evict(String reason) {
+			synchronized (this) {
+				if (evicted) {
+					return;
 				}
-			} while (tryCount <= ERROR_TRY_COUNT);
-			if (exception != null) {
-				throw exception;
+				evicted = true;
+				removed = true;
+				queue.clear();
 			}
-		} finally {
-			LOCK.unlock(session.getId());
+			EVICTED_COUNT.increment();
+			DefaultSystemLog.getLog().warn("{} 关闭会话：{}", reason, id);
+			SESSION_QUEUE_MAP.remove(id, this);
+			IoUtil.close(session);
 		}
 	}
 }
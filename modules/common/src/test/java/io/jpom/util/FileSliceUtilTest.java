@@ -0,0 +1,144 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Code Technology Studio
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jpom.util;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IoUtil;
+import cn.hutool.core.util.RandomUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author bwcx_jzy
+ * @since 2022/5/27
+ */
+public class FileSliceUtilTest {
+
+    private File tempDir;
+
+    @Before
+    public void before() {
+        tempDir = FileUtil.file(FileUtil.getTmpDir(), "jpom-slice-test", RandomUtil.randomString(8));
+        FileUtil.mkdir(tempDir);
+    }
+
+    @After
+    public void after() {
+        FileUtil.del(tempDir);
+    }
+
+    @Test
+    public void testManifest() throws Exception {
+        int sliceSize = 100 * 1024;
+        // 不是分片大小的整数倍，也大于读取缓冲区
+        byte[] bytes = RandomUtil.randomBytes(sliceSize * 3 + 123);
+        File file = FileUtil.writeBytes(bytes, FileUtil.file(tempDir, "test.bin"));
+        FileSliceUtil.SliceManifest manifest = FileSliceUtil.createManifest(file, sliceSize);
+        Assert.assertEquals(DigestUtil.sha1Hex(bytes), manifest.getFileSha1());
+        Assert.assertEquals(sliceSize, manifest.getSliceSize());
+        List<String> sliceShas = manifest.getSliceShas();
+        Assert.assertEquals(4, sliceShas.size());
+        for (int i = 0; i < sliceShas.size(); i++) {
+            int from = i * sliceSize;
+            byte[] slice = Arrays.copyOfRange(bytes, from, Math.min(from + sliceSize, bytes.length));
+            Assert.assertEquals(DigestUtil.sha1Hex(slice), sliceShas.get(i));
+        }
+    }
+
+    @Test
+    public void testManifestExactSize() throws Exception {
+        byte[] bytes = RandomUtil.randomBytes(2048);
+        File file = FileUtil.writeBytes(bytes, FileUtil.file(tempDir, "test.bin"));
+        Assert.assertEquals(2, FileSliceUtil.createManifest(file, 1024).getSliceShas().size());
+        File empty = FileUtil.touch(FileUtil.file(tempDir, "empty.bin"));
+        Assert.assertTrue(FileSliceUtil.createManifest(empty, 1024).getSliceShas().isEmpty());
+    }
+
+    @Test
+    public void testOpenSlice() throws Exception {
+        byte[] bytes = RandomUtil.randomBytes(10000);
+        File file = FileUtil.writeBytes(bytes, FileUtil.file(tempDir, "test.bin"));
+        try (InputStream inputStream = FileSliceUtil.openSlice(file, 4000, 4000)) {
+            Assert.assertArrayEquals(Arrays.copyOfRange(bytes, 4000, 8000), IoUtil.readBytes(inputStream, false));
+        }
+        // 最后一个分片
+        try (InputStream inputStream = FileSliceUtil.openSlice(file, 8000, 2000)) {
+            Assert.assertArrayEquals(Arrays.copyOfRange(bytes, 8000, 10000), IoUtil.readBytes(inputStream, false));
+        }
+    }
+
+    @Test
+    public void testMerge() throws Exception {
+        int sliceSize = 1000;
+        byte[] bytes = RandomUtil.randomBytes(3500);
+        File file = FileUtil.writeBytes(bytes, FileUtil.file(tempDir, "test.bin"));
+        FileSliceUtil.SliceManifest manifest = FileSliceUtil.createManifest(file, sliceSize);
+        File sliceDir = FileUtil.file(tempDir, "slice");
+        List<String> sliceShas = manifest.getSliceShas();
+        for (int i = 0; i < sliceShas.size(); i++) {
+            try (InputStream inputStream = FileSliceUtil.openSlice(file, (long) i * sliceSize, Math.min(sliceSize, bytes.length - (long) i * sliceSize))) {
+                FileUtil.writeFromStream(inputStream, FileUtil.file(sliceDir, sliceShas.get(i)));
+            }
+        }
+        File target = FileUtil.file(tempDir, "merge", "test.bin");
+        String sha1 = FileSliceUtil.merge(sliceDir, sliceShas, target);
+        Assert.assertEquals(manifest.getFileSha1(), sha1);
+        Assert.assertArrayEquals(bytes, FileUtil.readBytes(target));
+        // 合并后分片保留，可以再次合并
+        File target2 = FileUtil.file(tempDir, "merge", "test2.bin");
+        Assert.assertEquals(manifest.getFileSha1(), FileSliceUtil.merge(sliceDir, sliceShas, target2));
+        for (String sliceSha : sliceShas) {
+            Assert.assertTrue(FileUtil.isFile(FileUtil.file(sliceDir, sliceSha)));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMergeMissing() throws Exception {
+        File sliceDir = FileUtil.mkdir(FileUtil.file(tempDir, "slice"));
+        FileSliceUtil.merge(sliceDir, Arrays.asList("a", "b"), FileUtil.file(tempDir, "test.bin"));
+    }
+
+    @Test
+    public void testPurgeExpired() {
+        File sliceDir = FileUtil.file(tempDir, "slice");
+        File old = FileUtil.writeUtf8String("old", FileUtil.file(sliceDir, "old"));
+        File fresh = FileUtil.writeUtf8String("fresh", FileUtil.file(sliceDir, "fresh"));
+        File oldTemp = FileUtil.writeUtf8String("temp", FileUtil.file(sliceDir, "temp", "id", "file"));
+        long expireTime = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2);
+        Assert.assertTrue(old.setLastModified(expireTime));
+        Assert.assertTrue(oldTemp.setLastModified(expireTime));
+        Assert.assertEquals(2, FileSliceUtil.purgeExpired(sliceDir, TimeUnit.DAYS.toMillis(1)));
+        Assert.assertFalse(old.exists());
+        Assert.assertFalse(oldTemp.exists());
+        Assert.assertTrue(fresh.exists());
+    }
+}
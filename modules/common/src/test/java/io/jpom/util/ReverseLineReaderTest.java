@@ -0,0 +1,121 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Code Technology Studio
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jpom.util;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.CharsetUtil;
+import cn.hutool.core.util.RandomUtil;
+import cn.hutool.core.util.StrUtil;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author bwcx_jzy
+ * @since 2022/5/27
+ */
+public class ReverseLineReaderTest {
+
+    private File file;
+
+    @Before
+    public void before() {
+        file = FileUtil.file(FileUtil.getTmpDir(), "jpom-reverse-test", RandomUtil.randomString(8) + ".log");
+    }
+
+    @After
+    public void after() {
+        FileUtil.del(file.getParentFile());
+    }
+
+    private ReverseLineReader.Result read(long end, int maxLines) throws Exception {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return ReverseLineReader.read(channel, end, maxLines, CharsetUtil.CHARSET_UTF_8);
+        }
+    }
+
+    @Test
+    public void testAcrossBlocks() throws Exception {
+        // 行长度不固定，换行会落在 64KB 块的边界附近
+        List<String> all = new ArrayList<>();
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            String line = i + ":" + RandomUtil.randomString(RandomUtil.randomInt(0, 120));
+            all.add(line);
+            builder.append(line).append('\n');
+        }
+        FileUtil.writeUtf8String(builder.toString(), file);
+        for (int maxLines : new int[]{1, 10, 999, 3000, 5000, 6000}) {
+            ReverseLineReader.Result result = read(file.length(), maxLines);
+            int from = Math.max(0, all.size() - maxLines);
+            Assert.assertEquals(all.subList(from, all.size()), result.getLines());
+        }
+        // 按照返回的位置继续向前读取
+        long end = file.length();
+        List<String> lines = new ArrayList<>();
+        while (end > 0) {
+            ReverseLineReader.Result result = read(end, 777);
+            lines.addAll(0, result.getLines());
+            Assert.assertTrue(result.getOffset() < end);
+            end = result.getOffset();
+        }
+        Assert.assertEquals(all, lines);
+    }
+
+    @Test
+    public void testLineEnd() throws Exception {
+        FileUtil.writeUtf8String("a\r\n\r\nb\nc", file);
+        Assert.assertEquals(StrUtil.split("a,,b,c", ','), read(file.length(), 10).getLines());
+        FileUtil.writeUtf8String("a\nb\n", file);
+        ReverseLineReader.Result result = read(file.length(), 1);
+        Assert.assertEquals(StrUtil.split("b", ','), result.getLines());
+        Assert.assertEquals(2, result.getOffset());
+        Assert.assertTrue(read(0, 10).getLines().isEmpty());
+    }
+
+    @Test
+    public void testLongLine() throws Exception {
+        // 超长的行截断
+        String longLine = StrUtil.repeat('x', ReverseLineReader.MAX_LINE_LENGTH * 2);
+        FileUtil.writeUtf8String("first\n" + longLine + "\nlast\n", file);
+        List<String> lines = read(file.length(), 3).getLines();
+        Assert.assertEquals(3, lines.size());
+        Assert.assertEquals("first", lines.get(0));
+        Assert.assertEquals(ReverseLineReader.MAX_LINE_LENGTH + 3, lines.get(1).length());
+        Assert.assertTrue(lines.get(1).endsWith("..."));
+        Assert.assertEquals("last", lines.get(2));
+        // 没有换行的超长内容，向前查找的长度有上限
+        int length = ReverseLineReader.MAX_LINE_LENGTH * 3;
+        FileUtil.writeUtf8String(StrUtil.repeat('x', length), file);
+        ReverseLineReader.Result result = read(file.length(), 1);
+        Assert.assertEquals(1, result.getLines().size());
+        Assert.assertEquals(length - ReverseLineReader.MAX_LINE_LENGTH, result.getOffset());
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Code Technology Studio
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jpom.build;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.SecureUtil;
+import cn.jiangzeyin.common.DefaultSystemLog;
+import io.jpom.system.ConfigBean;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 构建产物存储，按文件内容去重
+ * <p>
+ * 构建历史中的产物文件硬链接到 build-blob/{hash 前两位}/{hash}，相同内容的文件只保存一份，
+ * 发布、下载仍然直接读取构建历史目录中的文件。
+ * <p>
+ * 文件的硬链接数即为引用数，构建历史删除后只剩存储目录中的链接时由 {@link #gc()} 清理。
+ * 硬链接共用同一份内容，存储的文件会去掉写权限（构建历史中的文件同时变为只读），
+ * 再次链接前会重新校验存储文件的 hash，内容已经被修改（如 root 用户直接修改构建产物）时不再使用该存储文件。
+ * 不支持读取硬链接数的文件系统（如 windows）不做去重
+ *
+ * @author bwcx_jzy
+ * @since 2022/5/27
+ */
+public class BuildArtifactStore {
+
+    private static final boolean SUPPORT = FileSystems.getDefault().supportedFileAttributeViews().contains("unix");
+    private static final Set<PosixFilePermission> WRITE_PERMISSIONS = EnumSet.of(PosixFilePermission.OWNER_WRITE,
+        PosixFilePermission.GROUP_WRITE, PosixFilePermission.OTHERS_WRITE);
+
+    /**
+     * 存储目录
+     *
+     * @return file
+     */
+    public static File getBlobDir() {
+        return FileUtil.file(ConfigBean.getInstance().getDataPath(), "build-blob");
+    }
+
+    /**
+     * 构建产物去重，和已经存储的文件内容相同时替换为硬链接
+     *
+     * @param file 产物文件或者目录
+     * @return 去重的文件数
+     */
+    public static int dedup(File file) {
+        return dedup(file, getBlobDir());
+    }
+
+    /**
+     * 构建产物去重
+     *
+     * @param file    产物文件或者目录
+     * @param blobDir 存储目录
+     * @return 去重的文件数
+     */
+    static int dedup(File file, File blobDir) {
+        if (!SUPPORT || !FileUtil.exist(file)) {
+            return 0;
+        }
+        int count = 0;
+        List<File> files = FileUtil.loopFiles(file);
+        for (File item : files) {
+            try {
+                if (dedupFile(item.toPath(), blobDir)) {
+                    count++;
+                }
+            } catch (Exception e) {
+                DefaultSystemLog.getLog().warn("构建产物去重失败 {} {}", item.getAbsolutePath(), e.getMessage());
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 单个文件去重
+     *
+     * @param path    文件
+     * @param blobDir 存储目录
+     * @return true 已经替换为存储文件的硬链接
+     * @throws IOException io
+     */
+    private static boolean dedupFile(Path path, File blobDir) throws IOException {
+        if (!Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS)) {
+            return false;
+        }
+        String hash = SecureUtil.sha256(path.toFile());
+        Path blob = FileUtil.file(blobDir, hash.substring(0, 2), hash).toPath();
+        synchronized (hash.intern()) {
+            if (Files.exists(blob) && !Files.isSameFile(blob, path)
+                && (Files.size(blob) != Files.size(path) || !StrUtil.equals(SecureUtil.sha256(blob.toFile()), hash))) {
+                // 存储的文件被修改过，不再使用（已经链接的构建历史保持现状）
+                DefaultSystemLog.getLog().warn("构建产物存储文件内容已经被修改，重新存储 {}", blob);
+                Files.delete(blob);
+            }
+            if (!Files.exists(blob)) {
+                // 第一次出现的内容，加入存储
+                Files.createDirectories(blob.getParent());
+                Files.createLink(blob, path);
+                readOnly(blob);
+                return false;
+            }
+            if (Files.isSameFile(blob, path)) {
+                return false;
+            }
+            readOnly(blob);
+            Path temp = path.resolveSibling(path.getFileName() + "." + IdUtil.fastSimpleUUID() + ".tmp");
+            Files.createLink(temp, blob);
+            try {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 去掉文件的写权限，硬链接的文件共用权限
+     *
+     * @param path 文件
+     * @throws IOException io
+     */
+    private static void readOnly(Path path) throws IOException {
+        Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(path);
+        if (permissions.removeAll(WRITE_PERMISSIONS)) {
+            Files.setPosixFilePermissions(path, permissions);
+        }
+    }
+
+    /**
+     * 清理没有被构建历史引用的存储文件
+     *
+     * @return 清理的文件数
+     */
+    public static int gc() {
+        return gc(getBlobDir());
+    }
+
+    /**
+     * 清理没有被构建历史引用的存储文件
+     *
+     * @param blobDir 存储目录
+     * @return 清理的文件数
+     */
+    static int gc(File blobDir) {
+        if (!SUPPORT || !FileUtil.isDirectory(blobDir)) {
+            return 0;
+        }
+        int count = 0;
+        List<File> files = FileUtil.loopFiles(blobDir);
+        for (File blob : files) {
+            synchronized (blob.getName().intern()) {
+                try {
+                    Path path = blob.toPath();
+                    int linkCount = (int) Files.getAttribute(path, "unix:nlink", LinkOption.NOFOLLOW_LINKS);
+                    if (linkCount <= 1) {
+                        Files.deleteIfExists(path);
+                        count++;
+                    }
+                } catch (Exception e) {
+                    DefaultSystemLog.getLog().warn("清理构建产物存储失败 {} {}", blob.getAbsolutePath(), e.getMessage());
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 统计目录大小，硬链接的文件只计算一次
+     *
+     * @param dirs 目录
+     * @return 字节
+     */
+    public static long size(File... dirs) {
+        Set<Object> fileKeys = new HashSet<>();
+        AtomicLong size = new AtomicLong();
+        for (File dir : dirs) {
+            if (!FileUtil.exist(dir)) {
+                continue;
+            }
+            try {
+                Files.walkFileTree(dir.toPath(), new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        Object fileKey = attrs.fileKey();
+                        if (fileKey == null || fileKeys.add(fileKey)) {
+                            size.addAndGet(attrs.size());
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                DefaultSystemLog.getLog().warn("统计目录大小失败 {} {}", dir.getAbsolutePath(), e.getMessage());
+            }
+        }
+        return size.get();
+    }
+}
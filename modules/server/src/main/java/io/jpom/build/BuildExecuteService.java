@@ -39,6 +39,7 @@ import cn.hutool.core.util.ObjectUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.jiangzeyin.common.DefaultSystemLog;
 import cn.jiangzeyin.common.JsonMessage;
+import com.alibaba.fastjson.JSONObject;
 import io.jpom.common.BaseServerController;
 import io.jpom.model.BaseEnum;
 import io.jpom.model.data.BuildInfoModel;
@@ -58,6 +59,7 @@ import io.jpom.service.docker.DockerInfoService;
 import io.jpom.service.system.WorkspaceEnvVarService;
 import io.jpom.system.ConfigBean;
 import io.jpom.system.ExtConfigBean;
+import io.jpom.system.ServerExtConfigBean;
 import io.jpom.util.CommandUtil;
 import io.jpom.util.FileUtils;
 import io.jpom.util.LogRecorder;
@@ -76,7 +78,10 @@ import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -91,6 +96,27 @@ public class BuildExecuteService {
      * 缓存构建中
      */
     private static final Map<String, BuildInfoManage> BUILD_MANAGE_MAP = new ConcurrentHashMap<>();
+    /**
+     * 排队中的构建，同一个构建最多只有一个在排队
+     */
+    private static final Map<String, BuildInfoManage> BUILD_QUEUE = new LinkedHashMap<>();
+    private static final AtomicLong QUEUE_SEQUENCE = new AtomicLong();
+    /**
+     * 延迟构建到期后重新调度
+     */
+    private static final ScheduledExecutorService DELAY_SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Jpom Build Delay");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * 排队统计
+     */
+    private static final AtomicLong QUEUE_COUNT = new AtomicLong();
+    private static final AtomicLong MERGE_COUNT = new AtomicLong();
+    private static final AtomicLong START_COUNT = new AtomicLong();
+    private static final AtomicLong TOTAL_WAIT_TIME = new AtomicLong();
+    private static final AtomicLong MAX_WAIT_TIME = new AtomicLong();
 
     private static final AntPathMatcher ANT_PATH_MATCHER = new AntPathMatcher();
 
@@ -125,7 +151,8 @@ public class BuildExecuteService {
         BuildStatus nowStatus = BaseEnum.getEnum(BuildStatus.class, status);
         Objects.requireNonNull(nowStatus);
         if (BuildStatus.Ing == nowStatus ||
-            BuildStatus.PubIng == nowStatus) {
+            BuildStatus.PubIng == nowStatus ||
+            BuildStatus.Waiting == nowStatus) {
             return "当前还在：" + nowStatus.getDesc();
         }
         return null;
@@ -144,8 +171,13 @@ public class BuildExecuteService {
     public JsonMessage<Integer> start(String buildInfoId, UserModel userModel, Integer delay, int triggerBuildType, String buildRemark) {
         synchronized (buildInfoId.intern()) {
             BuildInfoModel buildInfoModel = buildService.getByKey(buildInfoId);
-            String e = this.checkStatus(buildInfoModel.getStatus());
-            Assert.isNull(e, () -> e);
+            Assert.notNull(buildInfoModel, "没有对应的构建信息");
+            Map<String, String> env = workspaceEnvVarService.getEnv(buildInfoModel.getWorkspaceId());
+            // 已经在排队中直接合并
+            BuildInfoManage waiting = this.mergeWaiting(buildInfoId, triggerBuildType, delay, buildRemark, env);
+            if (waiting != null) {
+                return new JsonMessage<>(200, "已经在排队中，本次触发已合并", waiting.taskData.buildInfoModel.getBuildId());
+            }
             // set buildId field
             int buildId = ObjectUtil.defaultIfNull(buildInfoModel.getBuildId(), 0);
             {
@@ -158,7 +190,6 @@ public class BuildExecuteService {
             // load repository
             RepositoryModel repositoryModel = repositoryService.getByKey(buildInfoModel.getRepositoryId(), false);
             Assert.notNull(repositoryModel, "仓库信息不存在");
-            Map<String, String> env = workspaceEnvVarService.getEnv(buildInfoModel.getWorkspaceId());
             BuildExecuteService.TaskData.TaskDataBuilder taskBuilder = BuildExecuteService.TaskData.builder()
                 .buildInfoModel(buildInfoModel)
                 .repositoryModel(repositoryModel)
@@ -166,53 +197,245 @@ public class BuildExecuteService {
                 .buildRemark(buildRemark)
                 .delay(delay).env(env)
                 .triggerBuildType(triggerBuildType);
-            this.runTask(taskBuilder.build());
-            String msg = (delay == null || delay <= 0) ? "开始构建中" : "延迟" + delay + "秒后开始构建";
+            boolean running = this.runTask(taskBuilder.build());
+            String msg;
+            if (delay != null && delay > 0) {
+                msg = "延迟" + delay + "秒后开始构建";
+            } else {
+                msg = running ? "开始构建中" : "已加入构建队列";
+            }
             return new JsonMessage<>(200, msg, buildInfoModel.getBuildId());
         }
     }
 
     /**
-     * 创建构建
+     * 创建构建，加入构建队列
      *
      * @param taskData 任务
+     * @return true 已经开始构建，false 排队中
      */
-    private void runTask(TaskData taskData) {
+    private boolean runTask(TaskData taskData) {
         BuildInfoModel buildInfoModel = taskData.buildInfoModel;
-        boolean containsKey = BUILD_MANAGE_MAP.containsKey(buildInfoModel.getId());
-        Assert.state(!containsKey, "当前构建还在进行中");
         //
         BuildExtraModule buildExtraModule = StringUtil.jsonConvert(buildInfoModel.getExtraData(), BuildExtraModule.class);
         Assert.notNull(buildExtraModule, "构建信息缺失");
-        String logId = this.insertLog(buildExtraModule, taskData);
+        // 当前构建还在进行中时不修改构建状态
+        boolean running = BUILD_MANAGE_MAP.containsKey(buildInfoModel.getId());
+        String logId = this.insertLog(buildExtraModule, taskData, !running);
         //
+        long readyTime = this.getReadyTime(taskData.delay);
         BuildInfoManage.BuildInfoManageBuilder builder = BuildInfoManage.builder()
             .taskData(taskData)
             .logId(logId)
             .buildExtraModule(buildExtraModule)
             .dbBuildHistoryLogService(dbBuildHistoryLogService)
-            .buildExecuteService(this);
+            .buildExecuteService(this)
+            .sequence(QUEUE_SEQUENCE.incrementAndGet())
+            .priority(this.getPriority(taskData.triggerBuildType))
+            .readyTime(readyTime);
         BuildInfoManage build = builder.build();
-        //BuildInfoManage manage = new BuildInfoManage(taskData);
-        BUILD_MANAGE_MAP.put(buildInfoModel.getId(), build);
-        //
-        ThreadUtil.execute(build);
+        synchronized (BUILD_QUEUE) {
+            BUILD_QUEUE.put(buildInfoModel.getId(), build);
+        }
+        QUEUE_COUNT.incrementAndGet();
+        this.scheduleDispatch(readyTime);
+        return BUILD_MANAGE_MAP.get(buildInfoModel.getId()) == build;
+    }
+
+    /**
+     * 计算可以开始执行的时间
+     *
+     * @param delay 延迟的时间（单位秒）
+     * @return 时间戳
+     */
+    private long getReadyTime(Integer delay) {
+        long now = SystemClock.now();
+        return (delay != null && delay > 0) ? now + TimeUnit.SECONDS.toMillis(delay) : now;
+    }
+
+    /**
+     * 调度排队中的构建，还未到执行时间的在到期后再调度
+     *
+     * @param readyTime 可以开始执行的时间
+     */
+    private void scheduleDispatch(long readyTime) {
+        long delayMillis = readyTime - SystemClock.now();
+        if (delayMillis > 0) {
+            DELAY_SCHEDULER.schedule(() -> {
+                try {
+                    this.dispatch();
+                } catch (Exception e) {
+                    DefaultSystemLog.getLog().error("调度延迟构建异常", e);
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        }
+        this.dispatch();
+    }
+
+    /**
+     * 构建优先级，值越小越优先。手动构建 > 定时构建 > 触发器构建
+     *
+     * @param triggerBuildType 触发类型
+     * @return 优先级
+     */
+    private int getPriority(int triggerBuildType) {
+        switch (triggerBuildType) {
+            case 0:
+                return 0;
+            case 2:
+                return 1;
+            default:
+                return 2;
+        }
+    }
+
+    /**
+     * 合并排队中的构建，排队中的构建使用本次触发的环境变量、备注和延迟时间（延迟从本次触发开始计算），优先级取更高的
+     *
+     * @param buildInfoId      构建ID
+     * @param triggerBuildType 触发类型
+     * @param delay            延迟的时间
+     * @param buildRemark      构建备注
+     * @param env              环境变量
+     * @return null 没有在排队
+     */
+    private BuildInfoManage mergeWaiting(String buildInfoId, int triggerBuildType, Integer delay, String buildRemark, Map<String, String> env) {
+        BuildInfoManage buildInfoManage;
+        long readyTime = this.getReadyTime(delay);
+        synchronized (BUILD_QUEUE) {
+            buildInfoManage = BUILD_QUEUE.get(buildInfoId);
+            if (buildInfoManage == null) {
+                return null;
+            }
+            // 合并后使用更高的优先级
+            buildInfoManage.priority = Math.min(buildInfoManage.priority, this.getPriority(triggerBuildType));
+            TaskData taskData = buildInfoManage.taskData;
+            taskData.delay = delay;
+            taskData.buildRemark = buildRemark;
+            taskData.env = env;
+            buildInfoManage.readyTime = readyTime;
+            MERGE_COUNT.incrementAndGet();
+        }
+        // 同步构建记录中的备注
+        BuildHistoryLog buildHistoryLog = new BuildHistoryLog();
+        buildHistoryLog.setId(buildInfoManage.logId);
+        buildHistoryLog.setBuildRemark(buildRemark);
+        dbBuildHistoryLogService.update(buildHistoryLog);
+        this.scheduleDispatch(readyTime);
+        return buildInfoManage;
+    }
+
+    /**
+     * 调度排队中的构建，按优先级和排队顺序执行，同一个构建同时只会执行一个
+     */
+    private void dispatch() {
+        synchronized (BUILD_QUEUE) {
+            if (BUILD_QUEUE.isEmpty()) {
+                return;
+            }
+            ServerExtConfigBean configBean = ServerExtConfigBean.getInstance();
+            int maxConcurrent = configBean.getBuildMaxConcurrent();
+            int workspaceMaxConcurrent = configBean.getBuildWorkspaceMaxConcurrent();
+            long now = SystemClock.now();
+            List<BuildInfoManage> list = BUILD_QUEUE.values()
+                .stream()
+                .sorted(Comparator.comparingInt((BuildInfoManage o) -> o.priority).thenComparingLong(o -> o.sequence))
+                .collect(Collectors.toList());
+            for (BuildInfoManage buildInfoManage : list) {
+                if (BUILD_MANAGE_MAP.size() >= maxConcurrent) {
+                    break;
+                }
+                if (buildInfoManage.readyTime > now) {
+                    continue;
+                }
+                BuildInfoModel buildInfoModel = buildInfoManage.taskData.buildInfoModel;
+                if (BUILD_MANAGE_MAP.containsKey(buildInfoModel.getId())) {
+                    continue;
+                }
+                String workspaceId = buildInfoModel.getWorkspaceId();
+                long workspaceCount = BUILD_MANAGE_MAP.values()
+                    .stream()
+                    .filter(manage -> StrUtil.equals(workspaceId, manage.taskData.buildInfoModel.getWorkspaceId()))
+                    .count();
+                if (workspaceCount >= workspaceMaxConcurrent) {
+                    continue;
+                }
+                BUILD_QUEUE.remove(buildInfoModel.getId());
+                BUILD_MANAGE_MAP.put(buildInfoModel.getId(), buildInfoManage);
+                //
+                long waitTime = now - buildInfoManage.readyTime;
+                buildInfoManage.waitTime = waitTime;
+                START_COUNT.incrementAndGet();
+                TOTAL_WAIT_TIME.addAndGet(waitTime);
+                MAX_WAIT_TIME.accumulateAndGet(waitTime, Math::max);
+                ThreadUtil.execute(buildInfoManage);
+            }
+        }
+    }
+
+    /**
+     * 构建队列统计信息
+     *
+     * @return json
+     */
+    public static JSONObject queueStat() {
+        ServerExtConfigBean configBean = ServerExtConfigBean.getInstance();
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("running", BUILD_MANAGE_MAP.size());
+        jsonObject.put("maxConcurrent", configBean.getBuildMaxConcurrent());
+        jsonObject.put("workspaceMaxConcurrent", configBean.getBuildWorkspaceMaxConcurrent());
+        long now = SystemClock.now();
+        List<JSONObject> queue;
+        synchronized (BUILD_QUEUE) {
+            queue = BUILD_QUEUE.values()
+                .stream()
+                .sorted(Comparator.comparingInt((BuildInfoManage o) -> o.priority).thenComparingLong(o -> o.sequence))
+                .map(buildInfoManage -> {
+                    BuildInfoModel buildInfoModel = buildInfoManage.taskData.buildInfoModel;
+                    JSONObject item = new JSONObject();
+                    item.put("id", buildInfoModel.getId());
+                    item.put("name", buildInfoModel.getName());
+                    item.put("buildId", buildInfoModel.getBuildId());
+                    item.put("workspaceId", buildInfoModel.getWorkspaceId());
+                    item.put("triggerBuildType", buildInfoManage.taskData.triggerBuildType);
+                    item.put("waitTime", Math.max(now - buildInfoManage.readyTime, 0));
+                    return item;
+                })
+                .collect(Collectors.toList());
+        }
+        jsonObject.put("queueSize", queue.size());
+        jsonObject.put("queue", queue);
+        jsonObject.put("queueCount", QUEUE_COUNT.get());
+        jsonObject.put("mergeCount", MERGE_COUNT.get());
+        long startCount = START_COUNT.get();
+        jsonObject.put("startCount", startCount);
+        jsonObject.put("avgWaitTime", startCount <= 0 ? 0 : TOTAL_WAIT_TIME.get() / startCount);
+        jsonObject.put("maxWaitTime", MAX_WAIT_TIME.get());
+        return jsonObject;
     }
 
     /**
-     * 取消构建
+     * 取消构建，排队中的构建一并取消
      *
      * @param id id
      * @return bool
      */
     public boolean cancelTask(String id) {
+        BuildInfoManage waiting;
+        synchronized (BUILD_QUEUE) {
+            waiting = BUILD_QUEUE.remove(id);
+        }
+        if (waiting != null) {
+            this.updateStatus(id, waiting.logId, BuildStatus.Cancel);
+        }
         BuildInfoManage buildInfoManage = BUILD_MANAGE_MAP.get(id);
         if (buildInfoManage == null) {
-            return false;
+            return waiting != null;
         }
         buildInfoManage.cancelTask();
         this.updateStatus(buildInfoManage.taskData.buildInfoModel.getId(), buildInfoManage.logId, BuildStatus.Cancel);
-        BUILD_MANAGE_MAP.remove(id);
+        BUILD_MANAGE_MAP.remove(id, buildInfoManage);
+        this.dispatch();
         return true;
     }
 
@@ -220,7 +443,7 @@ public class BuildExecuteService {
     /**
      * 插入记录
      */
-    private String insertLog(BuildExtraModule buildExtraModule, TaskData taskData) {
+    private String insertLog(BuildExtraModule buildExtraModule, TaskData taskData, boolean updateBuildStatus) {
         BuildInfoModel buildInfoModel = taskData.buildInfoModel;
         buildExtraModule.updateValue(buildInfoModel);
         BuildHistoryLog buildHistoryLog = new BuildHistoryLog();
@@ -235,16 +458,33 @@ public class BuildExecuteService {
         buildHistoryLog.setResultDirFile(buildInfoModel.getResultDirFile());
         buildHistoryLog.setReleaseMethod(buildExtraModule.getReleaseMethod());
         //
-        buildHistoryLog.setStatus(BuildStatus.Ing.getCode());
+        buildHistoryLog.setStatus(BuildStatus.Waiting.getCode());
         buildHistoryLog.setStartTime(SystemClock.now());
         buildHistoryLog.setBuildRemark(taskData.buildRemark);
         buildHistoryLog.setExtraData(buildInfoModel.getExtraData());
         dbBuildHistoryLogService.insert(buildHistoryLog);
         //
-        buildService.updateStatus(buildHistoryLog.getBuildDataId(), BuildStatus.Ing);
+        if (updateBuildStatus) {
+            buildService.updateStatus(buildHistoryLog.getBuildDataId(), BuildStatus.Waiting);
+        }
         return buildHistoryLog.getId();
     }
 
+    /**
+     * 排队结束，开始构建
+     *
+     * @param buildId 构建ID
+     * @param logId   记录ID
+     */
+    private void updateRunning(String buildId, String logId) {
+        BuildHistoryLog buildHistoryLog = new BuildHistoryLog();
+        buildHistoryLog.setId(logId);
+        buildHistoryLog.setStatus(BuildStatus.Ing.getCode());
+        buildHistoryLog.setStartTime(SystemClock.now());
+        dbBuildHistoryLogService.update(buildHistoryLog);
+        buildService.updateStatus(buildId, BuildStatus.Ing);
+    }
+
     /**
      * 更新状态
      *
@@ -253,6 +493,11 @@ public class BuildExecuteService {
      * @param buildStatus to status
      */
     public void updateStatus(String buildId, String logId, BuildStatus buildStatus) {
+        BuildInfoManage buildInfoManage = BUILD_MANAGE_MAP.get(buildId);
+        if (buildInfoManage != null && buildInfoManage.logRecorder != null) {
+            // 状态变更前确保日志已经写入文件
+            buildInfoManage.logRecorder.flush();
+        }
         BuildHistoryLog buildHistoryLog = new BuildHistoryLog();
         buildHistoryLog.setId(logId);
         buildHistoryLog.setStatus(buildStatus.getCode());
@@ -285,7 +530,7 @@ public class BuildExecuteService {
         /**
          * 延迟执行的时间（单位秒）
          */
-        private final Integer delay;
+        private Integer delay;
         /**
          * 触发类型
          */
@@ -315,6 +560,23 @@ public class BuildExecuteService {
         private final BuildExecuteService buildExecuteService;
         private final DbBuildHistoryLogService dbBuildHistoryLogService;
         //
+        /**
+         * 排队顺序
+         */
+        private final long sequence;
+        /**
+         * 可以开始执行的时间（延迟构建）
+         */
+        private long readyTime;
+        /**
+         * 排队优先级，值越小越优先
+         */
+        private int priority;
+        /**
+         * 排队等待的时间（毫秒）
+         */
+        private long waitTime;
+        //
         private Process process;
         private LogRecorder logRecorder;
         private File gitFile;
@@ -330,7 +592,9 @@ public class BuildExecuteService {
                 } catch (Exception ignored) {
                 }
             }
-            currentThread.interrupt();
+            if (currentThread != null) {
+                currentThread.interrupt();
+            }
         }
 
         private List<String> antPathMatcher(File rootFile, String match) {
@@ -376,6 +640,7 @@ public class BuildExecuteService {
                     return false;
                 }
                 logRecorder.info(StrUtil.format("mv {} {}", resultDirFile, buildInfoModel.getBuildId()));
+                this.dedupArtifact(toFile);
                 return true;
             }
             ThreadUtil.sleep(1, TimeUnit.SECONDS);
@@ -433,9 +698,22 @@ public class BuildExecuteService {
                 buildInfoModel.setResultDirFile(resultDirFile);
                 this.buildExtraModule.setResultDirFile(resultDirFile);
             }
+            this.dedupArtifact(BuildUtil.getHistoryPackageFile(buildInfoModel.getId(), buildInfoModel.getBuildId(), resultDirFile));
             return true;
         }
 
+        /**
+         * 构建产物去重，内容相同的文件共用一份存储
+         *
+         * @param file 产物
+         */
+        private void dedupArtifact(File file) {
+            int count = BuildArtifactStore.dedup(file);
+            if (count > 0) {
+                logRecorder.info(StrUtil.format("构建产物中 {} 个文件和历史构建相同，已共用存储", count));
+            }
+        }
+
         /**
          * 准备构建
          *
@@ -446,13 +724,16 @@ public class BuildExecuteService {
             File logFile = BuildUtil.getLogFile(buildInfoModel.getId(), buildInfoModel.getBuildId());
             this.logRecorder = LogRecorder.builder().file(logFile).build();
             this.gitFile = BuildUtil.getSourceById(buildInfoModel.getId());
+            buildExecuteService.updateRunning(buildInfoModel.getId(), this.logId);
 
             Integer delay = taskData.delay;
             logRecorder.info("#" + buildInfoModel.getBuildId() + " start build in file : " + FileUtil.getAbsolutePath(this.gitFile));
             if (delay != null && delay > 0) {
-                // 延迟执行
+                // 延迟执行（在队列中等待）
                 logRecorder.info("Execution delayed by " + delay + " seconds");
-                ThreadUtil.sleep(delay, TimeUnit.SECONDS);
+            }
+            if (waitTime >= TimeUnit.SECONDS.toMillis(1)) {
+                logRecorder.info("排队等待:" + DateUtil.formatBetween(waitTime, BetweenFormatter.Level.SECOND));
             }
             // 删除缓存
             Boolean cacheBuild = this.buildExtraModule.getCacheBuild();
@@ -598,6 +879,8 @@ public class BuildExecuteService {
             File toFile = BuildUtil.getHistoryPackageFile(buildInfoModelId, buildInfoModel.getBuildId(), resultDirFile);
             map.put("resultFileOut", FileUtil.getAbsolutePath(toFile));
             IPlugin plugin = PluginFactory.getPlugin(DockerInfoService.DOCKER_PLUGIN_NAME);
+            // 容器构建会直接写入日志文件
+            logRecorder.flush();
             try {
                 plugin.execute("build", map);
             } catch (Exception e) {
@@ -728,9 +1011,14 @@ public class BuildExecuteService {
                 logRecorder.error("构建失败:" + processName, e);
                 this.asyncWebHooks(processName, "error", e.getMessage());
             } finally {
-                BUILD_MANAGE_MAP.remove(taskData.buildInfoModel.getId());
+                BUILD_MANAGE_MAP.remove(taskData.buildInfoModel.getId(), this);
                 BaseServerController.removeAll();
+                if (logRecorder != null) {
+                    logRecorder.close();
+                }
                 this.asyncWebHooks("done");
+                // 执行排队中的构建
+                buildExecuteService.dispatch();
             }
         }
 
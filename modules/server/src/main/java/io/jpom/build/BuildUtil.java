@@ -51,7 +51,8 @@ public class BuildUtil {
 	 */
 	public static void reloadCacheSize() {
 		File buildDataDir = BuildUtil.getBuildDataDir();
-		BuildUtil.buildCacheSize = FileUtil.size(buildDataDir);
+		// 构建产物去重后存在硬链接，相同的文件只统计一次
+		BuildUtil.buildCacheSize = BuildArtifactStore.size(buildDataDir, BuildArtifactStore.getBlobDir());
 		//
 		File file = ConfigBean.getInstance().getTempPath();
 		tempFileCacheSize = FileUtil.size(file);
@@ -84,6 +85,16 @@ public class BuildUtil {
 		return FileUtil.file(BuildUtil.getBuildDataFile(id), "source");
 	}
 
+	/**
+	 * 仓库镜像根目录，使用同一个仓库的构建共用一份镜像，每个仓库地址在根目录下有单独的镜像目录
+	 *
+	 * @param repositoryId 仓库ID
+	 * @return file
+	 */
+	public static File getRepositoryMirrorDir(String repositoryId) {
+		return FileUtil.file(ConfigBean.getInstance().getDataPath(), "repository-mirror", repositoryId);
+	}
+
 	public static File getBuildDataDir() {
 		return FileUtil.file(ConfigBean.getInstance().getDataPath(), "build");
 	}
@@ -33,17 +33,12 @@ import cn.hutool.core.io.resource.ResourceUtil;
 import cn.hutool.core.text.CharPool;
 import cn.hutool.core.util.ArrayUtil;
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.crypto.SecureUtil;
 import cn.hutool.extra.ssh.JschUtil;
 import cn.hutool.extra.ssh.Sftp;
 import cn.hutool.http.HttpStatus;
 import cn.jiangzeyin.common.JsonMessage;
 import cn.jiangzeyin.common.spring.SpringUtil;
-import com.alibaba.fastjson.JSONArray;
-import com.alibaba.fastjson.JSONObject;
 import com.jcraft.jsch.Session;
-import io.jpom.common.forward.NodeForward;
-import io.jpom.common.forward.NodeUrl;
 import io.jpom.model.AfterOpt;
 import io.jpom.model.BaseEnum;
 import io.jpom.model.data.NodeModel;
@@ -52,6 +47,7 @@ import io.jpom.model.data.UserModel;
 import io.jpom.model.docker.DockerInfoModel;
 import io.jpom.model.enums.BuildReleaseMethod;
 import io.jpom.model.enums.BuildStatus;
+import io.jpom.outgiving.OutGivingDiffSync;
 import io.jpom.outgiving.OutGivingRun;
 import io.jpom.plugin.IPlugin;
 import io.jpom.plugin.PluginFactory;
@@ -63,6 +59,7 @@ import io.jpom.service.system.WorkspaceEnvVarService;
 import io.jpom.system.ConfigBean;
 import io.jpom.system.JpomRuntimeException;
 import io.jpom.util.CommandUtil;
+import io.jpom.util.FileSha1Manifest;
 import io.jpom.util.FileUtils;
 import io.jpom.util.LogRecorder;
 import io.jpom.util.StringUtil;
@@ -75,7 +72,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
 
 /**
  * 发布管理
@@ -139,6 +135,7 @@ public class ReleaseManage implements Runnable {
 
 
     public void updateStatus(BuildStatus status) {
+        logRecorder.flush();
         buildExecuteService.updateStatus(this.buildExtraModule.getId(), this.logId, status);
     }
 
@@ -417,62 +414,11 @@ public class ReleaseManage implements Runnable {
      * @param afterOpt  发布后的操作
      */
     private void diffSyncProject(NodeModel nodeModel, String projectId, AfterOpt afterOpt, boolean clearOld) {
-        File resultFile = this.resultFile;
-        String resultFileParent = resultFile.isFile() ?
-            FileUtil.getAbsolutePath(resultFile.getParent()) : FileUtil.getAbsolutePath(this.resultFile);
-        //
-        List<File> files = FileUtil.loopFiles(resultFile);
-        List<JSONObject> collect = files.stream().map(file -> {
-            //
-            JSONObject jsonObject = new JSONObject();
-            jsonObject.put("name", StringUtil.delStartPath(file, resultFileParent, true));
-            jsonObject.put("sha1", SecureUtil.sha1(file));
-            return jsonObject;
-        }).collect(Collectors.toList());
-        //
-        JSONObject jsonObject = new JSONObject();
-        jsonObject.put("id", projectId);
-        jsonObject.put("data", collect);
-        JsonMessage<JSONObject> requestBody = NodeForward.requestBody(nodeModel, NodeUrl.MANAGE_FILE_DIFF_FILE, this.userModel, jsonObject);
-        if (requestBody.getCode() != HttpStatus.HTTP_OK) {
-            throw new JpomRuntimeException("对比项目文件失败：" + requestBody);
-        }
-        JSONObject data = requestBody.getData();
-        JSONArray diff = data.getJSONArray("diff");
-        JSONArray del = data.getJSONArray("del");
-        int delSize = CollUtil.size(del);
-        int diffSize = CollUtil.size(diff);
-        if (clearOld) {
-            logRecorder.info(StrUtil.format("对比文件结果,产物文件 {} 个、需要上传 {} 个、需要删除 {} 个", CollUtil.size(collect), CollUtil.size(diff), delSize));
-        } else {
-            logRecorder.info(StrUtil.format("对比文件结果,产物文件 {} 个、需要上传 {} 个", CollUtil.size(collect), CollUtil.size(diff)));
-        }
-        // 清空发布才先执行删除
-        if (delSize > 0 && clearOld) {
-            jsonObject.put("data", del);
-            requestBody = NodeForward.requestBody(nodeModel, NodeUrl.MANAGE_FILE_BATCH_DELETE, this.userModel, jsonObject);
-            if (requestBody.getCode() != HttpStatus.HTTP_OK) {
-                throw new JpomRuntimeException("删除项目文件失败：" + requestBody);
-            }
-        }
-        for (int i = 0; i < diffSize; i++) {
-            boolean last = (i == diffSize - 1);
-            JSONObject diffData = (JSONObject) diff.get(i);
-            String name = diffData.getString("name");
-            File file = FileUtil.file(resultFileParent, name);
-            //
-            String startPath = StringUtil.delStartPath(file, resultFileParent, false);
-            //
-            JsonMessage<String> jsonMessage = OutGivingRun.fileUpload(file, startPath,
-                projectId, false, last ? afterOpt : AfterOpt.No, nodeModel, this.userModel, false);
-            if (jsonMessage.getCode() != HttpStatus.HTTP_OK) {
-                throw new JpomRuntimeException("同步项目文件失败：" + jsonMessage);
-            }
-            if (last) {
-                // 最后一个
-                logRecorder.info("发布项目包成功：" + jsonMessage);
-            }
+        JsonMessage<String> jsonMessage = OutGivingDiffSync.sync(this.resultFile, projectId, afterOpt, clearOld, nodeModel, this.userModel, logRecorder::info);
+        if (jsonMessage.getCode() != HttpStatus.HTTP_OK) {
+            throw new JpomRuntimeException("同步项目文件失败：" + jsonMessage);
         }
+        logRecorder.info("发布项目包成功：" + jsonMessage);
     }
 
     /**
@@ -519,6 +465,12 @@ public class ReleaseManage implements Runnable {
      */
     private void doOutGiving() {
         String releaseMethodDataId = this.buildExtraModule.getReleaseMethodDataId();
+        if (this.buildExtraModule.isDiffSync()) {
+            // 差异发布直接使用构建产物对比
+            OutGivingRun.startRun(releaseMethodDataId, this.resultFile, userModel, false, true);
+            logRecorder.info("开始执行差异分发啦,请到分发中查看当前状态");
+            return;
+        }
         File zipFile = BuildUtil.isDirPackage(this.resultFile);
         boolean unZip = true;
         if (zipFile == null) {
@@ -543,6 +495,10 @@ public class ReleaseManage implements Runnable {
 
     @Override
     public void run() {
-        this.start();
+        try {
+            this.start();
+        } finally {
+            logRecorder.close();
+        }
     }
 }
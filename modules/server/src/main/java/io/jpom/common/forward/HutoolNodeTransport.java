@@ -0,0 +1,97 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Code Technology Studio
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jpom.common.forward;
+
+import cn.hutool.http.HttpRequest;
+import cn.hutool.http.HttpResponse;
+import com.alibaba.fastjson.JSONObject;
+
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 使用 hutool 发起请求，每次请求都会新建连接
+ *
+ * @author bwcx_jzy
+ * @since 2022/5/16
+ */
+public class HutoolNodeTransport implements INodeTransport {
+
+    @Override
+    public <T> T execute(NodeTransportRequest request, Function<NodeTransportResponse, T> function) {
+        HttpRequest httpRequest = new HttpRequest(request.getUrl());
+        httpRequest.setMethod(request.getMethod());
+        request.getHeaders().forEach(httpRequest::header);
+        request.getForm().forEach(httpRequest::form);
+        if (request.isMultipart()) {
+            // 使用流方式上传，避免 HttpURLConnection 在本地缓存整个文件
+            httpRequest.setChunkedStreamingMode(8192);
+        }
+        if (request.getBody() != null) {
+            httpRequest.body(request.getBody(), request.getContentType());
+        }
+        if (request.getTimeout() > 0) {
+            httpRequest.timeout(request.getTimeout());
+        }
+        httpRequest.setProxy(request.getProxy());
+        try (HttpResponse response = httpRequest.execute()) {
+            return function.apply(new HutoolResponse(response));
+        }
+    }
+
+    @Override
+    public List<JSONObject> stat() {
+        return Collections.emptyList();
+    }
+
+    private static class HutoolResponse implements NodeTransportResponse {
+
+        private final HttpResponse response;
+
+        private HutoolResponse(HttpResponse response) {
+            this.response = response;
+        }
+
+        @Override
+        public int getStatus() {
+            return response.getStatus();
+        }
+
+        @Override
+        public String header(String name) {
+            return response.header(name);
+        }
+
+        @Override
+        public String body() {
+            return response.body();
+        }
+
+        @Override
+        public InputStream bodyStream() {
+            return response.bodyStream();
+        }
+    }
+}
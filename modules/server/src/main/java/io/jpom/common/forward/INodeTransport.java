@@ -0,0 +1,55 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Code Technology Studio
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jpom.common.forward;
+
+import com.alibaba.fastjson.JSONObject;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 节点请求传输层
+ *
+ * @author bwcx_jzy
+ * @since 2022/5/16
+ */
+public interface INodeTransport {
+
+    /**
+     * 执行请求，响应会在回调结束后关闭
+     *
+     * @param request  请求参数
+     * @param function 响应处理
+     * @param <T>      泛型
+     * @return 处理结果
+     * @throws Exception 网络异常
+     */
+    <T> T execute(NodeTransportRequest request, Function<NodeTransportResponse, T> function) throws Exception;
+
+    /**
+     * 连接统计信息
+     *
+     * @return list
+     */
+    List<JSONObject> stat();
+}
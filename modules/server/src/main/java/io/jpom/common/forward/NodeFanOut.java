@@ -0,0 +1,231 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Code Technology Studio
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jpom.common.forward;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.date.SystemClock;
+import cn.hutool.core.thread.ThreadUtil;
+import cn.jiangzeyin.common.DefaultSystemLog;
+import io.jpom.model.data.NodeModel;
+import io.jpom.system.AgentException;
+import io.jpom.system.ServerExtConfigBean;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 批量并行请求节点
+ * <p>
+ * 使用有界线程池并发执行，单个节点、整体都有截止时间。同时在执行中（含排队）的请求数有上限，
+ * 节点响应慢的请求过多时新的请求需要等待，超过整体截止时间则直接判定为超时
+ *
+ * @author bwcx_jzy
+ * @since 2022/5/17
+ */
+public class NodeFanOut {
+
+    private static volatile ThreadPoolExecutor executor;
+    private static volatile Semaphore semaphore;
+
+    private static ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            synchronized (NodeFanOut.class) {
+                if (executor == null) {
+                    ServerExtConfigBean configBean = ServerExtConfigBean.getInstance();
+                    int poolSize = configBean.getNodeFanOutPoolSize();
+                    int maxPending = configBean.getNodeFanOutMaxPending();
+                    // 执行中（含排队）的任务数受许可限制，队列不会超过许可数
+                    ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(poolSize, poolSize,
+                        60, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<>(maxPending),
+                        ThreadUtil.newNamedThreadFactory("Jpom Node FanOut-", true));
+                    threadPoolExecutor.allowCoreThreadTimeOut(true);
+                    semaphore = new Semaphore(maxPending, true);
+                    executor = threadPoolExecutor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * 单个节点的任务，结束（完成、异常、取消）后放入完成队列
+     * <p>
+     * 许可在线程执行结束后释放（取消时线程可能还阻塞在节点请求中），已经取消的任务也会被线程池执行一次 run 方法
+     */
+    private static class FanOutTask<T> extends FutureTask<T> {
+
+        private final NodeFanOutResult<T> result;
+        private final BlockingQueue<FanOutTask<T>> completedQueue;
+        private volatile long startTime;
+
+        private FanOutTask(NodeFanOutResult<T> result, Function<NodeModel, T> function, BlockingQueue<FanOutTask<T>> completedQueue) {
+            super(() -> function.apply(result.getNodeModel()));
+            this.result = result;
+            this.completedQueue = completedQueue;
+        }
+
+        @Override
+        public void run() {
+            try {
+                this.startTime = SystemClock.now();
+                super.run();
+            } finally {
+                semaphore.release();
+            }
+        }
+
+        @Override
+        protected void done() {
+            completedQueue.add(this);
+        }
+    }
+
+    /**
+     * 批量请求，使用默认的截止时间
+     *
+     * @param nodeModels 节点
+     * @param function   单个节点的执行逻辑
+     * @param consumer   单个节点完成回调（在调用线程中按完成顺序回调），可以为 null
+     * @param <T>        泛型
+     * @return 所有节点的结果，和传入的节点顺序一致
+     */
+    public static <T> List<NodeFanOutResult<T>> execute(Collection<NodeModel> nodeModels,
+                                                        Function<NodeModel, T> function,
+                                                        Consumer<NodeFanOutResult<T>> consumer) {
+        ServerExtConfigBean configBean = ServerExtConfigBean.getInstance();
+        return execute(nodeModels, function, consumer,
+            TimeUnit.SECONDS.toMillis(configBean.getNodeFanOutNodeTimeout()),
+            TimeUnit.SECONDS.toMillis(configBean.getNodeFanOutTimeout()));
+    }
+
+    /**
+     * 批量请求
+     *
+     * @param nodeModels  节点
+     * @param function    单个节点的执行逻辑
+     * @param consumer    单个节点完成回调（在调用线程中按完成顺序回调），可以为 null
+     * @param nodeTimeout 单个节点的截止时间（毫秒，从开始执行计算）
+     * @param timeout     整体截止时间（毫秒）
+     * @param <T>         泛型
+     * @return 所有节点的结果，和传入的节点顺序一致
+     */
+    public static <T> List<NodeFanOutResult<T>> execute(Collection<NodeModel> nodeModels,
+                                                        Function<NodeModel, T> function,
+                                                        Consumer<NodeFanOutResult<T>> consumer,
+                                                        long nodeTimeout,
+                                                        long timeout) {
+        if (CollUtil.isEmpty(nodeModels)) {
+            return Collections.emptyList();
+        }
+        ThreadPoolExecutor threadPoolExecutor = getExecutor();
+        long deadline = SystemClock.now() + timeout;
+        BlockingQueue<FanOutTask<T>> completedQueue = new LinkedBlockingQueue<>();
+        List<NodeFanOutResult<T>> results = new ArrayList<>(nodeModels.size());
+        Set<FanOutTask<T>> pending = new LinkedHashSet<>();
+        try {
+            for (NodeModel nodeModel : nodeModels) {
+                NodeFanOutResult<T> result = new NodeFanOutResult<>(nodeModel);
+                results.add(result);
+                long remaining = deadline - SystemClock.now();
+                if (remaining <= 0 || !semaphore.tryAcquire(remaining, TimeUnit.MILLISECONDS)) {
+                    // 响应慢的节点过多，排队超时
+                    result.setTimeout(true);
+                    result.setError(new AgentException(nodeModel.getName() + "节点请求排队超时"));
+                    accept(consumer, result);
+                    continue;
+                }
+                FanOutTask<T> task = new FanOutTask<>(result, function, completedQueue);
+                pending.add(task);
+                try {
+                    threadPoolExecutor.execute(task);
+                } catch (RejectedExecutionException e) {
+                    pending.remove(task);
+                    semaphore.release();
+                    result.setError(e);
+                    accept(consumer, result);
+                }
+            }
+            while (!pending.isEmpty()) {
+                long now = SystemClock.now();
+                if (now >= deadline) {
+                    break;
+                }
+                // 单节点超时
+                Iterator<FanOutTask<T>> iterator = pending.iterator();
+                while (iterator.hasNext()) {
+                    FanOutTask<T> task = iterator.next();
+                    long startTime = task.startTime;
+                    if (startTime > 0 && now - startTime >= nodeTimeout) {
+                        iterator.remove();
+                        timeout(task, consumer);
+                    }
+                }
+                FanOutTask<T> task = completedQueue.poll(Math.min(deadline - now, 500), TimeUnit.MILLISECONDS);
+                if (task == null || !pending.remove(task)) {
+                    continue;
+                }
+                NodeFanOutResult<T> result = task.result;
+                result.setTime(SystemClock.now() - task.startTime);
+                try {
+                    result.setData(task.get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    result.setError(cause instanceof Exception ? (Exception) cause : e);
+                }
+                accept(consumer, result);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 整体超时
+        for (FanOutTask<T> task : pending) {
+            timeout(task, consumer);
+        }
+        return results;
+    }
+
+    private static <T> void timeout(FanOutTask<T> task, Consumer<NodeFanOutResult<T>> consumer) {
+        task.cancel(true);
+        NodeFanOutResult<T> result = task.result;
+        result.setTimeout(true);
+        result.setError(new AgentException(result.getNodeModel().getName() + "节点响应超时"));
+        if (task.startTime > 0) {
+            result.setTime(SystemClock.now() - task.startTime);
+        }
+        accept(consumer, result);
+    }
+
+    private static <T> void accept(Consumer<NodeFanOutResult<T>> consumer, NodeFanOutResult<T> result) {
+        if (consumer == null) {
+            return;
+        }
+        try {
+            consumer.accept(result);
+        } catch (Exception e) {
+            DefaultSystemLog.getLog().error("处理节点批量请求结果异常", e);
+        }
+    }
+}
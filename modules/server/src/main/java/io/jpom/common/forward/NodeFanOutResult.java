@@ -0,0 +1,62 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Code Technology Studio
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jpom.common.forward;
+
+import io.jpom.model.data.NodeModel;
+import lombok.Data;
+
+/**
+ * 批量请求节点的单个节点结果
+ *
+ * @author bwcx_jzy
+ * @since 2022/5/17
+ */
+@Data
+public class NodeFanOutResult<T> {
+
+    private final NodeModel nodeModel;
+    /**
+     * 请求结果
+     */
+    private T data;
+    /**
+     * 请求异常
+     */
+    private Exception error;
+    /**
+     * 是否超时（排队超时、单节点超时、整体超时）
+     */
+    private boolean timeout;
+    /**
+     * 耗时（毫秒）
+     */
+    private long time;
+
+    public NodeFanOutResult(NodeModel nodeModel) {
+        this.nodeModel = nodeModel;
+    }
+
+    public boolean isSuccess() {
+        return error == null && !timeout;
+    }
+}
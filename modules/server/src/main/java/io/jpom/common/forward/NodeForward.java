@@ -30,7 +30,8 @@ import cn.hutool.core.util.ArrayUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.core.util.URLUtil;
 import cn.hutool.extra.servlet.ServletUtil;
-import cn.hutool.http.*;
+import cn.hutool.http.ContentType;
+import cn.hutool.http.HttpStatus;
 import cn.jiangzeyin.common.DefaultSystemLog;
 import cn.jiangzeyin.common.JsonMessage;
 import cn.jiangzeyin.common.spring.SpringUtil;
@@ -39,6 +40,7 @@ import com.alibaba.fastjson.JSONObject;
 import com.alibaba.fastjson.TypeReference;
 import io.jpom.common.BaseServerController;
 import io.jpom.common.Const;
+import io.jpom.controller.BaseMyErrorController;
 import io.jpom.model.data.NodeModel;
 import io.jpom.model.data.UserModel;
 import io.jpom.service.node.NodeService;
@@ -54,8 +56,12 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.File;
 import java.io.IOException;
 import java.net.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 
 /**
  * 节点请求转发
@@ -65,6 +71,58 @@ import java.util.Set;
  */
 public class NodeForward {
 
+    private static volatile INodeTransport nodeTransport;
+
+    /**
+     * 获取节点请求传输层
+     *
+     * @return transport
+     */
+    public static INodeTransport getTransport() {
+        if (nodeTransport == null) {
+            synchronized (NodeForward.class) {
+                if (nodeTransport == null) {
+                    ServerExtConfigBean configBean = ServerExtConfigBean.getInstance();
+                    if (StrUtil.equalsIgnoreCase(configBean.getNodeTransportType(), "hutool")) {
+                        nodeTransport = new HutoolNodeTransport();
+                    } else {
+                        nodeTransport = new PooledNodeTransport(configBean.getNodeTransportMaxIdle(),
+                            configBean.getNodeTransportKeepAlive(),
+                            configBean.getNodeTransportMaxConcurrent(),
+                            configBean.isNodeTransportHttp2());
+                    }
+                }
+            }
+        }
+        return nodeTransport;
+    }
+
+    /**
+     * 节点连接统计
+     *
+     * @return list
+     */
+    public static List<JSONObject> transportStat() {
+        return getTransport().stat();
+    }
+
+    /**
+     * 执行请求
+     *
+     * @param nodeModel   节点
+     * @param httpRequest 请求
+     * @param function    响应处理
+     * @param <T>         泛型
+     * @return 处理结果
+     */
+    private static <T> T execute(NodeModel nodeModel, NodeTransportRequest httpRequest, Function<NodeTransportResponse, T> function) {
+        try {
+            return getTransport().execute(httpRequest, function);
+        } catch (Exception e) {
+            throw NodeForward.responseException(e, nodeModel);
+        }
+    }
+
     /**
      * 普通消息转发
      *
@@ -105,6 +163,33 @@ public class NodeForward {
         return request(nodeModel, null, nodeUrl, false, null, null, pName, pVal, val);
     }
 
+    /**
+     * 批量并行请求多个节点，在整体截止时间内返回所有节点的结果
+     *
+     * @param nodeModels 节点
+     * @param nodeUrl    节点的url
+     * @param params     参数，参数名和值交替出现
+     * @param <T>        泛型
+     * @return 所有节点的结果，和传入的节点顺序一致
+     * @see NodeFanOut
+     */
+    public static <T> List<NodeFanOutResult<JsonMessage<T>>> fanOut(Collection<NodeModel> nodeModels, NodeUrl nodeUrl, Object... params) {
+        return fanOut(nodeModels, nodeModel -> request(nodeModel, null, nodeUrl, false, null, null, null, null, params));
+    }
+
+    /**
+     * 批量并行执行节点相关的操作
+     *
+     * @param nodeModels 节点
+     * @param function   单个节点的执行逻辑
+     * @param <T>        泛型
+     * @return 所有节点的结果，和传入的节点顺序一致
+     * @see NodeFanOut
+     */
+    public static <T> List<NodeFanOutResult<T>> fanOut(Collection<NodeModel> nodeModels, Function<NodeModel, T> function) {
+        return NodeFanOut.execute(nodeModels, function, null);
+    }
+
     /**
      * post body 消息转发
      *
@@ -120,18 +205,13 @@ public class NodeForward {
                                                  UserModel userModel,
                                                  JSONObject jsonData) {
         String url = nodeModel.getRealUrl(nodeUrl);
-        HttpRequest httpRequest = HttpUtil.createPost(url);
+        NodeTransportRequest httpRequest = NodeTransportRequest.createPost(url);
 
         addUser(httpRequest, nodeModel, nodeUrl, userModel);
 
         httpRequest.body(jsonData.toString(), ContentType.JSON.getValue());
 
-        try (HttpResponse response = httpRequest.execute()) {
-            //
-            return parseBody(response, nodeModel);
-        } catch (Exception e) {
-            throw NodeForward.responseException(e, nodeModel);
-        }
+        return execute(nodeModel, httpRequest, response -> parseBody(response, nodeModel));
 
     }
 
@@ -161,7 +241,7 @@ public class NodeForward {
                                               Object pVal,
                                               Object... val) {
         String url = nodeModel.getRealUrl(nodeUrl);
-        HttpRequest httpRequest = HttpUtil.createPost(url);
+        NodeTransportRequest httpRequest = NodeTransportRequest.createPost(url);
         //
         if (mustUser) {
             if (userModel == null) {
@@ -199,12 +279,7 @@ public class NodeForward {
             httpRequest.form(clone);
         }
         httpRequest.form(params);
-        try (HttpResponse response = httpRequest.execute()) {
-            //
-            return parseBody(response, nodeModel);
-        } catch (Exception e) {
-            throw NodeForward.responseException(e, nodeModel);
-        }
+        return execute(nodeModel, httpRequest, response -> parseBody(response, nodeModel));
     }
 
     /**
@@ -223,6 +298,11 @@ public class NodeForward {
                     "端口号是否配置正确,防火墙规则," +
                     "云服务器的安全组配置等网络相关问题排查定位。" + message);
             }
+        } else if (exception instanceof java.net.ConnectException || exception instanceof java.net.SocketTimeoutException) {
+            // 连接池方式请求直接抛出的网络异常
+            return new AgentException(nodeModel.getName() + "节点网络连接异常或超时,请优先检查插件端运行状态再检查 IP 地址、" +
+                "端口号是否配置正确,防火墙规则," +
+                "云服务器的安全组配置等网络相关问题排查定位。" + message);
         } else if (exception instanceof cn.hutool.http.HttpException) {
             if (cause instanceof java.net.SocketTimeoutException) {
                 return new AgentException(nodeModel.getName() + "节点网络连接超时,请优先检查插件端运行状态再检查节点超时时间配置是否合理,上传文件超时时间配置是否合理。" + message);
@@ -264,19 +344,16 @@ public class NodeForward {
     public static <T> T requestData(NodeModel nodeModel, NodeUrl nodeUrl, Class<T> tClass, String name, Object value, Object... parameters) {
         String url = nodeModel.getRealUrl(nodeUrl);
         //
-        HttpRequest httpRequest = HttpUtil.createPost(url);
+        NodeTransportRequest httpRequest = NodeTransportRequest.createPost(url);
         if (name != null && value != null) {
             httpRequest.form(name, value, parameters);
         }
         //
         addUser(httpRequest, nodeModel, nodeUrl);
-        try (HttpResponse response = httpRequest.execute();) {
-            //
+        return execute(nodeModel, httpRequest, response -> {
             JsonMessage<T> jsonMessage = parseBody(response, nodeModel);
             return jsonMessage.getData(tClass);
-        } catch (Exception e) {
-            throw NodeForward.responseException(e, nodeModel);
-        }
+        });
     }
 
 
@@ -291,26 +368,30 @@ public class NodeForward {
     @SuppressWarnings({"unchecked", "rawtypes"})
     public static JsonMessage<String> requestMultipart(NodeModel nodeModel, MultipartHttpServletRequest request, NodeUrl nodeUrl) {
         String url = nodeModel.getRealUrl(nodeUrl);
-        HttpRequest httpRequest = HttpUtil.createPost(url);
+        NodeTransportRequest httpRequest = NodeTransportRequest.createPost(url);
         addUser(httpRequest, nodeModel, nodeUrl);
         //
         Map params = ServletUtil.getParams(request);
         httpRequest.form(params);
         //
+        // 直接转发上传文件的流，不读取到内存中
+        List<NodeUploadResource> resources = new ArrayList<>();
         Map<String, MultipartFile> fileMap = request.getFileMap();
         fileMap.forEach((s, multipartFile) -> {
             try {
-                httpRequest.form(s, multipartFile.getBytes(), multipartFile.getOriginalFilename());
+                NodeUploadResource resource = new NodeUploadResource(multipartFile.getInputStream(), multipartFile.getOriginalFilename(), multipartFile.getSize(), nodeModel.getName());
+                resources.add(resource);
+                httpRequest.form(s, resource);
             } catch (IOException e) {
                 DefaultSystemLog.getLog().error("转发文件异常", e);
             }
         });
         // @author jzy add  timeout
         httpRequest.timeout(ServerExtConfigBean.getInstance().getUploadFileTimeOut());
-        try (HttpResponse response = httpRequest.execute()) {
-            return parseBody(response, nodeModel);
-        } catch (Exception e) {
-            throw NodeForward.responseException(e, nodeModel);
+        try {
+            return execute(nodeModel, httpRequest, response -> parseBody(response, nodeModel));
+        } finally {
+            resources.forEach(NodeUploadResource::close);
         }
 
     }
@@ -326,17 +407,13 @@ public class NodeForward {
      */
     public static JsonMessage<String> requestMultipart(NodeModel nodeModel, String fileName, File file, NodeUrl nodeUrl) {
         String url = nodeModel.getRealUrl(nodeUrl);
-        HttpRequest httpRequest = HttpUtil.createPost(url);
+        NodeTransportRequest httpRequest = NodeTransportRequest.createPost(url);
         addUser(httpRequest, nodeModel, nodeUrl);
         //
         httpRequest.form(fileName, file);
         // @author jzy add  timeout
         httpRequest.timeout(ServerExtConfigBean.getInstance().getUploadFileTimeOut());
-        try (HttpResponse response = httpRequest.execute()) {
-            return parseBody(response, nodeModel);
-        } catch (Exception e) {
-            throw NodeForward.responseException(e, nodeModel);
-        }
+        return execute(nodeModel, httpRequest, response -> parseBody(response, nodeModel));
 
     }
 
@@ -351,7 +428,7 @@ public class NodeForward {
     @SuppressWarnings({"unchecked", "rawtypes"})
     public static void requestDownload(NodeModel nodeModel, HttpServletRequest request, HttpServletResponse response, NodeUrl nodeUrl) {
         String url = nodeModel.getRealUrl(nodeUrl);
-        HttpRequest httpRequest = HttpUtil.createGet(url);
+        NodeTransportRequest httpRequest = NodeTransportRequest.createGet(url);
         addUser(httpRequest, nodeModel, nodeUrl);
         //
         Map params = ServletUtil.getParams(request);
@@ -359,18 +436,17 @@ public class NodeForward {
         // @author jzy add  timeout
         httpRequest.timeout(ServerExtConfigBean.getInstance().getUploadFileTimeOut());
         //
-        try (HttpResponse response1 = httpRequest.execute()) {
+        execute(nodeModel, httpRequest, response1 -> {
             String contentDisposition = response1.header("Content-Disposition");
             response.setHeader("Content-Disposition", contentDisposition);
             String contentType = response1.header("Content-Type");
             response.setContentType(contentType);
             ServletUtil.write(response, response1.bodyStream());
-        } catch (Exception e) {
-            throw NodeForward.responseException(e, nodeModel);
-        }
+            return null;
+        });
     }
 
-    private static void addUser(HttpRequest httpRequest, NodeModel nodeModel, NodeUrl nodeUrl) {
+    private static void addUser(NodeTransportRequest httpRequest, NodeModel nodeModel, NodeUrl nodeUrl) {
         UserModel userModel = BaseServerController.getUserModel();
         addUser(httpRequest, nodeModel, nodeUrl, userModel);
     }
@@ -382,7 +458,7 @@ public class NodeForward {
      * @param nodeModel   节点
      * @param userModel   用户
      */
-    private static void addUser(HttpRequest httpRequest, NodeModel nodeModel, NodeUrl nodeUrl, UserModel userModel) {
+    private static void addUser(NodeTransportRequest httpRequest, NodeModel nodeModel, NodeUrl nodeUrl, UserModel userModel) {
         // 判断开启状态
         if (!nodeModel.isOpenStatus()) {
             throw new AgentException(nodeModel.getName() + "节点未启用");
@@ -452,13 +528,23 @@ public class NodeForward {
         return format;
     }
 
+    /**
+     * 判断节点是否不存在对应的接口（低版本的插件端）
+     *
+     * @param jsonMessage 节点响应
+     * @return true 接口不存在
+     */
+    public static boolean isNotFound(JsonMessage<?> jsonMessage) {
+        return jsonMessage.getCode() == HttpStatus.HTTP_INTERNAL_ERROR && StrUtil.equals(jsonMessage.getMsg(), BaseMyErrorController.NOT_FOUND_MSG);
+    }
+
     /**
      * 解析结果
      *
      * @param response 响应
      * @return json
      */
-    private static <T> JsonMessage<T> parseBody(HttpResponse response, NodeModel nodeModel) {
+    private static <T> JsonMessage<T> parseBody(NodeTransportResponse response, NodeModel nodeModel) {
         int status = response.getStatus();
         String body = response.body();
         if (status != HttpStatus.HTTP_OK) {
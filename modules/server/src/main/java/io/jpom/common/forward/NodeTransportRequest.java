@@ -0,0 +1,191 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Code Technology Studio
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jpom.common.forward;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.convert.Convert;
+import cn.hutool.core.io.resource.BytesResource;
+import cn.hutool.core.io.resource.FileResource;
+import cn.hutool.core.io.resource.Resource;
+import cn.hutool.core.map.MapUtil;
+import cn.hutool.core.util.ArrayUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.http.Method;
+import lombok.Getter;
+
+import java.io.File;
+import java.net.Proxy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 节点请求参数，和具体的传输实现无关
+ * <p>
+ * 表单参数的处理规则和 hutool HttpRequest#form 保持一致
+ *
+ * @author bwcx_jzy
+ * @since 2022/5/16
+ */
+@Getter
+public class NodeTransportRequest {
+
+    private final Method method;
+    private final String url;
+    private final Map<String, String> headers = new LinkedHashMap<>();
+    /**
+     * 值为 String 或者 {@link Resource}
+     */
+    private final Map<String, Object> form = new LinkedHashMap<>();
+    private String body;
+    private String contentType;
+    /**
+     * 超时时间（毫秒）小于等于 0 不限制
+     */
+    private int timeout;
+    private Proxy proxy;
+
+    public NodeTransportRequest(Method method, String url) {
+        this.method = method;
+        this.url = url;
+    }
+
+    public static NodeTransportRequest createPost(String url) {
+        return new NodeTransportRequest(Method.POST, url);
+    }
+
+    public static NodeTransportRequest createGet(String url) {
+        return new NodeTransportRequest(Method.GET, url);
+    }
+
+    public NodeTransportRequest header(String name, String value) {
+        if (name != null && value != null) {
+            headers.put(name, value);
+        }
+        return this;
+    }
+
+    public NodeTransportRequest body(String body, String contentType) {
+        this.body = body;
+        this.contentType = contentType;
+        return this;
+    }
+
+    public NodeTransportRequest timeout(int timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    public NodeTransportRequest setProxy(Proxy proxy) {
+        this.proxy = proxy;
+        return this;
+    }
+
+    /**
+     * 添加表单参数
+     *
+     * @param name       参数名
+     * @param value      参数值
+     * @param parameters 其他参数，参数名和值交替出现
+     * @return this
+     */
+    public NodeTransportRequest form(String name, Object value, Object... parameters) {
+        form(name, value);
+        if (parameters != null) {
+            for (int i = 0; i + 1 < parameters.length; i += 2) {
+                form(Convert.toStr(parameters[i]), parameters[i + 1]);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 添加表单参数
+     *
+     * @param formMap 参数
+     * @return this
+     */
+    public NodeTransportRequest form(Map<String, ?> formMap) {
+        if (MapUtil.isNotEmpty(formMap)) {
+            formMap.forEach(this::form);
+        }
+        return this;
+    }
+
+    /**
+     * 添加文件参数
+     *
+     * @param name     参数名
+     * @param bytes    文件内容
+     * @param fileName 文件名
+     * @return this
+     */
+    public NodeTransportRequest form(String name, byte[] bytes, String fileName) {
+        if (bytes != null) {
+            form.put(name, new BytesResource(bytes, fileName));
+        }
+        return this;
+    }
+
+    /**
+     * 添加表单参数
+     *
+     * @param name  参数名
+     * @param value 参数值
+     * @return this
+     */
+    public NodeTransportRequest form(String name, Object value) {
+        if (StrUtil.isBlank(name) || value == null) {
+            return this;
+        }
+        if (value instanceof File) {
+            File file = (File) value;
+            form.put(name, new FileResource(file, file.getName()));
+            return this;
+        }
+        if (value instanceof Resource) {
+            form.put(name, value);
+            return this;
+        }
+        String strValue;
+        if (value instanceof Iterable) {
+            strValue = CollUtil.join((Iterable<?>) value, StrUtil.COMMA);
+        } else if (ArrayUtil.isArray(value)) {
+            strValue = ArrayUtil.join(value, StrUtil.COMMA);
+        } else {
+            strValue = Convert.toStr(value, null);
+        }
+        if (strValue != null) {
+            form.put(name, strValue);
+        }
+        return this;
+    }
+
+    /**
+     * 是否包含文件
+     *
+     * @return true 需要使用 multipart 方式提交
+     */
+    public boolean isMultipart() {
+        return form.values().stream().anyMatch(o -> o instanceof Resource);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Code Technology Studio
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jpom.common.forward;
+
+import java.io.InputStream;
+
+/**
+ * 节点响应
+ *
+ * @author bwcx_jzy
+ * @since 2022/5/16
+ */
+public interface NodeTransportResponse {
+
+    /**
+     * 响应状态码
+     *
+     * @return http status
+     */
+    int getStatus();
+
+    /**
+     * 获取响应头
+     *
+     * @param name 名称
+     * @return 值
+     */
+    String header(String name);
+
+    /**
+     * 读取响应内容
+     *
+     * @return 字符串
+     */
+    String body();
+
+    /**
+     * 响应流，在回调结束后会自动关闭
+     *
+     * @return 流
+     */
+    InputStream bodyStream();
+}
@@ -0,0 +1,150 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Code Technology Studio
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jpom.common.forward;
+
+import cn.hutool.core.date.SystemClock;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IoUtil;
+import cn.hutool.core.io.resource.InputStreamResource;
+import cn.hutool.core.util.IdUtil;
+import cn.jiangzeyin.common.DefaultSystemLog;
+import com.alibaba.fastjson.JSONObject;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 转发到节点的上传文件，直接读取原始流（不在内存中缓存整个文件），并记录传输进度
+ *
+ * @author bwcx_jzy
+ * @since 2022/5/18
+ */
+public class NodeUploadResource extends InputStreamResource implements Closeable {
+
+    /**
+     * 传输中的文件
+     */
+    private static final Map<String, NodeUploadResource> TRANSFER_MAP = new ConcurrentHashMap<>();
+
+    private final String id = IdUtil.fastSimpleUUID();
+    private final String nodeName;
+    private final long size;
+    private final AtomicLong transferred = new AtomicLong();
+    private final InputStream inputStream;
+    private long startTime;
+
+    /**
+     * @param in       文件流
+     * @param name     文件名
+     * @param size     文件大小，未知传 -1
+     * @param nodeName 节点名称
+     */
+    public NodeUploadResource(InputStream in, String name, long size, String nodeName) {
+        super(in, name);
+        this.size = size;
+        this.nodeName = nodeName;
+        this.inputStream = new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int read = super.read();
+                if (read != -1) {
+                    transferred.incrementAndGet();
+                }
+                return read;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int read = super.read(b, off, len);
+                if (read > 0) {
+                    transferred.addAndGet(read);
+                }
+                return read;
+            }
+
+            @Override
+            public void close() throws IOException {
+                super.close();
+                NodeUploadResource.this.finish();
+            }
+        };
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public InputStream getStream() {
+        if (startTime == 0) {
+            startTime = SystemClock.now();
+            TRANSFER_MAP.put(id, this);
+        }
+        return inputStream;
+    }
+
+    @Override
+    public void close() {
+        IoUtil.close(inputStream);
+    }
+
+    private void finish() {
+        if (TRANSFER_MAP.remove(id) == null) {
+            return;
+        }
+        long time = Math.max(SystemClock.now() - startTime, 1);
+        DefaultSystemLog.getLog().info("{} 节点上传文件 {} 结束,已传输 {}/{} 耗时 {}ms 速度 {}/s", nodeName, getName(),
+            FileUtil.readableFileSize(transferred.get()), FileUtil.readableFileSize(size), time,
+            FileUtil.readableFileSize(transferred.get() * 1000 / time));
+    }
+
+    /**
+     * 获取传输中的文件进度
+     *
+     * @return list
+     */
+    public static List<JSONObject> list() {
+        long now = SystemClock.now();
+        return TRANSFER_MAP.values().stream().map(resource -> {
+            long transferred = resource.transferred.get();
+            long time = Math.max(now - resource.startTime, 1);
+            JSONObject jsonObject = new JSONObject();
+            jsonObject.put("id", resource.id);
+            jsonObject.put("nodeName", resource.nodeName);
+            jsonObject.put("fileName", resource.getName());
+            jsonObject.put("size", resource.size);
+            jsonObject.put("transferred", transferred);
+            jsonObject.put("progress", resource.size > 0 ? transferred * 100 / resource.size : -1);
+            jsonObject.put("speed", FileUtil.readableFileSize(transferred * 1000 / time) + "/s");
+            jsonObject.put("startTime", resource.startTime);
+            return jsonObject;
+        }).collect(Collectors.toList());
+    }
+}
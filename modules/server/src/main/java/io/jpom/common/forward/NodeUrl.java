@@ -108,6 +108,19 @@ public enum NodeUrl {
      */
     Manage_File_Upload("/manage/file/upload", ServerExtConfigBean.getInstance().getUploadFileTimeOut()),
 
+    /**
+     * 检查节点缺少的分片
+     */
+    MANAGE_FILE_SLICE_CHECK("/manage/file/slice_check"),
+    /**
+     * 上传分片
+     */
+    MANAGE_FILE_SLICE_UPLOAD("/manage/file/slice_upload", ServerExtConfigBean.getInstance().getUploadFileTimeOut()),
+    /**
+     * 合并分片
+     */
+    MANAGE_FILE_SLICE_MERGE("/manage/file/slice_merge", ServerExtConfigBean.getInstance().getUploadFileTimeOut()),
+
     Manage_File_DeleteFile("/manage/file/deleteFile"),
     /**
      * 对比项目文件
@@ -117,6 +130,10 @@ public enum NodeUrl {
      * 批量删除文件
      */
     MANAGE_FILE_BATCH_DELETE("/manage/file/batch_delete"),
+    /**
+     * 批量同步文件（差异发布）
+     */
+    MANAGE_FILE_BATCH_SYNC("/manage/file/batch_sync", ServerExtConfigBean.getInstance().getUploadFileTimeOut()),
 
     Manage_File_UpdateConfigFile("/manage/file/update_config_file"),
 
@@ -139,6 +156,10 @@ public enum NodeUrl {
     Manage_Log_logBack("/manage/log/logBack"),
 
     Manage_Log_export("/manage/log/export.html"),
+    /**
+     * 向前读取控制台日志
+     */
+    MANAGE_LOG_READ_BEFORE("/manage/log/read_before"),
 
     Manage_internal_data("/manage/internal_data"),
     Manage_internal_stack("/manage/internal_stack"),
@@ -0,0 +1,361 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Code Technology Studio
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jpom.common.forward;
+
+import cn.hutool.core.date.SystemClock;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.resource.Resource;
+import cn.hutool.core.util.CharsetUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.http.Method;
+import cn.jiangzeyin.common.DefaultSystemLog;
+import com.alibaba.fastjson.JSONObject;
+import io.jpom.system.AgentException;
+import okhttp3.*;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.Proxy;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 连接池方式请求节点
+ * <p>
+ * 每个节点（协议 + 地址 + 代理）独立一个连接池，复用长连接，并限制单个节点的并发请求数
+ *
+ * @author bwcx_jzy
+ * @since 2022/5/16
+ */
+public class PooledNodeTransport implements INodeTransport {
+
+    private static final MediaType OCTET_STREAM = MediaType.parse("application/octet-stream");
+
+    private final Map<String, NodePool> poolMap = new ConcurrentHashMap<>();
+    private final OkHttpClient baseClient;
+    private final int maxIdle;
+    private final int keepAliveSecond;
+    private final int maxConcurrent;
+
+    /**
+     * 单个节点的连接池
+     */
+    private static class NodePool {
+        private final String key;
+        private final ConnectionPool connectionPool;
+        private final OkHttpClient client;
+        private final Semaphore semaphore;
+        private final int maxConcurrent;
+        /**
+         * 请求次数
+         */
+        private final LongAdder requestCount = new LongAdder();
+        /**
+         * 失败次数
+         */
+        private final LongAdder failedCount = new LongAdder();
+        /**
+         * 累计等待时间（纳秒）
+         */
+        private final LongAdder waitTime = new LongAdder();
+        /**
+         * 最长等待时间（纳秒）
+         */
+        private final AtomicLong maxWaitTime = new AtomicLong();
+        private volatile long lastUseTime = SystemClock.now();
+
+        private NodePool(String key, ConnectionPool connectionPool, OkHttpClient client, int maxConcurrent) {
+            this.key = key;
+            this.connectionPool = connectionPool;
+            this.client = client;
+            this.maxConcurrent = maxConcurrent;
+            this.semaphore = new Semaphore(maxConcurrent, true);
+        }
+    }
+
+    /**
+     * @param maxIdle         单个节点最多保持的空闲连接数
+     * @param keepAliveSecond 空闲连接保持时间
+     * @param maxConcurrent   单个节点最大并发请求数
+     * @param http2           是否开启 http2 （https 协商）
+     */
+    public PooledNodeTransport(int maxIdle, int keepAliveSecond, int maxConcurrent, boolean http2) {
+        this.maxIdle = Math.max(maxIdle, 1);
+        this.keepAliveSecond = Math.max(keepAliveSecond, 1);
+        this.maxConcurrent = Math.max(maxConcurrent, 1);
+        List<Protocol> protocols = http2 ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1) : Collections.singletonList(Protocol.HTTP_1_1);
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+            .protocols(protocols)
+            // 和 hutool 保持一致，不自动跳转
+            .followRedirects(false)
+            .followSslRedirects(false)
+            .retryOnConnectionFailure(true);
+        // 和 hutool 保持一致，信任所有证书
+        X509TrustManager trustManager = new TrustAnyTrustManager();
+        try {
+            SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(null, new TrustManager[]{trustManager}, new SecureRandom());
+            builder.sslSocketFactory(sslContext.getSocketFactory(), trustManager);
+            builder.hostnameVerifier((hostname, session) -> true);
+        } catch (Exception e) {
+            DefaultSystemLog.getLog().warn("初始化节点请求 ssl 失败", e);
+        }
+        this.baseClient = builder.build();
+    }
+
+    @Override
+    public <T> T execute(NodeTransportRequest request, Function<NodeTransportResponse, T> function) throws Exception {
+        NodePool nodePool = this.getPool(request);
+        int timeout = request.getTimeout();
+        // 超时时间内没有获取到请求许可，说明节点响应慢的请求过多
+        long waitMillis = timeout > 0 ? timeout : TimeUnit.MINUTES.toMillis(5);
+        long start = System.nanoTime();
+        if (!nodePool.semaphore.tryAcquire(waitMillis, TimeUnit.MILLISECONDS)) {
+            nodePool.failedCount.increment();
+            throw new AgentException("节点并发请求过多,请稍后重试");
+        }
+        long wait = System.nanoTime() - start;
+        nodePool.waitTime.add(wait);
+        nodePool.maxWaitTime.accumulateAndGet(wait, Math::max);
+        nodePool.requestCount.increment();
+        nodePool.lastUseTime = SystemClock.now();
+        try {
+            OkHttpClient client = nodePool.client.newBuilder()
+                .connectTimeout(timeout, TimeUnit.MILLISECONDS)
+                .readTimeout(timeout, TimeUnit.MILLISECONDS)
+                .writeTimeout(timeout, TimeUnit.MILLISECONDS)
+                .build();
+            Request okRequest = this.buildRequest(request);
+            try (Response response = client.newCall(okRequest).execute()) {
+                return function.apply(new OkHttpResponse(response));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        } catch (Exception e) {
+            nodePool.failedCount.increment();
+            throw e;
+        } finally {
+            nodePool.semaphore.release();
+        }
+    }
+
+    private NodePool getPool(NodeTransportRequest request) {
+        HttpUrl httpUrl = HttpUrl.get(request.getUrl());
+        Proxy proxy = request.getProxy();
+        String key = StrUtil.format("{}://{}:{}", httpUrl.scheme(), httpUrl.host(), httpUrl.port());
+        if (proxy != null) {
+            key = StrUtil.format("{} {}", key, proxy);
+        }
+        NodePool nodePool = poolMap.get(key);
+        if (nodePool != null) {
+            return nodePool;
+        }
+        // 不能在 computeIfAbsent 中修改 poolMap
+        this.clearUnused();
+        return poolMap.computeIfAbsent(key, s -> {
+            ConnectionPool connectionPool = new ConnectionPool(maxIdle, keepAliveSecond, TimeUnit.SECONDS);
+            OkHttpClient client = baseClient.newBuilder()
+                .connectionPool(connectionPool)
+                .proxy(proxy)
+                .build();
+            return new NodePool(s, connectionPool, client, maxConcurrent);
+        });
+    }
+
+    /**
+     * 清理长时间未使用的连接池（节点地址变更、节点删除）
+     */
+    private void clearUnused() {
+        long expire = SystemClock.now() - TimeUnit.SECONDS.toMillis(keepAliveSecond) * 2;
+        poolMap.entrySet().removeIf(entry -> {
+            NodePool nodePool = entry.getValue();
+            boolean unused = nodePool.lastUseTime < expire && nodePool.semaphore.availablePermits() == nodePool.maxConcurrent;
+            if (unused) {
+                nodePool.connectionPool.evictAll();
+            }
+            return unused;
+        });
+    }
+
+    private Request buildRequest(NodeTransportRequest request) {
+        Request.Builder builder = new Request.Builder();
+        request.getHeaders().forEach(builder::header);
+        Map<String, Object> form = request.getForm();
+        if (request.getMethod() == Method.GET) {
+            HttpUrl.Builder urlBuilder = HttpUrl.get(request.getUrl()).newBuilder();
+            form.forEach((name, value) -> urlBuilder.addQueryParameter(name, String.valueOf(value)));
+            return builder.url(urlBuilder.build()).get().build();
+        }
+        RequestBody requestBody;
+        if (request.getBody() != null) {
+            MediaType mediaType = request.getContentType() == null ? null : MediaType.parse(request.getContentType());
+            requestBody = RequestBody.create(mediaType, request.getBody());
+        } else if (request.isMultipart()) {
+            MultipartBody.Builder multipartBuilder = new MultipartBody.Builder().setType(MultipartBody.FORM);
+            form.forEach((name, value) -> {
+                if (value instanceof Resource) {
+                    Resource resource = (Resource) value;
+                    multipartBuilder.addFormDataPart(name, resource.getName(), new ResourceRequestBody(resource));
+                } else {
+                    multipartBuilder.addFormDataPart(name, String.valueOf(value));
+                }
+            });
+            requestBody = multipartBuilder.build();
+        } else {
+            FormBody.Builder formBuilder = new FormBody.Builder(CharsetUtil.CHARSET_UTF_8);
+            form.forEach((name, value) -> formBuilder.add(name, String.valueOf(value)));
+            requestBody = formBuilder.build();
+        }
+        return builder.url(request.getUrl()).method(request.getMethod().name(), requestBody).build();
+    }
+
+    @Override
+    public List<JSONObject> stat() {
+        return poolMap.values().stream().map(nodePool -> {
+            JSONObject jsonObject = new JSONObject();
+            jsonObject.put("key", nodePool.key);
+            jsonObject.put("connectionCount", nodePool.connectionPool.connectionCount());
+            jsonObject.put("idleCount", nodePool.connectionPool.idleConnectionCount());
+            jsonObject.put("activeCount", nodePool.maxConcurrent - nodePool.semaphore.availablePermits());
+            jsonObject.put("waitingCount", nodePool.semaphore.getQueueLength());
+            jsonObject.put("maxConcurrent", nodePool.maxConcurrent);
+            long requestCount = nodePool.requestCount.sum();
+            jsonObject.put("requestCount", requestCount);
+            jsonObject.put("failedCount", nodePool.failedCount.sum());
+            long waitTime = TimeUnit.NANOSECONDS.toMillis(nodePool.waitTime.sum());
+            jsonObject.put("avgWaitTime", requestCount > 0 ? waitTime / requestCount : 0);
+            jsonObject.put("maxWaitTime", TimeUnit.NANOSECONDS.toMillis(nodePool.maxWaitTime.get()));
+            jsonObject.put("lastUseTime", nodePool.lastUseTime);
+            return jsonObject;
+        }).collect(Collectors.toList());
+    }
+
+    /**
+     * 上传文件的请求体，直接从资源流中写出（okio 分段缓冲，不会将整个文件读入内存）
+     */
+    private static class ResourceRequestBody extends RequestBody {
+
+        private final Resource resource;
+
+        private ResourceRequestBody(Resource resource) {
+            this.resource = resource;
+        }
+
+        @Override
+        public MediaType contentType() {
+            String mimeType = FileUtil.getMimeType(resource.getName());
+            MediaType mediaType = mimeType == null ? null : MediaType.parse(mimeType);
+            return mediaType == null ? OCTET_STREAM : mediaType;
+        }
+
+        @Override
+        public long contentLength() {
+            if (resource instanceof NodeUploadResource) {
+                return ((NodeUploadResource) resource).getSize();
+            }
+            return -1;
+        }
+
+        @Override
+        public boolean isOneShot() {
+            // 流只能读取一次，不能重试
+            return resource instanceof NodeUploadResource;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            try (Source source = Okio.source(resource.getStream())) {
+                sink.writeAll(source);
+            }
+        }
+    }
+
+    private static class OkHttpResponse implements NodeTransportResponse {
+
+        private final Response response;
+
+        private OkHttpResponse(Response response) {
+            this.response = response;
+        }
+
+        @Override
+        public int getStatus() {
+            return response.code();
+        }
+
+        @Override
+        public String header(String name) {
+            return response.header(name);
+        }
+
+        @Override
+        public String body() {
+            ResponseBody body = response.body();
+            if (body == null) {
+                return null;
+            }
+            try {
+                return body.string();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public InputStream bodyStream() {
+            ResponseBody body = response.body();
+            return body == null ? null : body.byteStream();
+        }
+    }
+
+    private static class TrustAnyTrustManager implements X509TrustManager {
+
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType) {
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType) {
+        }
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return new X509Certificate[0];
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Code Technology Studio
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jpom.common.interceptor;
+
+import cn.jiangzeyin.common.spring.SpringUtil;
+import io.jpom.permission.*;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.MethodClassKey;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 接口方法上的权限相关注解信息
+ * <p>
+ * 启动时预先解析所有接口，拦截器中直接从 map 中获取，不再每次请求反射读取注解
+ *
+ * @see io.jpom.system.init.InitHandlerMethodPermission
+ *
+ * @author bwcx_jzy
+ * @since 2022/5/27
+ */
+@Getter
+@Slf4j
+public class HandlerMethodPermission {
+
+    private static final Map<MethodClassKey, HandlerMethodPermission> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * 不需要登录
+     */
+    private final boolean notLogin;
+    private final SystemPermission systemPermission;
+    private final NodeDataPermission nodeDataPermission;
+    /**
+     * 方法功能，没有配置 {@link Feature} 为 null
+     */
+    private final MethodFeature methodFeature;
+    /**
+     * 类功能，方法上没有配置时取类上的配置
+     */
+    private final ClassFeature classFeature;
+
+    private HandlerMethodPermission(HandlerMethod handlerMethod) {
+        Class<?> beanType = handlerMethod.getBeanType();
+        this.notLogin = handlerMethod.hasMethodAnnotation(NotLogin.class) || beanType.isAnnotationPresent(NotLogin.class);
+        SystemPermission systemPermission = handlerMethod.getMethodAnnotation(SystemPermission.class);
+        this.systemPermission = systemPermission == null ? beanType.getAnnotation(SystemPermission.class) : systemPermission;
+        NodeDataPermission nodeDataPermission = handlerMethod.getMethodAnnotation(NodeDataPermission.class);
+        this.nodeDataPermission = nodeDataPermission == null ? beanType.getAnnotation(NodeDataPermission.class) : nodeDataPermission;
+        Feature feature = handlerMethod.getMethodAnnotation(Feature.class);
+        if (feature == null) {
+            this.methodFeature = null;
+            this.classFeature = null;
+        } else {
+            this.methodFeature = feature.method();
+            ClassFeature classFeature = feature.cls();
+            if (classFeature == ClassFeature.NULL) {
+                Feature feature1 = beanType.getAnnotation(Feature.class);
+                if (feature1 != null && feature1.cls() != ClassFeature.NULL) {
+                    classFeature = feature1.cls();
+                }
+            }
+            this.classFeature = classFeature;
+        }
+    }
+
+    /**
+     * 获取接口权限信息
+     *
+     * @param handlerMethod 接口方法
+     * @return 权限信息
+     */
+    public static HandlerMethodPermission get(HandlerMethod handlerMethod) {
+        MethodClassKey key = new MethodClassKey(handlerMethod.getMethod(), handlerMethod.getBeanType());
+        return CACHE.computeIfAbsent(key, methodClassKey -> new HandlerMethodPermission(handlerMethod));
+    }
+
+    /**
+     * 解析所有接口
+     */
+    public static void loadAll() {
+        Map<String, RequestMappingHandlerMapping> mappingMap = SpringUtil.getApplicationContext().getBeansOfType(RequestMappingHandlerMapping.class);
+        for (RequestMappingHandlerMapping handlerMapping : mappingMap.values()) {
+            handlerMapping.getHandlerMethods().values().forEach(HandlerMethodPermission::get);
+        }
+        log.debug("handler method permission size: {}", CACHE.size());
+    }
+}
@@ -67,11 +67,8 @@ public class LoginInterceptor extends BaseJpomInterceptor {
 			return false;
 		}
 		//
-		NotLogin notLogin = handlerMethod.getMethodAnnotation(NotLogin.class);
-		if (notLogin == null) {
-			notLogin = handlerMethod.getBeanType().getAnnotation(NotLogin.class);
-		}
-		if (notLogin == null) {
+		HandlerMethodPermission handlerMethodPermission = HandlerMethodPermission.get(handlerMethod);
+		if (!handlerMethodPermission.isNotLogin()) {
 			// 这里需要判断请求头里是否有 Authorization 属性
 			String authorization = request.getHeader(ServerOpenApi.HTTP_HEAD_AUTHORIZATION);
 			if (StrUtil.isNotEmpty(authorization)) {
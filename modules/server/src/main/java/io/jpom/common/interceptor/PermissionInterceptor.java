@@ -76,22 +76,6 @@ public class PermissionInterceptor extends BaseJpomInterceptor {
         }
     }
 
-    private SystemPermission getSystemPermission(HandlerMethod handlerMethod) {
-        SystemPermission systemPermission = handlerMethod.getMethodAnnotation(SystemPermission.class);
-        if (systemPermission == null) {
-            systemPermission = handlerMethod.getBeanType().getAnnotation(SystemPermission.class);
-        }
-        return systemPermission;
-    }
-
-    private NodeDataPermission getNodeDataPermission(HandlerMethod handlerMethod) {
-        NodeDataPermission nodeDataPermission = handlerMethod.getMethodAnnotation(NodeDataPermission.class);
-        if (nodeDataPermission == null) {
-            nodeDataPermission = handlerMethod.getBeanType().getAnnotation(NodeDataPermission.class);
-        }
-        return nodeDataPermission;
-    }
-
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, HandlerMethod handlerMethod) throws Exception {
         this.init();
@@ -102,30 +86,24 @@ public class PermissionInterceptor extends BaseJpomInterceptor {
             return true;
         }
         //
-        boolean permission = this.checkSystemPermission(userModel, request, response, handlerMethod);
+        HandlerMethodPermission handlerMethodPermission = HandlerMethodPermission.get(handlerMethod);
+        boolean permission = this.checkSystemPermission(userModel, request, response, handlerMethodPermission);
         if (!permission) {
             return false;
         }
-        permission = this.checkNodeDataPermission(userModel, request, response, handlerMethod);
+        permission = this.checkNodeDataPermission(userModel, request, response, handlerMethodPermission);
         if (!permission) {
             return false;
         }
-        Feature feature = handlerMethod.getMethodAnnotation(Feature.class);
-        if (feature == null) {
+        MethodFeature method = handlerMethodPermission.getMethodFeature();
+        if (method == null) {
             return true;
         }
-        MethodFeature method = feature.method();
         if (ArrayUtil.contains(DEMO, method) && userModel.isDemoUser()) {
             this.errorMsg(response, DEMO_TIP);
             return false;
         }
-        ClassFeature classFeature = feature.cls();
-        if (classFeature == ClassFeature.NULL) {
-            Feature feature1 = handlerMethod.getBeanType().getAnnotation(Feature.class);
-            if (feature1 != null && feature1.cls() != ClassFeature.NULL) {
-                classFeature = feature1.cls();
-            }
-        }
+        ClassFeature classFeature = handlerMethodPermission.getClassFeature();
         // 判断功能权限
         if (method != MethodFeature.LIST) {
             String workspaceId = ServletUtil.getHeader(request, Const.WORKSPACEID_REQ_HEADER, CharsetUtil.CHARSET_UTF_8);
@@ -144,13 +122,13 @@ public class PermissionInterceptor extends BaseJpomInterceptor {
     /**
      * 检查管理员权限
      *
-     * @param userModel     用户
-     * @param response      响应
-     * @param handlerMethod 拦截到到方法
+     * @param userModel               用户
+     * @param response                响应
+     * @param handlerMethodPermission 拦截到到方法
      * @return true 有权限
      */
-    private boolean checkNodeDataPermission(UserModel userModel, HttpServletRequest request, HttpServletResponse response, HandlerMethod handlerMethod) {
-        NodeDataPermission nodeDataPermission = this.getNodeDataPermission(handlerMethod);
+    private boolean checkNodeDataPermission(UserModel userModel, HttpServletRequest request, HttpServletResponse response, HandlerMethodPermission handlerMethodPermission) {
+        NodeDataPermission nodeDataPermission = handlerMethodPermission.getNodeDataPermission();
         if (nodeDataPermission == null || userModel.isSuperSystemUser()) {
             return true;
         }
@@ -176,13 +154,13 @@ public class PermissionInterceptor extends BaseJpomInterceptor {
     /**
      * 检查管理员权限
      *
-     * @param userModel     用户
-     * @param response      响应
-     * @param handlerMethod 拦截到到方法
+     * @param userModel               用户
+     * @param response                响应
+     * @param handlerMethodPermission 拦截到到方法
      * @return true 有权限
      */
-    private boolean checkSystemPermission(UserModel userModel, HttpServletRequest request, HttpServletResponse response, HandlerMethod handlerMethod) {
-        SystemPermission systemPermission = this.getSystemPermission(handlerMethod);
+    private boolean checkSystemPermission(UserModel userModel, HttpServletRequest request, HttpServletResponse response, HandlerMethodPermission handlerMethodPermission) {
+        SystemPermission systemPermission = handlerMethodPermission.getSystemPermission();
         if (systemPermission == null) {
             return true;
         }
@@ -213,7 +191,7 @@ public class PermissionInterceptor extends BaseJpomInterceptor {
         String nodeId = request.getParameter("nodeId");
         if (!StrUtil.isBlankOrUndefined(nodeId)) {
             // 节点信息
-            NodeModel nodeModel = nodeService.getByKey(nodeId);
+            NodeModel nodeModel = nodeService.getByKeyCache(nodeId);
             if (nodeModel != null && !nodeModel.isOpenStatus()) {
                 throw new AgentException(nodeModel.getName() + "节点未启用");
             }
@@ -391,6 +391,8 @@ public class BuildInfoController extends BaseServerController {
         Assert.state(repositoryModel.getRepoType() == 0, "只有 GIT 仓库才有分支信息");
         IPlugin plugin = PluginFactory.getPlugin("git-clone");
         Map<String, Object> map = repositoryModel.toMap();
+        // 短时间内重复获取使用缓存
+        map.put("useCache", true);
         Tuple branchAndTagList = (Tuple) plugin.execute("branchAndTagList", map);
         Assert.notNull(branchAndTagList, "没有任何分支");
         Object[] members = branchAndTagList.getMembers();
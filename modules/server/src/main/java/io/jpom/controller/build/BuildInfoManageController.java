@@ -128,7 +128,7 @@ public class BuildInfoManageController extends BaseServerController {
         Objects.requireNonNull(item, "没有对应数据");
         BuildStatus nowStatus = BaseEnum.getEnum(BuildStatus.class, item.getStatus());
         Objects.requireNonNull(nowStatus);
-        if (BuildStatus.Ing != nowStatus && BuildStatus.PubIng != nowStatus) {
+        if (BuildStatus.Ing != nowStatus && BuildStatus.PubIng != nowStatus && BuildStatus.Waiting != nowStatus) {
             return JsonMessage.getString(501, "当前状态不在进行中");
         }
         boolean status = buildExecuteService.cancelTask(item.getId());
@@ -209,7 +209,7 @@ public class BuildInfoManageController extends BaseServerController {
         JSONObject data = FileUtils.readLogFile(file, line);
         // 运行中
         Integer status = queryByBean.getStatus();
-        data.put("run", status == BuildStatus.Ing.getCode() || status == BuildStatus.PubIng.getCode());
+        data.put("run", status == BuildStatus.Ing.getCode() || status == BuildStatus.PubIng.getCode() || status == BuildStatus.Waiting.getCode());
         // 构建中
         data.put("buildRun", status == BuildStatus.Ing.getCode());
 
@@ -454,6 +454,8 @@ public class RepositoryController extends BaseServerController {
         repositoryService.delByKey(id, getRequest());
         File rsaFile = BuildUtil.getRepositoryRsaFile(id + Const.ID_RSA);
         FileUtil.del(rsaFile);
+        // 删除仓库镜像，还引用镜像的工作区在下次构建时 remote url 不一致会重新 clone
+        FileUtil.del(BuildUtil.getRepositoryMirrorDir(id));
         return JsonMessage.getString(200, "删除成功");
     }
 }
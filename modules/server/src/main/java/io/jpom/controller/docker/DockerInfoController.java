@@ -209,6 +209,8 @@ public class DockerInfoController extends BaseServerController {
 			dockerInfoModel.setStatus(1);
 			dockerInfoService.insert(dockerInfoModel);
 		} else {
+			// 关闭修改前的连接
+			dockerInfoService.closeClient(dockerInfoService.getByKey(id, getRequest()));
 			this.check(dockerInfoModel, certExist, savePath);
 			dockerInfoService.updateById(dockerInfoModel, getRequest());
 		}
@@ -224,6 +226,8 @@ public class DockerInfoController extends BaseServerController {
 				FileUtil.moveContent(savePath, FileUtil.file(generateCertPath), true);
 			}
 		}
+		// 证书可能已经变更，需要重新建立连接
+		dockerInfoService.closeClient(dockerInfoModel);
 		IPlugin plugin = PluginFactory.getPlugin(DockerInfoService.DOCKER_CHECK_PLUGIN_NAME);
 		boolean ok = (boolean) plugin.execute("ping", dockerInfoModel.toParameter());
 		Assert.state(ok, "无法连接 docker 请检查 host 或者 TLS 证书");
@@ -244,6 +248,7 @@ public class DockerInfoController extends BaseServerController {
 				FileUtil.del(infoModel.generateCertPath());
 			}
 			dockerInfoService.delByKey(id);
+			dockerInfoService.closeClient(infoModel);
 		}
 		return JsonMessage.getString(200, "删除成功");
 	}
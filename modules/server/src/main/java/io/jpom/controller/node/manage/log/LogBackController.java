@@ -99,6 +99,18 @@ public class LogBackController extends BaseServerController {
 		return JsonMessage.getString(200, "", info);
 	}
 
+	/**
+	 * 向前读取控制台日志
+	 *
+	 * @return json
+	 */
+	@RequestMapping(value = "read-before", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
+	@ResponseBody
+	@Feature(method = MethodFeature.LIST)
+	public String readBefore() {
+		return NodeForward.request(getNode(), getRequest(), NodeUrl.MANAGE_LOG_READ_BEFORE).toString();
+	}
+
 	/**
 	 * 重置日志
 	 *
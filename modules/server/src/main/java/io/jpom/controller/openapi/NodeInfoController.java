@@ -38,10 +38,12 @@ import io.jpom.common.ServerOpenApi;
 import io.jpom.common.interceptor.NotLogin;
 import io.jpom.model.data.NodeModel;
 import io.jpom.model.data.WorkspaceModel;
+import io.jpom.service.node.NodePushEventService;
 import io.jpom.service.node.NodeService;
 import io.jpom.service.system.WorkspaceService;
 import org.springframework.http.MediaType;
 import org.springframework.util.Assert;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
@@ -62,11 +64,14 @@ public class NodeInfoController extends AbstractController {
 
 	private final NodeService nodeService;
 	private final WorkspaceService workspaceService;
+	private final NodePushEventService nodePushEventService;
 
 	public NodeInfoController(NodeService nodeService,
-							  WorkspaceService workspaceService) {
+							  WorkspaceService workspaceService,
+							  NodePushEventService nodePushEventService) {
 		this.nodeService = nodeService;
 		this.workspaceService = workspaceService;
+		this.nodePushEventService = nodePushEventService;
 	}
 
 	/**
@@ -80,6 +85,19 @@ public class NodeInfoController extends AbstractController {
 		return JsonMessage.getString(200, "操作成功");
 	}
 
+	/**
+	 * 接收插件端推送的事件
+	 *
+	 * @param jsonObject 事件
+	 * @return json 已经处理的最大编号和已经保存的执行记录id
+	 */
+	@RequestMapping(value = ServerOpenApi.PUSH_EVENT, method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
+	public String pushEvent(@RequestBody JSONObject jsonObject) throws Exception {
+		String authorize = getRequest().getHeader(ServerOpenApi.AGENT_AUTHORIZE_HEAD);
+		JSONObject result = nodePushEventService.receive(authorize, jsonObject);
+		return JsonMessage.getString(200, "", result);
+	}
+
 	/**
 	 * 接收节点推送的信息
 	 * <p>
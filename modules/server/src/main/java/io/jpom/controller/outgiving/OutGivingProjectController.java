@@ -24,8 +24,10 @@ package io.jpom.controller.outgiving;
 
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.convert.Convert;
+import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.BooleanUtil;
+import cn.hutool.core.util.ObjectUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.http.HttpUtil;
 import cn.jiangzeyin.common.DefaultSystemLog;
@@ -44,10 +46,12 @@ import io.jpom.model.data.NodeModel;
 import io.jpom.model.data.OutGivingModel;
 import io.jpom.model.data.OutGivingNodeProject;
 import io.jpom.model.data.ServerWhitelist;
+import io.jpom.model.log.OutGivingLog;
 import io.jpom.outgiving.OutGivingRun;
 import io.jpom.permission.ClassFeature;
 import io.jpom.permission.Feature;
 import io.jpom.permission.MethodFeature;
+import io.jpom.service.dblog.DbOutGivingLogService;
 import io.jpom.service.node.OutGivingServer;
 import io.jpom.service.node.ProjectInfoCacheService;
 import io.jpom.system.ConfigBean;
@@ -63,6 +67,7 @@ import javax.servlet.http.HttpServletRequest;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -81,13 +86,16 @@ public class OutGivingProjectController extends BaseServerController {
 	private final OutGivingServer outGivingServer;
 	private final ProjectInfoCacheService projectInfoCacheService;
 	private final OutGivingWhitelistService outGivingWhitelistService;
+	private final DbOutGivingLogService dbOutGivingLogService;
 
 	public OutGivingProjectController(OutGivingServer outGivingServer,
 									  ProjectInfoCacheService projectInfoCacheService,
-									  OutGivingWhitelistService outGivingWhitelistService) {
+									  OutGivingWhitelistService outGivingWhitelistService,
+									  DbOutGivingLogService dbOutGivingLogService) {
 		this.outGivingServer = outGivingServer;
 		this.projectInfoCacheService = projectInfoCacheService;
 		this.outGivingWhitelistService = outGivingWhitelistService;
+		this.dbOutGivingLogService = dbOutGivingLogService;
 	}
 
 	@RequestMapping(value = "getProjectStatus", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
@@ -103,7 +111,16 @@ public class OutGivingProjectController extends BaseServerController {
 		OutGivingModel outGivingServerItem = outGivingServer.getByKey(id, request);
 		Objects.requireNonNull(outGivingServerItem, "没有数据");
 		List<OutGivingNodeProject> outGivingNodeProjectList = outGivingServerItem.outGivingNodeProjectList();
+		// 节点项目的分发状态取最近一次的分发记录
+		Map<String, OutGivingLog> outGivingLogMap = dbOutGivingLogService.listLatestByTarget(id);
 		List<JSONObject> collect = outGivingNodeProjectList.stream().map(outGivingNodeProject -> {
+			OutGivingLog outGivingLog = outGivingLogMap.get(DbOutGivingLogService.targetKey(outGivingNodeProject.getNodeId(), outGivingNodeProject.getProjectId()));
+			if (outGivingLog != null) {
+				outGivingNodeProject.setStatus(outGivingLog.getStatus());
+				outGivingNodeProject.setResult(outGivingLog.getResult());
+				Long lastTime = ObjectUtil.defaultIfNull(outGivingLog.getEndTime(), outGivingLog.getStartTime());
+				outGivingNodeProject.setLastOutGivingTime(lastTime == null ? null : DateUtil.formatDateTime(DateUtil.date(lastTime)));
+			}
 			NodeModel nodeModel = nodeService.getByKey(outGivingNodeProject.getNodeId());
 			JSONObject jsonObject = new JSONObject();
 
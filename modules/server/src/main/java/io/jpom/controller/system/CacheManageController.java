@@ -26,10 +26,12 @@ import cn.hutool.core.io.FileUtil;
 import cn.jiangzeyin.common.JsonMessage;
 import cn.jiangzeyin.common.validator.ValidatorItem;
 import cn.jiangzeyin.common.validator.ValidatorRule;
+import io.jpom.build.BuildExecuteService;
 import io.jpom.build.BuildUtil;
 import io.jpom.common.BaseServerController;
 import io.jpom.common.JpomManifest;
 import io.jpom.common.forward.NodeForward;
+import io.jpom.common.forward.NodeUploadResource;
 import io.jpom.common.forward.NodeUrl;
 import io.jpom.controller.LoginControl;
 import io.jpom.permission.SystemPermission;
@@ -37,9 +39,12 @@ import io.jpom.permission.ClassFeature;
 import io.jpom.permission.Feature;
 import io.jpom.permission.MethodFeature;
 import io.jpom.plugin.PluginFactory;
+import io.jpom.service.h2db.DbLogWriter;
 import io.jpom.socket.ServiceFileTailWatcher;
 import io.jpom.system.ConfigBean;
+import io.jpom.system.db.DbSlowSqlLog;
 import io.jpom.util.CommandUtil;
+import io.jpom.util.SocketSessionUtil;
 import io.jpom.cron.CronUtils;
 import org.springframework.http.MediaType;
 import org.springframework.util.Assert;
@@ -88,6 +93,12 @@ public class CacheManageController extends BaseServerController {
 
 		map.put("taskList", CronUtils.list());
 		map.put("pluginSize", PluginFactory.size());
+		map.put("nodeTransportList", NodeForward.transportStat());
+		map.put("nodeUploadList", NodeUploadResource.list());
+		map.put("socketSession", SocketSessionUtil.stat());
+		map.put("slowSqlList", DbSlowSqlLog.list());
+		map.put("dbLogWriter", DbLogWriter.getInstance().stat());
+		map.put("buildQueue", BuildExecuteService.queueStat());
 
 		return JsonMessage.getString(200, "ok", map);
 	}
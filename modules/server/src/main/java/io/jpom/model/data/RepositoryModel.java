@@ -29,6 +29,7 @@ import io.jpom.model.BaseEnum;
 import io.jpom.model.BaseWorkspaceModel;
 import io.jpom.model.enums.GitProtocolEnum;
 import io.jpom.service.h2db.TableName;
+import io.jpom.system.ServerExtConfigBean;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -169,6 +170,10 @@ public class RepositoryModel extends BaseWorkspaceModel {
         map.put("username", this.getUserName());
         map.put("password", this.getPassword());
         map.put("rsaFile", BuildUtil.getRepositoryRsaFile(this));
+        if (StrUtil.isNotEmpty(this.getId()) && ServerExtConfigBean.getInstance().isBuildGitMirror()) {
+            // 共用仓库镜像
+            map.put("mirrorPath", BuildUtil.getRepositoryMirrorDir(this.getId()));
+        }
         return map;
     }
 
@@ -24,6 +24,7 @@ package io.jpom.model.data;
 
 import cn.hutool.crypto.SecureUtil;
 import io.jpom.model.BaseDbModel;
+import io.jpom.service.h2db.TableIndex;
 import io.jpom.service.h2db.TableName;
 
 /**
@@ -31,6 +32,8 @@ import io.jpom.service.h2db.TableName;
  * @since 2021/12/4
  */
 @TableName(value = "USER_BIND_WORKSPACE", name = "用户工作空间关系表")
+@TableIndex(name = "USER_INDEX", fields = {"userId"})
+@TableIndex(name = "WORKSPACE_INDEX", fields = {"workspaceId"})
 public class UserBindWorkspaceModel extends BaseDbModel {
 
 	private String userId;
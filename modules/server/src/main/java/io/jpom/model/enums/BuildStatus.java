@@ -40,6 +40,7 @@ public enum BuildStatus implements BaseEnum {
     PubSuccess(5, "发布成功"),
     PubError(6, "发布失败"),
     Cancel(7, "取消构建"),
+    Waiting(8, "排队中"),
     ;
 
     private final int code;
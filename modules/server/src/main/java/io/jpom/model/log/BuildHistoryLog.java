@@ -29,6 +29,7 @@ import io.jpom.model.BaseWorkspaceModel;
 import io.jpom.model.data.BuildInfoModel;
 import io.jpom.model.enums.BuildReleaseMethod;
 import io.jpom.model.enums.BuildStatus;
+import io.jpom.service.h2db.TableIndex;
 import io.jpom.service.h2db.TableName;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -42,6 +43,8 @@ import lombok.EqualsAndHashCode;
  **/
 @EqualsAndHashCode(callSuper = true)
 @TableName(value = "BUILDHISTORYLOG", name = "构建历史")
+@TableIndex(name = "BUILD_DATA_INDEX", fields = {"buildDataId", "startTime"})
+@TableIndex(name = "WORKSPACE_INDEX", fields = {"workspaceId", "startTime"})
 @Data
 public class BuildHistoryLog extends BaseWorkspaceModel {
 	/**
@@ -25,6 +25,7 @@ package io.jpom.model.log;
 import cn.hutool.core.util.ObjectUtil;
 import io.jpom.model.BaseWorkspaceModel;
 import io.jpom.model.data.MonitorModel;
+import io.jpom.service.h2db.TableIndex;
 import io.jpom.service.h2db.TableName;
 
 /**
@@ -34,6 +35,8 @@ import io.jpom.service.h2db.TableName;
  * @since 2019/7/13
  */
 @TableName(value = "MONITORNOTIFYLOG", name = "监控通知")
+@TableIndex(name = "MONITOR_INDEX", fields = {"monitorId", "nodeId", "projectId", "createTime"})
+@TableIndex(name = "WORKSPACE_INDEX", fields = {"workspaceId", "createTimeMillis"})
 public class MonitorNotifyLog extends BaseWorkspaceModel {
 
 	/**
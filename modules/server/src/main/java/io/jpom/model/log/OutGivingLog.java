@@ -24,6 +24,7 @@ package io.jpom.model.log;
 
 import io.jpom.model.BaseWorkspaceModel;
 import io.jpom.model.data.OutGivingNodeProject;
+import io.jpom.service.h2db.TableIndex;
 import io.jpom.service.h2db.TableName;
 
 /**
@@ -33,6 +34,9 @@ import io.jpom.service.h2db.TableName;
  * @since 2019/7/19
  **/
 @TableName(value = "OUTGIVINGLOG", name = "分发日志")
+@TableIndex(name = "OUT_GIVING_INDEX", fields = {"outGivingId", "startTime"})
+@TableIndex(name = "OUT_GIVING_TARGET_INDEX", fields = {"outGivingId", "nodeId", "projectId", "startTime"})
+@TableIndex(name = "WORKSPACE_INDEX", fields = {"workspaceId", "createTimeMillis"})
 public class OutGivingLog extends BaseWorkspaceModel {
 	/**
 	 * 分发id
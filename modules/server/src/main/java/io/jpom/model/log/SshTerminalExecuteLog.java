@@ -26,6 +26,7 @@ import cn.hutool.core.util.StrUtil;
 import io.jpom.JpomApplication;
 import io.jpom.model.BaseWorkspaceModel;
 import io.jpom.model.data.UserModel;
+import io.jpom.service.h2db.TableIndex;
 import io.jpom.service.h2db.TableName;
 
 /**
@@ -35,6 +36,8 @@ import io.jpom.service.h2db.TableName;
  * @since 2021/08/04
  */
 @TableName(value = "SSHTERMINALEXECUTELOG",name = "ssh 终端执行日志")
+@TableIndex(name = "SSH_INDEX", fields = {"sshId", "createTimeMillis"})
+@TableIndex(name = "WORKSPACE_INDEX", fields = {"workspaceId", "createTimeMillis"})
 public class SshTerminalExecuteLog extends BaseWorkspaceModel {
 	/**
 	 * 操作ip
@@ -23,6 +23,7 @@
 package io.jpom.model.log;
 
 import io.jpom.model.BaseWorkspaceModel;
+import io.jpom.service.h2db.TableIndex;
 import io.jpom.service.h2db.TableName;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -35,6 +36,9 @@ import lombok.EqualsAndHashCode;
  */
 @EqualsAndHashCode(callSuper = true)
 @TableName(value = "USEROPERATELOGV1", name = "用户操作日志")
+@TableIndex(name = "USER_INDEX", fields = {"userId", "optTime"})
+@TableIndex(name = "WORKSPACE_INDEX", fields = {"workspaceId", "createTimeMillis"})
+@TableIndex(name = "REQ_INDEX", fields = {"reqId"})
 @Data
 public class UserOperateLogV1 extends BaseWorkspaceModel {
     /**
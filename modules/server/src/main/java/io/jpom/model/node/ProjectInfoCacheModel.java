@@ -23,6 +23,7 @@
 package io.jpom.model.node;
 
 import io.jpom.model.BaseNodeModel;
+import io.jpom.service.h2db.TableIndex;
 import io.jpom.service.h2db.TableName;
 
 /**
@@ -30,6 +31,7 @@ import io.jpom.service.h2db.TableName;
  * @since 2021/12/5
  */
 @TableName(value = "PROJECT_INFO", name = "项目信息")
+@TableIndex(name = "NODE_INDEX", fields = {"nodeId", "workspaceId"})
 public class ProjectInfoCacheModel extends BaseNodeModel {
 
 	private String projectId;
@@ -36,6 +36,7 @@ import cn.jiangzeyin.common.JsonMessage;
 import cn.jiangzeyin.common.spring.SpringUtil;
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
+import io.jpom.common.forward.NodeFanOutResult;
 import io.jpom.common.forward.NodeForward;
 import io.jpom.common.forward.NodeUrl;
 import io.jpom.model.data.MonitorModel;
@@ -54,6 +55,7 @@ import io.jpom.service.user.UserService;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 /**
@@ -88,15 +90,26 @@ public class MonitorItem implements Task {
         this.monitorModel = monitorService.getByKey(monitorId);
         List<MonitorModel.NodeProject> nodeProjects = monitorModel.projects();
         //
-        List<Boolean> collect = nodeProjects.stream().map(nodeProject -> {
+        Map<String, List<String>> nodeProjectMap = new HashMap<>(nodeProjects.size());
+        List<NodeModel> nodeModels = nodeProjects.stream().map(nodeProject -> {
             String nodeId = nodeProject.getNode();
             NodeModel nodeModel = nodeService.getByKey(nodeId);
             if (nodeModel == null) {
-                return true;
+                return null;
             }
-            return this.reqNodeStatus(nodeModel, nodeProject.getProjects());
-        }).filter(aBoolean -> !aBoolean).collect(Collectors.toList());
-        boolean allRun = CollUtil.isEmpty(collect);
+            nodeProjectMap.put(nodeModel.getId(), nodeProject.getProjects());
+            return nodeModel;
+        }).filter(Objects::nonNull).collect(Collectors.toList());
+        // 并行检查所有节点
+        List<NodeFanOutResult<Boolean>> results = NodeForward.fanOut(nodeModels,
+            nodeModel -> this.reqNodeStatus(nodeModel, nodeProjectMap.get(nodeModel.getId())));
+        boolean allRun = results.stream().allMatch(result -> {
+            if (!result.isSuccess()) {
+                DefaultSystemLog.getLog().error("监控 {} 节点异常 {}", result.getNodeModel().getName(), result.getError().getMessage());
+                return false;
+            }
+            return result.getData();
+        });
         // 报警状态
         monitorService.setAlarm(monitorModel.getId(), !allRun);
     }
@@ -288,7 +301,7 @@ public class MonitorItem implements Task {
         monitorNotifyLog.setNotifyStyle(MonitorModel.NotifyType.webhook.getCode());
         monitorNotifyLog.setNotifyObject(webhook);
         //
-        dbMonitorNotifyLogService.insert(monitorNotifyLog);
+        dbMonitorNotifyLogService.insertAsync(monitorNotifyLog);
         String logId = monitorNotifyLog.getId();
         ThreadUtil.execute(() -> {
             try {
@@ -313,7 +326,7 @@ public class MonitorItem implements Task {
                 monitorNotifyLog.setNotifyStyle(notify1.getStyle());
                 monitorNotifyLog.setNotifyObject(notify1.getValue());
                 //
-                dbMonitorNotifyLogService.insert(monitorNotifyLog);
+                dbMonitorNotifyLogService.insertAsync(monitorNotifyLog);
                 this.send(notify1, monitorNotifyLog.getId(), monitorNotifyLog.getTitle(), monitorNotifyLog.getContent());
                 success = true;
             }
@@ -325,7 +338,7 @@ public class MonitorItem implements Task {
                 monitorNotifyLog.setNotifyStyle(notify1.getStyle());
                 monitorNotifyLog.setNotifyObject(notify1.getValue());
                 //
-                dbMonitorNotifyLogService.insert(monitorNotifyLog);
+                dbMonitorNotifyLogService.insertAsync(monitorNotifyLog);
                 this.send(notify1, monitorNotifyLog.getId(), monitorNotifyLog.getTitle(), monitorNotifyLog.getContent());
                 success = true;
             }
@@ -337,7 +350,7 @@ public class MonitorItem implements Task {
                 monitorNotifyLog.setNotifyStyle(notify1.getStyle());
                 monitorNotifyLog.setNotifyObject(notify1.getValue());
                 //
-                dbMonitorNotifyLogService.insert(monitorNotifyLog);
+                dbMonitorNotifyLogService.insertAsync(monitorNotifyLog);
                 this.send(notify1, monitorNotifyLog.getId(), monitorNotifyLog.getTitle(), monitorNotifyLog.getContent());
                 success = true;
             }
@@ -350,7 +363,7 @@ public class MonitorItem implements Task {
         monitorNotifyLog.setNotifyStyle(MonitorModel.NotifyType.mail.getCode());
         monitorNotifyLog.setNotifyStatus(false);
         monitorNotifyLog.setNotifyError("报警联系人异常:" + (item == null ? "联系人不存在" : ""));
-        dbMonitorNotifyLogService.insert(monitorNotifyLog);
+        dbMonitorNotifyLogService.insertAsync(monitorNotifyLog);
     }
 
     private void send(MonitorModel.Notify notify, String logId, String title, String context) {
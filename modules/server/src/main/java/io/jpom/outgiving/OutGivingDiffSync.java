@@ -0,0 +1,187 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Code Technology Studio
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jpom.outgiving;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.date.BetweenFormatter;
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.date.SystemClock;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IORuntimeException;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.http.HttpStatus;
+import cn.jiangzeyin.common.JsonMessage;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import io.jpom.common.forward.NodeForward;
+import io.jpom.common.forward.NodeUrl;
+import io.jpom.model.AfterOpt;
+import io.jpom.model.data.NodeModel;
+import io.jpom.model.data.UserModel;
+import io.jpom.system.ConfigBean;
+import io.jpom.util.FileSha1Manifest;
+import io.jpom.util.StringUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 差异同步项目文件
+ * <p>
+ * 对比节点项目文件后，将需要更新的文件打包成一个压缩包和需要删除的文件一次提交到节点
+ *
+ * @author bwcx_jzy
+ * @since 2022/5/20
+ */
+public class OutGivingDiffSync {
+
+    /**
+     * 差异同步项目文件
+     *
+     * @param resultFile 需要同步的文件或者文件夹
+     * @param projectId  项目id
+     * @param afterOpt   同步后的操作
+     * @param clearOld   是否删除项目中多余的文件
+     * @param nodeModel  节点
+     * @param userModel  操作人
+     * @param logger     日志
+     * @return 同步结果
+     */
+    public static JsonMessage<String> sync(File resultFile, String projectId,
+                                           AfterOpt afterOpt,
+                                           boolean clearOld,
+                                           NodeModel nodeModel,
+                                           UserModel userModel,
+                                           Consumer<String> logger) {
+        String resultFileParent = resultFile.isFile() ?
+            FileUtil.getAbsolutePath(resultFile.getParent()) : FileUtil.getAbsolutePath(resultFile);
+        //
+        long start = SystemClock.now();
+        List<JSONObject> collect = FileSha1Manifest.create(resultFile, resultFileParent);
+        logger.accept(StrUtil.format("计算文件签名完成,共 {} 个文件,耗时 {}", CollUtil.size(collect), DateUtil.formatBetween(SystemClock.now() - start, BetweenFormatter.Level.MILLISECOND)));
+        //
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("id", projectId);
+        jsonObject.put("data", collect);
+        JsonMessage<JSONObject> requestBody = NodeForward.requestBody(nodeModel, NodeUrl.MANAGE_FILE_DIFF_FILE, userModel, jsonObject);
+        if (requestBody.getCode() != HttpStatus.HTTP_OK) {
+            return new JsonMessage<>(requestBody.getCode(), "对比项目文件失败：" + requestBody);
+        }
+        JSONObject data = requestBody.getData();
+        List<String> diff = names(data.getJSONArray("diff"));
+        // 清空发布才需要删除
+        List<String> del = clearOld ? names(data.getJSONArray("del")) : CollUtil.newArrayList();
+        if (clearOld) {
+            logger.accept(StrUtil.format("对比文件结果,文件 {} 个、需要上传 {} 个、需要删除 {} 个", CollUtil.size(collect), diff.size(), del.size()));
+        } else {
+            logger.accept(StrUtil.format("对比文件结果,文件 {} 个、需要上传 {} 个", CollUtil.size(collect), diff.size()));
+        }
+        if (diff.isEmpty()) {
+            if (del.isEmpty()) {
+                return new JsonMessage<>(200, "没有需要同步的文件");
+            }
+            return delete(projectId, del, nodeModel, userModel);
+        }
+        File zipFile = FileUtil.file(ConfigBean.getInstance().getTempPath(), "diff_sync", IdUtil.fastSimpleUUID() + ".zip");
+        try {
+            zip(zipFile, resultFileParent, diff);
+            JSONObject syncData = new JSONObject();
+            syncData.put("id", projectId);
+            syncData.put("file", zipFile);
+            if (!del.isEmpty()) {
+                syncData.put("delFiles", JSONArray.toJSONString(del));
+            }
+            if (afterOpt != AfterOpt.No) {
+                syncData.put("after", afterOpt.getCode());
+            }
+            JsonMessage<String> jsonMessage = NodeForward.request(nodeModel, NodeUrl.MANAGE_FILE_BATCH_SYNC, userModel, syncData);
+            if (!NodeForward.isNotFound(jsonMessage)) {
+                return jsonMessage;
+            }
+        } finally {
+            FileUtil.del(zipFile);
+        }
+        // 低版本的插件端不支持批量同步，逐个上传
+        logger.accept("节点不支持批量同步,逐个上传文件");
+        if (!del.isEmpty()) {
+            JsonMessage<String> jsonMessage = delete(projectId, del, nodeModel, userModel);
+            if (jsonMessage.getCode() != HttpStatus.HTTP_OK) {
+                return jsonMessage;
+            }
+        }
+        JsonMessage<String> jsonMessage = null;
+        for (int i = 0; i < diff.size(); i++) {
+            boolean last = (i == diff.size() - 1);
+            File file = FileUtil.file(resultFileParent, diff.get(i));
+            String startPath = StringUtil.delStartPath(file, resultFileParent, false);
+            jsonMessage = OutGivingRun.fileUpload(file, startPath,
+                projectId, false, last ? afterOpt : AfterOpt.No, nodeModel, userModel, false);
+            if (jsonMessage.getCode() != HttpStatus.HTTP_OK) {
+                return new JsonMessage<>(jsonMessage.getCode(), "同步项目文件失败：" + jsonMessage);
+            }
+        }
+        return jsonMessage;
+    }
+
+    private static JsonMessage<String> delete(String projectId, List<String> del, NodeModel nodeModel, UserModel userModel) {
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("id", projectId);
+        jsonObject.put("data", del.stream().map(name -> {
+            JSONObject item = new JSONObject();
+            item.put("name", name);
+            return item;
+        }).collect(Collectors.toList()));
+        JsonMessage<String> jsonMessage = NodeForward.requestBody(nodeModel, NodeUrl.MANAGE_FILE_BATCH_DELETE, userModel, jsonObject);
+        if (jsonMessage.getCode() != HttpStatus.HTTP_OK) {
+            return new JsonMessage<>(jsonMessage.getCode(), "删除项目文件失败：" + jsonMessage);
+        }
+        return jsonMessage;
+    }
+
+    private static List<String> names(JSONArray jsonArray) {
+        if (jsonArray == null) {
+            return CollUtil.newArrayList();
+        }
+        return jsonArray.stream()
+            .map(o -> ((JSONObject) o).getString("name"))
+            .collect(Collectors.toList());
+    }
+
+    private static void zip(File zipFile, String rootPath, List<String> names) {
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(FileUtil.getOutputStream(zipFile))) {
+            for (String name : names) {
+                zipOutputStream.putNextEntry(new ZipEntry(name));
+                FileUtil.writeToStream(FileUtil.file(rootPath, name), zipOutputStream);
+                zipOutputStream.closeEntry();
+            }
+        } catch (IOException e) {
+            throw new IORuntimeException(e);
+        }
+    }
+}
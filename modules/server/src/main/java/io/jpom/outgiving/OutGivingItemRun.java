@@ -22,9 +22,8 @@
  */
 package io.jpom.outgiving;
 
-import cn.hutool.core.collection.CollUtil;
-import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.date.SystemClock;
+import cn.hutool.core.io.resource.Resource;
 import cn.hutool.core.util.EnumUtil;
 import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.ObjectUtil;
@@ -33,8 +32,12 @@ import cn.hutool.http.HttpStatus;
 import cn.jiangzeyin.common.DefaultSystemLog;
 import cn.jiangzeyin.common.JsonMessage;
 import cn.jiangzeyin.common.spring.SpringUtil;
+import com.alibaba.fastjson.JSONObject;
 import io.jpom.JpomApplication;
+import io.jpom.common.forward.NodeForward;
+import io.jpom.common.forward.NodeUrl;
 import io.jpom.model.AfterOpt;
+import io.jpom.model.RunMode;
 import io.jpom.model.data.NodeModel;
 import io.jpom.model.data.OutGivingModel;
 import io.jpom.model.data.OutGivingNodeProject;
@@ -42,13 +45,10 @@ import io.jpom.model.data.UserModel;
 import io.jpom.model.log.OutGivingLog;
 import io.jpom.service.dblog.DbOutGivingLogService;
 import io.jpom.service.node.NodeService;
-import io.jpom.service.node.OutGivingServer;
-import org.springframework.util.Assert;
+import io.jpom.service.node.ProjectInfoCacheService;
 
 import java.io.File;
-import java.util.List;
 import java.util.concurrent.Callable;
-import java.util.stream.Collectors;
 
 /**
  * @author bwcx_jzy
@@ -60,25 +60,54 @@ public class OutGivingItemRun implements Callable<OutGivingNodeProject.Status> {
 	private final OutGivingNodeProject outGivingNodeProject;
 	private final NodeModel nodeModel;
 	private final File file;
+	/**
+	 * 已经读取的文件内容，多个节点共用
+	 */
+	private final Resource fileResource;
 	private final AfterOpt afterOpt;
 	private final UserModel userModel;
 	private final boolean unzip;
 	private final boolean clearOld;
+	/**
+	 * 差异同步
+	 */
+	private final boolean diffSync;
 	/**
 	 * 数据库记录id
 	 */
 	private final String logId;
+	/**
+	 * 分发记录是否已经保存
+	 */
+	private boolean logInserted;
+	/**
+	 * 项目是否会运行进程，检查运行状态时查询
+	 */
+	private Boolean hasProcess;
+
+	public OutGivingItemRun(OutGivingModel item,
+							OutGivingNodeProject outGivingNodeProject,
+							File file,
+							UserModel userModel,
+							boolean unzip,
+							boolean diffSync) {
+		this(item, outGivingNodeProject, file, null, userModel, unzip, diffSync);
+	}
 
 	public OutGivingItemRun(OutGivingModel item,
 							OutGivingNodeProject outGivingNodeProject,
 							File file,
+							Resource fileResource,
 							UserModel userModel,
-							boolean unzip) {
+							boolean unzip,
+							boolean diffSync) {
 		this.outGivingId = item.getId();
 		this.unzip = unzip;
+		this.diffSync = diffSync;
 		this.clearOld = item.clearOld();
 		this.outGivingNodeProject = outGivingNodeProject;
 		this.file = file;
+		this.fileResource = fileResource;
 		this.afterOpt = ObjectUtil.defaultIfNull(EnumUtil.likeValueOf(AfterOpt.class, item.getAfterOpt()), AfterOpt.No);
 		//
 		NodeService nodeService = SpringUtil.getBean(NodeService.class);
@@ -95,11 +124,18 @@ public class OutGivingItemRun implements Callable<OutGivingNodeProject.Status> {
 			this.updateStatus(this.outGivingId, this.outGivingNodeProject,
 					OutGivingNodeProject.Status.Ing, "开始分发");
 			//
-			JsonMessage<String> jsonMessage = OutGivingRun.fileUpload(file, null,
-					this.outGivingNodeProject.getProjectId(),
-					unzip,
-					afterOpt,
-					this.nodeModel, this.userModel, this.clearOld);
+			JsonMessage<String> jsonMessage;
+			if (this.diffSync) {
+				jsonMessage = OutGivingDiffSync.sync(file, this.outGivingNodeProject.getProjectId(),
+						afterOpt, this.clearOld, this.nodeModel, this.userModel,
+						msg -> this.updateStatus(this.outGivingId, this.outGivingNodeProject, OutGivingNodeProject.Status.Ing, msg));
+			} else {
+				jsonMessage = OutGivingRun.fileUpload(file, this.fileResource, null,
+						this.outGivingNodeProject.getProjectId(),
+						unzip,
+						afterOpt,
+						this.nodeModel, this.userModel, this.clearOld);
+			}
 			if (jsonMessage.getCode() == HttpStatus.HTTP_OK) {
 				result = OutGivingNodeProject.Status.Ok;
 			} else {
@@ -114,30 +150,82 @@ public class OutGivingItemRun implements Callable<OutGivingNodeProject.Status> {
 		return result;
 	}
 
+	public OutGivingNodeProject getOutGivingNodeProject() {
+		return outGivingNodeProject;
+	}
+
+	/**
+	 * 节点项目是否正常运行
+	 *
+	 * @return 查询失败、项目未运行返回 false
+	 */
+	public boolean isRunning() {
+		try {
+			if (!this.hasProcess()) {
+				// 纯文件项目没有进程，不需要等待运行
+				return true;
+			}
+			JsonMessage<JSONObject> jsonMessage = NodeForward.requestBySys(this.nodeModel, NodeUrl.Manage_GetProjectStatus, "id", this.outGivingNodeProject.getProjectId());
+			if (jsonMessage.getCode() != HttpStatus.HTTP_OK) {
+				return false;
+			}
+			JSONObject data = jsonMessage.getData();
+			return data != null && data.getIntValue("pId") > 0;
+		} catch (Exception e) {
+			DefaultSystemLog.getLog().warn("查询 {} 节点项目 {} 状态失败 {}", this.nodeModel.getName(), this.outGivingNodeProject.getProjectId(), e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * 节点项目是否会运行进程，纯文件项目不会产生进程
+	 *
+	 * @return 查询失败返回 true
+	 */
+	private boolean hasProcess() {
+		if (this.hasProcess == null) {
+			ProjectInfoCacheService projectInfoCacheService = SpringUtil.getBean(ProjectInfoCacheService.class);
+			JSONObject item = projectInfoCacheService.getItem(this.nodeModel, this.outGivingNodeProject.getProjectId());
+			if (item == null) {
+				return true;
+			}
+			this.hasProcess = !StrUtil.equals(item.getString("runMode"), RunMode.File.name());
+		}
+		return this.hasProcess;
+	}
+
 	/**
-	 * 更新状态
+	 * 更新状态，只修改当前节点项目的分发记录
 	 *
 	 * @param outGivingId              分发id
 	 * @param outGivingNodeProjectItem 分发项
 	 * @param status                   状态
 	 * @param msg                      消息描述
 	 */
-	public void updateStatus(String outGivingId,
-							 OutGivingNodeProject outGivingNodeProjectItem,
-							 OutGivingNodeProject.Status status,
-							 String msg) {
+	public synchronized void updateStatus(String outGivingId,
+										  OutGivingNodeProject outGivingNodeProjectItem,
+										  OutGivingNodeProject.Status status,
+										  String msg) {
 		String userId = this.userModel == null ? JpomApplication.SYSTEM_ID : this.userModel.getId();
-		updateStatus(this.logId, outGivingId, outGivingNodeProjectItem, status, msg, userId);
+		OutGivingLog outGivingLog = createLog(this.logId, outGivingId, outGivingNodeProjectItem, status, msg, userId);
+		DbOutGivingLogService dbOutGivingLogService = SpringUtil.getBean(DbOutGivingLogService.class);
+		if (this.logInserted) {
+			dbOutGivingLogService.update(outGivingLog);
+		} else {
+			dbOutGivingLogService.insert(outGivingLog);
+			this.logInserted = true;
+		}
 	}
 
 	/**
-	 * 更新状态
+	 * 新增一条分发记录
 	 *
-	 * @param logId                    日志ID
+	 * @param logId                    日志ID，为空自动生成
 	 * @param outGivingId              分发id
 	 * @param outGivingNodeProjectItem 分发项
 	 * @param status                   状态
 	 * @param msg                      消息描述
+	 * @param userId                   操作人
 	 */
 	public static void updateStatus(String logId,
 									String outGivingId,
@@ -145,59 +233,28 @@ public class OutGivingItemRun implements Callable<OutGivingNodeProject.Status> {
 									OutGivingNodeProject.Status status,
 									String msg,
 									String userId) {
-		synchronized (outGivingId.intern()) {
-			OutGivingServer outGivingServer = SpringUtil.getBean(OutGivingServer.class);
-			OutGivingModel outGivingModel = outGivingServer.getByKey(outGivingId);
-
-			List<OutGivingNodeProject> outGivingNodeProjects = outGivingModel.outGivingNodeProjectList();
-			Assert.notEmpty(outGivingNodeProjects, "没有分发项目");
-			OutGivingNodeProject finOutGivingNodeProject = null;
-			//
-			for (OutGivingNodeProject outGivingNodeProject : outGivingNodeProjects) {
-				if (!outGivingNodeProject.getProjectId().equalsIgnoreCase(outGivingNodeProjectItem.getProjectId()) ||
-						!outGivingNodeProject.getNodeId().equalsIgnoreCase(outGivingNodeProjectItem.getNodeId())) {
-					continue;
-				}
-				outGivingNodeProject.setStatus(status.getCode());
-				outGivingNodeProject.setResult(msg);
-				outGivingNodeProject.setLastOutGivingTime(DateUtil.now());
-				//
-				finOutGivingNodeProject = outGivingNodeProject;
-			}
-			{
-				List<OutGivingNodeProject.Status> collect = outGivingNodeProjects
-						.stream()
-						.map(outGivingNodeProject -> EnumUtil.likeValueOf(OutGivingNodeProject.Status.class, outGivingNodeProject.getStatus()))
-						.collect(Collectors.toList());
-				OutGivingModel.Status outGivingStatus = CollUtil.contains(collect, OutGivingNodeProject.Status.Ing)
-						? OutGivingModel.Status.ING : OutGivingModel.Status.DONE;
-				// 更新分发数据
-				OutGivingModel outGivingModel1 = new OutGivingModel();
-				outGivingModel1.setId(outGivingId);
-				outGivingModel1.setStatus(outGivingStatus.getCode());
-				outGivingModel1.outGivingNodeProjectList(outGivingNodeProjects);
-				outGivingServer.update(outGivingModel1);
-			}
-			// 更新日志数据
-			OutGivingLog outGivingLog = new OutGivingLog();
-			outGivingLog.setId(StrUtil.emptyToDefault(logId, IdUtil.fastSimpleUUID()));
+		OutGivingLog outGivingLog = createLog(logId, outGivingId, outGivingNodeProjectItem, status, msg, userId);
+		DbOutGivingLogService dbOutGivingLogService = SpringUtil.getBean(DbOutGivingLogService.class);
+		dbOutGivingLogService.insert(outGivingLog);
+	}
 
-			if (finOutGivingNodeProject != null) {
-				outGivingLog.setNodeId(finOutGivingNodeProject.getNodeId());
-				outGivingLog.setProjectId(finOutGivingNodeProject.getProjectId());
-			}
-			outGivingLog.setModifyUser(userId);
-			outGivingLog.setOutGivingId(outGivingId);
-			outGivingLog.setResult(msg);
-			outGivingLog.setStatus(status.getCode());
-			DbOutGivingLogService dbOutGivingLogService = SpringUtil.getBean(DbOutGivingLogService.class);
-			if (status == OutGivingNodeProject.Status.Ing || status == OutGivingNodeProject.Status.Cancel) {
-				// 开始或者 取消都还没有记录
-				dbOutGivingLogService.insert(outGivingLog);
-			} else {
-				outGivingLog.setEndTime(SystemClock.now());
-				dbOutGivingLogService.update(outGivingLog);
-			}
+	private static OutGivingLog createLog(String logId,
+										  String outGivingId,
+										  OutGivingNodeProject outGivingNodeProjectItem,
+										  OutGivingNodeProject.Status status,
+										  String msg,
+										  String userId) {
+		OutGivingLog outGivingLog = new OutGivingLog();
+		outGivingLog.setId(StrUtil.emptyToDefault(logId, IdUtil.fastSimpleUUID()));
+		outGivingLog.setNodeId(outGivingNodeProjectItem.getNodeId());
+		outGivingLog.setProjectId(outGivingNodeProjectItem.getProjectId());
+		outGivingLog.setModifyUser(userId);
+		outGivingLog.setOutGivingId(outGivingId);
+		outGivingLog.setResult(msg);
+		outGivingLog.setStatus(status.getCode());
+		if (status != OutGivingNodeProject.Status.Ing) {
+			outGivingLog.setEndTime(SystemClock.now());
 		}
+		return outGivingLog;
 	}
 }
@@ -22,10 +22,16 @@
  */
 package io.jpom.outgiving;
 
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.date.SystemClock;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.resource.BytesResource;
+import cn.hutool.core.io.resource.Resource;
 import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.core.util.EnumUtil;
 import cn.hutool.core.util.ObjectUtil;
 import cn.hutool.core.util.StrUtil;
+import cn.jiangzeyin.common.DefaultSystemLog;
 import cn.jiangzeyin.common.JsonMessage;
 import cn.jiangzeyin.common.spring.SpringUtil;
 import com.alibaba.fastjson.JSONObject;
@@ -38,11 +44,14 @@ import io.jpom.model.data.OutGivingModel;
 import io.jpom.model.data.OutGivingNodeProject;
 import io.jpom.model.data.UserModel;
 import io.jpom.service.node.OutGivingServer;
+import io.jpom.system.ServerExtConfigBean;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
 
 /**
  * 分发线程
@@ -64,45 +73,157 @@ public class OutGivingRun {
 								File file,
 								UserModel userModel,
 								boolean unzip) {
+		startRun(id, file, userModel, unzip, false);
+	}
+
+	/**
+	 * 开始异步执行分发任务
+	 *
+	 * @param id        分发id
+	 * @param file      文件
+	 * @param userModel 操作的用户
+	 * @param unzip     解压
+	 * @param diffSync  差异同步（file 为需要同步的文件夹）
+	 */
+	public static void startRun(String id,
+								File file,
+								UserModel userModel,
+								boolean unzip,
+								boolean diffSync) {
 		OutGivingServer outGivingServer = SpringUtil.getBean(OutGivingServer.class);
 		OutGivingModel item = outGivingServer.getByKey(id);
 		Objects.requireNonNull(item, "不存在分发");
 		AfterOpt afterOpt = ObjectUtil.defaultIfNull(EnumUtil.likeValueOf(AfterOpt.class, item.getAfterOpt()), AfterOpt.No);
-
+		if (afterOpt != AfterOpt.Order_Restart && afterOpt != AfterOpt.Order_Must_Restart && afterOpt != AfterOpt.Restart && afterOpt != AfterOpt.No) {
+			throw new IllegalArgumentException("Not implemented " + afterOpt.getDesc());
+		}
 		//
 		List<OutGivingNodeProject> outGivingNodeProjects = item.outGivingNodeProjectList();
+		// 分发状态只在开始和结束时修改，节点项目的状态记录在分发日志中
+		outGivingServer.updateStatus(id, OutGivingModel.Status.ING);
 		// 开启线程
-		if (afterOpt == AfterOpt.Order_Restart || afterOpt == AfterOpt.Order_Must_Restart) {
-			ThreadUtil.execute(() -> {
-				// 截取睡眠时间
-				int sleepTime = ObjectUtil.defaultIfNull(item.getIntervalTime(), 10);
-				//
-				boolean cancel = false;
-				for (OutGivingNodeProject outGivingNodeProject : outGivingNodeProjects) {
-					if (cancel) {
-						String userId = userModel == null ? JpomApplication.SYSTEM_ID : userModel.getId();
-						OutGivingItemRun.updateStatus(null, id, outGivingNodeProject, OutGivingNodeProject.Status.Cancel, "前一个节点分发失败，取消分发", userId);
-					} else {
-						OutGivingItemRun outGivingRun = new OutGivingItemRun(item, outGivingNodeProject, file, userModel, unzip);
-						OutGivingNodeProject.Status status = outGivingRun.call();
-						if (status != OutGivingNodeProject.Status.Ok) {
-							if (afterOpt == AfterOpt.Order_Must_Restart) {
-								// 完整重启，不再继续剩余的节点项目
-								cancel = true;
-							}
-						}
-						// 休眠x秒 等待之前项目正常启动
-						ThreadUtil.sleep(sleepTime, TimeUnit.SECONDS);
+		ThreadUtil.execute(() -> {
+			ExecutorService executorService = null;
+			try {
+				// 文件只读取一次，所有节点共用
+				Resource fileResource = readFile(file, diffSync);
+				List<OutGivingItemRun> itemRuns = outGivingNodeProjects.stream()
+						.map(outGivingNodeProject -> new OutGivingItemRun(item, outGivingNodeProject, file, fileResource, userModel, unzip, diffSync))
+						.collect(Collectors.toList());
+				ServerExtConfigBean configBean = ServerExtConfigBean.getInstance();
+				boolean order = afterOpt == AfterOpt.Order_Restart || afterOpt == AfterOpt.Order_Must_Restart;
+				// 顺序重启按批次分发，其他方式一次全部分发
+				int batchSize = order ? configBean.getOutGivingBatchSize() : Math.max(itemRuns.size(), 1);
+				int parallel = Math.min(configBean.getOutGivingParallel(), Math.max(itemRuns.size(), 1));
+				executorService = Executors.newFixedThreadPool(parallel, ThreadUtil.newNamedThreadFactory("Jpom OutGiving-" + id + "-", true));
+				runBatch(item, afterOpt, itemRuns, batchSize, executorService, userModel);
+			} catch (Exception e) {
+				DefaultSystemLog.getLog().error("分发异常 {}", id, e);
+			} finally {
+				if (executorService != null) {
+					executorService.shutdownNow();
+				}
+				outGivingServer.updateStatus(id, OutGivingModel.Status.DONE);
+			}
+		});
+	}
+
+	/**
+	 * 按批次分发，每批内的节点并行上传。顺序重启时上一批节点项目正常运行后再开始下一批
+	 *
+	 * @param item            分发
+	 * @param afterOpt        分发后的操作
+	 * @param itemRuns        分发项
+	 * @param batchSize       每批的节点数
+	 * @param executorService 线程池
+	 * @param userModel       操作的用户
+	 */
+	private static void runBatch(OutGivingModel item,
+								 AfterOpt afterOpt,
+								 List<OutGivingItemRun> itemRuns,
+								 int batchSize,
+								 ExecutorService executorService,
+								 UserModel userModel) {
+		String userId = userModel == null ? JpomApplication.SYSTEM_ID : userModel.getId();
+		// 最长等待项目正常运行的时间
+		int waitTime = ObjectUtil.defaultIfNull(item.getIntervalTime(), 10);
+		boolean order = afterOpt == AfterOpt.Order_Restart || afterOpt == AfterOpt.Order_Must_Restart;
+		List<List<OutGivingItemRun>> batches = CollUtil.split(itemRuns, batchSize);
+		String cancelMsg = null;
+		for (List<OutGivingItemRun> batch : batches) {
+			if (cancelMsg != null) {
+				for (OutGivingItemRun itemRun : batch) {
+					OutGivingItemRun.updateStatus(null, item.getId(), itemRun.getOutGivingNodeProject(), OutGivingNodeProject.Status.Cancel, cancelMsg, userId);
+				}
+				continue;
+			}
+			List<OutGivingItemRun> okList = new ArrayList<>(batch.size());
+			try {
+				List<Future<OutGivingNodeProject.Status>> futures = executorService.invokeAll(batch);
+				for (int i = 0; i < futures.size(); i++) {
+					if (futures.get(i).get() == OutGivingNodeProject.Status.Ok) {
+						okList.add(batch.get(i));
 					}
 				}
-			});
-		} else if (afterOpt == AfterOpt.Restart || afterOpt == AfterOpt.No) {
-			outGivingNodeProjects.forEach(outGivingNodeProject ->
-					ThreadUtil.execAsync(new OutGivingItemRun(item, outGivingNodeProject, file, userModel, unzip))
-			);
-		} else {
-			//
-			throw new IllegalArgumentException("Not implemented " + afterOpt.getDesc());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (ExecutionException e) {
+				// call 内部已经处理异常
+				DefaultSystemLog.getLog().error("分发异常 {}", item.getId(), e);
+			}
+			if (!order) {
+				continue;
+			}
+			boolean healthy = okList.size() == batch.size() && waitHealthy(okList, waitTime);
+			if (!healthy && afterOpt == AfterOpt.Order_Must_Restart) {
+				// 完整重启，不再继续剩余的节点项目
+				cancelMsg = okList.size() == batch.size() ? "前一批节点项目没有正常运行，取消分发" : "前一个节点分发失败，取消分发";
+			}
+		}
+	}
+
+	/**
+	 * 等待节点项目正常运行
+	 *
+	 * @param itemRuns 分发项
+	 * @param waitTime 最长等待时间（秒）
+	 * @return 在等待时间内全部正常运行返回 true
+	 */
+	private static boolean waitHealthy(List<OutGivingItemRun> itemRuns, int waitTime) {
+		long endTime = SystemClock.now() + TimeUnit.SECONDS.toMillis(waitTime);
+		List<OutGivingItemRun> checkList = new ArrayList<>(itemRuns);
+		while (true) {
+			checkList.removeIf(OutGivingItemRun::isRunning);
+			if (checkList.isEmpty()) {
+				return true;
+			}
+			if (SystemClock.now() >= endTime) {
+				return false;
+			}
+			ThreadUtil.sleep(1, TimeUnit.SECONDS);
+		}
+	}
+
+	/**
+	 * 读取需要分发的文件，分片上传、差异同步的文件不读取到内存
+	 *
+	 * @param file     文件
+	 * @param diffSync 差异同步
+	 * @return 读取失败或者不需要读取返回 null
+	 */
+	private static Resource readFile(File file, boolean diffSync) {
+		if (diffSync || !FileUtil.isFile(file)) {
+			return null;
+		}
+		if (ServerExtConfigBean.getInstance().getSliceUploadSize() <= 0 || OutGivingSliceUpload.isSlice(file)) {
+			return null;
+		}
+		try {
+			return new BytesResource(FileUtil.readBytes(file), file.getName());
+		} catch (Exception e) {
+			DefaultSystemLog.getLog().warn("读取分发文件失败 {}", e.getMessage());
+			return null;
 		}
 	}
 
@@ -124,8 +245,29 @@ public class OutGivingRun {
 												 NodeModel nodeModel,
 												 UserModel userModel,
 												 boolean clearOld) {
+		return fileUpload(file, null, levelName, projectId, unzip, afterOpt, nodeModel, userModel, clearOld);
+	}
+
+	/**
+	 * 上传项目文件
+	 *
+	 * @param file         需要上传的文件
+	 * @param fileResource 已经读取的文件内容，为空时读取 file
+	 * @param projectId    项目id
+	 * @param unzip        是否需要解压
+	 * @param afterOpt     是否需要重启
+	 * @param nodeModel    节点
+	 * @param userModel    操作用户
+	 * @return json
+	 */
+	public static JsonMessage<String> fileUpload(File file, Resource fileResource, String levelName, String projectId,
+												 boolean unzip,
+												 AfterOpt afterOpt,
+												 NodeModel nodeModel,
+												 UserModel userModel,
+												 boolean clearOld) {
 		JSONObject data = new JSONObject();
-		data.put("file", file);
+		data.put("file", ObjectUtil.defaultIfNull(fileResource, file));
 		data.put("id", projectId);
 		if (StrUtil.isNotEmpty(levelName)) {
 			data.put("levelName", levelName);
@@ -142,6 +284,14 @@ public class OutGivingRun {
 		if (afterOpt != AfterOpt.No) {
 			data.put("after", afterOpt.getCode());
 		}
+		if (OutGivingSliceUpload.isSlice(file)) {
+			data.remove("file");
+			JsonMessage<String> jsonMessage = OutGivingSliceUpload.upload(file, nodeModel, userModel, data);
+			if (jsonMessage != null) {
+				return jsonMessage;
+			}
+			data.put("file", ObjectUtil.defaultIfNull(fileResource, file));
+		}
 		return NodeForward.request(nodeModel, NodeUrl.Manage_File_Upload, userModel, data);
 	}
 }
@@ -0,0 +1,213 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Code Technology Studio
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jpom.outgiving;
+
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IORuntimeException;
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.jiangzeyin.common.DefaultSystemLog;
+import cn.jiangzeyin.common.JsonMessage;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import io.jpom.common.forward.NodeForward;
+import io.jpom.common.forward.NodeUploadResource;
+import io.jpom.common.forward.NodeUrl;
+import io.jpom.model.data.NodeModel;
+import io.jpom.model.data.UserModel;
+import io.jpom.system.AgentException;
+import io.jpom.system.ServerExtConfigBean;
+import io.jpom.util.FileSliceUtil;
+import io.jpom.util.FileSliceUtil.SliceManifest;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * 分片上传文件到节点
+ * <p>
+ * 文件按照固定大小切片，分片使用 sha1 命名。节点端保留已经上传的分片，
+ * 上传前先检查节点缺少的分片，只上传缺少的部分（中断后可以续传），多个分片并行上传。
+ * 同一个文件的分片信息会缓存，分发到多个节点时不需要重复计算
+ *
+ * @author bwcx_jzy
+ * @since 2022/5/19
+ */
+public class OutGivingSliceUpload {
+
+    /**
+     * 分片信息缓存 key: 路径 + 大小 + 修改时间 + 分片大小
+     */
+    private static final LRUCache<String, SliceManifest> MANIFEST_CACHE = new LRUCache<>(50);
+    /**
+     * 单个分片上传失败的重试次数
+     */
+    private static final int RETRY_COUNT = 3;
+
+    private static volatile ExecutorService executorService;
+
+    private static ExecutorService getExecutorService() {
+        if (executorService == null) {
+            synchronized (OutGivingSliceUpload.class) {
+                if (executorService == null) {
+                    int poolSize = ServerExtConfigBean.getInstance().getSliceUploadParallel() * 4;
+                    ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(poolSize, poolSize,
+                        60, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<>(),
+                        ThreadUtil.newNamedThreadFactory("Jpom Slice Upload-", true));
+                    threadPoolExecutor.allowCoreThreadTimeOut(true);
+                    executorService = threadPoolExecutor;
+                }
+            }
+        }
+        return executorService;
+    }
+
+    /**
+     * 文件是否需要分片上传
+     *
+     * @param file 文件
+     * @return true 超过一个分片大小
+     */
+    public static boolean isSlice(File file) {
+        int sliceSize = ServerExtConfigBean.getInstance().getSliceUploadSize();
+        return sliceSize > 0 && FileUtil.size(file) > sliceSize;
+    }
+
+    /**
+     * 获取文件的分片信息，相同文件只计算一次
+     *
+     * @param file      文件
+     * @param sliceSize 分片大小
+     * @return 分片信息
+     */
+    public static SliceManifest manifest(File file, int sliceSize) {
+        String key = StrUtil.format("{}:{}:{}:{}", file.getAbsolutePath(), file.length(), file.lastModified(), sliceSize);
+        return MANIFEST_CACHE.get(key, () -> FileSliceUtil.createManifest(file, sliceSize));
+    }
+
+    /**
+     * 分片上传文件
+     *
+     * @param file      文件
+     * @param nodeModel 节点
+     * @param userModel 操作人
+     * @param data      上传参数（项目id、解压、清空、重启等）
+     * @return 合并结果，返回 null 表示节点不支持分片上传
+     */
+    public static JsonMessage<String> upload(File file, NodeModel nodeModel, UserModel userModel, JSONObject data) {
+        ServerExtConfigBean configBean = ServerExtConfigBean.getInstance();
+        SliceManifest manifest = manifest(file, configBean.getSliceUploadSize());
+        List<String> sliceShas = manifest.getSliceShas();
+        String sliceShasStr = CollUtil.join(sliceShas, StrUtil.COMMA);
+        // 检查节点已经存在的分片
+        JSONObject checkData = new JSONObject();
+        checkData.put("sliceShas", sliceShasStr);
+        JsonMessage<String> checkMessage = NodeForward.request(nodeModel, NodeUrl.MANAGE_FILE_SLICE_CHECK, userModel, checkData);
+        if (NodeForward.isNotFound(checkMessage)) {
+            // 低版本的插件端不支持分片上传
+            DefaultSystemLog.getLog().warn("{} 节点不支持分片上传", nodeModel.getName());
+            return null;
+        }
+        if (checkMessage.getCode() != 200) {
+            return checkMessage;
+        }
+        JSONArray missingArray = checkMessage.getData(JSONArray.class);
+        Set<String> missing = missingArray == null ? Collections.emptySet() : new HashSet<>(missingArray.toJavaList(String.class));
+        // 需要上传的分片（相同内容的分片只上传一次）
+        Queue<Integer> queue = new ConcurrentLinkedQueue<>();
+        Set<String> added = new HashSet<>();
+        for (int i = 0; i < sliceShas.size(); i++) {
+            String sha1 = sliceShas.get(i);
+            if (missing.contains(sha1) && added.add(sha1)) {
+                queue.add(i);
+            }
+        }
+        DefaultSystemLog.getLog().info("{} 节点分片上传 {} 共 {} 个分片,需要上传 {} 个", nodeModel.getName(), file.getName(), sliceShas.size(), queue.size());
+        if (!queue.isEmpty()) {
+            int parallel = Math.min(configBean.getSliceUploadParallel(), queue.size());
+            List<Future<?>> futures = new ArrayList<>(parallel);
+            for (int i = 0; i < parallel; i++) {
+                futures.add(getExecutorService().submit(() -> {
+                    Integer index;
+                    while ((index = queue.poll()) != null) {
+                        uploadSlice(file, manifest, index, nodeModel, userModel);
+                    }
+                    return null;
+                }));
+            }
+            try {
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new JsonMessage<>(500, "分片上传被中断");
+            } catch (ExecutionException e) {
+                // 停止剩余的分片，已经上传的分片下次可以续传
+                queue.clear();
+                Throwable cause = e.getCause();
+                DefaultSystemLog.getLog().error("{} 节点分片上传失败", nodeModel.getName(), cause);
+                return new JsonMessage<>(500, "分片上传失败：" + cause.getMessage());
+            }
+        }
+        // 合并分片
+        JSONObject mergeData = new JSONObject();
+        mergeData.putAll(data);
+        mergeData.put("sliceShas", sliceShasStr);
+        mergeData.put("fileSha1", manifest.getFileSha1());
+        mergeData.put("fileName", file.getName());
+        return NodeForward.request(nodeModel, NodeUrl.MANAGE_FILE_SLICE_MERGE, userModel, mergeData);
+    }
+
+    private static void uploadSlice(File file, SliceManifest manifest, int index, NodeModel nodeModel, UserModel userModel) throws IOException {
+        String sha1 = manifest.getSliceShas().get(index);
+        long offset = (long) index * manifest.getSliceSize();
+        long len = Math.min(manifest.getSliceSize(), file.length() - offset);
+        RuntimeException exception = null;
+        for (int i = 0; i < RETRY_COUNT; i++) {
+            // 每次重试重新打开文件，只读取分片范围内的数据
+            NodeUploadResource resource = new NodeUploadResource(FileSliceUtil.openSlice(file, offset, len), sha1, len, nodeModel.getName());
+            try {
+                JSONObject sliceData = new JSONObject();
+                sliceData.put("sliceSha1", sha1);
+                sliceData.put("file", resource);
+                JsonMessage<String> jsonMessage = NodeForward.request(nodeModel, NodeUrl.MANAGE_FILE_SLICE_UPLOAD, userModel, sliceData);
+                if (jsonMessage.getCode() == 200) {
+                    return;
+                }
+                exception = new AgentException(jsonMessage.getMsg());
+            } catch (AgentException | IORuntimeException e) {
+                exception = e;
+            } finally {
+                resource.close();
+            }
+            DefaultSystemLog.getLog().warn("{} 节点上传分片 {} 失败,第 {} 次 {}", nodeModel.getName(), index, i + 1, exception.getMessage());
+        }
+        throw exception;
+    }
+}
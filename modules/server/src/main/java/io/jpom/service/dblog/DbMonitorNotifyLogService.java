@@ -26,6 +26,7 @@ import cn.hutool.core.date.SystemClock;
 import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.ObjectUtil;
 import cn.hutool.core.util.StrUtil;
+import cn.hutool.db.Entity;
 import io.jpom.common.BaseServerController;
 import io.jpom.model.data.UserModel;
 import io.jpom.model.log.MonitorNotifyLog;
@@ -43,7 +44,7 @@ public class DbMonitorNotifyLogService extends BaseWorkspaceService<MonitorNotif
 
 
 	@Override
-	public void insert(MonitorNotifyLog monitorNotifyLog) {
+	public void insertAsync(MonitorNotifyLog monitorNotifyLog) {
 		try {
 			BaseServerController.resetInfo(UserModel.EMPTY);
 			if (MonitorNotifyLog.HAS_LOG_ID) {
@@ -52,7 +53,7 @@ public class DbMonitorNotifyLogService extends BaseWorkspaceService<MonitorNotif
 			}
 			//
 			monitorNotifyLog.setCreateTime(ObjectUtil.defaultIfNull(monitorNotifyLog.getCreateTime(), SystemClock.now()));
-			super.insert(monitorNotifyLog);
+			super.insertAsync(monitorNotifyLog);
 			//
 		} finally {
 			BaseServerController.removeEmpty();
@@ -72,19 +73,16 @@ public class DbMonitorNotifyLogService extends BaseWorkspaceService<MonitorNotif
 	 * @param errorMsg 错误消息
 	 */
 	public void updateStatus(String logId, boolean status, String errorMsg) {
-		MonitorNotifyLog monitorNotifyLog = new MonitorNotifyLog();
-		monitorNotifyLog.setId(logId);
-		monitorNotifyLog.setNotifyStatus(status);
-		monitorNotifyLog.setNotifyError(errorMsg);
-		super.update(monitorNotifyLog);
-//		Entity entity = new Entity();
-//		entity.set("notifyStatus", status);
-//		if (errorMsg != null) {
-//			entity.set("notifyError", errorMsg);
-//		}
-//		//
-//		Entity where = new Entity();
-//		where.set("logId", logId);
-//		super.update(entity, where);
+		Entity entity = new Entity();
+		entity.set("notifyStatus", status);
+		if (errorMsg != null) {
+			entity.set("notifyError", errorMsg);
+		}
+		entity.set("modifyTimeMillis", SystemClock.now());
+		//
+		Entity where = new Entity();
+		where.set("id", logId);
+		// 和通知记录使用同一个写入队列，保证在记录写入之后修改
+		super.updateAsync(entity, where);
 	}
 }
@@ -22,11 +22,18 @@
  */
 package io.jpom.service.dblog;
 
+import cn.hutool.core.util.StrUtil;
 import io.jpom.model.data.OutGivingNodeProject;
 import io.jpom.model.log.OutGivingLog;
 import io.jpom.service.h2db.BaseWorkspaceService;
 import org.springframework.stereotype.Service;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 /**
  * 分发日志
  *
@@ -45,4 +52,33 @@ public class DbOutGivingLogService extends BaseWorkspaceService<OutGivingLog> {
 		}
 		super.insert(outGivingLog);
 	}
+
+	/**
+	 * 查询分发中每个节点项目最近一次的分发记录
+	 *
+	 * @param outGivingId 分发id
+	 * @return key 节点id:项目id
+	 */
+	public Map<String, OutGivingLog> listLatestByTarget(String outGivingId) {
+		String tableName = super.getTableName();
+		String sql = "select * from " + tableName + " a where a.outGivingId=? and a.startTime=" +
+				"(select max(b.startTime) from " + tableName + " b where b.outGivingId=a.outGivingId and b.nodeId=a.nodeId and b.projectId=a.projectId)";
+		List<OutGivingLog> list = super.queryList(sql, outGivingId);
+		if (list == null) {
+			return Collections.emptyMap();
+		}
+		return list.stream().collect(Collectors.toMap(outGivingLog -> targetKey(outGivingLog.getNodeId(), outGivingLog.getProjectId()),
+				Function.identity(), (v1, v2) -> v1));
+	}
+
+	/**
+	 * 节点项目的 key
+	 *
+	 * @param nodeId    节点id
+	 * @param projectId 项目id
+	 * @return key
+	 */
+	public static String targetKey(String nodeId, String projectId) {
+		return StrUtil.format("{}:{}", nodeId, projectId);
+	}
 }
@@ -244,7 +244,7 @@ public class DbUserOperateLogService extends BaseWorkspaceService<UserOperateLog
      * @param cacheInfo        当前操作相关信息
      */
     public void insert(UserOperateLogV1 userOperateLogV1, OperateLogController.CacheInfo cacheInfo) {
-        super.insert(userOperateLogV1);
+        super.insertAsync(userOperateLogV1);
         ThreadUtil.execute(() -> {
             try {
                 this.checkMonitor(userOperateLogV1, cacheInfo);
@@ -80,7 +80,7 @@ public class SshTerminalExecuteLogService extends BaseWorkspaceService<SshTermin
 				//sshTerminalExecuteLog.setUserId(UserModel.getOptUserName(userInfo));
 				return sshTerminalExecuteLog;
 			}).collect(Collectors.toList());
-			super.insert(executeLogs);
+			super.insertAsync(executeLogs);
 		} finally {
 			BaseServerController.removeAll();
 		}
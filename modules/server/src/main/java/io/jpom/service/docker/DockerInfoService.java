@@ -156,6 +156,23 @@ public class DockerInfoService extends BaseWorkspaceService<DockerInfoModel> imp
         }
     }
 
+    /**
+     * 关闭 docker 插件中缓存的连接，docker 配置变更后需要调用
+     *
+     * @param dockerInfoModel docker
+     */
+    public void closeClient(DockerInfoModel dockerInfoModel) {
+        if (dockerInfoModel == null) {
+            return;
+        }
+        try {
+            IPlugin plugin = PluginFactory.getPlugin(DockerInfoService.DOCKER_CHECK_PLUGIN_NAME);
+            plugin.execute("closeClient", dockerInfoModel.toParameter());
+        } catch (Exception e) {
+            log.warn("关闭 docker 连接异常 {}", e.getMessage());
+        }
+    }
+
     /**
      * 更新 容器状态
      *
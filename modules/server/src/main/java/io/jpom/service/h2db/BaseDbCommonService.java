@@ -25,6 +25,7 @@ package io.jpom.service.h2db;
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.bean.copier.CopyOptions;
 import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.date.SystemClock;
 import cn.hutool.core.exceptions.ExceptionUtil;
 import cn.hutool.core.util.PageUtil;
 import cn.hutool.core.util.StrUtil;
@@ -38,6 +39,7 @@ import cn.hutool.db.sql.Order;
 import io.jpom.model.PageResultDto;
 import io.jpom.system.JpomRuntimeException;
 import io.jpom.system.db.DbConfig;
+import io.jpom.system.db.DbSlowSqlLog;
 import lombok.extern.slf4j.Slf4j;
 import org.h2.jdbc.JdbcSQLNonTransientException;
 import org.springframework.util.Assert;
@@ -118,11 +120,15 @@ public abstract class BaseDbCommonService<T> {
         }
         Db db = Db.use();
         db.setWrapper((Character) null);
+        long startTime = SystemClock.now();
         try {
             Entity entity = this.dataBeanToEntity(t);
             db.insert(entity);
+            this.dataChanged();
         } catch (Exception e) {
             throw warpException(e);
+        } finally {
+            DbSlowSqlLog.record(tableName, "insert", null, startTime);
         }
     }
 
@@ -142,11 +148,15 @@ public abstract class BaseDbCommonService<T> {
         }
         Db db = Db.use();
         db.setWrapper((Character) null);
+        long startTime = SystemClock.now();
         try {
             List<Entity> entities = t.stream().map(this::dataBeanToEntity).collect(Collectors.toList());
             db.insert(entities);
+            this.dataChanged();
         } catch (Exception e) {
             throw warpException(e);
+        } finally {
+            DbSlowSqlLog.record(tableName, "insertBatch", "size " + t.size(), startTime);
         }
     }
 
@@ -179,10 +189,15 @@ public abstract class BaseDbCommonService<T> {
         Db db = Db.use();
         db.setWrapper((Character) null);
         entity.setTableName(tableName);
+        long startTime = SystemClock.now();
         try {
-            return db.insert(entity);
+            int count = db.insert(entity);
+            this.dataChanged();
+            return count;
         } catch (Exception e) {
             throw warpException(e);
+        } finally {
+            DbSlowSqlLog.record(tableName, "insert", null, startTime);
         }
     }
 
@@ -216,10 +231,15 @@ public abstract class BaseDbCommonService<T> {
         }
         entity.setTableName(tableName);
         where.setTableName(tableName);
+        long startTime = SystemClock.now();
         try {
-            return db.update(entity, where);
+            int count = db.update(entity, where);
+            this.dataChanged();
+            return count;
         } catch (Exception e) {
             throw warpException(e);
+        } finally {
+            DbSlowSqlLog.record(tableName, "update", where, startTime);
         }
     }
 
@@ -268,10 +288,13 @@ public abstract class BaseDbCommonService<T> {
             consumer.accept(where);
         }
         Entity entity;
+        long startTime = SystemClock.now();
         try {
             entity = db.get(where);
         } catch (Exception e) {
             throw warpException(e);
+        } finally {
+            DbSlowSqlLog.record(tableName, "get", where, startTime);
         }
         T entityToBean = this.entityToBean(entity, this.tClass);
         if (fill) {
@@ -371,10 +394,15 @@ public abstract class BaseDbCommonService<T> {
         }
         Db db = Db.use();
         db.setWrapper((Character) null);
+        long startTime = SystemClock.now();
         try {
-            return db.del(where);
+            int count = db.del(where);
+            this.dataChanged();
+            return count;
         } catch (Exception e) {
             throw warpException(e);
+        } finally {
+            DbSlowSqlLog.record(tableName, "del", where, startTime);
         }
     }
 
@@ -415,10 +443,13 @@ public abstract class BaseDbCommonService<T> {
         where.setTableName(getTableName());
         Db db = Db.use();
         db.setWrapper((Character) null);
+        long startTime = SystemClock.now();
         try {
             return db.count(where);
         } catch (Exception e) {
             throw warpException(e);
+        } finally {
+            DbSlowSqlLog.record(tableName, "count", where, startTime);
         }
     }
 
@@ -434,10 +465,13 @@ public abstract class BaseDbCommonService<T> {
             log.error("The database is not initialized, this execution will be ignored:{},{}", this.tClass, this.getClass());
             return 0;
         }
+        long startTime = SystemClock.now();
         try {
             return Db.use().count(sql, params);
         } catch (Exception e) {
             throw warpException(e);
+        } finally {
+            DbSlowSqlLog.record(tableName, "count", sql, startTime);
         }
     }
 
@@ -467,10 +501,13 @@ public abstract class BaseDbCommonService<T> {
         where.setTableName(getTableName());
         Db db = Db.use();
         db.setWrapper((Character) null);
+        long startTime = SystemClock.now();
         try {
             return db.find(where);
         } catch (Exception e) {
             throw warpException(e);
+        } finally {
+            DbSlowSqlLog.record(tableName, "find", where, startTime);
         }
     }
 
@@ -488,11 +525,14 @@ public abstract class BaseDbCommonService<T> {
         }
         Db db = Db.use();
         db.setWrapper((Character) null);
+        long startTime = SystemClock.now();
         try {
             List<Entity> entities = db.findBy(getTableName(), wheres);
             return this.entityToBeanList(entities);
         } catch (Exception e) {
             throw warpException(e);
+        } finally {
+            DbSlowSqlLog.record(tableName, "find", wheres, startTime);
         }
     }
 
@@ -530,10 +570,13 @@ public abstract class BaseDbCommonService<T> {
         PageResult<Entity> pageResult;
         Db db = Db.use();
         db.setWrapper((Character) null);
+        long startTime = SystemClock.now();
         try {
             pageResult = db.page(where, page);
         } catch (Exception e) {
             throw warpException(e);
+        } finally {
+            DbSlowSqlLog.record(tableName, "page", where, startTime);
         }
         //
         List<T> list = pageResult.stream().map(entity -> {
@@ -574,10 +617,13 @@ public abstract class BaseDbCommonService<T> {
             log.error("The database is not initialized, this execution will be ignored:{},{}", this.tClass, this.getClass());
             return null;
         }
+        long startTime = SystemClock.now();
         try {
             return Db.use().query(sql, params);
         } catch (Exception e) {
             throw warpException(e);
+        } finally {
+            DbSlowSqlLog.record(tableName, "query", sql, startTime);
         }
     }
 
@@ -594,10 +640,15 @@ public abstract class BaseDbCommonService<T> {
             log.error("The database is not initialized, this execution will be ignored:{},{}", this.tClass, this.getClass());
             return 0;
         }
+        long startTime = SystemClock.now();
         try {
-            return Db.use().execute(sql, params);
+            int count = Db.use().execute(sql, params);
+            this.dataChanged();
+            return count;
         } catch (Exception e) {
             throw warpException(e);
+        } finally {
+            DbSlowSqlLog.record(tableName, "execute", sql, startTime);
         }
     }
 
@@ -659,6 +710,12 @@ public abstract class BaseDbCommonService<T> {
         return entityToBean;
     }
 
+    /**
+     * 数据发生变化（插入、修改、删除、执行 sql）后的回调，用于清理相关缓存
+     */
+    protected void dataChanged() {
+    }
+
     /**
      * 查询结果 填充
      *
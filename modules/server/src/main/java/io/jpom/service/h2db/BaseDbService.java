@@ -31,6 +31,7 @@ import cn.hutool.core.date.SystemClock;
 import cn.hutool.core.map.MapUtil;
 import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.core.util.*;
+import cn.hutool.db.Db;
 import cn.hutool.db.Entity;
 import cn.hutool.db.Page;
 import cn.hutool.db.sql.Direction;
@@ -44,6 +45,8 @@ import io.jpom.model.BaseDbModel;
 import io.jpom.model.BaseUserModifyDbModel;
 import io.jpom.model.PageResultDto;
 import io.jpom.model.data.UserModel;
+import io.jpom.system.db.DbConfig;
+import io.jpom.system.db.DbSlowSqlLog;
 import io.jpom.system.extconf.DbExtConfig;
 import org.springframework.util.Assert;
 
@@ -52,6 +55,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -113,6 +117,44 @@ public abstract class BaseDbService<T extends BaseDbModel> extends BaseDbCommonS
         this.executeClear();
     }
 
+    /**
+     * 异步插入，在当前线程填充数据后放入队列，由写入线程批量写入数据库。适用于日志类数据
+     *
+     * @param t 数据
+     */
+    public void insertAsync(T t) {
+        this.fillInsert(t);
+        DbLogWriter.getInstance().insert(this, this.dataBeanToEntity(t));
+    }
+
+    /**
+     * 异步批量插入
+     *
+     * @param t 数据
+     * @see #insertAsync(BaseDbModel)
+     */
+    public void insertAsync(Collection<T> t) {
+        if (CollUtil.isEmpty(t)) {
+            return;
+        }
+        DbLogWriter dbLogWriter = DbLogWriter.getInstance();
+        for (T item : t) {
+            this.fillInsert(item);
+            dbLogWriter.insert(this, this.dataBeanToEntity(item));
+        }
+    }
+
+    /**
+     * 异步修改，和异步插入使用同一个队列，保证在之前异步插入的数据写入后执行
+     *
+     * @param entity 要修改的数据
+     * @param where  条件
+     */
+    public void updateAsync(Entity entity, Entity where) {
+        Assert.state(!where.isEmpty(), "没有更新条件");
+        DbLogWriter.getInstance().update(this, entity, where);
+    }
+
     /**
      * 插入数据填充
      *
@@ -146,6 +188,23 @@ public abstract class BaseDbService<T extends BaseDbModel> extends BaseDbCommonS
         // check id
         String id = info.getId();
         Assert.hasText(id, "不能执行：error");
+        Entity entity = this.updateEntity(info);
+        //
+        Entity where = new Entity();
+        where.set(Const.ID_STR, id);
+        if (whereConsumer != null) {
+            whereConsumer.accept(where);
+        }
+        return super.update(entity, where);
+    }
+
+    /**
+     * 生成修改数据的 entity，不包含主键和创建时间
+     *
+     * @param info 数据
+     * @return entity
+     */
+    private Entity updateEntity(T info) {
         // def modify time
         info.setModifyTimeMillis(ObjectUtil.defaultIfNull(info.getModifyTimeMillis(), SystemClock.now()));
         // remove create time
@@ -163,16 +222,64 @@ public abstract class BaseDbService<T extends BaseDbModel> extends BaseDbCommonS
         Entity entity = this.dataBeanToEntity(info);
         //
         entity.remove(StrUtil.format("`{}`", Const.ID_STR));
-        //
-        Entity where = new Entity();
-        where.set(Const.ID_STR, id);
-        if (whereConsumer != null) {
-            whereConsumer.accept(where);
-        }
-        int update = super.update(entity, where);
         // backtrack
         info.setCreateTimeMillis(createTimeMillis);
-        return update;
+        return entity;
+    }
+
+    /**
+     * 在一个事务中批量修改（修改失败插入）和删除数据
+     * <p>
+     * 和 {@link #upsert(BaseDbModel)} 一致：修改和插入按照 {@link #updateById(BaseDbModel)}、{@link #insert(BaseDbModel)} 的方式填充数据，
+     * 有插入数据时执行 {@link #executeClear()}，完成后回调 {@link #dataChanged()}。
+     * 因为需要在同一个事务中执行，不会调用子类重写的 update、insert 方法，重写了这些方法的子类不能使用此方法
+     *
+     * @param upserts 需要修改或者插入的数据
+     * @param delIds  需要删除的数据主键
+     */
+    public void upsertAndDelete(Collection<T> upserts, Collection<String> delIds) {
+        if (CollUtil.isEmpty(upserts) && CollUtil.isEmpty(delIds)) {
+            return;
+        }
+        if (!DbConfig.getInstance().isInit()) {
+            // ignore
+            DefaultSystemLog.getLog().error("The database is not initialized, this execution will be ignored:{},{}", this.tClass, this.getClass());
+            return;
+        }
+        Db db = Db.use();
+        db.setWrapper((Character) null);
+        long startTime = SystemClock.now();
+        AtomicInteger insertCount = new AtomicInteger();
+        try {
+            db.tx(txDb -> {
+                insertCount.set(0);
+                if (upserts != null) {
+                    for (T t : upserts) {
+                        Entity where = new Entity(tableName);
+                        where.set(Const.ID_STR, t.getId());
+                        int update = txDb.update(this.updateEntity(t), where);
+                        if (update <= 0) {
+                            this.fillInsert(t);
+                            txDb.insert(this.dataBeanToEntity(t));
+                            insertCount.incrementAndGet();
+                        }
+                    }
+                }
+                if (CollUtil.isNotEmpty(delIds)) {
+                    Entity where = new Entity(tableName);
+                    where.set(Const.ID_STR, delIds);
+                    txDb.del(where);
+                }
+            });
+            this.dataChanged();
+        } catch (Exception e) {
+            throw warpException(e);
+        } finally {
+            DbSlowSqlLog.record(tableName, "upsertAndDelete", StrUtil.format("size {} {}", CollUtil.size(upserts), CollUtil.size(delIds)), startTime);
+        }
+        if (insertCount.get() > 0) {
+            this.executeClear();
+        }
     }
 
     /**
@@ -351,7 +458,7 @@ public abstract class BaseDbService<T extends BaseDbModel> extends BaseDbCommonS
     /**
      * 执行清理
      */
-    private void executeClear() {
+    void executeClear() {
         DbExtConfig dbExtConfig = SpringUtil.getBean(DbExtConfig.class);
         int h2DbLogStorageCount = dbExtConfig.getLogStorageCount();
         if (h2DbLogStorageCount <= 0) {
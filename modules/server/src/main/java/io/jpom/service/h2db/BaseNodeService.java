@@ -35,6 +35,7 @@ import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
 import io.jpom.common.BaseServerController;
 import io.jpom.common.Const;
+import io.jpom.common.forward.NodeForward;
 import io.jpom.model.BaseNodeModel;
 import io.jpom.model.PageResultDto;
 import io.jpom.model.data.NodeModel;
@@ -51,6 +52,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -62,6 +64,10 @@ public abstract class BaseNodeService<T extends BaseNodeModel> extends BaseWorks
     protected final NodeService nodeService;
     protected final WorkspaceService workspaceService;
     private final String dataName;
+    /**
+     * 节点增量同步的版本信息，key 为 工作空间ID:节点ID
+     */
+    private final Map<String, JSONObject> syncRevision = new ConcurrentHashMap<>();
 
     protected BaseNodeService(NodeService nodeService,
                               WorkspaceService workspaceService,
@@ -107,9 +113,8 @@ public abstract class BaseNodeService<T extends BaseNodeModel> extends BaseWorks
                 }
                 return 0;
             });
-            for (NodeModel nodeModel : list) {
-                this.syncNode(nodeModel);
-            }
+            // 并行同步，整体耗时取决于最慢的节点
+            NodeForward.fanOut(list, this::syncExecuteNode);
         });
     }
 
@@ -130,70 +135,151 @@ public abstract class BaseNodeService<T extends BaseNodeModel> extends BaseWorks
      * @return json
      */
     public String syncExecuteNode(NodeModel nodeModel) {
+        try {
+            return this.syncExecuteNodeThrow(nodeModel);
+        } catch (Exception e) {
+            return this.checkException(e, nodeModel.getName());
+        }
+    }
+
+    /**
+     * 同步执行 同步节点信息，同步失败时抛出异常
+     *
+     * @param nodeModel 节点信息
+     * @return 同步结果
+     * @throws Exception 同步失败
+     */
+    public String syncExecuteNodeThrow(NodeModel nodeModel) throws Exception {
         String nodeModelName = nodeModel.getName();
         if (!nodeModel.isOpenStatus()) {
             DefaultSystemLog.getLog().debug("{} 节点未启用", nodeModelName);
             return "节点未启用";
         }
+        String revisionKey = StrUtil.format("{}:{}", nodeModel.getWorkspaceId(), nodeModel.getId());
         try {
-            JSONArray jsonArray = this.getLitDataArray(nodeModel);
-            if (CollUtil.isEmpty(jsonArray)) {
-                Entity entity = Entity.create();
-                entity.set("nodeId", nodeModel.getId());
-                int del = super.del(entity);
-                //
-                DefaultSystemLog.getLog().debug("{} 节点没有拉取到任何{}", nodeModelName, dataName);
-                return "节点没有拉取到任何" + dataName;
+            // 先移除版本信息，同步失败后下次全量同步
+            JSONObject lastRevision = syncRevision.remove(revisionKey);
+            String epoch = lastRevision == null ? null : lastRevision.getString("epoch");
+            long revision = lastRevision == null ? 0 : lastRevision.getLongValue("revision");
+            Object changeData = this.getChangeData(nodeModel, epoch, revision);
+            JSONObject changeJson = changeData instanceof JSONObject ? (JSONObject) changeData : null;
+            String format;
+            if (changeJson != null && !changeJson.getBooleanValue("full")) {
+                format = this.syncChange(nodeModel, changeJson);
+            } else {
+                JSONArray jsonArray;
+                if (changeJson != null) {
+                    jsonArray = changeJson.getJSONArray("items");
+                } else if (changeData instanceof JSONArray) {
+                    jsonArray = (JSONArray) changeData;
+                } else {
+                    // 旧版本插件端不支持增量查询
+                    jsonArray = this.getLitDataArray(nodeModel);
+                }
+                format = this.syncFull(nodeModel, jsonArray);
             }
-            // 查询现在存在的项目
-            T where = ReflectUtil.newInstance(this.tClass);
-            where.setWorkspaceId(nodeModel.getWorkspaceId());
-            where.setNodeId(nodeModel.getId());
-            List<T> cacheAll = super.listByBean(where);
-            cacheAll = ObjectUtil.defaultIfNull(cacheAll, Collections.EMPTY_LIST);
-            Set<String> cacheIds = cacheAll.stream()
-                .map(BaseNodeModel::dataId)
-                .collect(Collectors.toSet());
-            //
-            List<T> projectInfoModels = jsonArray.toJavaList(this.tClass);
-            List<T> models = projectInfoModels.stream()
-                .peek(item -> this.fullData(item, nodeModel))
-                .filter(item -> {
-                    // 检查对应的工作空间 是否存在
-                    return workspaceService.exists(new WorkspaceModel(item.getWorkspaceId()));
-                })
-                .filter(projectInfoModel -> {
-                    // 避免重复同步
-                    return StrUtil.equals(nodeModel.getWorkspaceId(), projectInfoModel.getWorkspaceId());
-                })
-                .peek(item -> cacheIds.remove(item.dataId()))
-                .collect(Collectors.toList());
-            // 设置 临时缓存，便于放行检查
-            BaseServerController.resetInfo(UserModel.EMPTY);
-            //
-            models.forEach(BaseNodeService.super::upsert);
-            // 删除项目
-            Set<String> strings = cacheIds.stream()
-                .map(s -> BaseNodeModel.fullId(nodeModel.getWorkspaceId(), nodeModel.getId(), s))
-                .collect(Collectors.toSet());
-            if (CollUtil.isNotEmpty(strings)) {
-                super.delByKey(strings, null);
+            if (changeJson != null) {
+                JSONObject newRevision = new JSONObject();
+                newRevision.put("epoch", changeJson.getString("epoch"));
+                newRevision.put("revision", changeJson.getLongValue("revision"));
+                syncRevision.put(revisionKey, newRevision);
             }
-            String format = StrUtil.format(
-                "{} 节点拉取到 {} 个{},已经缓存 {} 个{},更新 {} 个{},删除 {} 个缓存",
-                nodeModelName, CollUtil.size(jsonArray), dataName,
-                CollUtil.size(cacheAll), dataName,
-                CollUtil.size(models), dataName,
-                CollUtil.size(strings));
             DefaultSystemLog.getLog().debug(format);
             return format;
-        } catch (Exception e) {
-            return this.checkException(e, nodeModelName);
         } finally {
             BaseServerController.removeEmpty();
         }
     }
 
+    /**
+     * 全量同步，删除节点已经不存在的数据
+     *
+     * @param nodeModel 节点
+     * @param jsonArray 节点的全部数据
+     * @return 同步结果
+     */
+    private String syncFull(NodeModel nodeModel, JSONArray jsonArray) {
+        String nodeModelName = nodeModel.getName();
+        if (CollUtil.isEmpty(jsonArray)) {
+            Entity entity = Entity.create();
+            entity.set("nodeId", nodeModel.getId());
+            int del = super.del(entity);
+            //
+            return StrUtil.format("{} 节点没有拉取到任何{}", nodeModelName, dataName);
+        }
+        // 查询现在存在的项目
+        T where = ReflectUtil.newInstance(this.tClass);
+        where.setWorkspaceId(nodeModel.getWorkspaceId());
+        where.setNodeId(nodeModel.getId());
+        List<T> cacheAll = super.listByBean(where);
+        cacheAll = ObjectUtil.defaultIfNull(cacheAll, Collections.EMPTY_LIST);
+        Set<String> cacheIds = cacheAll.stream()
+            .map(BaseNodeModel::dataId)
+            .collect(Collectors.toSet());
+        //
+        List<T> projectInfoModels = jsonArray.toJavaList(this.tClass);
+        List<T> models = projectInfoModels.stream()
+            .peek(item -> this.fullData(item, nodeModel))
+            .filter(item -> {
+                // 检查对应的工作空间 是否存在
+                return workspaceService.exists(new WorkspaceModel(item.getWorkspaceId()));
+            })
+            .filter(projectInfoModel -> {
+                // 避免重复同步
+                return StrUtil.equals(nodeModel.getWorkspaceId(), projectInfoModel.getWorkspaceId());
+            })
+            .peek(item -> cacheIds.remove(item.dataId()))
+            .collect(Collectors.toList());
+        // 删除项目
+        Set<String> strings = cacheIds.stream()
+            .map(s -> BaseNodeModel.fullId(nodeModel.getWorkspaceId(), nodeModel.getId(), s))
+            .collect(Collectors.toSet());
+        // 设置 临时缓存，便于放行检查
+        BaseServerController.resetInfo(UserModel.EMPTY);
+        //
+        super.upsertAndDelete(models, strings);
+        return StrUtil.format(
+            "{} 节点拉取到 {} 个{},已经缓存 {} 个{},更新 {} 个{},删除 {} 个缓存",
+            nodeModelName, CollUtil.size(jsonArray), dataName,
+            CollUtil.size(cacheAll), dataName,
+            CollUtil.size(models), dataName,
+            CollUtil.size(strings));
+    }
+
+    /**
+     * 增量同步，只处理上次同步之后变动的数据
+     *
+     * @param nodeModel  节点
+     * @param changeJson 节点返回的变动数据
+     * @return 同步结果
+     */
+    private String syncChange(NodeModel nodeModel, JSONObject changeJson) {
+        JSONArray items = ObjectUtil.defaultIfNull(changeJson.getJSONArray("items"), new JSONArray());
+        JSONArray deleted = ObjectUtil.defaultIfNull(changeJson.getJSONArray("deleted"), new JSONArray());
+        Set<String> delIds = deleted.stream()
+            .map(id -> BaseNodeModel.fullId(nodeModel.getWorkspaceId(), nodeModel.getId(), StrUtil.toString(id)))
+            .collect(Collectors.toSet());
+        List<T> models = items.toJavaList(this.tClass).stream()
+            .peek(item -> this.fullData(item, nodeModel))
+            .filter(item -> {
+                boolean sync = StrUtil.equals(nodeModel.getWorkspaceId(), item.getWorkspaceId())
+                    && workspaceService.exists(new WorkspaceModel(item.getWorkspaceId()));
+                if (!sync) {
+                    // 数据的工作空间发生变化，删除之前的缓存
+                    delIds.add(BaseNodeModel.fullId(nodeModel.getWorkspaceId(), nodeModel.getId(), item.dataId()));
+                }
+                return sync;
+            })
+            .collect(Collectors.toList());
+        // 设置 临时缓存，便于放行检查
+        BaseServerController.resetInfo(UserModel.EMPTY);
+        //
+        super.upsertAndDelete(models, delIds);
+        return StrUtil.format("{} 节点增量同步{},版本 {},更新 {} 个,删除 {} 个缓存",
+            nodeModel.getName(), dataName, changeJson.getLongValue("revision"),
+            CollUtil.size(models), CollUtil.size(delIds));
+    }
+
     protected String checkException(Exception e, String nodeModelName) {
         if (e instanceof AgentException) {
             AgentException agentException = (AgentException) e;
@@ -266,6 +352,7 @@ public abstract class BaseNodeService<T extends BaseNodeModel> extends BaseWorks
      */
     public int delCache(String nodeId, HttpServletRequest request) {
         String checkUserWorkspace = this.getCheckUserWorkspace(request);
+        syncRevision.remove(StrUtil.format("{}:{}", checkUserWorkspace, nodeId));
         Entity entity = Entity.create();
         entity.set("nodeId", nodeId);
         entity.set("workspaceId", checkUserWorkspace);
@@ -282,6 +369,7 @@ public abstract class BaseNodeService<T extends BaseNodeModel> extends BaseWorks
      */
     public int delCache(String dataId, String nodeId, HttpServletRequest request) {
         String checkUserWorkspace = this.getCheckUserWorkspace(request);
+        syncRevision.remove(StrUtil.format("{}:{}", checkUserWorkspace, nodeId));
         T data = ReflectUtil.newInstance(this.tClass);
         data.setNodeId(nodeId);
         data.dataId(dataId);
@@ -321,4 +409,16 @@ public abstract class BaseNodeService<T extends BaseNodeModel> extends BaseWorks
      * @return json
      */
     public abstract JSONArray getLitDataArray(NodeModel nodeModel);
+
+    /**
+     * 增量查询列表数据
+     *
+     * @param nodeModel 节点
+     * @param epoch     上次同步的 epoch
+     * @param revision  上次同步的版本号
+     * @return 插件端支持增量查询返回 JSONObject，旧版本插件端返回 JSONArray，不支持增量查询返回 null
+     */
+    protected Object getChangeData(NodeModel nodeModel, String epoch, long revision) {
+        return null;
+    }
 }
@@ -0,0 +1,82 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Code Technology Studio
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jpom.service.h2db;
+
+import cn.hutool.cache.impl.LRUCache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 数据查询结果缓存，配合 {@link BaseDbCommonService#dataChanged()} 在数据变化时清空
+ * <p>
+ * 查询前记录版本号，查询期间如果数据发生变化则不缓存本次结果，避免缓存旧数据。null 结果不缓存
+ *
+ * @author bwcx_jzy
+ * @since 2022/5/27
+ */
+public class DbDataCache<V> {
+
+    private final LRUCache<String, V> cache;
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * @param capacity 最大缓存数量
+     * @param timeout  缓存时间（毫秒）
+     */
+    public DbDataCache(int capacity, long timeout) {
+        this.cache = new LRUCache<>(capacity, timeout);
+    }
+
+    /**
+     * 获取缓存，不存在时查询并缓存
+     *
+     * @param key      key
+     * @param supplier 查询数据
+     * @return 数据
+     */
+    public V get(String key, Supplier<V> supplier) {
+        V value = cache.get(key);
+        if (value != null) {
+            return value;
+        }
+        long nowVersion = version.get();
+        value = supplier.get();
+        if (value != null && nowVersion == version.get()) {
+            cache.put(key, value);
+            if (nowVersion != version.get()) {
+                // 放入缓存期间数据发生变化
+                cache.remove(key);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        version.incrementAndGet();
+        cache.clear();
+    }
+}
@@ -0,0 +1,366 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Code Technology Studio
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jpom.service.h2db;
+
+import cn.hutool.core.date.SystemClock;
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.db.Db;
+import cn.hutool.db.Entity;
+import com.alibaba.fastjson.JSONObject;
+import io.jpom.system.db.DbConfig;
+import io.jpom.system.db.DbSlowSqlLog;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 日志类数据异步写入
+ * <p>
+ * 调用方线程只负责填充数据并放入有界队列（队列满时直接丢弃并计数，不会阻塞），
+ * 由单独的写入线程按照放入顺序批量写入数据库：连续的插入按照表和字段分组后批量插入，修改按照顺序执行
+ *
+ * @author bwcx_jzy
+ * @since 2022/5/26
+ */
+@Slf4j
+public class DbLogWriter {
+
+    /**
+     * 队列最大长度
+     */
+    private static final int MAX_QUEUE_SIZE = 10000;
+    /**
+     * 单次最多写入条数
+     */
+    private static final int MAX_BATCH_SIZE = 500;
+
+    private static volatile DbLogWriter instance;
+
+    private final BlockingQueue<WriteItem> queue = new LinkedBlockingQueue<>(MAX_QUEUE_SIZE);
+    private final AtomicLong offerCount = new AtomicLong();
+    private final AtomicLong writeCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong dropCount = new AtomicLong();
+    private final AtomicLong failCount = new AtomicLong();
+    private final WriteExecutor writeExecutor;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    DbLogWriter(WriteExecutor writeExecutor) {
+        this.writeExecutor = writeExecutor;
+        this.thread = ThreadUtil.newThread(this::loop, "Jpom Db Log Writer", true);
+    }
+
+    /**
+     * 启动写入线程
+     */
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * 单例
+     *
+     * @return DbLogWriter
+     */
+    public static DbLogWriter getInstance() {
+        if (instance == null) {
+            synchronized (DbLogWriter.class) {
+                if (instance == null) {
+                    DbLogWriter dbLogWriter = new DbLogWriter(new DbWriteExecutor());
+                    dbLogWriter.start();
+                    instance = dbLogWriter;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 插入数据
+     *
+     * @param service 数据对应的 service
+     * @param entity  已经填充完成的数据
+     */
+    void insert(BaseDbService<?> service, Entity entity) {
+        this.offer(new WriteItem(service, entity, null));
+    }
+
+    /**
+     * 修改数据
+     *
+     * @param service 数据对应的 service
+     * @param entity  修改的数据
+     * @param where   条件
+     */
+    void update(BaseDbService<?> service, Entity entity, Entity where) {
+        this.offer(new WriteItem(service, entity, where));
+    }
+
+    private void offer(WriteItem writeItem) {
+        if (!running || !queue.offer(writeItem)) {
+            long count = dropCount.incrementAndGet();
+            if (count == 1 || count % 1000 == 0) {
+                log.warn("日志写入队列已满，丢弃数据 {}，累计丢弃 {} 条", writeItem.service.getTableName(), count);
+            }
+            return;
+        }
+        offerCount.incrementAndGet();
+    }
+
+    private void loop() {
+        while (running) {
+            try {
+                WriteItem first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                this.drainAndWrite(first);
+            } catch (InterruptedException e) {
+                break;
+            } catch (Throwable e) {
+                log.error("写入日志数据异常", e);
+            }
+        }
+    }
+
+    private void drainAndWrite(WriteItem first) {
+        List<WriteItem> items = new ArrayList<>(Math.min(queue.size() + 1, MAX_BATCH_SIZE));
+        items.add(first);
+        queue.drainTo(items, MAX_BATCH_SIZE - 1);
+        this.write(items);
+    }
+
+    /**
+     * 按照顺序写入，遇到修改时先将之前的插入写入数据库，保证修改能找到数据
+     *
+     * @param items 数据
+     */
+    private void write(List<WriteItem> items) {
+        if (!writeExecutor.isReady()) {
+            dropCount.addAndGet(items.size());
+            log.error("The database is not initialized, this execution will be ignored:{}", items.size());
+            return;
+        }
+        Map<String, List<WriteItem>> inserts = new LinkedHashMap<>();
+        WriteItem preUpdate = null;
+        for (WriteItem item : items) {
+            if (item.where == null) {
+                String key = item.service.getTableName() + item.entity.keySet();
+                inserts.computeIfAbsent(key, s -> new ArrayList<>()).add(item);
+                continue;
+            }
+            if (preUpdate != null && preUpdate.isSameUpdate(item) && inserts.isEmpty()) {
+                // 同一条数据连续修改，只保留最后一次
+                preUpdate = item;
+                writeCount.incrementAndGet();
+                continue;
+            }
+            if (preUpdate != null) {
+                this.executeUpdate(preUpdate);
+            }
+            this.flushInsert(inserts);
+            preUpdate = item;
+        }
+        if (preUpdate != null) {
+            this.executeUpdate(preUpdate);
+        }
+        this.flushInsert(inserts);
+    }
+
+    private void flushInsert(Map<String, List<WriteItem>> inserts) {
+        if (inserts.isEmpty()) {
+            return;
+        }
+        Set<BaseDbService<?>> services = new LinkedHashSet<>();
+        for (List<WriteItem> list : inserts.values()) {
+            WriteItem first = list.get(0);
+            List<Entity> entities = new ArrayList<>(list.size());
+            for (WriteItem writeItem : list) {
+                entities.add(writeItem.entity);
+            }
+            try {
+                writeExecutor.insert(first.service, entities);
+                writeCount.addAndGet(entities.size());
+                batchCount.incrementAndGet();
+                services.add(first.service);
+            } catch (Exception e) {
+                failCount.addAndGet(entities.size());
+                log.error("批量写入日志数据失败 {} {}", first.service.getTableName(), entities.size(), e);
+            }
+        }
+        inserts.clear();
+        // 写入后按照配置清理旧数据
+        for (BaseDbService<?> service : services) {
+            writeExecutor.afterInsert(service);
+        }
+    }
+
+    private void executeUpdate(WriteItem item) {
+        try {
+            writeExecutor.update(item.service, item.entity, item.where);
+            writeCount.incrementAndGet();
+        } catch (Exception e) {
+            failCount.incrementAndGet();
+            log.error("修改日志数据失败 {}", item.service.getTableName(), e);
+        }
+    }
+
+    /**
+     * 停止写入线程，并将队列中剩余的数据写入数据库
+     */
+    public static void shutdown() {
+        DbLogWriter dbLogWriter = instance;
+        if (dbLogWriter != null) {
+            dbLogWriter.close();
+        }
+    }
+
+    void close() {
+        running = false;
+        // 不中断写入线程，避免中断 h2 的文件读写
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException ignored) {
+        }
+        while (!queue.isEmpty()) {
+            WriteItem first = queue.poll();
+            if (first == null) {
+                break;
+            }
+            try {
+                this.drainAndWrite(first);
+            } catch (Exception e) {
+                log.error("写入剩余日志数据异常", e);
+                break;
+            }
+        }
+    }
+
+    /**
+     * 写入统计
+     *
+     * @return json
+     */
+    public JSONObject stat() {
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("queueSize", queue.size());
+        jsonObject.put("maxQueueSize", MAX_QUEUE_SIZE);
+        jsonObject.put("offerCount", offerCount.get());
+        jsonObject.put("writeCount", writeCount.get());
+        jsonObject.put("batchCount", batchCount.get());
+        jsonObject.put("dropCount", dropCount.get());
+        jsonObject.put("failCount", failCount.get());
+        return jsonObject;
+    }
+
+    /**
+     * 实际写入数据库的操作
+     */
+    interface WriteExecutor {
+
+        /**
+         * 数据库是否可以写入
+         *
+         * @return false 丢弃数据
+         */
+        boolean isReady();
+
+        /**
+         * 批量插入同一个表、相同字段的数据
+         *
+         * @param service  数据对应的 service
+         * @param entities 数据
+         * @throws Exception 异常
+         */
+        void insert(BaseDbService<?> service, List<Entity> entities) throws Exception;
+
+        /**
+         * 修改数据
+         *
+         * @param service 数据对应的 service
+         * @param entity  修改的数据
+         * @param where   条件
+         */
+        void update(BaseDbService<?> service, Entity entity, Entity where);
+
+        /**
+         * 插入完成后的处理（清理旧数据）
+         *
+         * @param service 数据对应的 service
+         */
+        void afterInsert(BaseDbService<?> service);
+    }
+
+    private static class DbWriteExecutor implements WriteExecutor {
+
+        @Override
+        public boolean isReady() {
+            return DbConfig.getInstance().isInit();
+        }
+
+        @Override
+        public void insert(BaseDbService<?> service, List<Entity> entities) throws Exception {
+            Db db = Db.use();
+            db.setWrapper((Character) null);
+            long startTime = SystemClock.now();
+            try {
+                db.insert(entities);
+            } finally {
+                DbSlowSqlLog.record(service.getTableName(), "insertAsync", "size " + entities.size(), startTime);
+            }
+        }
+
+        @Override
+        public void update(BaseDbService<?> service, Entity entity, Entity where) {
+            service.update(entity, where);
+        }
+
+        @Override
+        public void afterInsert(BaseDbService<?> service) {
+            service.executeClear();
+        }
+    }
+
+    private static class WriteItem {
+        private final BaseDbService<?> service;
+        private final Entity entity;
+        private final Entity where;
+
+        private WriteItem(BaseDbService<?> service, Entity entity, Entity where) {
+            this.service = service;
+            this.entity = entity;
+            this.where = where;
+        }
+
+        private boolean isSameUpdate(WriteItem item) {
+            return item.where != null && this.service == item.service
+                    && Objects.equals(this.where, item.where)
+                    && Objects.equals(this.entity.keySet(), item.entity.keySet());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Code Technology Studio
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jpom.service.h2db;
+
+import java.lang.annotation.*;
+
+/**
+ * 数据库表索引，在启动时自动创建。索引定义变更后会先删除旧索引再重建
+ *
+ * @author bwcx_jzy
+ * @since 2022/5/26
+ */
+@Documented
+@Target({ElementType.TYPE})
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Repeatable(TableIndexes.class)
+public @interface TableIndex {
+
+	/**
+	 * 索引名称，实际创建的索引名为 表名_名称
+	 *
+	 * @return name
+	 */
+	String name();
+
+	/**
+	 * 索引字段，按照顺序组成联合索引
+	 *
+	 * @return 字段
+	 */
+	String[] fields();
+
+	/**
+	 * 是否为唯一索引
+	 *
+	 * @return true 唯一索引
+	 */
+	boolean unique() default false;
+}
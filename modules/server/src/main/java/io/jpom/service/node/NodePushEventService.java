@@ -0,0 +1,182 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Code Technology Studio
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jpom.service.node;
+
+import cn.hutool.cache.impl.TimedCache;
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.date.SystemClock;
+import cn.hutool.core.util.StrUtil;
+import cn.jiangzeyin.common.DefaultSystemLog;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import io.jpom.model.data.NodeModel;
+import io.jpom.service.node.script.NodeScriptExecuteLogServer;
+import io.jpom.service.node.script.NodeScriptServer;
+import org.springframework.stereotype.Service;
+import org.springframework.util.Assert;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 处理插件端推送的事件
+ * <p>
+ * 插件端按顺序编号批量推送脚本模版执行记录、项目和脚本模版的变动，在当前请求中同步完成后才返回已经处理的最大编号和已经保存的执行记录id，
+ * 同步失败时请求异常，插件端不会移除这些事件，下次重新推送。
+ * 插件端只删除已经保存的执行记录（节点未启用、工作空间不匹配等没有保存的执行记录保留在插件端）。
+ * 同一个插件端可能被多个工作空间添加为节点，事件会同步到所有对应的节点
+ *
+ * @author bwcx_jzy
+ * @since 2022/5/27
+ */
+@Service
+public class NodePushEventService {
+
+    /**
+     * 超过此时间没有收到推送认为节点的推送不可用，恢复定时拉取
+     */
+    private static final long ACTIVE_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
+    /**
+     * 插件端每次启动已经处理的最大编号 key: bootId
+     */
+    private static final TimedCache<String, Long> LAST_SEQ = new TimedCache<>(TimeUnit.HOURS.toMillis(1));
+    /**
+     * 节点最后推送的时间 key: 节点id
+     */
+    private static final Map<String, Long> LAST_PUSH_TIME = new ConcurrentHashMap<>();
+
+    private final NodeService nodeService;
+    private final NodeScriptExecuteLogServer nodeScriptExecuteLogServer;
+    private final NodeScriptServer nodeScriptServer;
+    private final ProjectInfoCacheService projectInfoCacheService;
+
+    public NodePushEventService(NodeService nodeService,
+                                NodeScriptExecuteLogServer nodeScriptExecuteLogServer,
+                                NodeScriptServer nodeScriptServer,
+                                ProjectInfoCacheService projectInfoCacheService) {
+        this.nodeService = nodeService;
+        this.nodeScriptExecuteLogServer = nodeScriptExecuteLogServer;
+        this.nodeScriptServer = nodeScriptServer;
+        this.projectInfoCacheService = projectInfoCacheService;
+    }
+
+    /**
+     * 节点的推送是否可用
+     *
+     * @param nodeId 节点id
+     * @return true 最近收到过推送
+     */
+    public static boolean isPushActive(String nodeId) {
+        Long time = LAST_PUSH_TIME.get(nodeId);
+        return time != null && SystemClock.now() - time < ACTIVE_MILLIS;
+    }
+
+    /**
+     * 处理推送的事件
+     *
+     * @param authorize 插件端授权信息
+     * @param body      推送内容
+     * @return ack 已经处理的最大编号，execLogIds 已经保存的执行记录id
+     * @throws Exception 同步失败
+     */
+    public JSONObject receive(String authorize, JSONObject body) throws Exception {
+        Assert.hasText(authorize, "没有插件端授权信息");
+        List<NodeModel> nodeModels = nodeService.listByAuthorize(authorize);
+        Assert.notEmpty(nodeModels, "没有对应的节点");
+        String bootId = body.getString("bootId");
+        Assert.hasText(bootId, "bootId empty");
+        JSONArray events = Optional.ofNullable(body.getJSONArray("events")).orElseGet(JSONArray::new);
+        synchronized (bootId.intern()) {
+            long lastSeq = Optional.ofNullable(LAST_SEQ.get(bootId, false)).orElse(0L);
+            // 忽略已经处理过的事件（插件端没有收到确认时会重新推送），执行记录重复保存不影响，需要重新返回保存结果
+            List<JSONObject> newEvents = events.stream()
+                .map(o -> (JSONObject) o)
+                .filter(event -> event.getLongValue("seq") > lastSeq || StrUtil.equals(event.getString("type"), "scriptExecLog"))
+                .collect(Collectors.toList());
+            Set<String> execLogIds = new LinkedHashSet<>();
+            for (NodeModel nodeModel : nodeModels) {
+                if (nodeModel.isOpenStatus() && !newEvents.isEmpty()) {
+                    execLogIds.addAll(this.apply(nodeModel, newEvents));
+                }
+            }
+            // 全部处理成功后才认为推送可用，持续失败时恢复定时拉取
+            nodeModels.forEach(nodeModel -> LAST_PUSH_TIME.put(nodeModel.getId(), SystemClock.now()));
+            long ack = Math.max(newEvents.stream().mapToLong(event -> event.getLongValue("seq")).max().orElse(lastSeq), lastSeq);
+            LAST_SEQ.put(bootId, ack);
+            JSONObject jsonObject = new JSONObject();
+            jsonObject.put("ack", ack);
+            jsonObject.put("execLogIds", execLogIds);
+            return jsonObject;
+        }
+    }
+
+    /**
+     * 按节点处理事件，项目和脚本模版有变动时在当前线程增量同步一次（同一批次中的多个变动合并）
+     *
+     * @param nodeModel 节点
+     * @param events    事件
+     * @return 保存的执行记录id
+     * @throws Exception 同步失败
+     */
+    private List<String> apply(NodeModel nodeModel, List<JSONObject> events) throws Exception {
+        JSONArray execLogs = new JSONArray();
+        boolean project = false;
+        boolean script = false;
+        boolean resync = false;
+        for (JSONObject event : events) {
+            String type = event.getString("type");
+            if (StrUtil.equals(type, "scriptExecLog")) {
+                // 同一个事件会同步到多个节点，复制一份避免修改到其他节点的数据
+                JSONObject data = (JSONObject) event.getJSONObject("data").clone();
+                data.put("nodeId", nodeModel.getId());
+                // 自动
+                data.put("triggerExecType", 1);
+                execLogs.add(data);
+            } else if (StrUtil.equals(type, "project")) {
+                project = true;
+            } else if (StrUtil.equals(type, "script")) {
+                script = true;
+            } else if (StrUtil.equals(type, "resync")) {
+                resync = true;
+            } else {
+                DefaultSystemLog.getLog().warn("{} 节点推送了不支持的事件 {}", nodeModel.getName(), type);
+            }
+        }
+        List<String> ids = Collections.emptyList();
+        if (!execLogs.isEmpty()) {
+            ids = nodeScriptExecuteLogServer.upsertExecLog(nodeModel, execLogs);
+            DefaultSystemLog.getLog().debug("{} 节点推送 {} 个执行记录,更新 {} 个执行记录", nodeModel.getName(), execLogs.size(), CollUtil.size(ids));
+        }
+        // 按照上次同步的版本增量同步，没有版本信息或者插件端要求重新同步时为全量同步
+        if (project || resync) {
+            projectInfoCacheService.syncExecuteNodeThrow(nodeModel);
+        }
+        if (script || resync) {
+            nodeScriptServer.syncExecuteNodeThrow(nodeModel);
+        }
+        return ids;
+    }
+}
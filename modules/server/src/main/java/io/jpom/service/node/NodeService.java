@@ -22,6 +22,7 @@
  */
 package io.jpom.service.node;
 
+import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.convert.Convert;
 import cn.hutool.core.lang.Validator;
@@ -43,6 +44,7 @@ import io.jpom.model.data.SshModel;
 import io.jpom.model.data.UserModel;
 import io.jpom.model.data.WorkspaceModel;
 import io.jpom.service.h2db.BaseGroupService;
+import io.jpom.service.h2db.DbDataCache;
 import io.jpom.service.node.ssh.SshService;
 import io.jpom.service.system.WorkspaceService;
 import lombok.extern.slf4j.Slf4j;
@@ -52,7 +54,9 @@ import org.springframework.util.Assert;
 import javax.servlet.http.HttpServletRequest;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -67,6 +71,14 @@ public class NodeService extends BaseGroupService<NodeModel> {
 
     private final SshService sshService;
     private final WorkspaceService workspaceService;
+    /**
+     * 节点缓存，用于权限拦截等高频查询
+     */
+    private final DbDataCache<NodeModel> nodeCache = new DbDataCache<>(1000, TimeUnit.SECONDS.toMillis(30));
+    /**
+     * 插件端授权信息对应的节点id，用于处理插件端推送
+     */
+    private final DbDataCache<List<String>> authorizeCache = new DbDataCache<>(1000, TimeUnit.SECONDS.toMillis(30));
 
     public NodeService(SshService sshService,
                        WorkspaceService workspaceService) {
@@ -300,6 +312,50 @@ public class NodeService extends BaseGroupService<NodeModel> {
         }
     }
 
+    /**
+     * 根据 id 查询节点（使用缓存，节点数据变化后自动清空）
+     *
+     * @param id 节点ID
+     * @return 节点副本
+     */
+    public NodeModel getByKeyCache(String id) {
+        if (StrUtil.isEmpty(id)) {
+            return null;
+        }
+        NodeModel nodeModel = nodeCache.get(id, () -> super.getByKey(id));
+        // 返回副本，避免修改到缓存中的数据
+        return nodeModel == null ? null : BeanUtil.toBean(nodeModel, NodeModel.class);
+    }
+
+    /**
+     * 根据插件端授权信息查询节点（使用缓存，节点数据变化后自动清空）
+     * <p>
+     * 同一个插件端可能被多个工作空间添加为节点
+     *
+     * @param authorize 插件端授权信息
+     * @return 节点副本
+     */
+    public List<NodeModel> listByAuthorize(String authorize) {
+        if (StrUtil.isEmpty(authorize)) {
+            return Collections.emptyList();
+        }
+        List<String> ids = authorizeCache.get(authorize, () -> this.list()
+            .stream()
+            .filter(nodeModel -> StrUtil.equals(nodeModel.toAuthorize(), authorize))
+            .map(NodeModel::getId)
+            .collect(Collectors.toList()));
+        return ids.stream()
+            .map(this::getByKeyCache)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    protected void dataChanged() {
+        nodeCache.clear();
+        authorizeCache.clear();
+    }
+
     @Override
     public void insert(NodeModel nodeModel) {
         this.fillNodeInfo(nodeModel);
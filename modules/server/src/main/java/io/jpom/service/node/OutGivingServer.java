@@ -59,6 +59,19 @@ public class OutGivingServer extends BaseWorkspaceService<OutGivingModel> implem
 		return false;
 	}
 
+	/**
+	 * 修改分发状态
+	 *
+	 * @param id     分发id
+	 * @param status 状态
+	 */
+	public void updateStatus(String id, OutGivingModel.Status status) {
+		OutGivingModel outGivingModel = new OutGivingModel();
+		outGivingModel.setId(id);
+		outGivingModel.setStatus(status.getCode());
+		super.update(outGivingModel);
+	}
+
 	@Override
 	public int statusRecover() {
 		// 恢复异常数据
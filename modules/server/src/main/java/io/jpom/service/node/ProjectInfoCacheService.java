@@ -84,4 +84,9 @@ public class ProjectInfoCacheService extends BaseNodeService<ProjectInfoCacheMod
 	public JSONArray getLitDataArray(NodeModel nodeModel) {
 		return NodeForward.requestData(nodeModel, NodeUrl.Manage_GetProjectInfo, JSONArray.class, "notStatus", "true");
 	}
+
+	@Override
+	protected Object getChangeData(NodeModel nodeModel, String epoch, long revision) {
+		return NodeForward.requestData(nodeModel, NodeUrl.Manage_GetProjectInfo, Object.class, "notStatus", "true", "epoch", epoch, "revision", revision);
+	}
 }
@@ -110,33 +110,46 @@ public class NodeScriptExecuteLogServer extends BaseNodeService<ScriptExecuteLog
 				//
 				return null;
 			}
-			//
-			List<ScriptExecuteLogCacheModel> models = jsonArray.toJavaList(this.tClass).stream()
-					.filter(item -> {
-						// 检查对应的工作空间 是否存在
-						return workspaceService.exists(new WorkspaceModel(item.getWorkspaceId()));
-					})
-					.filter(item -> {
-						// 避免重复同步
-						return StrUtil.equals(nodeModel.getWorkspaceId(), item.getWorkspaceId());
-					})
-					.collect(Collectors.toList());
-			// 设置 临时缓存，便于放行检查
-			BaseServerController.resetInfo(UserModel.EMPTY);
-			//
-			models.forEach(NodeScriptExecuteLogServer.super::upsert);
+			List<String> ids = this.upsertExecLog(nodeModel, jsonArray);
 			String format = StrUtil.format(
 					"{} 节点拉取到 {} 个执行记录,更新 {} 个执行记录",
 					nodeModelName, CollUtil.size(jsonArray),
-					CollUtil.size(models));
+					CollUtil.size(ids));
 			DefaultSystemLog.getLog().debug(format);
-			return models.stream().map(BaseDbModel::getId).collect(Collectors.toList());
+			return ids;
 		} catch (Exception e) {
 			this.checkException(e, nodeModelName);
 			return null;
+		}
+	}
+
+	/**
+	 * 保存节点的执行记录
+	 *
+	 * @param nodeModel 节点
+	 * @param jsonArray 执行记录（已经填充 nodeId）
+	 * @return 保存的记录id
+	 */
+	public List<String> upsertExecLog(NodeModel nodeModel, JSONArray jsonArray) {
+		List<ScriptExecuteLogCacheModel> models = jsonArray.toJavaList(this.tClass).stream()
+				.filter(item -> {
+					// 检查对应的工作空间 是否存在
+					return workspaceService.exists(new WorkspaceModel(item.getWorkspaceId()));
+				})
+				.filter(item -> {
+					// 避免重复同步
+					return StrUtil.equals(nodeModel.getWorkspaceId(), item.getWorkspaceId());
+				})
+				.collect(Collectors.toList());
+		try {
+			// 设置 临时缓存，便于放行检查
+			BaseServerController.resetInfo(UserModel.EMPTY);
+			//
+			models.forEach(NodeScriptExecuteLogServer.super::upsert);
 		} finally {
 			BaseServerController.removeEmpty();
 		}
+		return models.stream().map(BaseDbModel::getId).collect(Collectors.toList());
 	}
 
 	@Override
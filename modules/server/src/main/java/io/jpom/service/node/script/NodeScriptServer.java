@@ -73,4 +73,9 @@ public class NodeScriptServer extends BaseNodeService<ScriptCacheModel> {
 	public JSONArray getLitDataArray(NodeModel nodeModel) {
 		return NodeForward.requestData(nodeModel, NodeUrl.Script_List, null, JSONArray.class);
 	}
+
+	@Override
+	protected Object getChangeData(NodeModel nodeModel, String epoch, long revision) {
+		return NodeForward.requestData(nodeModel, NodeUrl.Script_List, Object.class, "revision", revision, "epoch", epoch);
+	}
 }
@@ -52,6 +52,7 @@ import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 /**
@@ -63,6 +64,15 @@ import java.util.stream.Collectors;
 @Service
 public class NodeStatService extends BaseWorkspaceService<NodeStatModel> implements IAsyncLoad, Runnable {
 
+    /**
+     * 单个节点检查的超时时间（秒）
+     */
+    private static final int CHECK_TIMEOUT = 5;
+    /**
+     * 上一轮检查是否还在执行
+     */
+    private final AtomicBoolean checking = new AtomicBoolean();
+
     private final ServerExtConfigBean serverExtConfigBean;
     private final DbSystemMonitorLogService dbSystemMonitorLogService;
     private final NodeService nodeService;
@@ -109,9 +119,25 @@ public class NodeStatService extends BaseWorkspaceService<NodeStatModel> impleme
 
     @Override
     public void run() {
-        List<NodeModel> nodeModels = nodeService.listDeDuplicationByUrl();
-        //
-        this.checkList(nodeModels);
+        if (!checking.compareAndSet(false, true)) {
+            DefaultSystemLog.getLog().debug("上一轮节点检查还未结束");
+            return;
+        }
+        // 不阻塞定时线程，上一轮没有结束时跳过本轮
+        try {
+            ThreadUtil.execute(() -> {
+                try {
+                    List<NodeModel> nodeModels = nodeService.listDeDuplicationByUrl();
+                    //
+                    this.checkList(nodeModels);
+                } finally {
+                    checking.set(false);
+                }
+            });
+        } catch (Exception e) {
+            checking.set(false);
+            DefaultSystemLog.getLog().error("节点检查异常", e);
+        }
     }
 
 
@@ -125,7 +151,7 @@ public class NodeStatService extends BaseWorkspaceService<NodeStatModel> impleme
         if (CollUtil.isEmpty(nodeModels)) {
             return;
         }
-        nodeModels.forEach(nodeModel -> {
+        List<NodeModel> checkList = nodeModels.stream().filter(nodeModel -> {
             //
             nodeModel.setName(nodeModel.getUrl());
             List<NodeModel> modelList = this.getListByUrl(nodeModel.getUrl());
@@ -138,47 +164,62 @@ public class NodeStatService extends BaseWorkspaceService<NodeStatModel> impleme
                 } finally {
                     BaseServerController.removeEmpty();
                 }
-                return;
+                return false;
             }
             nodeModel.setOpenStatus(1);
-            nodeModel.setTimeOut(5);
-            //
-            ThreadUtil.execute(() -> {
-                try {
-                    BaseServerController.resetInfo(UserModel.EMPTY);
-                    JSONObject nodeTopInfo = this.getNodeTopInfo(nodeModel);
-                    //
-                    long timeMillis = SystemClock.now();
-                    JsonMessage<Object> jsonMessage = NodeForward.requestBySys(nodeModel, NodeUrl.Status, "nodeId", nodeModel.getId());
-                    int networkTime = (int) (System.currentTimeMillis() - timeMillis);
-                    JSONObject jsonObject;
-                    if (jsonMessage.getCode() == 200) {
-                        jsonObject = jsonMessage.getData(JSONObject.class);
-                    } else {
-                        // 状态码错
-                        jsonObject = new JSONObject();
-                        jsonObject.put("status", 3);
-                        jsonObject.put("failureMsg", jsonMessage.toString());
-                    }
-                    jsonObject.put("networkTime", networkTime);
-                    if (nodeTopInfo != null) {
-                        nodeTopInfo.put("networkTime", networkTime);
-                    }
-                    this.save(modelList, nodeTopInfo, jsonObject);
-                } catch (AuthorizeException agentException) {
-                    this.save(modelList, 2, agentException.getMessage());
-                } catch (AgentException e) {
-                    this.save(modelList, 1, e.getMessage());
-                } catch (Exception e) {
-                    this.save(modelList, 1, e.getMessage());
-                    DefaultSystemLog.getLog().error("获取节点监控信息失败", e);
-                } finally {
-                    BaseServerController.removeEmpty();
-                }
-            });
+            nodeModel.setTimeOut(CHECK_TIMEOUT);
+            return true;
+        }).collect(Collectors.toList());
+        // 并行检查所有节点，检查结果只由 checkNode 保存（checkNode 自身有超时时间），
+        // 排队超时的节点本轮不检查，避免和还在执行的检查同时保存状态
+        NodeForward.fanOut(checkList, nodeModel -> {
+            this.checkNode(nodeModel);
+            return null;
         });
     }
 
+    private void checkNode(NodeModel nodeModel) {
+        List<NodeModel> modelList = this.getListByUrl(nodeModel.getUrl());
+        try {
+            BaseServerController.resetInfo(UserModel.EMPTY);
+            long startTime = SystemClock.now();
+            JSONObject nodeTopInfo = this.getNodeTopInfo(nodeModel);
+            // 两次请求共用检查的超时时间（请求的超时时间最少为 2 秒）
+            long remaining = TimeUnit.SECONDS.toMillis(CHECK_TIMEOUT) - (SystemClock.now() - startTime);
+            if (remaining < TimeUnit.SECONDS.toMillis(2)) {
+                throw new AgentException(nodeModel.getName() + "节点响应超时");
+            }
+            nodeModel.setTimeOut((int) TimeUnit.MILLISECONDS.toSeconds(remaining));
+            //
+            long timeMillis = SystemClock.now();
+            JsonMessage<Object> jsonMessage = NodeForward.requestBySys(nodeModel, NodeUrl.Status, "nodeId", nodeModel.getId());
+            int networkTime = (int) (System.currentTimeMillis() - timeMillis);
+            JSONObject jsonObject;
+            if (jsonMessage.getCode() == 200) {
+                jsonObject = jsonMessage.getData(JSONObject.class);
+            } else {
+                // 状态码错
+                jsonObject = new JSONObject();
+                jsonObject.put("status", 3);
+                jsonObject.put("failureMsg", jsonMessage.toString());
+            }
+            jsonObject.put("networkTime", networkTime);
+            if (nodeTopInfo != null) {
+                nodeTopInfo.put("networkTime", networkTime);
+            }
+            this.save(modelList, nodeTopInfo, jsonObject);
+        } catch (AuthorizeException agentException) {
+            this.save(modelList, 2, agentException.getMessage());
+        } catch (AgentException e) {
+            this.save(modelList, 1, e.getMessage());
+        } catch (Exception e) {
+            this.save(modelList, 1, e.getMessage());
+            DefaultSystemLog.getLog().error("获取节点监控信息失败", e);
+        } finally {
+            BaseServerController.removeEmpty();
+        }
+    }
+
     private void saveSystemMonitor(List<NodeModel> modelList, JSONObject systemMonitor) {
         if (systemMonitor != null) {
             List<SystemMonitorLog> monitorLogs = modelList.stream().map(nodeModel -> {
@@ -193,7 +234,7 @@ public class NodeStatService extends BaseWorkspaceService<NodeStatModel> impleme
                 return log;
             }).collect(Collectors.toList());
             //
-            dbSystemMonitorLogService.insert(monitorLogs);
+            dbSystemMonitorLogService.insertAsync(monitorLogs);
         }
     }
 
@@ -29,12 +29,14 @@ import io.jpom.model.data.UserModel;
 import io.jpom.model.data.WorkspaceModel;
 import io.jpom.permission.MethodFeature;
 import io.jpom.service.h2db.BaseDbService;
+import io.jpom.service.h2db.DbDataCache;
 import io.jpom.service.system.WorkspaceService;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -55,6 +57,11 @@ public class UserBindWorkspaceService extends BaseDbService<UserBindWorkspaceMod
 	 */
 	public static final String SSH_COMMAND_NOT_LIMITED = "-sshCommandNotLimited";
 
+	/**
+	 * 用户工作空间权限缓存，key 为绑定关系 id（用户ID + 工作空间ID + 功能）
+	 */
+	private final DbDataCache<Boolean> existsCache = new DbDataCache<>(10000, TimeUnit.MINUTES.toMillis(5));
+
 	public UserBindWorkspaceService(WorkspaceService workspaceService) {
 		this.workspaceService = workspaceService;
 	}
@@ -157,8 +164,16 @@ public class UserBindWorkspaceService extends BaseDbService<UserBindWorkspaceMod
 	 * @return true 存在
 	 */
 	public boolean exists(String userId, String workspaceId) {
-		UserBindWorkspaceModel workspaceModel = new UserBindWorkspaceModel();
-		workspaceModel.setId(UserBindWorkspaceModel.getId(userId, workspaceId));
-		return this.exists(workspaceModel);
+		String id = UserBindWorkspaceModel.getId(userId, workspaceId);
+		return existsCache.get(id, () -> {
+			UserBindWorkspaceModel workspaceModel = new UserBindWorkspaceModel();
+			workspaceModel.setId(id);
+			return this.exists(workspaceModel);
+		});
+	}
+
+	@Override
+	protected void dataChanged() {
+		existsCache.clear();
 	}
 }
@@ -22,6 +22,7 @@
  */
 package io.jpom.service.user;
 
+import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.RandomUtil;
 import cn.hutool.core.util.StrUtil;
@@ -30,12 +31,14 @@ import cn.hutool.db.Entity;
 import io.jpom.model.data.UserModel;
 import io.jpom.model.dto.UserLoginDto;
 import io.jpom.service.h2db.BaseDbService;
+import io.jpom.service.h2db.DbDataCache;
 import io.jpom.util.JwtUtil;
 import io.jpom.util.TwoFactorAuthUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author bwcx_jzy
@@ -44,6 +47,11 @@ import java.util.List;
 @Service
 public class UserService extends BaseDbService<UserModel> {
 
+	/**
+	 * 登录用户缓存，key 为 jwt id
+	 */
+	private final DbDataCache<UserModel> checkUserCache = new DbDataCache<>(1000, TimeUnit.MINUTES.toMillis(1));
+
 	/**
 	 * 是否需要初始化
 	 *
@@ -90,9 +98,21 @@ public class UserService extends BaseDbService<UserModel> {
 	 * @return userModel 用户对象
 	 */
 	public UserModel checkUser(String userMd5) {
-		UserModel userModel = new UserModel();
-		userModel.setPassword(userMd5);
-		return super.queryByBean(userModel);
+		if (StrUtil.isEmpty(userMd5)) {
+			return null;
+		}
+		UserModel cacheUser = checkUserCache.get(userMd5, () -> {
+			UserModel userModel = new UserModel();
+			userModel.setPassword(userMd5);
+			return super.queryByBean(userModel);
+		});
+		// 返回副本，避免修改到缓存中的数据
+		return cacheUser == null ? null : BeanUtil.toBean(cacheUser, UserModel.class);
+	}
+
+	@Override
+	protected void dataChanged() {
+		checkUserCache.clear();
 	}
 
 	/**
@@ -24,17 +24,14 @@ package io.jpom.socket;
 
 import cn.hutool.core.exceptions.ExceptionUtil;
 import cn.hutool.core.thread.ThreadUtil;
-import cn.hutool.core.util.StrUtil;
 import cn.jiangzeyin.common.DefaultSystemLog;
 import cn.jiangzeyin.common.spring.SpringUtil;
-import com.alibaba.fastjson.JSONObject;
 import io.jpom.system.init.OperateLogController;
+import io.jpom.util.SocketSessionUtil;
 import org.java_websocket.client.WebSocketClient;
 import org.java_websocket.handshake.ServerHandshake;
-import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 
-import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Objects;
@@ -81,35 +78,24 @@ public class ProxySession extends WebSocketClient {
 	@Override
 	public void onMessage(String message) {
 		try {
-			session.sendMessage(new TextMessage(message));
-		} catch (IOException e) {
+			SocketSessionUtil.send(session, message);
+		} catch (Exception e) {
 			DefaultSystemLog.getLog().error("发送消息失败", e);
 		}
-		try {
-			JSONObject jsonObject = JSONObject.parseObject(message);
-			String reqId = jsonObject.getString("reqId");
-			if (StrUtil.isNotEmpty(reqId)) {
-				logController.updateLog(reqId, message);
-			}
-		} catch (Exception ignored) {
-		}
+		logController.updateLogByMessage(message);
 	}
 
 	@Override
 	public void onClose(int code, String reason, boolean remote) {
-		try {
-			session.close();
-		} catch (IOException e) {
-			DefaultSystemLog.getLog().error("关闭错误", e);
-		}
+		// 转发完剩余的消息后再关闭
+		SocketSessionUtil.close(session);
 	}
 
 	@Override
 	public void onError(Exception ex) {
 		try {
-			session.sendMessage(new TextMessage("agent服务端发生异常" + ExceptionUtil.stacktraceToString(ex)));
-//            SocketSessionUtil.send(session, );
-		} catch (IOException ignored) {
+			SocketSessionUtil.send(session, "agent服务端发生异常" + ExceptionUtil.stacktraceToString(ex));
+		} catch (Exception ignored) {
 		}
 		DefaultSystemLog.getLog().error("发生错误", ex);
 	}
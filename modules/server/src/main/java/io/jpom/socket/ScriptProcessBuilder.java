@@ -113,6 +113,8 @@ public class ScriptProcessBuilder extends BaseRunScript implements Runnable {
         ScriptProcessBuilder scriptProcessBuilder = create(nodeScriptModel, executeId, args);
         //
         if (scriptProcessBuilder.sessions.add(session)) {
+            // 读取历史日志前先将缓冲区写入文件
+            scriptProcessBuilder.logRecorder.flush();
             if (FileUtil.exist(scriptProcessBuilder.logFile)) {
                 // 读取之前的信息并发送
                 FileUtil.readLines(scriptProcessBuilder.logFile, CharsetUtil.CHARSET_UTF_8, (LineHandler) line -> {
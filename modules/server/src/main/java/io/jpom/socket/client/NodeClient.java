@@ -23,10 +23,8 @@
 package io.jpom.socket.client;
 
 import cn.hutool.core.thread.ThreadUtil;
-import cn.hutool.core.util.StrUtil;
 import cn.jiangzeyin.common.DefaultSystemLog;
 import cn.jiangzeyin.common.spring.SpringUtil;
-import com.alibaba.fastjson.JSONObject;
 import io.jpom.model.WebSocketMessageModel;
 import io.jpom.model.data.NodeModel;
 import io.jpom.system.init.OperateLogController;
@@ -98,14 +96,7 @@ public class NodeClient extends WebSocketClient {
         } catch (IOException e) {
             DefaultSystemLog.getLog().error("发送消息失败", e);
         }
-        try {
-            JSONObject jsonObject = JSONObject.parseObject(message);
-            String reqId = jsonObject.getString("reqId");
-            if (StrUtil.isNotEmpty(reqId)) {
-                logController.updateLog(reqId, message);
-            }
-        } catch (Exception ignored) {
-        }
+        logController.updateLogByMessage(message);
     }
 
     @Override
@@ -94,7 +94,7 @@ public class ServerScriptHandler extends BaseProxyHandler {
 					String executeId = json.getString("executeId");
 					if (StrUtil.isEmpty(executeId)) {
 						SocketSessionUtil.send(session, "没有执行ID");
-						session.close();
+						SocketSessionUtil.close(session);
 						return null;
 					}
 					ScriptProcessBuilder.stopRun(executeId);
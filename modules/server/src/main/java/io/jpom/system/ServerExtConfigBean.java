@@ -112,6 +112,24 @@ public class ServerExtConfigBean {
     @Value("${build.checkDeleteCommand:true}")
     private Boolean buildCheckDeleteCommand;
 
+    /**
+     * 同时执行的最大构建数，超出的构建排队等待
+     */
+    @Value("${build.maxConcurrent:5}")
+    private int buildMaxConcurrent;
+
+    /**
+     * 单个工作空间同时执行的最大构建数，小于等于 0 只受 maxConcurrent 限制
+     */
+    @Value("${build.workspaceMaxConcurrent:3}")
+    private int buildWorkspaceMaxConcurrent;
+
+    /**
+     * git 仓库是否使用共用的本地镜像
+     */
+    @Value("${build.gitMirror:true}")
+    private boolean buildGitMirror;
+
     /**
      * ssh 中执行命令 初始化的环境变量
      */
@@ -124,6 +142,84 @@ public class ServerExtConfigBean {
     @Value("${node.uploadFileTimeOut:300}")
     private int uploadFileTimeOut;
 
+    /**
+     * 节点请求方式 pooled 连接池（长连接）、hutool 每次请求新建连接
+     */
+    @Value("${node.transport.type:pooled}")
+    private String nodeTransportType;
+
+    /**
+     * 单个节点最多保持的空闲连接数
+     */
+    @Value("${node.transport.maxIdle:5}")
+    private int nodeTransportMaxIdle;
+
+    /**
+     * 空闲连接保持时间 单位秒
+     */
+    @Value("${node.transport.keepAlive:60}")
+    private int nodeTransportKeepAlive;
+
+    /**
+     * 单个节点最大并发请求数
+     */
+    @Value("${node.transport.maxConcurrent:20}")
+    private int nodeTransportMaxConcurrent;
+
+    /**
+     * 是否开启 http2（仅 https 节点协商生效）
+     */
+    @Value("${node.transport.http2:false}")
+    private boolean nodeTransportHttp2;
+
+    /**
+     * 批量请求节点的线程数
+     */
+    @Value("${node.fanOut.poolSize:20}")
+    private int nodeFanOutPoolSize;
+
+    /**
+     * 批量请求节点时，执行中（含排队）的最大请求数
+     */
+    @Value("${node.fanOut.maxPending:200}")
+    private int nodeFanOutMaxPending;
+
+    /**
+     * 批量请求时单个节点的超时时间 单位秒
+     */
+    @Value("${node.fanOut.nodeTimeout:60}")
+    private int nodeFanOutNodeTimeout;
+
+    /**
+     * 批量请求的整体超时时间 单位秒
+     */
+    @Value("${node.fanOut.timeout:300}")
+    private int nodeFanOutTimeout;
+
+    /**
+     * 分片上传的分片大小 单位 MB，小于等于 0 不使用分片上传
+     */
+    @Value("${node.sliceUpload.sliceSize:5}")
+    private int sliceUploadSize;
+
+    /**
+     * 分片上传时单个节点同时上传的分片数
+     */
+    @Value("${node.sliceUpload.parallel:4}")
+    private int sliceUploadParallel;
+
+    /**
+     * 分发时同时上传的节点数
+     */
+    @Value("${node.outGiving.parallel:5}")
+    private int outGivingParallel;
+
+    /**
+     * 顺序重启的分发每批分发的节点数
+     */
+    @Value("${node.outGiving.batchSize:1}")
+    private int outGivingBatchSize;
+
     /**
      * 前端接口 超时时间 单位秒
      */
@@ -186,6 +282,66 @@ public class ServerExtConfigBean {
         return Math.max(this.uploadFileTimeOut, 5) * 1000;
     }
 
+    public String getNodeTransportType() {
+        return StrUtil.emptyToDefault(nodeTransportType, "pooled");
+    }
+
+    public int getNodeTransportMaxIdle() {
+        return nodeTransportMaxIdle;
+    }
+
+    public int getNodeTransportKeepAlive() {
+        return nodeTransportKeepAlive;
+    }
+
+    public int getNodeTransportMaxConcurrent() {
+        return nodeTransportMaxConcurrent;
+    }
+
+    public boolean isNodeTransportHttp2() {
+        return nodeTransportHttp2;
+    }
+
+    public int getNodeFanOutPoolSize() {
+        return Math.max(nodeFanOutPoolSize, 1);
+    }
+
+    public int getNodeFanOutMaxPending() {
+        return Math.max(nodeFanOutMaxPending, getNodeFanOutPoolSize());
+    }
+
+    public int getNodeFanOutNodeTimeout() {
+        return Math.max(nodeFanOutNodeTimeout, 5);
+    }
+
+    public int getNodeFanOutTimeout() {
+        return Math.max(nodeFanOutTimeout, getNodeFanOutNodeTimeout());
+    }
+
+    /**
+     * 分片大小
+     *
+     * @return 字节，小于等于 0 不使用分片上传
+     */
+    public int getSliceUploadSize() {
+        if (sliceUploadSize <= 0) {
+            return 0;
+        }
+        return Math.min(sliceUploadSize, 100) * 1024 * 1024;
+    }
+
+    public int getSliceUploadParallel() {
+        return Math.max(sliceUploadParallel, 1);
+    }
+
+    public int getOutGivingParallel() {
+        return Math.max(outGivingParallel, 1);
+    }
+
+    public int getOutGivingBatchSize() {
+        return Math.max(outGivingBatchSize, 1);
+    }
+
     public String getSshInitEnv() {
         return StrUtil.emptyToDefault(this.sshInitEnv, "source /etc/profile && source ~/.bash_profile && source ~/.bashrc");
     }
@@ -210,6 +366,21 @@ public class ServerExtConfigBean {
         return buildItemMaxHistoryCount;
     }
 
+    public int getBuildMaxConcurrent() {
+        return Math.max(buildMaxConcurrent, 1);
+    }
+
+    public boolean isBuildGitMirror() {
+        return buildGitMirror;
+    }
+
+    public int getBuildWorkspaceMaxConcurrent() {
+        if (buildWorkspaceMaxConcurrent <= 0) {
+            return getBuildMaxConcurrent();
+        }
+        return Math.min(buildWorkspaceMaxConcurrent, getBuildMaxConcurrent());
+    }
+
     public int getAuthorizeExpired() {
         return authorizeExpired;
     }
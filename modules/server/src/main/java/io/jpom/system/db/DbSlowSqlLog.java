@@ -0,0 +1,133 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Code Technology Studio
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jpom.system.db;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.date.SystemClock;
+import cn.hutool.core.util.ArrayUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.db.Entity;
+import cn.hutool.db.sql.Condition;
+import com.alibaba.fastjson.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 慢 sql 记录
+ * <p>
+ * 只记录表名、操作类型和查询条件的字段名（原始 sql 不记录参数），避免敏感数据出现在日志中
+ *
+ * @author bwcx_jzy
+ * @since 2022/5/26
+ */
+@Slf4j
+public class DbSlowSqlLog {
+
+	/**
+	 * 内存中最多保留的记录条数
+	 */
+	private static final int MAX_SIZE = 100;
+	/**
+	 * 记录的 sql 最大长度
+	 */
+	private static final int MAX_SQL_LENGTH = 500;
+
+	private static final LinkedList<JSONObject> SLOW_LIST = new LinkedList<>();
+
+	/**
+	 * 慢 sql 阈值（毫秒）小于等于 0 不记录
+	 */
+	private static volatile int slowTime = 1000;
+
+	public static void setSlowTime(Integer slowTime) {
+		DbSlowSqlLog.slowTime = slowTime == null ? 0 : slowTime;
+	}
+
+	/**
+	 * 记录 sql 执行耗时，超过阈值的将记录下来
+	 *
+	 * @param tableName 表名
+	 * @param type      操作类型
+	 * @param sql       sql 语句、条件 {@link Entity} 或者 {@link Condition} 数组
+	 * @param startTime 开始时间
+	 */
+	public static void record(String tableName, String type, Object sql, long startTime) {
+		int slowTime = DbSlowSqlLog.slowTime;
+		if (slowTime <= 0) {
+			return;
+		}
+		long now = SystemClock.now();
+		long cost = now - startTime;
+		if (cost < slowTime) {
+			return;
+		}
+		String sqlStr = StrUtil.maxLength(DbSlowSqlLog.toSqlStr(sql), MAX_SQL_LENGTH);
+		log.warn("慢 sql [{}] {} {} 耗时 {}ms", tableName, type, sqlStr, cost);
+		JSONObject jsonObject = new JSONObject();
+		jsonObject.put("tableName", tableName);
+		jsonObject.put("type", type);
+		jsonObject.put("sql", sqlStr);
+		jsonObject.put("cost", cost);
+		jsonObject.put("time", now);
+		synchronized (SLOW_LIST) {
+			SLOW_LIST.addFirst(jsonObject);
+			while (SLOW_LIST.size() > MAX_SIZE) {
+				SLOW_LIST.removeLast();
+			}
+		}
+	}
+
+	private static String toSqlStr(Object sql) {
+		if (sql == null) {
+			return StrUtil.EMPTY;
+		}
+		if (sql instanceof Entity) {
+			Entity entity = (Entity) sql;
+			return "where " + CollUtil.join(entity.keySet(), StrUtil.COMMA);
+		}
+		if (sql instanceof Condition[]) {
+			Condition[] conditions = (Condition[]) sql;
+			if (ArrayUtil.isEmpty(conditions)) {
+				return StrUtil.EMPTY;
+			}
+			return "where " + Arrays.stream(conditions).map(Condition::getField).collect(Collectors.joining(StrUtil.COMMA));
+		}
+		return StrUtil.toString(sql);
+	}
+
+	/**
+	 * 最近的慢 sql，按照时间倒序
+	 *
+	 * @return list
+	 */
+	public static List<JSONObject> list() {
+		synchronized (SLOW_LIST) {
+			return new ArrayList<>(SLOW_LIST);
+		}
+	}
+}
@@ -95,6 +95,11 @@ public class DbExtConfig {
      */
     private Boolean showSql = false;
 
+    /**
+     * 慢 sql 阈值（毫秒），超过阈值的 sql 会记录到日志并在缓存监控页面展示。小于等于 0 不记录
+     */
+    private Integer slowSqlTime = 1000;
+
     public String getUserName() {
         return StrUtil.emptyToDefault(this.userName, DbConfig.DEFAULT_USER_OR_AUTHORIZATION);
     }
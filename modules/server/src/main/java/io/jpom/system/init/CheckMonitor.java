@@ -30,6 +30,7 @@ import cn.jiangzeyin.common.PreLoadClass;
 import cn.jiangzeyin.common.PreLoadMethod;
 import cn.jiangzeyin.common.spring.SpringUtil;
 import com.alibaba.fastjson.JSONObject;
+import io.jpom.build.BuildArtifactStore;
 import io.jpom.build.BuildUtil;
 import io.jpom.common.RemoteVersion;
 import io.jpom.common.forward.NodeForward;
@@ -38,6 +39,7 @@ import io.jpom.cron.CronUtils;
 import io.jpom.model.data.NodeModel;
 import io.jpom.service.IStatusRecover;
 import io.jpom.service.dblog.BackupInfoService;
+import io.jpom.service.node.NodePushEventService;
 import io.jpom.service.node.NodeService;
 import io.jpom.service.node.script.NodeScriptExecuteLogServer;
 import io.jpom.service.node.script.NodeScriptServer;
@@ -60,6 +62,8 @@ public class CheckMonitor {
 	private static void init() {
 		// 缓存检测调度
 		CronUtils.upsert("cache_manger_schedule", "0 0/10 * * * ?", () -> {
+			// 清理已经没有构建历史引用的构建产物
+			BuildArtifactStore.gc();
 			BuildUtil.reloadCacheSize();
 			ConfigBean.getInstance().dataSize();
 		});
@@ -83,6 +87,10 @@ public class CheckMonitor {
 				return;
 			}
 			for (String nodeId : nodeIds) {
+				if (NodePushEventService.isPushActive(nodeId)) {
+					// 插件端会主动推送执行记录
+					continue;
+				}
 				NodeModel nodeModel = nodeService.getByKey(nodeId);
 				if (nodeModel == null) {
 					continue;
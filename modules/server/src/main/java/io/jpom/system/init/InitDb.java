@@ -24,7 +24,9 @@ package io.jpom.system.init;
 
 import cn.hutool.core.io.IoUtil;
 import cn.hutool.core.lang.Console;
+import cn.hutool.core.util.ArrayUtil;
 import cn.hutool.core.util.CharsetUtil;
+import cn.hutool.core.util.ClassUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.crypto.SecureUtil;
 import cn.hutool.db.Db;
@@ -41,9 +43,13 @@ import io.jpom.common.JpomManifest;
 import io.jpom.model.data.UserModel;
 import io.jpom.service.h2db.BaseGroupService;
 import io.jpom.service.h2db.BaseNodeService;
+import io.jpom.service.h2db.DbLogWriter;
+import io.jpom.service.h2db.TableIndex;
+import io.jpom.service.h2db.TableName;
 import io.jpom.service.system.WorkspaceService;
 import io.jpom.system.ServerExtConfigBean;
 import io.jpom.system.db.DbConfig;
+import io.jpom.system.db.DbSlowSqlLog;
 import io.jpom.system.extconf.DbExtConfig;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.DisposableBean;
@@ -102,6 +108,7 @@ public class InitDb implements DisposableBean, InitializingBean {
             setting.set(SqlLog.KEY_SQL_LEVEL, "DEBUG");
             setting.set(SqlLog.KEY_SHOW_PARAMS, "true");
         }
+        DbSlowSqlLog.setSlowTime(dbExtConfig.getSlowSqlTime());
         Console.log("start load h2 db");
         String sqlFileNow = StrUtil.EMPTY;
         try {
@@ -139,6 +146,9 @@ public class InitDb implements DisposableBean, InitializingBean {
                 } catch (IOException ignored) {
                 }
             }
+            // 创建表索引
+            sqlFileNow = "table index";
+            InitDb.initTableIndex(Db.use(dsFactory.getDataSource()), executeSqlLog);
             instance.saveExecuteSqlLog(executeSqlLog);
             GlobalDSFactory.set(dsFactory);
             //
@@ -163,6 +173,40 @@ public class InitDb implements DisposableBean, InitializingBean {
         }
     }
 
+    /**
+     * 根据实体上的 {@link TableIndex} 创建索引
+     * <p>
+     * 创建语句的 sha1 记录到 sql 执行记录中，索引定义发生变化时先删除同名旧索引再重新创建
+     *
+     * @param db            数据库
+     * @param executeSqlLog sql 执行记录
+     */
+    private static void initTableIndex(Db db, Set<String> executeSqlLog) {
+        Set<Class<?>> classes = ClassUtil.scanPackageByAnnotation("io.jpom.model", TableName.class);
+        for (Class<?> aClass : classes) {
+            TableName tableName = aClass.getAnnotation(TableName.class);
+            TableIndex[] tableIndices = aClass.getAnnotationsByType(TableIndex.class);
+            for (TableIndex tableIndex : tableIndices) {
+                String indexName = StrUtil.format("{}_{}", tableName.value(), tableIndex.name()).toUpperCase();
+                String sql = StrUtil.format("CREATE {}INDEX IF NOT EXISTS {} ON PUBLIC.{} ({});",
+                        tableIndex.unique() ? "UNIQUE " : StrUtil.EMPTY, indexName, tableName.value(), ArrayUtil.join(tableIndex.fields(), StrUtil.COMMA));
+                String sha1 = SecureUtil.sha1(sql);
+                if (executeSqlLog.contains(sha1)) {
+                    continue;
+                }
+                try {
+                    db.execute(StrUtil.format("DROP INDEX IF EXISTS {};", indexName));
+                    db.execute(sql);
+                    log.info("create table index: {}", sql);
+                    executeSqlLog.add(sha1);
+                } catch (SQLException e) {
+                    // 索引创建失败不影响启动，下次启动会再次尝试
+                    log.error("创建索引失败 {}", sql, e);
+                }
+            }
+        }
+    }
+
     /**
      * 修改账号 密码
      *
@@ -246,6 +290,8 @@ public class InitDb implements DisposableBean, InitializingBean {
 //    }
 
     private void silenceDestroy() {
+        // 先写入队列中剩余的日志
+        DbLogWriter.shutdown();
         DbConfig.getInstance().close();
         try {
             DSFactory dsFactory = GlobalDSFactory.get();
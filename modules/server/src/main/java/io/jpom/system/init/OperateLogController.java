@@ -266,7 +266,26 @@ public class OperateLogController implements AopLogInterface {
 
 
     /**
-     * 修改执行结果
+     * 根据 socket 消息中的 reqId 修改执行结果，不包含 reqId 的消息不解析
+     *
+     * @param message 消息
+     */
+    public void updateLogByMessage(String message) {
+        if (!StrUtil.contains(message, "reqId")) {
+            return;
+        }
+        try {
+            JSONObject jsonObject = JSONObject.parseObject(message);
+            String reqId = jsonObject.getString("reqId");
+            if (StrUtil.isNotEmpty(reqId)) {
+                this.updateLog(reqId, message);
+            }
+        } catch (Exception ignored) {
+        }
+    }
+
+    /**
+     * 修改执行结果（异步）
      *
      * @param reqId 请求id
      * @param val   结果
@@ -284,7 +303,7 @@ public class OperateLogController implements AopLogInterface {
         //
         Entity where = new Entity();
         where.set("reqId", reqId);
-        dbUserOperateLogService.update(entity, where);
+        dbUserOperateLogService.updateAsync(entity, where);
     }
 
     /**
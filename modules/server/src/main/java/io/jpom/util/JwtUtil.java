@@ -22,6 +22,7 @@
  */
 package io.jpom.util;
 
+import cn.hutool.cache.impl.LRUCache;
 import cn.hutool.core.convert.Convert;
 import cn.hutool.core.date.DateField;
 import cn.hutool.core.date.DateTime;
@@ -35,6 +36,8 @@ import cn.jiangzeyin.common.DefaultSystemLog;
 import io.jpom.model.data.UserModel;
 import io.jpom.system.ServerExtConfigBean;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * jwt 工具类
  *
@@ -52,6 +55,10 @@ public class JwtUtil {
 	 */
 	private static byte[] KEY;
 	public static final String KEY_USER_ID = "userId";
+	/**
+	 * 解析、验签成功的 token 缓存，避免每次请求重复解析。是否过期仍然需要每次判断
+	 */
+	private static final LRUCache<String, JWT> JWT_CACHE = new LRUCache<>(1000, TimeUnit.MINUTES.toMillis(10));
 
 	private static byte[] getKey() {
 		if (KEY == null) {
@@ -79,12 +86,23 @@ public class JwtUtil {
 	 * @return claims
 	 */
 	public static JWT readBody(String token) {
+		if (StrUtil.isEmpty(token)) {
+			return null;
+		}
+		JWT jwt = JWT_CACHE.get(token);
+		if (jwt != null) {
+			return jwt;
+		}
 		try {
-			return parseBody(token);
+			jwt = parseBody(token);
 		} catch (Exception e) {
 			DefaultSystemLog.getLog().warn("token 解析失败：" + token, e);
 			return null;
 		}
+		if (jwt != null) {
+			JWT_CACHE.put(token, jwt);
+		}
+		return jwt;
 	}
 
 	/**
@@ -0,0 +1,165 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Code Technology Studio
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jpom.build;
+
+import cn.hutool.core.io.FileUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Set;
+
+/**
+ * 构建产物去重存储
+ *
+ * @author bwcx_jzy
+ * @since 2022/5/27
+ */
+public class BuildArtifactStoreTest {
+
+    private File rootDir;
+    private File blobDir;
+
+    @BeforeEach
+    public void before() throws IOException {
+        Assumptions.assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("unix"), "不支持硬链接数");
+        rootDir = Files.createTempDirectory("jpom-artifact").toFile();
+        blobDir = FileUtil.file(rootDir, "build-blob");
+    }
+
+    @AfterEach
+    public void after() {
+        FileUtil.del(rootDir);
+    }
+
+    @Test
+    public void testDedup() throws IOException {
+        File history1 = FileUtil.file(rootDir, "history", "1");
+        File history2 = FileUtil.file(rootDir, "history", "2");
+        File a1 = FileUtil.writeUtf8String("same content", FileUtil.file(history1, "a.jar"));
+        File b1 = FileUtil.writeUtf8String("content 1", FileUtil.file(history1, "b.txt"));
+        File a2 = FileUtil.writeUtf8String("same content", FileUtil.file(history2, "lib", "a.jar"));
+        File b2 = FileUtil.writeUtf8String("content 2", FileUtil.file(history2, "b.txt"));
+        // 第一次出现的内容只加入存储
+        Assertions.assertEquals(0, BuildArtifactStore.dedup(history1, blobDir));
+        Assertions.assertEquals(2, this.linkCount(a1));
+        Assertions.assertEquals(2, this.linkCount(b1));
+        // 相同内容替换为硬链接，不同内容加入存储
+        Assertions.assertEquals(1, BuildArtifactStore.dedup(history2, blobDir));
+        Assertions.assertTrue(Files.isSameFile(a1.toPath(), a2.toPath()));
+        Assertions.assertEquals(3, this.linkCount(a1));
+        Assertions.assertFalse(Files.isSameFile(b1.toPath(), b2.toPath()));
+        Assertions.assertEquals("same content", FileUtil.readUtf8String(a2));
+        Assertions.assertEquals("content 2", FileUtil.readUtf8String(b2));
+        // 重复去重不会再替换
+        Assertions.assertEquals(0, BuildArtifactStore.dedup(history2, blobDir));
+        Assertions.assertEquals(3, this.linkCount(a1));
+        // 没有残留的临时文件
+        Assertions.assertEquals(1, FileUtil.loopFiles(FileUtil.file(history2, "lib")).size());
+        // 硬链接的文件只统计一次
+        long size = "same content".length() + "content 1".length() + "content 2".length();
+        Assertions.assertEquals(size, BuildArtifactStore.size(FileUtil.file(rootDir, "history"), blobDir));
+    }
+
+    @Test
+    public void testGc() throws IOException {
+        File history1 = FileUtil.file(rootDir, "history", "1");
+        File history2 = FileUtil.file(rootDir, "history", "2");
+        File a1 = FileUtil.writeUtf8String("same content", FileUtil.file(history1, "a.jar"));
+        File a2 = FileUtil.writeUtf8String("same content", FileUtil.file(history2, "a.jar"));
+        FileUtil.writeUtf8String("only 1", FileUtil.file(history1, "b.txt"));
+        BuildArtifactStore.dedup(history1, blobDir);
+        BuildArtifactStore.dedup(history2, blobDir);
+        Assertions.assertEquals(2, FileUtil.loopFiles(blobDir).size());
+        // 还在被引用的不清理
+        Assertions.assertEquals(0, BuildArtifactStore.gc(blobDir));
+        // 删除构建历史 1 后只清理没有引用的内容
+        FileUtil.del(history1);
+        Assertions.assertEquals(1, BuildArtifactStore.gc(blobDir));
+        Assertions.assertEquals(1, FileUtil.loopFiles(blobDir).size());
+        Assertions.assertEquals(2, this.linkCount(a2));
+        Assertions.assertFalse(a1.exists());
+        // 全部删除后清理
+        FileUtil.del(history2);
+        Assertions.assertEquals(1, BuildArtifactStore.gc(blobDir));
+        Assertions.assertEquals(0, FileUtil.loopFiles(blobDir).size());
+    }
+
+    @Test
+    public void testReadOnly() throws IOException {
+        File history1 = FileUtil.file(rootDir, "history", "1");
+        File history2 = FileUtil.file(rootDir, "history", "2");
+        File a1 = FileUtil.writeUtf8String("same content", FileUtil.file(history1, "a.jar"));
+        File a2 = FileUtil.writeUtf8String("same content", FileUtil.file(history2, "a.jar"));
+        BuildArtifactStore.dedup(history1, blobDir);
+        BuildArtifactStore.dedup(history2, blobDir);
+        // 存储的文件和构建历史中的文件都去掉写权限
+        for (File file : new File[]{a1, a2}) {
+            Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(file.toPath());
+            Assertions.assertFalse(permissions.contains(PosixFilePermission.OWNER_WRITE));
+            Assertions.assertFalse(permissions.contains(PosixFilePermission.GROUP_WRITE));
+            Assertions.assertFalse(permissions.contains(PosixFilePermission.OTHERS_WRITE));
+            Assertions.assertTrue(permissions.contains(PosixFilePermission.OWNER_READ));
+        }
+    }
+
+    @Test
+    public void testModifiedBlob() throws IOException {
+        File history1 = FileUtil.file(rootDir, "history", "1");
+        File history2 = FileUtil.file(rootDir, "history", "2");
+        File a1 = FileUtil.writeUtf8String("same content", FileUtil.file(history1, "a.jar"));
+        BuildArtifactStore.dedup(history1, blobDir);
+        // 构建历史中的文件被直接修改（大小相同），存储文件同时被修改
+        Assertions.assertTrue(a1.setWritable(true));
+        FileUtil.writeUtf8String("SAME CONTENT", a1);
+        File a2 = FileUtil.writeUtf8String("same content", FileUtil.file(history2, "a.jar"));
+        // 不能链接到已经被修改的存储文件
+        Assertions.assertEquals(0, BuildArtifactStore.dedup(history2, blobDir));
+        Assertions.assertFalse(Files.isSameFile(a1.toPath(), a2.toPath()));
+        Assertions.assertEquals("same content", FileUtil.readUtf8String(a2));
+        Assertions.assertEquals("SAME CONTENT", FileUtil.readUtf8String(a1));
+        // 新的存储文件可以继续去重
+        File a3 = FileUtil.writeUtf8String("same content", FileUtil.file(rootDir, "history", "3", "a.jar"));
+        Assertions.assertEquals(1, BuildArtifactStore.dedup(a3.getParentFile(), blobDir));
+        Assertions.assertTrue(Files.isSameFile(a2.toPath(), a3.toPath()));
+    }
+
+    @Test
+    public void testNotExist() {
+        Assertions.assertEquals(0, BuildArtifactStore.dedup(FileUtil.file(rootDir, "none"), blobDir));
+        Assertions.assertEquals(0, BuildArtifactStore.gc(blobDir));
+        Assertions.assertEquals(0, BuildArtifactStore.size(FileUtil.file(rootDir, "none")));
+    }
+
+    private int linkCount(File file) throws IOException {
+        return (int) Files.getAttribute(file.toPath(), "unix:nlink", LinkOption.NOFOLLOW_LINKS);
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Code Technology Studio
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jpom.service.h2db;
+
+import cn.hutool.db.Entity;
+import io.jpom.model.BaseDbModel;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 日志异步写入
+ *
+ * @author bwcx_jzy
+ * @since 2022/5/27
+ */
+public class DbLogWriterTest {
+
+    private final TestLogService logService = new TestLogService();
+    private final TestOtherLogService otherLogService = new TestOtherLogService();
+
+    @Test
+    public void testBatchInsert() {
+        RecordExecutor executor = new RecordExecutor();
+        DbLogWriter dbLogWriter = new DbLogWriter(executor);
+        for (int i = 0; i < 1200; i++) {
+            dbLogWriter.insert(logService, this.createEntity(i));
+        }
+        dbLogWriter.close();
+        // 每批最多 500 条
+        Assertions.assertEquals(3, executor.insertSizes.size());
+        Assertions.assertEquals(500, (int) executor.insertSizes.get(0));
+        Assertions.assertEquals(500, (int) executor.insertSizes.get(1));
+        Assertions.assertEquals(200, (int) executor.insertSizes.get(2));
+        Assertions.assertEquals(1200, dbLogWriter.stat().getLongValue("writeCount"));
+        Assertions.assertEquals(3, dbLogWriter.stat().getLongValue("batchCount"));
+    }
+
+    @Test
+    public void testGroupAndOrder() {
+        RecordExecutor executor = new RecordExecutor();
+        DbLogWriter dbLogWriter = new DbLogWriter(executor);
+        dbLogWriter.insert(logService, this.createEntity(1));
+        dbLogWriter.insert(otherLogService, this.createEntity(2));
+        dbLogWriter.insert(logService, this.createEntity(3));
+        Entity where = Entity.create().set("id", "1");
+        dbLogWriter.update(logService, Entity.create().set("status", 1), where);
+        dbLogWriter.update(logService, Entity.create().set("status", 2), where);
+        dbLogWriter.insert(logService, this.createEntity(4));
+        dbLogWriter.close();
+        // 相同的表合并插入，修改前先写入之前的插入，同一条数据连续修改只保留最后一次
+        List<String> expected = new ArrayList<>();
+        expected.add("insert TEST_LOG 2");
+        expected.add("insert TEST_OTHER_LOG 1");
+        expected.add("clear TEST_LOG");
+        expected.add("clear TEST_OTHER_LOG");
+        expected.add("update TEST_LOG 2");
+        expected.add("insert TEST_LOG 1");
+        expected.add("clear TEST_LOG");
+        Assertions.assertEquals(expected, executor.records);
+        Assertions.assertEquals(6, dbLogWriter.stat().getLongValue("writeCount"));
+    }
+
+    @Test
+    public void testDrainOnClose() throws InterruptedException {
+        RecordExecutor executor = new RecordExecutor();
+        DbLogWriter dbLogWriter = new DbLogWriter(executor);
+        dbLogWriter.start();
+        dbLogWriter.insert(logService, this.createEntity(1));
+        // 等待写入线程写入
+        long end = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (executor.insertCount() < 1 && System.currentTimeMillis() < end) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        Assertions.assertEquals(1, executor.insertCount());
+        // 写入线程正在写入时放入的数据，关闭时需要全部写入
+        executor.delay = 200;
+        for (int i = 0; i < 10; i++) {
+            dbLogWriter.insert(logService, this.createEntity(i));
+        }
+        dbLogWriter.close();
+        Assertions.assertEquals(11, executor.insertCount());
+        Assertions.assertEquals(0, dbLogWriter.stat().getLongValue("queueSize"));
+        // 关闭后不再接收数据
+        dbLogWriter.insert(logService, this.createEntity(100));
+        Assertions.assertEquals(11, executor.insertCount());
+        Assertions.assertEquals(1, dbLogWriter.stat().getLongValue("dropCount"));
+    }
+
+    @Test
+    public void testDropWhenFull() {
+        RecordExecutor executor = new RecordExecutor();
+        DbLogWriter dbLogWriter = new DbLogWriter(executor);
+        for (int i = 0; i < 10001; i++) {
+            dbLogWriter.insert(logService, this.createEntity(i));
+        }
+        Assertions.assertEquals(1, dbLogWriter.stat().getLongValue("dropCount"));
+        dbLogWriter.close();
+        Assertions.assertEquals(10000, executor.insertCount());
+    }
+
+    @Test
+    public void testNotReady() {
+        RecordExecutor executor = new RecordExecutor();
+        executor.ready = false;
+        DbLogWriter dbLogWriter = new DbLogWriter(executor);
+        dbLogWriter.insert(logService, this.createEntity(1));
+        dbLogWriter.close();
+        Assertions.assertEquals(Collections.emptyList(), executor.records);
+        Assertions.assertEquals(1, dbLogWriter.stat().getLongValue("dropCount"));
+    }
+
+    private Entity createEntity(int i) {
+        return Entity.create().set("id", String.valueOf(i)).set("name", "log" + i);
+    }
+
+    private static class RecordExecutor implements DbLogWriter.WriteExecutor {
+
+        private final List<String> records = Collections.synchronizedList(new ArrayList<>());
+        private final List<Integer> insertSizes = Collections.synchronizedList(new ArrayList<>());
+        private volatile boolean ready = true;
+        private volatile long delay;
+
+        @Override
+        public boolean isReady() {
+            return ready;
+        }
+
+        @Override
+        public void insert(BaseDbService<?> service, List<Entity> entities) throws Exception {
+            if (delay > 0) {
+                TimeUnit.MILLISECONDS.sleep(delay);
+            }
+            records.add("insert " + service.getTableName() + " " + entities.size());
+            insertSizes.add(entities.size());
+        }
+
+        @Override
+        public void update(BaseDbService<?> service, Entity entity, Entity where) {
+            records.add("update " + service.getTableName() + " " + entity.getInt("status"));
+        }
+
+        @Override
+        public void afterInsert(BaseDbService<?> service) {
+            records.add("clear " + service.getTableName());
+        }
+
+        private int insertCount() {
+            synchronized (insertSizes) {
+                return insertSizes.stream().mapToInt(Integer::intValue).sum();
+            }
+        }
+    }
+
+    @TableName(value = "TEST_LOG", name = "测试日志")
+    @Data
+    @EqualsAndHashCode(callSuper = true)
+    public static class TestLogModel extends BaseDbModel {
+        private String name;
+    }
+
+    @TableName(value = "TEST_OTHER_LOG", name = "测试其他日志")
+    @Data
+    @EqualsAndHashCode(callSuper = true)
+    public static class TestOtherLogModel extends BaseDbModel {
+        private String name;
+    }
+
+    private static class TestLogService extends BaseDbService<TestLogModel> {
+    }
+
+    private static class TestOtherLogService extends BaseDbService<TestOtherLogModel> {
+    }
+}
@@ -23,7 +23,6 @@
 package io.jpom;
 
 import cn.hutool.core.io.FileUtil;
-import cn.hutool.core.io.IoUtil;
 import cn.hutool.core.util.ReflectUtil;
 import cn.hutool.core.util.StrUtil;
 import com.alibaba.fastjson.JSONObject;
@@ -77,6 +76,9 @@ public class DefaultDockerCheckPluginImpl implements IDefaultPlugin {
                 return this.infoCmd(parameter);
             case "testLocal":
                 return this.testLocal();
+            case "closeClient":
+                DockerClientPool.close((String) parameter.get("dockerHost"));
+                return null;
             default:
                 break;
         }
@@ -101,12 +103,12 @@ public class DefaultDockerCheckPluginImpl implements IDefaultPlugin {
      */
     private JSONObject infoCmd(Map<String, Object> parameter) {
         parameter.putIfAbsent("timeout", 5);
-        DockerClient dockerClient = DockerUtil.build(parameter, 1);
+        DockerClient dockerClient = DockerClientPool.get(parameter);
         try {
             Info exec = dockerClient.infoCmd().exec();
             return (JSONObject) JSONObject.toJSON(exec);
         } finally {
-            IoUtil.close(dockerClient);
+            DockerClientPool.release(dockerClient);
         }
     }
 
@@ -118,11 +120,11 @@ public class DefaultDockerCheckPluginImpl implements IDefaultPlugin {
      */
     private Version pullVersion(Map<String, Object> parameter) {
         parameter.putIfAbsent("timeout", 5);
-        DockerClient dockerClient = DockerUtil.build(parameter, 1);
+        DockerClient dockerClient = DockerClientPool.get(parameter);
         try {
             return dockerClient.versionCmd().exec();
         } finally {
-            IoUtil.close(dockerClient);
+            DockerClientPool.release(dockerClient);
         }
     }
 
@@ -136,14 +138,14 @@ public class DefaultDockerCheckPluginImpl implements IDefaultPlugin {
         DockerClient dockerClient = null;
         try {
             parameter.putIfAbsent("timeout", 5);
-            dockerClient = DockerUtil.build(parameter, 1);
+            dockerClient = DockerClientPool.get(parameter);
             dockerClient.pingCmd().exec();
             return true;
         } catch (Exception e) {
             log.warn("检查 docker url 异常 {}", e.getMessage());
             return false;
         } finally {
-            IoUtil.close(dockerClient);
+            DockerClientPool.release(dockerClient);
         }
     }
 
@@ -112,7 +112,7 @@ public class DefaultDockerPluginImpl implements IDefaultPlugin {
     }
 
     private List<JSONObject> listNetworksCmd(Map<String, Object> parameter) {
-        DockerClient dockerClient = DockerUtil.build(parameter);
+        DockerClient dockerClient = DockerClientPool.get(parameter);
         try {
             ListNetworksCmd listNetworksCmd = dockerClient.listNetworksCmd();
 
@@ -128,7 +128,7 @@ public class DefaultDockerPluginImpl implements IDefaultPlugin {
             networks = ObjectUtil.defaultIfNull(networks, new ArrayList<>());
             return networks.stream().map(container -> (JSONObject) JSONObject.toJSON(container)).collect(Collectors.toList());
         } finally {
-            IoUtil.close(dockerClient);
+            DockerClientPool.release(dockerClient);
         }
     }
 
@@ -153,7 +153,7 @@ public class DefaultDockerPluginImpl implements IDefaultPlugin {
 
 
     private void createContainerCmd(Map<String, Object> parameter) {
-        DockerClient dockerClient = DockerUtil.build(parameter);
+        DockerClient dockerClient = DockerClientPool.get(parameter);
         try {
             String imageId = (String) parameter.get("imageId");
             String name = (String) parameter.get("name");
@@ -202,19 +202,19 @@ public class DefaultDockerPluginImpl implements IDefaultPlugin {
                 dockerClient.startContainerCmd(containerResponse.getId()).exec();
             }
         } finally {
-            IoUtil.close(dockerClient);
+            DockerClientPool.release(dockerClient);
         }
     }
 
     private JSONObject inspectImageCmd(Map<String, Object> parameter) {
-        DockerClient dockerClient = DockerUtil.build(parameter);
+        DockerClient dockerClient = DockerClientPool.get(parameter);
         try {
             String imageId = (String) parameter.get("imageId");
             InspectImageCmd inspectImageCmd = dockerClient.inspectImageCmd(imageId);
             InspectImageResponse inspectImageResponse = inspectImageCmd.exec();
             return (JSONObject) JSONObject.toJSON(inspectImageResponse);
         } finally {
-            IoUtil.close(dockerClient);
+            DockerClientPool.release(dockerClient);
         }
     }
 
@@ -293,7 +293,7 @@ public class DefaultDockerPluginImpl implements IDefaultPlugin {
     }
 
     private List<JSONObject> listVolumesCmd(Map<String, Object> parameter) {
-        DockerClient dockerClient = DockerUtil.build(parameter);
+        DockerClient dockerClient = DockerClientPool.get(parameter);
         try {
             ListVolumesCmd listVolumesCmd = dockerClient.listVolumesCmd();
             Boolean dangling = Convert.toBool(parameter.get("dangling"), false);
@@ -313,23 +313,23 @@ public class DefaultDockerPluginImpl implements IDefaultPlugin {
                 return inspectVolumeCmd.exec();
             }).map(container -> (JSONObject) JSONObject.toJSON(container)).collect(Collectors.toList());
         } finally {
-            IoUtil.close(dockerClient);
+            DockerClientPool.release(dockerClient);
         }
     }
 
     private void removeVolumeCmd(Map<String, Object> parameter) {
-        DockerClient dockerClient = DockerUtil.build(parameter);
+        DockerClient dockerClient = DockerClientPool.get(parameter);
         try {
             String volumeName = (String) parameter.get("volumeName");
             dockerClient.removeVolumeCmd(volumeName).exec();
         } finally {
-            IoUtil.close(dockerClient);
+            DockerClientPool.release(dockerClient);
         }
     }
 
 
     private List<JSONObject> listImagesCmd(Map<String, Object> parameter) {
-        DockerClient dockerClient = DockerUtil.build(parameter);
+        DockerClient dockerClient = DockerClientPool.get(parameter);
         try {
             ListImagesCmd listImagesCmd = dockerClient.listImagesCmd();
             listImagesCmd.withShowAll(Convert.toBool(parameter.get("showAll"), true));
@@ -343,23 +343,23 @@ public class DefaultDockerPluginImpl implements IDefaultPlugin {
             exec = ObjectUtil.defaultIfNull(exec, new ArrayList<>());
             return exec.stream().map(container -> (JSONObject) JSONObject.toJSON(container)).collect(Collectors.toList());
         } finally {
-            IoUtil.close(dockerClient);
+            DockerClientPool.release(dockerClient);
         }
     }
 
     private void removeImageCmd(Map<String, Object> parameter) {
-        DockerClient dockerClient = DockerUtil.build(parameter);
+        DockerClient dockerClient = DockerClientPool.get(parameter);
         try {
             String imageId = (String) parameter.get("imageId");
             dockerClient.removeImageCmd(imageId).withForce(true).exec();
         } finally {
-            IoUtil.close(dockerClient);
+            DockerClientPool.release(dockerClient);
         }
     }
 
 
     private List<JSONObject> listContainerCmd(Map<String, Object> parameter) {
-        DockerClient dockerClient = DockerUtil.build(parameter);
+        DockerClient dockerClient = DockerClientPool.get(parameter);
         try {
             ListContainersCmd listContainersCmd = dockerClient.listContainersCmd();
             listContainersCmd.withShowAll(Convert.toBool(parameter.get("showAll"), true));
@@ -379,37 +379,37 @@ public class DefaultDockerPluginImpl implements IDefaultPlugin {
             exec = ObjectUtil.defaultIfNull(exec, new ArrayList<>());
             return exec.stream().map(container -> (JSONObject) JSONObject.toJSON(container)).collect(Collectors.toList());
         } finally {
-            IoUtil.close(dockerClient);
+            DockerClientPool.release(dockerClient);
         }
     }
 
     private void restartContainerCmd(Map<String, Object> parameter) {
         String containerId = (String) parameter.get("containerId");
-        DockerClient dockerClient = DockerUtil.build(parameter);
+        DockerClient dockerClient = DockerClientPool.get(parameter);
         try {
             dockerClient.restartContainerCmd(containerId).exec();
         } finally {
-            IoUtil.close(dockerClient);
+            DockerClientPool.release(dockerClient);
         }
     }
 
     private void startContainerCmd(Map<String, Object> parameter) {
         String containerId = (String) parameter.get("containerId");
-        DockerClient dockerClient = DockerUtil.build(parameter);
+        DockerClient dockerClient = DockerClientPool.get(parameter);
         try {
             dockerClient.startContainerCmd(containerId).exec();
         } finally {
-            IoUtil.close(dockerClient);
+            DockerClientPool.release(dockerClient);
         }
     }
 
     private void stopContainerCmd(Map<String, Object> parameter) {
         String containerId = (String) parameter.get("containerId");
-        DockerClient dockerClient = DockerUtil.build(parameter);
+        DockerClient dockerClient = DockerClientPool.get(parameter);
         try {
             dockerClient.stopContainerCmd(containerId).exec();
         } finally {
-            IoUtil.close(dockerClient);
+            DockerClientPool.release(dockerClient);
         }
     }
 
@@ -420,11 +420,11 @@ public class DefaultDockerPluginImpl implements IDefaultPlugin {
      */
     private void removeContainerCmd(Map<String, Object> parameter) {
         String containerId = (String) parameter.get("containerId");
-        DockerClient dockerClient = DockerUtil.build(parameter);
+        DockerClient dockerClient = DockerClientPool.get(parameter);
         try {
             DockerClientUtil.removeContainerCmd(dockerClient, containerId);
         } finally {
-            IoUtil.close(dockerClient);
+            DockerClientPool.release(dockerClient);
         }
     }
 
@@ -161,7 +161,7 @@ public class DefaultDockerSwarmPluginImpl implements IDefaultPlugin {
 	}
 
 	public void updateServiceImage(Map<String, Object> parameter) {
-		DockerClient dockerClient = DockerUtil.build(parameter);
+		DockerClient dockerClient = DockerClientPool.get(parameter);
 		try {
 			String serviceId = (String) parameter.get("serviceId");
 			String image = (String) parameter.get("image");
@@ -182,7 +182,7 @@ public class DefaultDockerSwarmPluginImpl implements IDefaultPlugin {
 			updateServiceCmd.withVersion(version.getIndex());
 			updateServiceCmd.exec();
 		} finally {
-			IoUtil.close(dockerClient);
+			DockerClientPool.release(dockerClient);
 		}
 	}
 
@@ -192,7 +192,7 @@ public class DefaultDockerSwarmPluginImpl implements IDefaultPlugin {
 	 * @param parameter 测试
 	 */
 	public void updateServiceCmd(Map<String, Object> parameter) {
-		DockerClient dockerClient = DockerUtil.build(parameter);
+		DockerClient dockerClient = DockerClientPool.get(parameter);
 		try {
 			String serviceId = (String) parameter.get("serviceId");
 			ServiceSpec serviceSpec = this.intServiceSpec(dockerClient, serviceId);
@@ -260,7 +260,7 @@ public class DefaultDockerSwarmPluginImpl implements IDefaultPlugin {
 				createServiceCmd.exec();
 			}
 		} finally {
-			IoUtil.close(dockerClient);
+			DockerClientPool.release(dockerClient);
 		}
 	}
 
@@ -420,18 +420,18 @@ public class DefaultDockerSwarmPluginImpl implements IDefaultPlugin {
 
 
 	public void removeServiceCmd(Map<String, Object> parameter) {
-		DockerClient dockerClient = DockerUtil.build(parameter);
+		DockerClient dockerClient = DockerClientPool.get(parameter);
 		try {
 			String serviceId = (String) parameter.get("serviceId");
 			RemoveServiceCmd removeServiceCmd = dockerClient.removeServiceCmd(serviceId);
 			removeServiceCmd.exec();
 		} finally {
-			IoUtil.close(dockerClient);
+			DockerClientPool.release(dockerClient);
 		}
 	}
 
 	private List<JSONObject> listTasksCmd(Map<String, Object> parameter) {
-		DockerClient dockerClient = DockerUtil.build(parameter);
+		DockerClient dockerClient = DockerClientPool.get(parameter);
 		try {
 			ListTasksCmd listTasksCmd = dockerClient.listTasksCmd();
 			String serviceId = (String) parameter.get("serviceId");
@@ -458,12 +458,12 @@ public class DefaultDockerSwarmPluginImpl implements IDefaultPlugin {
 			List<Task> exec = listTasksCmd.exec();
 			return exec.stream().map(swarmNode -> (JSONObject) JSONObject.toJSON(swarmNode)).collect(Collectors.toList());
 		} finally {
-			IoUtil.close(dockerClient);
+			DockerClientPool.release(dockerClient);
 		}
 	}
 
 	public List<JSONObject> listServicesCmd(Map<String, Object> parameter) {
-		DockerClient dockerClient = DockerUtil.build(parameter);
+		DockerClient dockerClient = DockerClientPool.get(parameter);
 		try {
 			ListServicesCmd listServicesCmd = dockerClient.listServicesCmd();
 			String id = (String) parameter.get("id");
@@ -477,12 +477,12 @@ public class DefaultDockerSwarmPluginImpl implements IDefaultPlugin {
 			List<Service> exec = listServicesCmd.exec();
 			return exec.stream().map(swarmNode -> (JSONObject) JSONObject.toJSON(swarmNode)).collect(Collectors.toList());
 		} finally {
-			IoUtil.close(dockerClient);
+			DockerClientPool.release(dockerClient);
 		}
 	}
 
 	private void removeSwarmNodeCmd(Map<String, Object> parameter) {
-		DockerClient dockerClient = DockerUtil.build(parameter);
+		DockerClient dockerClient = DockerClientPool.get(parameter);
 		try {
 			DockerCmdExecFactory dockerCmdExecFactory = (DockerCmdExecFactory) ReflectUtil.getFieldValue(dockerClient, "dockerCmdExecFactory");
 			Assert.notNull(dockerCmdExecFactory, "当前方法不被支持，暂时不能使用");
@@ -492,12 +492,12 @@ public class DefaultDockerSwarmPluginImpl implements IDefaultPlugin {
 			removeSwarmNodeCmd.withForce(true);
 			removeSwarmNodeCmd.exec();
 		} finally {
-			IoUtil.close(dockerClient);
+			DockerClientPool.release(dockerClient);
 		}
 	}
 
 	private void updateSwarmNodeCmd(Map<String, Object> parameter) {
-		DockerClient dockerClient = DockerUtil.build(parameter);
+		DockerClient dockerClient = DockerClientPool.get(parameter);
 		try {
 			String nodeId = (String) parameter.get("nodeId");
 			List<SwarmNode> nodes = dockerClient.listSwarmNodesCmd()
@@ -521,13 +521,13 @@ public class DefaultDockerSwarmPluginImpl implements IDefaultPlugin {
 			swarmNodeCmd.withVersion(version.getIndex());
 			swarmNodeCmd.exec();
 		} finally {
-			IoUtil.close(dockerClient);
+			DockerClientPool.release(dockerClient);
 		}
 	}
 
 
 	private void leaveSwarmCmd(Map<String, Object> parameter) {
-		DockerClient dockerClient = DockerUtil.build(parameter);
+		DockerClient dockerClient = DockerClientPool.get(parameter);
 		try {
 			Object forceStr = parameter.get("force");
 			boolean force = Convert.toBool(forceStr, false);
@@ -537,7 +537,7 @@ public class DefaultDockerSwarmPluginImpl implements IDefaultPlugin {
 			}
 			leaveSwarmCmd.exec();
 		} finally {
-			IoUtil.close(dockerClient);
+			DockerClientPool.release(dockerClient);
 		}
 	}
 
@@ -553,7 +553,7 @@ public class DefaultDockerSwarmPluginImpl implements IDefaultPlugin {
 //	}
 
 	private List<JSONObject> listSwarmNodesCmd(Map<String, Object> parameter) {
-		DockerClient dockerClient = DockerUtil.build(parameter);
+		DockerClient dockerClient = DockerClientPool.get(parameter);
 		try {
 			ListSwarmNodesCmd listSwarmNodesCmd = dockerClient.listSwarmNodesCmd();
 			String id = (String) parameter.get("id");
@@ -575,13 +575,13 @@ public class DefaultDockerSwarmPluginImpl implements IDefaultPlugin {
 				return jsonObject;
 			}).collect(Collectors.toList());
 		} finally {
-			IoUtil.close(dockerClient);
+			DockerClientPool.release(dockerClient);
 		}
 	}
 
 
 	private void joinSwarmCmd(Map<String, Object> parameter) {
-		DockerClient dockerClient = DockerUtil.build(parameter);
+		DockerClient dockerClient = DockerClientPool.get(parameter);
 		try {
 			String token = (String) parameter.get("token");
 			String remoteAddrs = (String) parameter.get("remoteAddrs");
@@ -590,12 +590,12 @@ public class DefaultDockerSwarmPluginImpl implements IDefaultPlugin {
 					.withJoinToken(token);
 			joinSwarmCmd.exec();
 		} finally {
-			IoUtil.close(dockerClient);
+			DockerClientPool.release(dockerClient);
 		}
 	}
 
 	private JSONObject tryInitializeSwarmCmd(Map<String, Object> parameter) {
-		DockerClient dockerClient = DockerUtil.build(parameter);
+		DockerClient dockerClient = DockerClientPool.get(parameter);
 		try {
 			// 先尝试获取
 			try {
@@ -615,17 +615,17 @@ public class DefaultDockerSwarmPluginImpl implements IDefaultPlugin {
 			Swarm exec = dockerClient.inspectSwarmCmd().exec();
 			return (JSONObject) JSONObject.toJSON(exec);
 		} finally {
-			IoUtil.close(dockerClient);
+			DockerClientPool.release(dockerClient);
 		}
 	}
 
 	private JSONObject inSpectSwarmCmd(Map<String, Object> parameter) {
-		DockerClient dockerClient = DockerUtil.build(parameter);
+		DockerClient dockerClient = DockerClientPool.get(parameter);
 		try {
 			Swarm exec = dockerClient.inspectSwarmCmd().exec();
 			return (JSONObject) JSONObject.toJSON(exec);
 		} finally {
-			IoUtil.close(dockerClient);
+			DockerClientPool.release(dockerClient);
 		}
 	}
 }
@@ -118,6 +118,7 @@ public class DockerBuild implements AutoCloseable {
 			DockerClientUtil.removeContainerCmd(dockerClient, containerId);
 			// 删除临时目录
 			FileUtil.del(tempDir);
+			logRecorder.close();
 		}
 	}
 
@@ -0,0 +1,268 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Code Technology Studio
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jpom;
+
+import cn.hutool.core.convert.Convert;
+import cn.hutool.core.date.SystemClock;
+import cn.hutool.core.io.IoUtil;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.StrUtil;
+import com.github.dockerjava.api.DockerClient;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * docker client 连接池
+ * <p>
+ * 按 host、apiVersion、证书路径、超时时间缓存 client，避免每次操作都重新建立连接（TLS 握手）
+ * <p>
+ * 通过 {@link #get(Map)} 获取的 client 使用完成后需要调用 {@link #release(DockerClient)} 归还，不能直接关闭。
+ * 长时间占用连接的操作（日志、终端、构建等）请继续使用 {@link DockerUtil#build(Map, int)} 单独创建
+ *
+ * @author bwcx_jzy
+ * @since 2022/5/27
+ */
+@Slf4j
+public class DockerClientPool {
+
+    /**
+     * 单个 docker 最大连接数
+     */
+    private static final int MAX_CONNECTIONS = 10;
+    /**
+     * 空闲多久后关闭 client
+     */
+    private static final long IDLE_TIMEOUT = TimeUnit.MINUTES.toMillis(10);
+    /**
+     * 空闲多久后再次使用需要先检查连接
+     */
+    private static final long CHECK_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+    private static final Map<String, PooledClient> CLIENT_MAP = new ConcurrentHashMap<>();
+    /**
+     * 所有还未关闭的 client，包含已经从连接池移除但还在使用中的 client
+     */
+    private static final Map<DockerClient, PooledClient> ALL_CLIENT_MAP = new ConcurrentHashMap<>();
+
+    private static volatile ScheduledExecutorService evictExecutor;
+
+    /**
+     * 获取 client，使用完成后需要调用 {@link #release(DockerClient)}
+     *
+     * @param parameter 参数
+     * @return DockerClient
+     */
+    public static DockerClient get(Map<String, Object> parameter) {
+        String key = buildKey(parameter);
+        while (true) {
+            PooledClient pooledClient = CLIENT_MAP.computeIfAbsent(key, s -> PooledClient.create(s, parameter));
+            startEvict();
+            if (!pooledClient.borrow()) {
+                // 已经被移除，重新获取
+                continue;
+            }
+            if (pooledClient.needCheck() && !pooledClient.ping()) {
+                pooledClient.release();
+                remove(pooledClient);
+                continue;
+            }
+            return pooledClient.client;
+        }
+    }
+
+    /**
+     * 归还 client
+     *
+     * @param dockerClient client
+     */
+    public static void release(DockerClient dockerClient) {
+        if (dockerClient == null) {
+            return;
+        }
+        PooledClient pooledClient = ALL_CLIENT_MAP.get(dockerClient);
+        if (pooledClient != null) {
+            pooledClient.release();
+        }
+    }
+
+    /**
+     * 关闭指定 docker 的所有 client，docker 配置变更（修改、删除、更新证书）时调用
+     *
+     * @param dockerHost docker host
+     */
+    public static void close(String dockerHost) {
+        CLIENT_MAP.values()
+            .stream()
+            .filter(pooledClient -> StrUtil.equals(pooledClient.dockerHost, dockerHost))
+            .forEach(DockerClientPool::remove);
+    }
+
+    /**
+     * 关闭所有 client
+     */
+    public static void closeAll() {
+        CLIENT_MAP.values().forEach(DockerClientPool::remove);
+    }
+
+    /**
+     * 当前缓存的 client 数量
+     *
+     * @return size
+     */
+    public static int size() {
+        return CLIENT_MAP.size();
+    }
+
+    private static void remove(PooledClient pooledClient) {
+        if (CLIENT_MAP.remove(pooledClient.key, pooledClient)) {
+            pooledClient.markRemoved();
+        }
+    }
+
+    private static String buildKey(Map<String, Object> parameter) {
+        String host = (String) parameter.get("dockerHost");
+        String apiVersion = (String) parameter.get("apiVersion");
+        String dockerCertPath = (String) parameter.get("dockerCertPath");
+        int timeout = Convert.toInt(parameter.get("timeout"), 0);
+        return StrUtil.format("{}|{}|{}|{}", host, apiVersion, dockerCertPath, timeout);
+    }
+
+    private static void startEvict() {
+        if (evictExecutor != null) {
+            return;
+        }
+        synchronized (DockerClientPool.class) {
+            if (evictExecutor != null) {
+                return;
+            }
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1,
+                ThreadFactoryBuilder.create().setNamePrefix("jpom-docker-client-evict-").setDaemon(true).build());
+            executor.scheduleWithFixedDelay(DockerClientPool::evict, 1, 1, TimeUnit.MINUTES);
+            evictExecutor = executor;
+        }
+    }
+
+    /**
+     * 关闭空闲超时的 client
+     */
+    private static void evict() {
+        try {
+            long now = SystemClock.now();
+            CLIENT_MAP.values()
+                .stream()
+                .filter(pooledClient -> pooledClient.isIdle(now))
+                .forEach(DockerClientPool::remove);
+        } catch (Exception e) {
+            log.error("清理 docker client 异常", e);
+        }
+    }
+
+    /**
+     * 连接池中的 client
+     */
+    private static class PooledClient {
+
+        private final String key;
+        private final String dockerHost;
+        private final DockerClient client;
+        private int borrowed;
+        private boolean removed;
+        private long lastUseTime;
+        private long lastCheckTime;
+
+        private PooledClient(String key, String dockerHost, DockerClient client) {
+            this.key = key;
+            this.dockerHost = dockerHost;
+            this.client = client;
+            this.lastUseTime = SystemClock.now();
+            this.lastCheckTime = this.lastUseTime;
+        }
+
+        private static PooledClient create(String key, Map<String, Object> parameter) {
+            DockerClient dockerClient = DockerUtil.build(parameter, MAX_CONNECTIONS);
+            PooledClient pooledClient = new PooledClient(key, (String) parameter.get("dockerHost"), dockerClient);
+            ALL_CLIENT_MAP.put(dockerClient, pooledClient);
+            return pooledClient;
+        }
+
+        private synchronized boolean borrow() {
+            if (removed) {
+                return false;
+            }
+            borrowed++;
+            lastUseTime = SystemClock.now();
+            return true;
+        }
+
+        private synchronized void release() {
+            borrowed = Math.max(borrowed - 1, 0);
+            lastUseTime = SystemClock.now();
+            if (removed && borrowed == 0) {
+                this.close();
+            }
+        }
+
+        private synchronized void markRemoved() {
+            removed = true;
+            if (borrowed == 0) {
+                this.close();
+            }
+        }
+
+        private synchronized boolean isIdle(long now) {
+            return borrowed == 0 && now - lastUseTime > IDLE_TIMEOUT;
+        }
+
+        private synchronized boolean needCheck() {
+            return SystemClock.now() - lastCheckTime > CHECK_INTERVAL;
+        }
+
+        /**
+         * 检查连接是否可用
+         *
+         * @return false 需要重新创建
+         */
+        private boolean ping() {
+            try {
+                client.pingCmd().exec();
+                synchronized (this) {
+                    lastCheckTime = SystemClock.now();
+                }
+                return true;
+            } catch (Exception e) {
+                log.warn("docker client 连接检查失败，将重新创建 {} {}", dockerHost, e.getMessage());
+                return false;
+            }
+        }
+
+        private void close() {
+            ALL_CLIENT_MAP.remove(client);
+            IoUtil.close(client);
+        }
+    }
+}
@@ -23,13 +23,16 @@
 package io.jpom.plugin;
 
 import cn.hutool.core.collection.CollStreamUtil;
+import cn.hutool.cache.impl.TimedCache;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.comparator.VersionComparator;
+import cn.hutool.core.convert.Convert;
 import cn.hutool.core.date.DateTime;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.io.IoUtil;
 import cn.hutool.core.lang.Tuple;
 import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.SecureUtil;
 import com.jcraft.jsch.JSch;
 import com.jcraft.jsch.JSchException;
 import com.jcraft.jsch.Session;
@@ -50,7 +53,9 @@ import org.springframework.util.AntPathMatcher;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.net.URISyntaxException;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -68,6 +73,20 @@ import java.util.stream.Collectors;
 public class GitUtil {
 
     private static final AntPathMatcher ANT_PATH_MATCHER = new AntPathMatcher();
+    /**
+     * 本地镜像仓库协议，不需要凭证
+     */
+    private static final int PROTOCOL_LOCAL = -1;
+    /**
+     * 镜像仓库拉取的内容
+     */
+    private static final List<RefSpec> MIRROR_REF_SPECS = CollUtil.newArrayList(
+        new RefSpec("+" + Constants.R_HEADS + "*:" + Constants.R_HEADS + "*"),
+        new RefSpec("+" + Constants.R_TAGS + "*:" + Constants.R_TAGS + "*"));
+    /**
+     * 远程仓库的分支和标签，短时间内重复获取直接使用缓存
+     */
+    private static final TimedCache<String, Collection<Ref>> REMOTE_REF_CACHE = new TimedCache<>(TimeUnit.SECONDS.toMillis(30));
 
     /**
      * 检查本地的remote是否存在对应的url
@@ -110,6 +129,9 @@ public class GitUtil {
             FileUtil.del(file.toPath());
             //throw new IOException("del error:" + file.getPath());
         }
+        if (isLocal(parameter)) {
+            return cloneByMirror(parameter, branchName, file, printWriter);
+        }
         CloneCommand cloneCommand = Git.cloneRepository();
         if (printWriter != null) {
             cloneCommand.setProgressMonitor(new TextProgressMonitor(printWriter));
@@ -126,6 +148,192 @@ public class GitUtil {
         return command.call();
     }
 
+    /**
+     * 从本地镜像仓库创建工作区，对象通过 alternates 引用镜像仓库，不再复制一份
+     *
+     * @param parameter   参数
+     * @param branchName  分支，为空使用镜像仓库默认分支
+     * @param file        工作区目录
+     * @param printWriter 日志流
+     * @return git
+     * @throws GitAPIException api
+     * @throws IOException     io
+     */
+    private static Git cloneByMirror(Map<String, Object> parameter, String branchName, File file, PrintWriter printWriter) throws GitAPIException, IOException {
+        String url = (String) parameter.get("url");
+        File mirrorPath = FileUtil.file(url);
+        if (branchName == null) {
+            try (Git mirrorGit = Git.open(mirrorPath)) {
+                branchName = mirrorGit.getRepository().getBranch();
+            }
+        }
+        Git.init().setDirectory(file).call().close();
+        File alternates = FileUtil.file(file, Constants.DOT_GIT, Constants.OBJECTS, Constants.INFO_ALTERNATES);
+        FileUtil.writeUtf8String(FileUtil.getAbsolutePath(FileUtil.file(mirrorPath, Constants.OBJECTS)), alternates);
+        Git git = Git.open(file);
+        try {
+            git.remoteAdd().setName(Constants.DEFAULT_REMOTE_NAME).setUri(new URIish(url)).call();
+            FetchCommand fetch = git.fetch().setRemote(Constants.DEFAULT_REMOTE_NAME);
+            if (printWriter != null) {
+                fetch.setProgressMonitor(new TextProgressMonitor(printWriter));
+            }
+            fetch.call();
+            git.checkout()
+                .setCreateBranch(true)
+                .setName(branchName)
+                .setStartPoint(Constants.DEFAULT_REMOTE_NAME + StrUtil.SLASH + branchName)
+                .setUpstreamMode(CreateBranchCommand.SetupUpstreamMode.TRACK)
+                .call();
+            return git;
+        } catch (URISyntaxException e) {
+            git.close();
+            throw new IOException(e);
+        } catch (GitAPIException | RuntimeException e) {
+            git.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 查找仓库地址对应的镜像仓库，并删除同一个仓库地址已经失效的镜像仓库
+     * <p>
+     * 镜像仓库目录为：仓库地址 sha1-创建时间，仓库地址变更或者镜像仓库需要重新创建时都使用新的目录，
+     * 工作区的 remote url 为镜像仓库目录，引用旧镜像仓库的工作区在下次使用时 remote url 不一致会重新 clone，不会引用到已经删除的对象
+     *
+     * @param mirrorRoot 仓库的镜像仓库根目录
+     * @param url        仓库地址
+     * @return null 没有可以使用的镜像仓库
+     * @throws IOException     io
+     * @throws GitAPIException api
+     */
+    private static File findMirror(File mirrorRoot, String url) throws IOException, GitAPIException {
+        String prefix = SecureUtil.sha1(url) + StrUtil.DASHED;
+        File[] files = mirrorRoot.listFiles((dir, name) -> name.startsWith(prefix));
+        if (files == null) {
+            return null;
+        }
+        File mirrorPath = null;
+        for (File file : files) {
+            if (mirrorPath == null && FileUtil.exist(FileUtil.file(file, Constants.OBJECTS)) && checkRemoteUrl(url, file)) {
+                mirrorPath = file;
+            } else {
+                FileUtil.del(file);
+            }
+        }
+        return mirrorPath;
+    }
+
+    /**
+     * 更新本地镜像仓库（bare），使用同一个仓库的构建共用一份镜像，远程没有变动时不拉取
+     *
+     * @param parameter   参数
+     * @param printWriter 日志流
+     * @return 使用镜像仓库操作工作区的参数
+     * @throws Exception 异常
+     */
+    private static Map<String, Object> updateMirror(Map<String, Object> parameter, PrintWriter printWriter) throws Exception {
+        File mirrorRoot = (File) parameter.get("mirrorPath");
+        String url = (String) parameter.get("url");
+        File mirrorPath = findMirror(mirrorRoot, url);
+        if (mirrorPath != null) {
+            try (Git git = Git.open(mirrorPath)) {
+                if (isMirrorNewest(git, parameter)) {
+                    println(printWriter, "repository mirror is up to date");
+                } else {
+                    FetchCommand fetch = git.fetch()
+                        .setRemote(Constants.DEFAULT_REMOTE_NAME)
+                        .setRefSpecs(MIRROR_REF_SPECS)
+                        .setRemoveDeletedRefs(true);
+                    if (printWriter != null) {
+                        fetch.setProgressMonitor(new TextProgressMonitor(printWriter));
+                    }
+                    setCredentials(fetch, parameter);
+                    fetch.call();
+                }
+            }
+        } else {
+            println(printWriter, "create repository mirror");
+            mirrorPath = FileUtil.file(mirrorRoot, SecureUtil.sha1(url) + StrUtil.DASHED + System.currentTimeMillis());
+            CloneCommand cloneCommand = Git.cloneRepository()
+                .setBare(true)
+                .setCloneAllBranches(true)
+                .setURI(url)
+                .setDirectory(mirrorPath);
+            if (printWriter != null) {
+                cloneCommand.setProgressMonitor(new TextProgressMonitor(printWriter));
+            }
+            setCredentials(cloneCommand, parameter);
+            try {
+                cloneCommand.call().close();
+            } catch (Exception e) {
+                // 不保留不完整的镜像仓库
+                FileUtil.del(mirrorPath);
+                throw e;
+            }
+        }
+        Map<String, Object> localParameter = new HashMap<>(2);
+        localParameter.put("url", FileUtil.getAbsolutePath(mirrorPath));
+        localParameter.put("protocol", PROTOCOL_LOCAL);
+        return localParameter;
+    }
+
+    /**
+     * 获取操作工作区使用的参数，配置了镜像仓库时先更新镜像仓库，工作区从镜像仓库拉取
+     *
+     * @param parameter   参数
+     * @param printWriter 日志流
+     * @return 参数
+     * @throws Exception 异常
+     */
+    private static Map<String, Object> getWorkParameter(Map<String, Object> parameter, PrintWriter printWriter) throws Exception {
+        if (parameter.get("mirrorPath") == null) {
+            return parameter;
+        }
+        return updateMirror(parameter, printWriter);
+    }
+
+    /**
+     * 镜像仓库是否和远程一致（使用缓存的远程分支和标签判断）
+     *
+     * @param git       镜像仓库
+     * @param parameter 参数
+     * @return true 不需要拉取
+     * @throws IOException io
+     */
+    private static boolean isMirrorNewest(Git git, Map<String, Object> parameter) throws IOException {
+        Collection<Ref> remoteRefs = REMOTE_REF_CACHE.get(getRefCacheKey(parameter), false);
+        if (CollUtil.isEmpty(remoteRefs)) {
+            return false;
+        }
+        Repository repository = git.getRepository();
+        for (Ref remoteRef : remoteRefs) {
+            String name = remoteRef.getName();
+            if (!StrUtil.startWithAny(name, Constants.R_HEADS, Constants.R_TAGS)) {
+                continue;
+            }
+            Ref ref = repository.exactRef(name);
+            if (ref == null || !Objects.equals(ref.getObjectId(), remoteRef.getObjectId())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 是否为本地镜像仓库
+     *
+     * @param parameter 参数
+     * @return true 本地镜像仓库
+     */
+    private static boolean isLocal(Map<String, Object> parameter) {
+        Integer protocol = (Integer) parameter.get("protocol");
+        return protocol != null && protocol == PROTOCOL_LOCAL;
+    }
+
+    private static String getRefCacheKey(Map<String, Object> parameter) {
+        return StrUtil.format("{}@{}", parameter.get("url"), parameter.get("username"));
+    }
+
     /**
      * 设置仓库凭证
      *
@@ -136,6 +344,10 @@ public class GitUtil {
         Integer protocol = (Integer) parameter.get("protocol");
         String username = (String) parameter.get("username");
         String password = (String) parameter.get("password");
+        if (protocol == PROTOCOL_LOCAL) {
+            // 本地镜像仓库不需要凭证
+            return;
+        }
         if (protocol == 0) {
             // http
             UsernamePasswordCredentialsProvider credentialsProvider = new UsernamePasswordCredentialsProvider(username, password);
@@ -209,6 +421,14 @@ public class GitUtil {
      */
     public static Tuple getBranchAndTagList(Map<String, Object> parameter) throws Exception {
         String url = (String) parameter.get("url");
+        String cacheKey = getRefCacheKey(parameter);
+        boolean useCache = Convert.toBool(parameter.get("useCache"), false);
+        if (useCache) {
+            Collection<Ref> call = REMOTE_REF_CACHE.get(cacheKey, false);
+            if (CollUtil.isNotEmpty(call)) {
+                return parseBranchAndTagList(call);
+            }
+        }
         synchronized (url.intern()) {
             try {
                 LsRemoteCommand lsRemoteCommand = Git.lsRemoteRepository()
@@ -223,39 +443,8 @@ public class GitUtil {
                 if (CollUtil.isEmpty(call)) {
                     return null;
                 }
-                Map<String, List<Ref>> refMap = CollStreamUtil.groupByKey(call, ref -> {
-                    String name = ref.getName();
-                    if (name.startsWith(Constants.R_TAGS)) {
-                        return Constants.R_TAGS;
-                    } else if (name.startsWith(Constants.R_HEADS)) {
-                        return Constants.R_HEADS;
-                    }
-                    return null;
-                });
-
-                // branch list
-                List<Ref> branchListRef = refMap.get(Constants.R_HEADS);
-                if (branchListRef == null) {
-                    return null;
-                }
-                List<String> branchList = branchListRef.stream().map(ref -> {
-                    String name = ref.getName();
-                    if (name.startsWith(Constants.R_HEADS)) {
-                        return name.substring((Constants.R_HEADS).length());
-                    }
-                    return null;
-                }).filter(Objects::nonNull).sorted((o1, o2) -> VersionComparator.INSTANCE.compare(o2, o1)).collect(Collectors.toList());
-
-                // list tag
-                List<Ref> tagListRef = refMap.get(Constants.R_TAGS);
-                List<String> tagList = tagListRef == null ? new ArrayList<>() : tagListRef.stream().map(ref -> {
-                    String name = ref.getName();
-                    if (name.startsWith(Constants.R_TAGS)) {
-                        return name.substring((Constants.R_TAGS).length());
-                    }
-                    return null;
-                }).filter(Objects::nonNull).sorted((o1, o2) -> VersionComparator.INSTANCE.compare(o2, o1)).collect(Collectors.toList());
-                return new Tuple(branchList, tagList);
+                REMOTE_REF_CACHE.put(cacheKey, call);
+                return parseBranchAndTagList(call);
             } catch (Exception t) {
                 checkTransportException(t, null, null);
                 return null;
@@ -263,6 +452,48 @@ public class GitUtil {
         }
     }
 
+    /**
+     * 解析分支和标签
+     *
+     * @param call 远程仓库的 ref
+     * @return Tuple
+     */
+    private static Tuple parseBranchAndTagList(Collection<Ref> call) {
+        Map<String, List<Ref>> refMap = CollStreamUtil.groupByKey(call, ref -> {
+            String name = ref.getName();
+            if (name.startsWith(Constants.R_TAGS)) {
+                return Constants.R_TAGS;
+            } else if (name.startsWith(Constants.R_HEADS)) {
+                return Constants.R_HEADS;
+            }
+            return null;
+        });
+
+        // branch list
+        List<Ref> branchListRef = refMap.get(Constants.R_HEADS);
+        if (branchListRef == null) {
+            return null;
+        }
+        List<String> branchList = branchListRef.stream().map(ref -> {
+            String name = ref.getName();
+            if (name.startsWith(Constants.R_HEADS)) {
+                return name.substring((Constants.R_HEADS).length());
+            }
+            return null;
+        }).filter(Objects::nonNull).sorted((o1, o2) -> VersionComparator.INSTANCE.compare(o2, o1)).collect(Collectors.toList());
+
+        // list tag
+        List<Ref> tagListRef = refMap.get(Constants.R_TAGS);
+        List<String> tagList = tagListRef == null ? new ArrayList<>() : tagListRef.stream().map(ref -> {
+            String name = ref.getName();
+            if (name.startsWith(Constants.R_TAGS)) {
+                return name.substring((Constants.R_TAGS).length());
+            }
+            return null;
+        }).filter(Objects::nonNull).sorted((o1, o2) -> VersionComparator.INSTANCE.compare(o2, o1)).collect(Collectors.toList());
+        return new Tuple(branchList, tagList);
+    }
+
 //	/**
 //	 * load repository branch list by git
 //	 *
@@ -298,11 +529,14 @@ public class GitUtil {
     public static String[] checkoutPull(Map<String, Object> parameter, File file, String branchName, PrintWriter printWriter) throws Exception {
         String url = (String) parameter.get("url");
         synchronized (url.intern()) {
-            try (Git git = initGit(parameter, branchName, file, printWriter)) {
-                // 拉取代码
-                PullResult pull = pull(git, parameter, branchName, null, printWriter);
-                // 最后一次提交记录
-                return getLastCommitMsg(file, branchName);
+            try {
+                Map<String, Object> workParameter = getWorkParameter(parameter, printWriter);
+                try (Git git = initGit(workParameter, branchName, file, printWriter)) {
+                    // 拉取代码
+                    PullResult pull = pull(git, workParameter, branchName, null, printWriter);
+                    // 最后一次提交记录
+                    return getLastCommitMsg(file, branchName);
+                }
             } catch (Exception t) {
                 checkTransportException(t, file, printWriter);
             }
@@ -391,23 +625,25 @@ public class GitUtil {
     public static String checkoutPullTag(Map<String, Object> parameter, File file, String branchName, String tagName, PrintWriter printWriter) throws Exception {
         String url = (String) parameter.get("url");
         synchronized (url.intern()) {
-            try (Git git = initGit(parameter, null, file, printWriter)) {
-                // 拉取最新代码
-                PullResult pull = pull(git, parameter, branchName, TagOpt.FETCH_TAGS, printWriter);
-                // 切换到对应的 tag
-                git.checkout()
-                    .setUpstreamMode(CreateBranchCommand.SetupUpstreamMode.SET_UPSTREAM)
-                    .setForceRefUpdate(true)
-                    .setName(tagName)
-                    .setForced(true)
-                    .call();
-                // 获取最后提交信息
-                Collection<ReflogEntry> reflogEntries = git.reflog().setRef(Constants.HEAD).call();
-                ReflogEntry first = CollUtil.getFirst(reflogEntries);
-                if (first != null) {
-                    return getLastCommitMsg(file, tagName, first.getNewId());
+            try {
+                Map<String, Object> workParameter = getWorkParameter(parameter, printWriter);
+                try (Git git = initGit(workParameter, null, file, printWriter)) {
+                    // 拉取最新代码
+                    PullResult pull = pull(git, workParameter, branchName, TagOpt.FETCH_TAGS, printWriter);
+                    // 切换到对应的 tag
+                    git.checkout()
+                        .setUpstreamMode(CreateBranchCommand.SetupUpstreamMode.SET_UPSTREAM)
+                        .setForceRefUpdate(true)
+                        .setName(tagName)
+                        .setForced(true)
+                        .call();
+                    // 获取最后提交信息
+                    Collection<ReflogEntry> reflogEntries = git.reflog().setRef(Constants.HEAD).call();
+                    ReflogEntry first = CollUtil.getFirst(reflogEntries);
+                    if (first != null) {
+                        return getLastCommitMsg(file, tagName, first.getNewId());
+                    }
                 }
-
             } catch (Exception t) {
                 checkTransportException(t, file, printWriter);
             }
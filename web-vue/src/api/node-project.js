@@ -335,6 +335,24 @@ export function getProjectLogSize(params) {
   });
 }
 
+/**
+ * 向前读取项目控制台日志
+ * @param {
+ *  nodeId: 节点 ID
+ *  id: 项目 ID
+ *  copyId: copyId
+ *  offset: 结束位置,第一次读取不传
+ *  line: 读取行数
+ * } params
+ */
+export function readProjectLogBefore(params) {
+  return axios({
+    url: "/node/manage/log/read-before",
+    method: "post",
+    data: params,
+  });
+}
+
 /**
  * 下载项目日志文件
  * @param {